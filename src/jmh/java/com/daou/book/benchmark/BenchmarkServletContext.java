@@ -0,0 +1,24 @@
+package com.daou.book.benchmark;
+
+import org.springframework.mock.web.MockRequestDispatcher;
+import org.springframework.mock.web.MockServletContext;
+
+import javax.servlet.RequestDispatcher;
+
+/**
+ * Servlet context for booting the web application context outside of a
+ * servlet container. The default servlet handler requires a named dispatcher
+ * for the default servlet of the container.
+ */
+public class BenchmarkServletContext extends MockServletContext {
+
+    private static final String DEFAULT_SERVLET_NAME = "default";
+
+    @Override
+    public RequestDispatcher getNamedDispatcher(String path) {
+        if (DEFAULT_SERVLET_NAME.equals(path)) {
+            return new MockRequestDispatcher(path);
+        }
+        return super.getNamedDispatcher(path);
+    }
+}
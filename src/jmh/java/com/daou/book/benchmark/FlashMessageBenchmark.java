@@ -0,0 +1,88 @@
+package com.daou.book.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
+
+import com.daou.book.controller.AbstractController;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the flash message of the create, edit and delete redirects,
+ * resolved by the ResourceBundleMessageSource of the application context.
+ * Only the message and the redirect view are measured, not the request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class FlashMessageBenchmark {
+
+    private static final String BASENAME = "i18n/messages";
+
+    private static final String LIST_PATH = "/";
+
+    private static final Locale LOCALE = Locale.KOREA;
+
+    public enum Redirect {
+        CREATE("feedback.message.user.created", "Foo Bar"),
+        EDIT("feedback.message.user.edited", "Foo Bar"),
+        DELETE("feedback.message.user.deleted", String.valueOf(42L));
+
+        private final String code;
+
+        private final Object param;
+
+        Redirect(String code, Object param) {
+            this.code = code;
+            this.param = param;
+        }
+    }
+
+    @Param({"CREATE", "EDIT", "DELETE"})
+    public Redirect redirect;
+
+    private RedirectController controller;
+
+    @Setup
+    public void setUp() {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename(BASENAME);
+        messageSource.setUseCodeAsDefaultMessage(true);
+
+        controller = new RedirectController(messageSource);
+        // The locale is bound to the benchmark thread like to a request thread
+        LocaleContextHolder.setLocale(LOCALE);
+    }
+
+    @Benchmark
+    public void feedbackMessage(Blackhole blackhole) {
+        RedirectAttributes attributes = new RedirectAttributesModelMap();
+        blackhole.consume(controller.redirect(attributes, redirect.code, redirect.param));
+        blackhole.consume(attributes);
+    }
+
+    static class RedirectController extends AbstractController {
+
+        RedirectController(MessageSource messageSource) {
+            setMessageSource(messageSource);
+        }
+
+        String redirect(RedirectAttributes attributes, String code, Object param) {
+            addFeedbackMessage(attributes, code, param);
+            return createRedirectViewPath(LIST_PATH);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.daou.book.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.daou.book.service.NameTrie;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency distribution of a name suggestion for prefixes of one
+ * to three characters, the sample time mode reports the p99. The names are
+ * random syllables with a skewed distribution, a few names are common and
+ * most are rare like the real last names.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class NameSuggestionBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "ki", "ku", "le", "lo", "ma", "mi", "no", "pa", "pe", "ri", "sa", "so", "ta", "yu", "zo"};
+
+    private static final int TOP_COUNT = 10;
+
+    private static final int MAX_NODES = 10000000;
+
+    private static final int PREFIX_COUNT = 1024;
+
+    @Param({"100000"})
+    public int nameCount;
+
+    @Param({"1", "2", "3"})
+    public int prefixLength;
+
+    private NameTrie trie;
+
+    private String[] prefixes;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        trie = new NameTrie(TOP_COUNT, MAX_NODES);
+
+        String[] names = new String[nameCount];
+        for (int i = 0; i < nameCount; i++) {
+            names[i] = createName(random);
+        }
+        for (int i = 0; i < nameCount; i++) {
+            // Squaring the random index makes the first names the most common
+            double skew = random.nextDouble();
+            trie.add(names[(int) (skew * skew * nameCount)]);
+        }
+
+        prefixes = new String[PREFIX_COUNT];
+        for (int i = 0; i < PREFIX_COUNT; i++) {
+            prefixes[i] = createName(random).substring(0, prefixLength);
+        }
+    }
+
+    @Benchmark
+    public List<String> suggest() {
+        next = (next + 1) & (PREFIX_COUNT - 1);
+        return trie.suggest(prefixes[next]);
+    }
+
+    private String createName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.daou.book.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import com.daou.book.config.ApplicationInitializer;
+import com.daou.book.domain.User;
+import com.daou.book.dto.UserDTO;
+import com.daou.book.service.UserImportService;
+import com.daou.book.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Boots the application context against the in-memory H2 database of
+ * application.properties and seeds it with the given number of users.
+ */
+@State(Scope.Benchmark)
+public class UserBenchmarkState {
+
+    private static final int LAST_NAME_COUNT = 100;
+
+    private static final String FIRST_NAME_PREFIX = "First";
+    private static final String LAST_NAME_PREFIX = "Last";
+
+    @Param("1000")
+    public int userCount;
+
+    private AnnotationConfigWebApplicationContext context;
+
+    private UserService userService;
+
+    private long[] userIds;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new BenchmarkServletContext());
+        context.register(ApplicationInitializer.getConfigurationClasses(false));
+        context.refresh();
+
+        userService = context.getBean(UserService.class);
+
+        List<UserDTO> seeded = new ArrayList<UserDTO>(userCount);
+        for (int index = 0; index < userCount; index++) {
+            seeded.add(createDTO(null, FIRST_NAME_PREFIX + index, getLastName(index)));
+        }
+        context.getBean(UserImportService.class).importUsers(seeded);
+
+        List<User> users = userService.findAll();
+        userIds = new long[users.size()];
+        for (int index = 0; index < userIds.length; index++) {
+            userIds[index] = users.get(index).getId();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    public UserService getUserService() {
+        return userService;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public Long getRandomUserId(Random random) {
+        return userIds[random.nextInt(userIds.length)];
+    }
+
+    public String getRandomLastName(Random random) {
+        return getLastName(random.nextInt(LAST_NAME_COUNT));
+    }
+
+    public UserDTO createDTO(Long id, String firstName, String lastName) {
+        UserDTO dto = new UserDTO();
+        dto.setId(id);
+        dto.setFirstName(firstName);
+        dto.setLastName(lastName);
+        return dto;
+    }
+
+    private String getLastName(int index) {
+        return LAST_NAME_PREFIX + (index % LAST_NAME_COUNT);
+    }
+}
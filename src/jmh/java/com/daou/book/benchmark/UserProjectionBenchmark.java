@@ -0,0 +1,108 @@
+package com.daou.book.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.daou.book.domain.User;
+import com.daou.book.dto.UserRowDTO;
+import com.daou.book.repository.UserRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a large list of users as managed entities, as read-only
+ * entities and as row views. Every read runs in a read-write transaction
+ * that is flushed before the commit, the flush dirty checks every managed
+ * entity against its snapshot. The gc profiler shows the heap allocated
+ * for the entities and their snapshots.
+ *
+ * The seeded user count should be at least the largest row count.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class UserProjectionBenchmark {
+
+    private static final String QUERY_USERS = "SELECT u FROM User u ORDER BY u.id ASC";
+
+    private static final String HINT_READ_ONLY = "org.hibernate.readOnly";
+
+    @Param({"100", "1000"})
+    public int rowCount;
+
+    private TransactionTemplate transactionTemplate;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private UserRepository userRepository;
+
+    @Setup
+    public void setUp(UserBenchmarkState state) {
+        transactionTemplate = new TransactionTemplate(state.getBean(PlatformTransactionManager.class));
+        entityManagerFactory = state.getBean(EntityManagerFactory.class);
+        userRepository = state.getBean(UserRepository.class);
+    }
+
+    @Benchmark
+    public List<User> entities() {
+        return transactionTemplate.execute(new TransactionCallback<List<User>>() {
+            @Override
+            public List<User> doInTransaction(TransactionStatus status) {
+                EntityManager entityManager = getEntityManager();
+                List<User> users = entityManager.createQuery(QUERY_USERS, User.class)
+                        .setMaxResults(rowCount)
+                        .getResultList();
+                entityManager.flush();
+                return users;
+            }
+        });
+    }
+
+    @Benchmark
+    public List<User> readOnlyEntities() {
+        return transactionTemplate.execute(new TransactionCallback<List<User>>() {
+            @Override
+            public List<User> doInTransaction(TransactionStatus status) {
+                EntityManager entityManager = getEntityManager();
+                List<User> users = entityManager.createQuery(QUERY_USERS, User.class)
+                        .setHint(HINT_READ_ONLY, true)
+                        .setMaxResults(rowCount)
+                        .getResultList();
+                entityManager.flush();
+                return users;
+            }
+        });
+    }
+
+    @Benchmark
+    public List<UserRowDTO> rows() {
+        return transactionTemplate.execute(new TransactionCallback<List<UserRowDTO>>() {
+            @Override
+            public List<UserRowDTO> doInTransaction(TransactionStatus status) {
+                List<UserRowDTO> rows = userRepository.findFirstPageOrderById(new PageRequest(0, rowCount));
+                getEntityManager().flush();
+                return rows;
+            }
+        });
+    }
+
+    private EntityManager getEntityManager() {
+        return EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+    }
+}
@@ -0,0 +1,124 @@
+package com.daou.book.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.daou.book.domain.User;
+import com.daou.book.dto.SearchDTO;
+import com.daou.book.dto.SearchType;
+import com.daou.book.dto.UserDTO;
+import com.daou.book.dto.UserRowDTO;
+import com.daou.book.exception.UserNotFoundException;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the user service operations. The allocation rate is reported
+ * by the gc profiler enabled in the benchmark profile of the pom.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UserServiceBenchmark {
+
+    private static final String FIRST_NAME = "Foo";
+    private static final String LAST_NAME = "Bar";
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        Random random = new Random(42);
+
+        int sequence;
+    }
+
+    /*
+     * The full text search reads the index, which is filled with the seeded
+     * users when their import is published.
+     */
+    @State(Scope.Thread)
+    public static class SearchState {
+
+        @Param({"METHOD_NAME", "NAMED_QUERY", "QUERY_ANNOTATION", "FULL_TEXT"})
+        public SearchType searchType;
+
+        SearchDTO searchCriteria = new SearchDTO();
+
+        @Setup
+        public void setUp() {
+            searchCriteria.setSearchType(searchType);
+        }
+    }
+
+    /*
+     * Every delete needs a user of its own. The user is created outside of
+     * the measured time, the per invocation overhead is small compared to a
+     * database round trip.
+     */
+    @State(Scope.Thread)
+    public static class DeleteState {
+
+        Long userId;
+
+        @Setup(Level.Invocation)
+        public void setUp(UserBenchmarkState state) {
+            userId = state.getUserService().create(state.createDTO(null, FIRST_NAME, LAST_NAME)).getId();
+        }
+    }
+
+    /*
+     * The update needs the current version of the user, it is read outside
+     * of the measured time like the user of the delete benchmark.
+     */
+    @State(Scope.Thread)
+    public static class UpdateState {
+
+        UserDTO updated;
+
+        @Setup(Level.Invocation)
+        public void setUp(UserBenchmarkState state, ThreadState thread) {
+            User user = state.getUserService().findById(state.getRandomUserId(thread.random));
+            updated = state.createDTO(user.getId(), FIRST_NAME + thread.sequence++, state.getRandomLastName(thread.random));
+            updated.setVersion(user.getVersion());
+        }
+    }
+
+    @Benchmark
+    public User create(UserBenchmarkState state, ThreadState thread) {
+        return state.getUserService().create(state.createDTO(null, FIRST_NAME + thread.sequence++, LAST_NAME));
+    }
+
+    @Benchmark
+    public User findById(UserBenchmarkState state, ThreadState thread) {
+        return state.getUserService().findById(state.getRandomUserId(thread.random));
+    }
+
+    @Benchmark
+    public void update(UserBenchmarkState state, UpdateState update) throws UserNotFoundException {
+        state.getUserService().update(update.updated);
+    }
+
+    @Benchmark
+    public void delete(UserBenchmarkState state, DeleteState delete) throws UserNotFoundException {
+        state.getUserService().delete(delete.userId);
+    }
+
+    @Benchmark
+    public List<User> findAll(UserBenchmarkState state) {
+        return state.getUserService().findAll();
+    }
+
+    @Benchmark
+    public List<UserRowDTO> search(UserBenchmarkState state, ThreadState thread, SearchState search) {
+        search.searchCriteria.setSearchTerm(state.getRandomLastName(thread.random));
+        return state.getUserService().search(search.searchCriteria);
+    }
+}
@@ -0,0 +1,214 @@
+package com.daou.book.benchmark;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.webapp.WebAppContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+import com.daou.book.config.ApplicationInitializer;
+import com.daou.book.domain.User;
+import com.daou.book.dto.UserDTO;
+import com.daou.book.service.UserService;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.ServletException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to the first 200 response of each view in a freshly started servlet
+ * container, with the JSP pages compiled on demand and with the pages
+ * precompiled by the jspc profile of the pom.
+ *
+ * Every iteration starts a new container with an empty scratch directory, so
+ * the measured request always finds the view uncompiled. Starting the
+ * container and the application context is not measured, it is the same for
+ * both variants.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ViewStartupBenchmark {
+
+    private static final String PROPERTY_NAME_WEBAPP = "benchmark.webapp";
+
+    private static final String SOURCE_WEBAPP = "src/main/webapp";
+    private static final String DEFAULTS_DESCRIPTOR = "src/main/resources/webdefault.xml";
+    private static final String WEB_XML = "WEB-INF/web.xml";
+
+    private static final String CONTEXT_PATH = "/";
+
+    private static final String FIRST_NAME = "Foo";
+    private static final String LAST_NAME = "Bar";
+
+    public enum View {
+        LIST("/"),
+        CREATE("/user/create"),
+        EDIT("/user/edit/");
+
+        private final String path;
+
+        View(String path) {
+            this.path = path;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ServerState {
+
+        @Param({"false", "true"})
+        public boolean precompiled;
+
+        @Param({"LIST", "CREATE", "EDIT"})
+        public View view;
+
+        private Server server;
+
+        private File scratchDirectory;
+
+        private int port;
+
+        private String path;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Exception {
+            scratchDirectory = File.createTempFile("view-startup", "");
+            scratchDirectory.delete();
+            scratchDirectory.mkdirs();
+
+            WebAppContext context = createWebAppContext();
+            server = new Server(0);
+            server.setHandler(context);
+            server.start();
+            port = server.getConnectors()[0].getLocalPort();
+
+            path = view.path;
+            if (view == View.EDIT) {
+                path += createUser(context).getId();
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws Exception {
+            server.stop();
+            delete(scratchDirectory);
+        }
+
+        private WebAppContext createWebAppContext() {
+            WebAppContext context = new WebAppContext();
+            context.setContextPath(CONTEXT_PATH);
+            context.setResourceBase(getWebAppDirectory());
+            context.setDefaultsDescriptor(DEFAULTS_DESCRIPTOR);
+            context.setTempDirectory(scratchDirectory);
+            // The application classes are loaded from the benchmark class path
+            context.setParentLoaderPriority(true);
+            // Annotation scanning is not configured, the initializer is run directly
+            context.addEventListener(new ServletContextListener() {
+                @Override
+                public void contextInitialized(ServletContextEvent event) {
+                    try {
+                        new ApplicationInitializer().onStartup(event.getServletContext());
+                    } catch (ServletException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+
+                @Override
+                public void contextDestroyed(ServletContextEvent event) {
+                }
+            });
+            return context;
+        }
+
+        private String getWebAppDirectory() {
+            if (!precompiled) {
+                return SOURCE_WEBAPP;
+            }
+
+            String webapp = System.getProperty(PROPERTY_NAME_WEBAPP);
+            if (webapp == null || !new File(webapp, WEB_XML).isFile()) {
+                throw new IllegalStateException("No precompiled war found from " + webapp + ", run the benchmark with -P jspc,benchmark");
+            }
+            return webapp;
+        }
+
+        int getView() throws IOException {
+            HttpURLConnection connection = open(path);
+            try {
+                consume(connection);
+                return connection.getResponseCode();
+            } finally {
+                connection.disconnect();
+            }
+        }
+
+        /*
+         * The user of the edit view is created through the service, a request
+         * to the create form would compile the included pages of the view.
+         */
+        private User createUser(WebAppContext context) {
+            UserDTO created = new UserDTO();
+            created.setFirstName(FIRST_NAME);
+            created.setLastName(LAST_NAME);
+
+            WebApplicationContext applicationContext = WebApplicationContextUtils.getRequiredWebApplicationContext(context.getServletContext());
+            return applicationContext.getBean(UserService.class).create(created);
+        }
+
+        private HttpURLConnection open(String path) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http", "localhost", port, path).openConnection();
+            connection.setInstanceFollowRedirects(false);
+            return connection;
+        }
+
+        private void consume(HttpURLConnection connection) throws IOException {
+            InputStream in = connection.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST
+                    ? connection.getInputStream() : connection.getErrorStream();
+            if (in == null) {
+                return;
+            }
+            try {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1) {
+                    // The whole page is rendered before it is measured as served
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        private void delete(File file) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    delete(child);
+                }
+            }
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public int firstRequest(ServerState state) throws IOException {
+        int status = state.getView();
+        if (status != HttpURLConnection.HTTP_OK) {
+            throw new IllegalStateException("GET " + state.view + " returned " + status);
+        }
+        return status;
+    }
+}
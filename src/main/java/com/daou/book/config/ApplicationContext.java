@@ -1,30 +1,69 @@
 package com.daou.book.config;
 
-import com.jolbox.bonecp.BoneCPDataSource;
+import com.daou.book.datasource.MonitoredBoneCPDataSource;
+import com.daou.book.datasource.ReadWriteRoutingDataSource;
+import com.daou.book.domain.User;
+import com.daou.book.metrics.MetricsInterceptor;
+import com.daou.book.metrics.MetricsRegistry;
+import com.daou.book.service.GroupCommitUserWriter;
+import com.daou.book.web.BulkheadInterceptor;
+import com.daou.book.web.BulkheadType;
+import com.daou.book.web.ConcurrencyLimiter;
+import com.daou.book.web.CookieFlashMapManager;
+import com.daou.book.web.HmacSigner;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+import org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory;
+import org.hibernate.cache.internal.StandardQueryCache;
+import org.hibernate.cache.spi.UpdateTimestampsCache;
 import org.hibernate.ejb.HibernatePersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.*;
 import org.springframework.context.support.ResourceBundleMessageSource;
 import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.persistenceunit.MutablePersistenceUnitInfo;
+import org.springframework.orm.jpa.persistenceunit.PersistenceUnitPostProcessor;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
 import org.springframework.web.servlet.ViewResolver;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 import org.springframework.web.servlet.view.InternalResourceViewResolver;
 import org.springframework.web.servlet.view.JstlView;
 
 import javax.annotation.Resource;
 import javax.sql.DataSource;
+import java.nio.charset.Charset;
+import java.security.SecureRandom;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Infrastructure of the application. The components and repositories are
+ * registered by ComponentScanContext or, in the fast boot mode, by
+ * FastBootContext.
+ */
 @Configuration
-@ComponentScan(basePackages = {"com.daou.book.controller", "com.daou.book.service"})
 @EnableTransactionManagement
 @EnableWebMvc
 @ImportResource("classpath:applicationContext.xml")
 @PropertySource("classpath:application.properties")
-public class ApplicationContext {
+public class ApplicationContext extends WebMvcConfigurerAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ApplicationContext.class);
 
     private static final String VIEW_RESOLVER_PREFIX = "/WEB-INF/jsp/";
     private static final String VIEW_RESOLVER_SUFFIX = ".jsp";
@@ -34,27 +73,148 @@ public class ApplicationContext {
     private static final String PROPERTY_NAME_DATABASE_URL = "db.url";
     private static final String PROPERTY_NAME_DATABASE_USERNAME = "db.username";
 
+    private static final String PROPERTY_NAME_DATABASE_REPLICA_PASSWORD = "db.replica.password";
+    private static final String PROPERTY_NAME_DATABASE_REPLICA_URL = "db.replica.url";
+    private static final String PROPERTY_NAME_DATABASE_REPLICA_USERNAME = "db.replica.username";
+    private static final String PROPERTY_NAME_DATABASE_REPLICA_RETRY_INTERVAL_SECONDS = "db.replica.retry.interval.seconds";
+
+    private static final String PROPERTY_NAME_POOL_PARTITION_COUNT = "db.pool.partition.count";
+    private static final String PROPERTY_NAME_POOL_MIN_CONNECTIONS_PER_PARTITION = "db.pool.min.connections.per.partition";
+    private static final String PROPERTY_NAME_POOL_MAX_CONNECTIONS_PER_PARTITION = "db.pool.max.connections.per.partition";
+    private static final String PROPERTY_NAME_POOL_ACQUIRE_INCREMENT = "db.pool.acquire.increment";
+    private static final String PROPERTY_NAME_POOL_ACQUIRE_RETRY_ATTEMPTS = "db.pool.acquire.retry.attempts";
+    private static final String PROPERTY_NAME_POOL_ACQUIRE_RETRY_DELAY_MILLIS = "db.pool.acquire.retry.delay.millis";
+    private static final String PROPERTY_NAME_POOL_CONNECTION_TIMEOUT_MILLIS = "db.pool.connection.timeout.millis";
+    private static final String PROPERTY_NAME_POOL_IDLE_CONNECTION_TEST_PERIOD_SECONDS = "db.pool.idle.connection.test.period.seconds";
+    private static final String PROPERTY_NAME_POOL_IDLE_MAX_AGE_SECONDS = "db.pool.idle.max.age.seconds";
+    private static final String PROPERTY_NAME_POOL_MAX_CONNECTION_AGE_SECONDS = "db.pool.max.connection.age.seconds";
+    private static final String PROPERTY_NAME_POOL_RELEASE_HELPER_THREADS = "db.pool.release.helper.threads";
+    private static final String PROPERTY_NAME_POOL_STATEMENT_RELEASE_HELPER_THREADS = "db.pool.statement.release.helper.threads";
+    private static final String PROPERTY_NAME_POOL_STATEMENTS_CACHE_SIZE = "db.pool.statements.cache.size";
+    private static final String PROPERTY_NAME_POOL_STATISTICS_ENABLED = "db.pool.statistics.enabled";
+
+    private static final String POOL_NAME_PRIMARY = "primary";
+    private static final String POOL_NAME_REPLICA = "replica";
+
+    private static final int REPLICA_ACQUIRE_RETRY_ATTEMPTS = 0;
+
     private static final String PROPERTY_NAME_HIBERNATE_DIALECT = "hibernate.dialect";
     private static final String PROPERTY_NAME_HIBERNATE_FORMAT_SQL = "hibernate.format_sql";
     private static final String PROPERTY_NAME_HIBERNATE_HBM2DDL_AUTO = "hibernate.hbm2ddl.auto";
+    private static final String PROPERTY_NAME_HIBERNATE_JDBC_BATCH_SIZE = "hibernate.jdbc.batch_size";
+    private static final String PROPERTY_NAME_HIBERNATE_JDBC_BATCH_VERSIONED_DATA = "hibernate.jdbc.batch_versioned_data";
+    private static final String PROPERTY_NAME_HIBERNATE_ORDER_INSERTS = "hibernate.order_inserts";
+    private static final String PROPERTY_NAME_HIBERNATE_ORDER_UPDATES = "hibernate.order_updates";
     private static final String PROPERTY_NAME_HIBERNATE_NAMING_STRATEGY = "hibernate.ejb.naming_strategy";
     private static final String PROPERTY_NAME_HIBERNATE_SHOW_SQL = "hibernate.show_sql";
     private static final String PROPERTY_NAME_ENTITYMANAGER_PACKAGES_TO_SCAN = "entitymanager.packages.to.scan";
 
+    private static final String PROPERTY_NAME_STARTUP_FAST_BOOT = "startup.fast.boot";
+    private static final String PROPERTY_NAME_STARTUP_FAST_BOOT_HBM2DDL_AUTO = "startup.fast.boot.hbm2ddl.auto";
+
+    private static final String PROPERTY_NAME_HIBERNATE_USE_SECOND_LEVEL_CACHE = "hibernate.cache.use_second_level_cache";
+    private static final String PROPERTY_NAME_HIBERNATE_USE_QUERY_CACHE = "hibernate.cache.use_query_cache";
+    private static final String PROPERTY_NAME_HIBERNATE_CACHE_REGION_FACTORY = "hibernate.cache.region.factory_class";
+    private static final String PROPERTY_NAME_HIBERNATE_GENERATE_STATISTICS = "hibernate.generate_statistics";
+    private static final String PROPERTY_NAME_JPA_SHARED_CACHE_MODE = "javax.persistence.sharedCache.mode";
+
+    private static final String PROPERTY_NAME_CACHE_USER_MAX_ENTRIES = "cache.user.max.entries";
+    private static final String PROPERTY_NAME_CACHE_QUERY_MAX_ENTRIES = "cache.query.max.entries";
+    private static final String PROPERTY_NAME_CACHE_TIME_TO_LIVE_SECONDS = "cache.time.to.live.seconds";
+
+    private static final String JPA_SHARED_CACHE_MODE_ENABLE_SELECTIVE = "ENABLE_SELECTIVE";
+
+    private static final int CACHE_DEFAULT_MAX_ENTRIES = 1000;
+    private static final int CACHE_UPDATE_TIMESTAMPS_MAX_ENTRIES = 5000;
+
     private static final String PROPERTY_NAME_MESSAGESOURCE_BASENAME = "message.source.basename";
     private static final String PROPERTY_NAME_MESSAGESOURCE_USE_CODE_AS_DEFAULT_MESSAGE = "message.source.use.code.as.default.message";
 
+    private static final String PROPERTY_NAME_WEB_SIGNING_KEY = "web.signing.key";
+
+    private static final String SIGNING_KEY_CHARSET = "UTF-8";
+    private static final int GENERATED_SIGNING_KEY_LENGTH = 32;
+
+    private static final String PROPERTY_NAME_BULKHEAD_PREFIX = "bulkhead.";
+    private static final String PROPERTY_NAME_BULKHEAD_MAX_CONCURRENT_SUFFIX = ".max.concurrent";
+    private static final String PROPERTY_NAME_BULKHEAD_MAX_WAITING_SUFFIX = ".max.waiting";
+    private static final String PROPERTY_NAME_BULKHEAD_QUEUE_INTERVAL_MILLIS = "bulkhead.queue.interval.millis";
+    private static final String PROPERTY_NAME_BULKHEAD_QUEUE_TARGET_MILLIS = "bulkhead.queue.target.millis";
+
+    private static final int BULKHEAD_DEFAULT_MAX_CONCURRENT = 8;
+    private static final int BULKHEAD_DEFAULT_MAX_WAITING = 20;
+    private static final int BULKHEAD_DEFAULT_CREATE_MAX_WAITING = 0;
+    private static final int BULKHEAD_DEFAULT_BULK_MAX_CONCURRENT = 2;
+    private static final int BULKHEAD_DEFAULT_BULK_MAX_WAITING = 0;
+    private static final long BULKHEAD_DEFAULT_QUEUE_INTERVAL_MILLIS = 100;
+    private static final long BULKHEAD_DEFAULT_QUEUE_TARGET_MILLIS = 5;
+
     @Resource
     private Environment environment;
 
+    @Resource
+    private MetricsInterceptor metricsInterceptor;
+
+    @Resource
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * Creates the data source of the application. When a replica is configured
+     * the connections of read-only transactions are routed to it, see
+     * ReadWriteRoutingDataSource.
+     */
     @Bean
     public DataSource dataSource() {
-        BoneCPDataSource dataSource = new BoneCPDataSource();
+        MonitoredBoneCPDataSource primary = createDataSource(POOL_NAME_PRIMARY, environment.getRequiredProperty(PROPERTY_NAME_DATABASE_URL),
+                environment.getRequiredProperty(PROPERTY_NAME_DATABASE_USERNAME),
+                environment.getRequiredProperty(PROPERTY_NAME_DATABASE_PASSWORD));
+
+        String replicaUrl = environment.getProperty(PROPERTY_NAME_DATABASE_REPLICA_URL);
+        if (!StringUtils.hasText(replicaUrl)) {
+            return primary;
+        }
+
+        MonitoredBoneCPDataSource replica = createDataSource(POOL_NAME_REPLICA, replicaUrl,
+                environment.getRequiredProperty(PROPERTY_NAME_DATABASE_REPLICA_USERNAME),
+                environment.getRequiredProperty(PROPERTY_NAME_DATABASE_REPLICA_PASSWORD));
+        replica.setAcquireRetryAttempts(REPLICA_ACQUIRE_RETRY_ATTEMPTS);
+
+        long retryIntervalMillis = TimeUnit.SECONDS.toMillis(
+                environment.getRequiredProperty(PROPERTY_NAME_DATABASE_REPLICA_RETRY_INTERVAL_SECONDS, Long.class));
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, replica, retryIntervalMillis);
+        routingDataSource.afterPropertiesSet();
 
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Creates a connection pool. The pool and statement cache settings are shared
+     * by the primary and the replica, the cache size is the number of prepared
+     * statements cached per connection.
+     */
+    private MonitoredBoneCPDataSource createDataSource(String poolName, String url, String username, String password) {
+        MonitoredBoneCPDataSource dataSource = new MonitoredBoneCPDataSource();
+
+        dataSource.setPoolName(poolName);
         dataSource.setDriverClass(environment.getRequiredProperty(PROPERTY_NAME_DATABASE_DRIVER));
-        dataSource.setJdbcUrl(environment.getRequiredProperty(PROPERTY_NAME_DATABASE_URL));
-        dataSource.setUsername(environment.getRequiredProperty(PROPERTY_NAME_DATABASE_USERNAME));
-        dataSource.setPassword(environment.getRequiredProperty(PROPERTY_NAME_DATABASE_PASSWORD));
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+
+        dataSource.setPartitionCount(environment.getRequiredProperty(PROPERTY_NAME_POOL_PARTITION_COUNT, Integer.class));
+        dataSource.setMinConnectionsPerPartition(environment.getRequiredProperty(PROPERTY_NAME_POOL_MIN_CONNECTIONS_PER_PARTITION, Integer.class));
+        dataSource.setMaxConnectionsPerPartition(environment.getRequiredProperty(PROPERTY_NAME_POOL_MAX_CONNECTIONS_PER_PARTITION, Integer.class));
+        dataSource.setAcquireIncrement(environment.getRequiredProperty(PROPERTY_NAME_POOL_ACQUIRE_INCREMENT, Integer.class));
+        dataSource.setAcquireRetryAttempts(environment.getRequiredProperty(PROPERTY_NAME_POOL_ACQUIRE_RETRY_ATTEMPTS, Integer.class));
+        dataSource.setAcquireRetryDelayInMs(environment.getRequiredProperty(PROPERTY_NAME_POOL_ACQUIRE_RETRY_DELAY_MILLIS, Long.class));
+        dataSource.setConnectionTimeoutInMs(environment.getRequiredProperty(PROPERTY_NAME_POOL_CONNECTION_TIMEOUT_MILLIS, Long.class));
+        dataSource.setIdleConnectionTestPeriodInSeconds(environment.getRequiredProperty(PROPERTY_NAME_POOL_IDLE_CONNECTION_TEST_PERIOD_SECONDS, Long.class));
+        dataSource.setIdleMaxAgeInSeconds(environment.getRequiredProperty(PROPERTY_NAME_POOL_IDLE_MAX_AGE_SECONDS, Long.class));
+        dataSource.setMaxConnectionAgeInSeconds(environment.getRequiredProperty(PROPERTY_NAME_POOL_MAX_CONNECTION_AGE_SECONDS, Long.class));
+        dataSource.setReleaseHelperThreads(environment.getRequiredProperty(PROPERTY_NAME_POOL_RELEASE_HELPER_THREADS, Integer.class));
+        dataSource.setStatementReleaseHelperThreads(environment.getRequiredProperty(PROPERTY_NAME_POOL_STATEMENT_RELEASE_HELPER_THREADS, Integer.class));
+        dataSource.setStatementsCacheSize(environment.getRequiredProperty(PROPERTY_NAME_POOL_STATEMENTS_CACHE_SIZE, Integer.class));
+        dataSource.setStatisticsEnabled(environment.getRequiredProperty(PROPERTY_NAME_POOL_STATISTICS_ENABLED, Boolean.class));
 
         return dataSource;
     }
@@ -72,22 +232,83 @@ public class ApplicationContext {
     public LocalContainerEntityManagerFactoryBean entityManagerFactoryBean() throws ClassNotFoundException {
         LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
 
+        boolean fastBoot = environment.getProperty(PROPERTY_NAME_STARTUP_FAST_BOOT, Boolean.class, Boolean.FALSE);
+
         entityManagerFactoryBean.setDataSource(dataSource());
-        entityManagerFactoryBean.setPackagesToScan(environment.getRequiredProperty(PROPERTY_NAME_ENTITYMANAGER_PACKAGES_TO_SCAN));
+        if (fastBoot) {
+            // An empty package list creates the default persistence unit without scanning
+            entityManagerFactoryBean.setPackagesToScan();
+            entityManagerFactoryBean.setPersistenceUnitPostProcessors(new PersistenceUnitPostProcessor() {
+                @Override
+                public void postProcessPersistenceUnitInfo(MutablePersistenceUnitInfo persistenceUnit) {
+                    for (Class<?> entity : FastBootContext.ENTITIES) {
+                        persistenceUnit.addManagedClassName(entity.getName());
+                    }
+                }
+            });
+        } else {
+            entityManagerFactoryBean.setPackagesToScan(environment.getRequiredProperty(PROPERTY_NAME_ENTITYMANAGER_PACKAGES_TO_SCAN));
+        }
         entityManagerFactoryBean.setPersistenceProviderClass(HibernatePersistence.class);
 
+        String hbm2ddlAuto = fastBoot ? environment.getRequiredProperty(PROPERTY_NAME_STARTUP_FAST_BOOT_HBM2DDL_AUTO)
+                : environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_HBM2DDL_AUTO);
+
         Properties jpaProterties = new Properties();
         jpaProterties.put(PROPERTY_NAME_HIBERNATE_DIALECT, environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_DIALECT));
         jpaProterties.put(PROPERTY_NAME_HIBERNATE_FORMAT_SQL, environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_FORMAT_SQL));
-        jpaProterties.put(PROPERTY_NAME_HIBERNATE_HBM2DDL_AUTO, environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_HBM2DDL_AUTO));
+        jpaProterties.put(PROPERTY_NAME_HIBERNATE_HBM2DDL_AUTO, hbm2ddlAuto);
+        jpaProterties.put(PROPERTY_NAME_HIBERNATE_JDBC_BATCH_SIZE, environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_JDBC_BATCH_SIZE));
+        jpaProterties.put(PROPERTY_NAME_HIBERNATE_JDBC_BATCH_VERSIONED_DATA, environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_JDBC_BATCH_VERSIONED_DATA));
+        jpaProterties.put(PROPERTY_NAME_HIBERNATE_ORDER_INSERTS, environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_ORDER_INSERTS));
+        jpaProterties.put(PROPERTY_NAME_HIBERNATE_ORDER_UPDATES, environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_ORDER_UPDATES));
         jpaProterties.put(PROPERTY_NAME_HIBERNATE_NAMING_STRATEGY, environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_NAMING_STRATEGY));
         jpaProterties.put(PROPERTY_NAME_HIBERNATE_SHOW_SQL, environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_SHOW_SQL));
+        jpaProterties.put(PROPERTY_NAME_HIBERNATE_GENERATE_STATISTICS, environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_GENERATE_STATISTICS));
+
+        boolean secondLevelCache = Boolean.parseBoolean(environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_USE_SECOND_LEVEL_CACHE));
+        boolean queryCache = secondLevelCache && Boolean.parseBoolean(environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_USE_QUERY_CACHE));
+        jpaProterties.put(PROPERTY_NAME_HIBERNATE_USE_SECOND_LEVEL_CACHE, String.valueOf(secondLevelCache));
+        jpaProterties.put(PROPERTY_NAME_HIBERNATE_USE_QUERY_CACHE, String.valueOf(queryCache));
+        jpaProterties.put(PROPERTY_NAME_JPA_SHARED_CACHE_MODE, JPA_SHARED_CACHE_MODE_ENABLE_SELECTIVE);
+        if (secondLevelCache) {
+            createCacheManager();
+            jpaProterties.put(PROPERTY_NAME_HIBERNATE_CACHE_REGION_FACTORY, SingletonEhCacheRegionFactory.class.getName());
+        }
 
         entityManagerFactoryBean.setJpaProperties(jpaProterties);
 
         return entityManagerFactoryBean;
     }
 
+    /**
+     * Creates the singleton Ehcache manager used by the Hibernate region factory.
+     * The regions are sized from application.properties and evict the least
+     * recently used entries when full. The update timestamps region must not
+     * evict, otherwise the query cache could return stale results.
+     */
+    private void createCacheManager() {
+        int timeToLiveSeconds = environment.getRequiredProperty(PROPERTY_NAME_CACHE_TIME_TO_LIVE_SECONDS, Integer.class);
+
+        net.sf.ehcache.config.Configuration configuration = new net.sf.ehcache.config.Configuration();
+        configuration.setUpdateCheck(false);
+        configuration.addDefaultCache(createCacheConfiguration(null, CACHE_DEFAULT_MAX_ENTRIES, timeToLiveSeconds));
+        configuration.addCache(createCacheConfiguration(User.class.getName(),
+                environment.getRequiredProperty(PROPERTY_NAME_CACHE_USER_MAX_ENTRIES, Integer.class), timeToLiveSeconds));
+        configuration.addCache(createCacheConfiguration(StandardQueryCache.class.getName(),
+                environment.getRequiredProperty(PROPERTY_NAME_CACHE_QUERY_MAX_ENTRIES, Integer.class), timeToLiveSeconds));
+        configuration.addCache(createCacheConfiguration(UpdateTimestampsCache.class.getName(), CACHE_UPDATE_TIMESTAMPS_MAX_ENTRIES, 0).eternal(true));
+
+        CacheManager.create(configuration);
+    }
+
+    private CacheConfiguration createCacheConfiguration(String name, int maxEntries, int timeToLiveSeconds) {
+        return new CacheConfiguration(name, maxEntries)
+                .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU)
+                .overflowToDisk(false)
+                .timeToLiveSeconds(timeToLiveSeconds);
+    }
+
     @Bean
     public MessageSource messageSource() {
         ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
@@ -98,6 +319,16 @@ public class ApplicationContext {
         return messageSource;
     }
 
+    @Bean
+    public LocalValidatorFactoryBean validator() {
+        return new LocalValidatorFactoryBean();
+    }
+
+    @Bean
+    public MultipartResolver multipartResolver() {
+        return new StandardServletMultipartResolver();
+    }
+
     @Bean
     public ViewResolver viewResolver() {
         InternalResourceViewResolver viewResolver = new InternalResourceViewResolver();
@@ -108,4 +339,79 @@ public class ApplicationContext {
 
         return viewResolver;
     }
+
+    /**
+     * Creates the signer of the form state and the flash cookies. Without a
+     * configured key a random key is generated, which is valid only in this
+     * process and until it is restarted.
+     */
+    @Bean
+    public HmacSigner signer() {
+        String key = environment.getProperty(PROPERTY_NAME_WEB_SIGNING_KEY);
+        if (!StringUtils.hasText(key)) {
+            LOGGER.warn("No " + PROPERTY_NAME_WEB_SIGNING_KEY + " configured, generating a key. Set the same key on every node to scale out.");
+            byte[] generated = new byte[GENERATED_SIGNING_KEY_LENGTH];
+            new SecureRandom().nextBytes(generated);
+            return new HmacSigner(generated);
+        }
+        return new HmacSigner(key.getBytes(Charset.forName(SIGNING_KEY_CHARSET)));
+    }
+
+    /**
+     * Replaces the session based flash map manager, see CookieFlashMapManager.
+     * DispatcherServlet looks the manager up by this bean name.
+     */
+    @Bean
+    public CookieFlashMapManager flashMapManager() {
+        return new CookieFlashMapManager(signer());
+    }
+
+    /**
+     * Creates the bulkheads of the reads, the writes and the bulk operations.
+     * Their permits should together stay below the size of the connection
+     * pool, see BulkheadInterceptor.
+     *
+     * With the group commit the creates wait in the queue of the user writer
+     * without a connection. Limiting them like the other writes would cap every
+     * group commit at the write permits, so their bulkhead admits a full writer
+     * queue by default. Without the group commit they share the write bulkhead.
+     */
+    @Bean
+    public BulkheadInterceptor bulkheadInterceptor() {
+        Map<BulkheadType, ConcurrencyLimiter> limiters = new EnumMap<BulkheadType, ConcurrencyLimiter>(BulkheadType.class);
+        limiters.put(BulkheadType.READ, createLimiter(BulkheadType.READ, BULKHEAD_DEFAULT_MAX_CONCURRENT, BULKHEAD_DEFAULT_MAX_WAITING));
+        limiters.put(BulkheadType.WRITE, createLimiter(BulkheadType.WRITE, BULKHEAD_DEFAULT_MAX_CONCURRENT, BULKHEAD_DEFAULT_MAX_WAITING));
+        limiters.put(BulkheadType.BULK, createLimiter(BulkheadType.BULK, BULKHEAD_DEFAULT_BULK_MAX_CONCURRENT, BULKHEAD_DEFAULT_BULK_MAX_WAITING));
+
+        if (environment.getProperty(GroupCommitUserWriter.PROPERTY_NAME_GROUP_COMMIT_ENABLED, Boolean.class, Boolean.FALSE)) {
+            int queueCapacity = environment.getProperty(GroupCommitUserWriter.PROPERTY_NAME_QUEUE_CAPACITY, Integer.class,
+                    GroupCommitUserWriter.DEFAULT_QUEUE_CAPACITY);
+            limiters.put(BulkheadType.CREATE, createLimiter(BulkheadType.CREATE, queueCapacity, BULKHEAD_DEFAULT_CREATE_MAX_WAITING));
+        }
+        else {
+            limiters.put(BulkheadType.CREATE, limiters.get(BulkheadType.WRITE));
+        }
+        return new BulkheadInterceptor(limiters);
+    }
+
+    private ConcurrencyLimiter createLimiter(BulkheadType type, int defaultMaxConcurrent, int defaultMaxWaiting) {
+        long intervalMillis = environment.getProperty(PROPERTY_NAME_BULKHEAD_QUEUE_INTERVAL_MILLIS, Long.class, BULKHEAD_DEFAULT_QUEUE_INTERVAL_MILLIS);
+        long targetMillis = environment.getProperty(PROPERTY_NAME_BULKHEAD_QUEUE_TARGET_MILLIS, Long.class, BULKHEAD_DEFAULT_QUEUE_TARGET_MILLIS);
+
+        String name = type.name().toLowerCase(Locale.ENGLISH);
+        int maxConcurrent = environment.getProperty(PROPERTY_NAME_BULKHEAD_PREFIX + name + PROPERTY_NAME_BULKHEAD_MAX_CONCURRENT_SUFFIX,
+                Integer.class, defaultMaxConcurrent);
+        int maxWaiting = environment.getProperty(PROPERTY_NAME_BULKHEAD_PREFIX + name + PROPERTY_NAME_BULKHEAD_MAX_WAITING_SUFFIX,
+                Integer.class, defaultMaxWaiting);
+        LOGGER.debug("Bulkhead " + name + " admits " + maxConcurrent + " requests and queues " + maxWaiting + " requests");
+
+        return new ConcurrencyLimiter(name, maxConcurrent, maxWaiting, intervalMillis, targetMillis, metricsRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(metricsInterceptor);
+        registry.addInterceptor(bulkheadInterceptor());
+        registry.addInterceptor(flashMapManager());
+    }
 }
@@ -1,26 +1,70 @@
 package com.daou.book.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
 import org.springframework.web.WebApplicationInitializer;
 import org.springframework.web.context.ContextLoaderListener;
-import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
 import org.springframework.web.servlet.DispatcherServlet;
 
 import javax.servlet.*;
 
+import java.io.IOException;
+
 public class ApplicationInitializer implements WebApplicationInitializer {
-    
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ApplicationInitializer.class);
+
     private static final String DISPATCHER_SERVLET_NAME = "dispatcher";
     private static final String DISPATCHER_SERVLET_MAPPING = "/";
-    
+
+    private static final String MULTIPART_LOCATION = "";
+    private static final long MULTIPART_MAX_FILE_SIZE = 100 * 1024 * 1024;
+    private static final long MULTIPART_MAX_REQUEST_SIZE = 100 * 1024 * 1024;
+    private static final int MULTIPART_FILE_SIZE_THRESHOLD = 1024 * 1024;
+
+    private static final String APPLICATION_PROPERTIES = "classpath:application.properties";
+    private static final String PROPERTY_NAME_STARTUP_FAST_BOOT = "startup.fast.boot";
+
     @Override
     public void onStartup(ServletContext servletContext) throws ServletException {
-        AnnotationConfigWebApplicationContext rootContext = new AnnotationConfigWebApplicationContext();
-        rootContext.register(ApplicationContext.class);
+        TimedWebApplicationContext rootContext = new TimedWebApplicationContext();
+        rootContext.register(getConfigurationClasses(isFastBoot(rootContext.getEnvironment(), servletContext)));
 
         ServletRegistration.Dynamic dispatcher = servletContext.addServlet(DISPATCHER_SERVLET_NAME, new DispatcherServlet(rootContext));
         dispatcher.setLoadOnStartup(1);
         dispatcher.addMapping(DISPATCHER_SERVLET_MAPPING);
+        dispatcher.setMultipartConfig(new MultipartConfigElement(MULTIPART_LOCATION, MULTIPART_MAX_FILE_SIZE, MULTIPART_MAX_REQUEST_SIZE, MULTIPART_FILE_SIZE_THRESHOLD));
 
         servletContext.addListener(new ContextLoaderListener(rootContext));
     }
+
+    /**
+     * Returns the configuration classes of the application context.
+     *
+     * @param fastBoot  True if the components are registered from lists instead of scanned.
+     */
+    public static Class<?>[] getConfigurationClasses(boolean fastBoot) {
+        return new Class<?>[] {ApplicationContext.class, fastBoot ? FastBootContext.class : ComponentScanContext.class};
+    }
+
+    /*
+     * The mode decides which configuration classes are registered, so it is
+     * read before the refresh. System properties and context parameters
+     * override application.properties like they do for the other properties.
+     */
+    private boolean isFastBoot(ConfigurableEnvironment environment, ServletContext servletContext) throws ServletException {
+        WebApplicationContextUtils.initServletPropertySources(environment.getPropertySources(), servletContext);
+        try {
+            environment.getPropertySources().addLast(new ResourcePropertySource(APPLICATION_PROPERTIES));
+        } catch (IOException e) {
+            throw new ServletException("Cannot read " + APPLICATION_PROPERTIES, e);
+        }
+
+        boolean fastBoot = environment.getProperty(PROPERTY_NAME_STARTUP_FAST_BOOT, Boolean.class, Boolean.FALSE);
+        LOGGER.info("Fast boot mode is " + (fastBoot ? "enabled" : "disabled"));
+        return fastBoot;
+    }
 }
@@ -0,0 +1,15 @@
+package com.daou.book.config;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportResource;
+
+/**
+ * Finds the components and the repositories by scanning their packages. Used
+ * unless the fast boot mode is enabled, see FastBootContext.
+ */
+@Configuration
+@ComponentScan(basePackages = {"com.daou.book.controller", "com.daou.book.metrics", "com.daou.book.service"})
+@ImportResource("classpath:repositoryContext.xml")
+public class ComponentScanContext {
+}
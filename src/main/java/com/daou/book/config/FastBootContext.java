@@ -0,0 +1,97 @@
+package com.daou.book.config;
+
+import org.springframework.beans.factory.annotation.AnnotatedGenericBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanNameGenerator;
+import org.springframework.context.annotation.AnnotatedBeanDefinitionReader;
+import org.springframework.context.annotation.AnnotationBeanNameGenerator;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.context.annotation.ImportResource;
+import org.springframework.core.type.AnnotationMetadata;
+
+import com.daou.book.controller.AdminController;
+import com.daou.book.controller.MetricsController;
+import com.daou.book.controller.UserChangeController;
+import com.daou.book.controller.UserController;
+import com.daou.book.controller.UserExportController;
+import com.daou.book.controller.UserImportController;
+import com.daou.book.domain.User;
+import com.daou.book.metrics.MetricsInterceptor;
+import com.daou.book.metrics.MetricsRegistry;
+import com.daou.book.metrics.ServiceMetricsPostProcessor;
+import com.daou.book.service.CacheStatisticsServiceImpl;
+import com.daou.book.service.ConnectionPoolStatisticsServiceImpl;
+import com.daou.book.service.GroupCommitUserWriter;
+import com.daou.book.service.NameSuggestionServiceImpl;
+import com.daou.book.service.UserCache;
+import com.daou.book.service.UserChangeLogServiceImpl;
+import com.daou.book.service.UserChangePublisher;
+import com.daou.book.service.UserImportServiceImpl;
+import com.daou.book.service.UserSearchCoalescer;
+import com.daou.book.service.UserSearchServiceImpl;
+import com.daou.book.service.UserServiceImpl;
+
+/**
+ * Registers the components, repositories and entities from the lists below
+ * instead of scanning the packages. The components which serve the user pages
+ * are created at startup, the admin, metrics, export, change feed and import
+ * components are created by their first request.
+ *
+ * The lists must name every component of the scanned packages, which is
+ * checked by FastBootContextTest.
+ */
+@Configuration
+@Import(FastBootContext.ComponentRegistrar.class)
+@ImportResource("classpath:fastBootContext.xml")
+public class FastBootContext {
+
+    protected static final Class<?>[] EAGER_COMPONENTS = {
+            MetricsRegistry.class,
+            MetricsInterceptor.class,
+            ServiceMetricsPostProcessor.class,
+            UserController.class,
+            UserServiceImpl.class,
+            GroupCommitUserWriter.class,
+            UserCache.class,
+            UserChangePublisher.class,
+            UserSearchServiceImpl.class,
+            UserSearchCoalescer.class,
+            NameSuggestionServiceImpl.class,
+            UserChangeLogServiceImpl.class
+    };
+
+    protected static final Class<?>[] LAZY_COMPONENTS = {
+            AdminController.class,
+            MetricsController.class,
+            UserExportController.class,
+            UserChangeController.class,
+            UserImportController.class,
+            CacheStatisticsServiceImpl.class,
+            ConnectionPoolStatisticsServiceImpl.class,
+            UserImportServiceImpl.class
+    };
+
+    protected static final Class<?>[] ENTITIES = {
+            User.class
+    };
+
+    static class ComponentRegistrar implements ImportBeanDefinitionRegistrar {
+
+        @Override
+        public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+            AnnotatedBeanDefinitionReader reader = new AnnotatedBeanDefinitionReader(registry);
+            for (Class<?> component : EAGER_COMPONENTS) {
+                reader.registerBean(component);
+            }
+            // Named like the reader names them, the lazy components have no scope or other definition annotations
+            BeanNameGenerator beanNameGenerator = new AnnotationBeanNameGenerator();
+            for (Class<?> component : LAZY_COMPONENTS) {
+                AnnotatedGenericBeanDefinition definition = new AnnotatedGenericBeanDefinition(component);
+                definition.setLazyInit(true);
+                registry.registerBeanDefinition(beanNameGenerator.generateBeanName(definition, registry), definition);
+            }
+        }
+    }
+}
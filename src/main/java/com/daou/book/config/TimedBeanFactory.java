@@ -0,0 +1,77 @@
+package com.daou.book.config;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import com.daou.book.metrics.StartupReport;
+
+import java.util.LinkedList;
+
+/**
+ * Bean factory which measures the creation of the beans, from the constructor
+ * or factory method to the end of the initialization, and adds the times to a
+ * startup report. A bean created while another one is being created is a
+ * dependency, its total time is subtracted from the own time of the dependent
+ * bean.
+ *
+ * The application context stops the timing when its refresh is finished, the
+ * lazy and prototype beans created later are not measured.
+ */
+public class TimedBeanFactory extends DefaultListableBeanFactory {
+
+    private final StartupReport report;
+
+    private final ThreadLocal<LinkedList<Creation>> creations = new ThreadLocal<LinkedList<Creation>>() {
+        @Override
+        protected LinkedList<Creation> initialValue() {
+            return new LinkedList<Creation>();
+        }
+    };
+
+    private volatile boolean timing = true;
+
+    public TimedBeanFactory(BeanFactory parentBeanFactory, StartupReport report) {
+        super(parentBeanFactory);
+        this.report = report;
+    }
+
+    public void stopTiming() {
+        timing = false;
+    }
+
+    @Override
+    protected Object createBean(String beanName, RootBeanDefinition mbd, Object[] args) {
+        if (!timing) {
+            return super.createBean(beanName, mbd, args);
+        }
+
+        LinkedList<Creation> stack = creations.get();
+        Creation creation = new Creation(System.nanoTime());
+        stack.push(creation);
+        try {
+            return super.createBean(beanName, mbd, args);
+        } finally {
+            stack.pop();
+
+            long totalNanos = System.nanoTime() - creation.startTime;
+            report.addBean(beanName, totalNanos - creation.dependencyNanos, totalNanos);
+
+            Creation dependent = stack.peek();
+            if (dependent != null) {
+                dependent.dependencyNanos += totalNanos;
+            }
+        }
+    }
+
+    private static class Creation {
+
+        private final long startTime;
+
+        private long dependencyNanos;
+
+        Creation(long startTime) {
+            this.startTime = startTime;
+        }
+    }
+}
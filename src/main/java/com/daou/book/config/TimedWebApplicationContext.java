@@ -0,0 +1,113 @@
+package com.daou.book.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import com.daou.book.metrics.StartupReport;
+
+/**
+ * Web application context which measures its refresh and logs a startup
+ * report with the time of each refresh phase and the slowest beans. The
+ * report is also shown on /admin/startup.
+ */
+public class TimedWebApplicationContext extends AnnotationConfigWebApplicationContext {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimedWebApplicationContext.class);
+
+    private static final int REPORTED_BEANS = 20;
+
+    protected static final String PHASE_BEAN_DEFINITIONS = "load bean definitions";
+    protected static final String PHASE_BEAN_FACTORY_POST_PROCESSORS = "configuration classes, component scan and repositories";
+    protected static final String PHASE_BEAN_POST_PROCESSORS = "bean post processors";
+    protected static final String PHASE_ON_REFRESH = "theme and context specific beans";
+    protected static final String PHASE_SINGLETONS = "singletons, including entity manager factory and schema";
+    protected static final String PHASE_FINISH = "lifecycle and refresh events";
+
+    private final StartupReport report = new StartupReport();
+
+    private TimedBeanFactory beanFactory;
+
+    @Override
+    public void refresh() {
+        long startTime = System.nanoTime();
+        super.refresh();
+        report.setTotalNanos(System.nanoTime() - startTime);
+
+        LOGGER.info(report.format(REPORTED_BEANS));
+    }
+
+    @Override
+    protected ConfigurableListableBeanFactory obtainFreshBeanFactory() {
+        long startTime = System.nanoTime();
+        try {
+            return super.obtainFreshBeanFactory();
+        } finally {
+            report.addPhase(PHASE_BEAN_DEFINITIONS, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    protected DefaultListableBeanFactory createBeanFactory() {
+        beanFactory = new TimedBeanFactory(getInternalParentBeanFactory(), report);
+        return beanFactory;
+    }
+
+    @Override
+    protected void invokeBeanFactoryPostProcessors(ConfigurableListableBeanFactory beanFactory) {
+        long startTime = System.nanoTime();
+        try {
+            super.invokeBeanFactoryPostProcessors(beanFactory);
+        } finally {
+            report.addPhase(PHASE_BEAN_FACTORY_POST_PROCESSORS, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    protected void registerBeanPostProcessors(ConfigurableListableBeanFactory beanFactory) {
+        long startTime = System.nanoTime();
+        try {
+            super.registerBeanPostProcessors(beanFactory);
+        } finally {
+            report.addPhase(PHASE_BEAN_POST_PROCESSORS, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    protected void onRefresh() {
+        long startTime = System.nanoTime();
+        try {
+            super.onRefresh();
+        } finally {
+            report.addPhase(PHASE_ON_REFRESH, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    protected void finishBeanFactoryInitialization(ConfigurableListableBeanFactory beanFactory) {
+        long startTime = System.nanoTime();
+        try {
+            super.finishBeanFactoryInitialization(beanFactory);
+        } finally {
+            report.addPhase(PHASE_SINGLETONS, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    protected void finishRefresh() {
+        beanFactory.stopTiming();
+
+        long startTime = System.nanoTime();
+        try {
+            super.finishRefresh();
+        } finally {
+            report.addPhase(PHASE_FINISH, System.nanoTime() - startTime);
+        }
+    }
+
+    public StartupReport getStartupReport() {
+        return report;
+    }
+}
@@ -1,13 +1,21 @@
 package com.daou.book.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.Properties;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.servlet.FlashMapManager;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 public abstract class AbstractController {
@@ -19,25 +27,96 @@ public abstract class AbstractController {
 
     private static final String VIEW_REDIRECT_PREFIX = "redirect:";
 
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String CACHE_CONTROL_NO_CACHE = "no-cache";
+
+    private static final String BUILD_PROPERTIES = "/build.properties";
+    private static final String PROPERTY_NAME_BUILD_VERSION = "build.version";
+    private static final String PROPERTY_NAME_BUILD_TIMESTAMP = "build.timestamp";
+
+    /*
+     * Part of every ETag so the pages rendered by an earlier build, with
+     * possibly different JSPs, are not reused. Taken from the build and not
+     * from the startup, so every node and a restarted node accept the ETags.
+     */
+    private static final String ETAG_DEPLOYMENT = readBuild();
+
     @Resource
     private MessageSource messageSource;
 
     protected void addErrorMessage(RedirectAttributes model, String code, Object... params) {
-        LOGGER.debug("adding error message with code: " + code + " and params: " + params);
-        Locale current = LocaleContextHolder.getLocale();
-        LOGGER.debug("Current locale is " + current);
-        String localizedErrorMessage = messageSource.getMessage(code, params, current);
-        LOGGER.debug("Localized message is: " + localizedErrorMessage);
-        model.addFlashAttribute(FLASH_ERROR_MESSAGE, localizedErrorMessage);
+        model.addFlashAttribute(FLASH_ERROR_MESSAGE, getLocalizedMessage(code, params));
     }
 
     protected void addFeedbackMessage(RedirectAttributes model, String code, Object... params) {
-        LOGGER.debug("Adding feedback message with code: " + code + " and params: " + params);
+        model.addFlashAttribute(FLASH_FEEDBACK_MESSAGE, getLocalizedMessage(code, params));
+    }
+
+    /*
+     * Called on every create, edit and delete redirect, the debug message is
+     * built only when it is logged.
+     */
+    private String getLocalizedMessage(String code, Object[] params) {
         Locale current = LocaleContextHolder.getLocale();
-        LOGGER.debug("Current locale is " + current);
-        String localizedFeedbackMessage = messageSource.getMessage(code, params, current);
-        LOGGER.debug("Localized message is: " + localizedFeedbackMessage);
-        model.addFlashAttribute(FLASH_FEEDBACK_MESSAGE, localizedFeedbackMessage);
+        String localizedMessage = messageSource.getMessage(code, params, current);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Localized message with code: " + code + ", params: " + Arrays.toString(params) + " and locale: " + current + " is: " + localizedMessage);
+        }
+        return localizedMessage;
+    }
+
+    /**
+     * Checks the ETag of a page against the If-None-Match header of the request.
+     * The ETag is completed with the locale and the deployment because the page
+     * depends on them too. A page showing flash messages is always rendered, the
+     * messages are shown only once. The browser is told to revalidate the page on
+     * every request.
+     *
+     * @param request   The current request.
+     * @param version   Identifies the version of the data shown on the page.
+     * @return  True if the page was not modified and the response is 304, false if the page must be rendered.
+     */
+    protected boolean checkNotModified(NativeWebRequest request, String version) {
+        Object response = request.getNativeResponse();
+        if (response instanceof HttpServletResponse) {
+            ((HttpServletResponse) response).setHeader(HEADER_CACHE_CONTROL, CACHE_CONTROL_NO_CACHE);
+        }
+
+        if (request.getAttribute(FlashMapManager.INPUT_FLASH_MAP_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+            LOGGER.debug("Request has flash attributes, rendering the page");
+            return false;
+        }
+
+        StringBuilder etag = new StringBuilder();
+        etag.append('"');
+        etag.append(version);
+        etag.append('-');
+        etag.append(LocaleContextHolder.getLocale());
+        etag.append('-');
+        etag.append(ETAG_DEPLOYMENT);
+        etag.append('"');
+
+        boolean notModified = request.checkNotModified(etag.toString());
+        LOGGER.debug("ETag is " + etag + ", not modified: " + notModified);
+        return notModified;
+    }
+
+    private static String readBuild() {
+        Properties build = new Properties();
+        try {
+            InputStream in = AbstractController.class.getResourceAsStream(BUILD_PROPERTIES);
+            if (in == null) {
+                throw new IllegalStateException("No " + BUILD_PROPERTIES + " found, build the application with Maven");
+            }
+            try {
+                build.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Reading " + BUILD_PROPERTIES + " failed", e);
+        }
+        return build.getProperty(PROPERTY_NAME_BUILD_VERSION) + "-" + build.getProperty(PROPERTY_NAME_BUILD_TIMESTAMP);
     }
 
     protected String createRedirectViewPath(String path) {
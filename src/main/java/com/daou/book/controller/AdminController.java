@@ -0,0 +1,190 @@
+package com.daou.book.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import com.daou.book.config.TimedWebApplicationContext;
+import com.daou.book.dto.CacheStatisticsDTO;
+import com.daou.book.dto.ConnectionPoolStatisticsDTO;
+import com.daou.book.service.CacheStatisticsService;
+import com.daou.book.service.ConnectionPoolStatisticsService;
+import com.daou.book.service.UserSearchService;
+import com.daou.book.web.Bulkhead;
+import com.daou.book.web.BulkheadType;
+
+import javax.annotation.Resource;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Operational statistics as plain text, one line per item.
+ */
+@Controller
+public class AdminController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdminController.class);
+
+    protected static final String CONTENT_TYPE_TEXT = "text/plain;charset=UTF-8";
+
+    protected static final String REQUEST_MAPPING_CACHE = "/admin/cache";
+    protected static final String REQUEST_MAPPING_POOL = "/admin/pool";
+    protected static final String REQUEST_MAPPING_STARTUP = "/admin/startup";
+    protected static final String REQUEST_MAPPING_SEARCH = "/admin/search";
+    protected static final String REQUEST_MAPPING_SEARCH_REBUILD = "/admin/search/rebuild";
+
+    private static final int STARTUP_REPORT_MAX_BEANS = 50;
+
+    @Resource
+    private CacheStatisticsService cacheStatisticsService;
+
+    @Resource
+    private ConnectionPoolStatisticsService connectionPoolStatisticsService;
+
+    @Resource
+    private UserSearchService userSearchService;
+
+    @Resource
+    private ApplicationContext context;
+
+    /**
+     * 캐시 통계. 캐시 영역별 hit, miss, put 횟수와 크기.
+     *
+     * @return  The statistics of the cache regions.
+     */
+    @RequestMapping(value = REQUEST_MAPPING_CACHE, method = RequestMethod.GET, produces = CONTENT_TYPE_TEXT)
+    @ResponseBody
+    public String showCacheStatistics() {
+        LOGGER.debug("Rendering cache statistics");
+
+        List<CacheStatisticsDTO> cacheStatistics = cacheStatisticsService.findCacheStatistics();
+
+        StringBuilder builder = new StringBuilder();
+        for (CacheStatisticsDTO statistics : cacheStatistics) {
+            builder.append("region=").append(statistics.getRegion());
+            builder.append(" hits=").append(statistics.getHitCount());
+            builder.append(" misses=").append(statistics.getMissCount());
+            builder.append(" puts=").append(statistics.getPutCount());
+            builder.append(" size=").append(statistics.getSize());
+            builder.append(" evictions=").append(statistics.getEvictionCount());
+            builder.append(" hitRatio=").append(String.format("%.4f", statistics.getHitRatio()));
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 커넥션 풀 통계. 풀별 사용 중인 커넥션 수, 평균 대기 시간, statement 캐시 hit 횟수와 획득 실패 횟수.
+     *
+     * @return  The statistics of the connection pools.
+     */
+    @RequestMapping(value = REQUEST_MAPPING_POOL, method = RequestMethod.GET, produces = CONTENT_TYPE_TEXT)
+    @ResponseBody
+    public String showConnectionPoolStatistics() {
+        LOGGER.debug("Rendering connection pool statistics");
+
+        List<ConnectionPoolStatisticsDTO> poolStatistics = connectionPoolStatisticsService.findConnectionPoolStatistics();
+
+        StringBuilder builder = new StringBuilder();
+        for (ConnectionPoolStatisticsDTO statistics : poolStatistics) {
+            builder.append("pool=").append(statistics.getPoolName());
+            builder.append(" leased=").append(statistics.getLeasedConnections());
+            builder.append(" free=").append(statistics.getFreeConnections());
+            builder.append(" created=").append(statistics.getCreatedConnections());
+            builder.append(" requested=").append(statistics.getConnectionsRequested());
+            builder.append(" acquireFailures=").append(statistics.getAcquireFailures());
+            builder.append(" waitTimeAvgMs=").append(String.format("%.4f", statistics.getConnectionWaitTimeAverage()));
+            builder.append(" statementCacheHits=").append(statistics.getStatementCacheHits());
+            builder.append(" statementCacheMisses=").append(statistics.getStatementCacheMisses());
+            builder.append(" statementsCached=").append(statistics.getStatementsCached());
+            builder.append(" statementCacheHitRatio=").append(String.format("%.4f", statistics.getStatementCacheHitRatio()));
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 기동 시간 보고서. 컨텍스트 refresh 단계별 시간과 생성이 오래 걸린 빈 목록.
+     *
+     * @return  The startup report or an empty body if the context was not timed.
+     */
+    @RequestMapping(value = REQUEST_MAPPING_STARTUP, method = RequestMethod.GET, produces = CONTENT_TYPE_TEXT)
+    @ResponseBody
+    public String showStartupReport() {
+        LOGGER.debug("Rendering startup report");
+
+        if (!(context instanceof TimedWebApplicationContext)) {
+            return "";
+        }
+        return ((TimedWebApplicationContext) context).getStartupReport().format(STARTUP_REPORT_MAX_BEANS);
+    }
+
+    /**
+     * 사용자 검색 색인 상태. 색인된 사용자 수.
+     *
+     * @return  The number of indexed users.
+     */
+    @RequestMapping(value = REQUEST_MAPPING_SEARCH, method = RequestMethod.GET, produces = CONTENT_TYPE_TEXT)
+    @ResponseBody
+    public String showSearchIndex() {
+        LOGGER.debug("Rendering user search index state");
+
+        return "indexed=" + userSearchService.getIndexedCount() + "\n";
+    }
+
+    /**
+     * 사용자 검색 색인 재구축. 데이터베이스에서 새 색인을 만든 후 현재 색인과 교체한다.
+     *
+     * @return  The number of indexed users.
+     * @throws IOException  if the new index cannot be written.
+     */
+    @RequestMapping(value = REQUEST_MAPPING_SEARCH_REBUILD, method = RequestMethod.POST, produces = CONTENT_TYPE_TEXT)
+    @Bulkhead(BulkheadType.BULK)
+    @ResponseBody
+    public String rebuildSearchIndex() throws IOException {
+        LOGGER.debug("Rebuilding user search index");
+
+        return "indexed=" + userSearchService.rebuild() + "\n";
+    }
+
+    /**
+     * Junit 테스트를 위한 Setter
+     *
+     * @param cacheStatisticsService
+     */
+    protected void setCacheStatisticsService(CacheStatisticsService cacheStatisticsService) {
+        this.cacheStatisticsService = cacheStatisticsService;
+    }
+
+    /**
+     * Junit 테스트를 위한 Setter
+     *
+     * @param connectionPoolStatisticsService
+     */
+    protected void setConnectionPoolStatisticsService(ConnectionPoolStatisticsService connectionPoolStatisticsService) {
+        this.connectionPoolStatisticsService = connectionPoolStatisticsService;
+    }
+
+    /**
+     * Junit 테스트를 위한 Setter
+     *
+     * @param userSearchService
+     */
+    protected void setUserSearchService(UserSearchService userSearchService) {
+        this.userSearchService = userSearchService;
+    }
+
+    /**
+     * Junit 테스트를 위한 Setter
+     *
+     * @param context
+     */
+    protected void setContext(ApplicationContext context) {
+        this.context = context;
+    }
+}
@@ -0,0 +1,93 @@
+package com.daou.book.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import com.daou.book.metrics.LatencySnapshot;
+import com.daou.book.metrics.MetricsRegistry;
+
+import javax.annotation.Resource;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency metrics in the Prometheus text format. Every request handler and
+ * service method is a summary with the p50, p99 and p999 quantiles, the sum
+ * and the count of its latencies in seconds, and a gauge of the maximum. The
+ * quantiles and the maximum cover the recent windows of MetricsRegistry.
+ */
+@Controller
+public class MetricsController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsController.class);
+
+    protected static final String CONTENT_TYPE_TEXT = "text/plain;version=0.0.4;charset=UTF-8";
+
+    protected static final String METRIC_NAME = "latency_seconds";
+
+    protected static final String REQUEST_MAPPING_METRICS = "/metrics";
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private static final double NANOS_PER_SECOND = 1000000000.0;
+
+    @Resource
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * 요청 처리기와 서비스 메소드별 응답 시간 통계.
+     *
+     * @return  The latency metrics.
+     */
+    @RequestMapping(value = REQUEST_MAPPING_METRICS, method = RequestMethod.GET, produces = CONTENT_TYPE_TEXT)
+    @ResponseBody
+    public String showMetrics() {
+        LOGGER.debug("Rendering latency metrics");
+
+        Map<String, LatencySnapshot> snapshots = metricsRegistry.getSnapshots();
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("# TYPE ").append(METRIC_NAME).append(" summary\n");
+        for (Map.Entry<String, LatencySnapshot> metric : snapshots.entrySet()) {
+            String name = metric.getKey();
+            LatencySnapshot snapshot = metric.getValue();
+
+            for (double quantile : QUANTILES) {
+                builder.append(METRIC_NAME).append("{name=\"").append(name).append("\",quantile=\"").append(quantile).append("\"} ");
+                builder.append(toSeconds(snapshot.getQuantile(quantile))).append('\n');
+            }
+            appendValue(builder, "_sum", name, toSeconds(snapshot.getSum()));
+            appendValue(builder, "_count", name, String.valueOf(snapshot.getCount()));
+        }
+
+        // The maximum is not a series of a summary, it is a family of its own
+        builder.append("# TYPE ").append(METRIC_NAME).append("_max gauge\n");
+        for (Map.Entry<String, LatencySnapshot> metric : snapshots.entrySet()) {
+            appendValue(builder, "_max", metric.getKey(), toSeconds(metric.getValue().getMax()));
+        }
+
+        return builder.toString();
+    }
+
+    private void appendValue(StringBuilder builder, String suffix, String name, String value) {
+        builder.append(METRIC_NAME).append(suffix).append("{name=\"").append(name).append("\"} ").append(value).append('\n');
+    }
+
+    private String toSeconds(long nanos) {
+        return String.format(Locale.ENGLISH, "%.9f", nanos / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Junit 테스트를 위한 Setter
+     *
+     * @param metricsRegistry
+     */
+    protected void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+}
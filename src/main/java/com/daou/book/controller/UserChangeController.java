@@ -0,0 +1,92 @@
+package com.daou.book.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import com.daou.book.dto.UserChangeBatchDTO;
+import com.daou.book.dto.UserDeltaPageDTO;
+import com.daou.book.service.UserChangeLogService;
+import com.daou.book.service.UserService;
+import com.daou.book.web.Bulkhead;
+import com.daou.book.web.BulkheadType;
+
+import javax.annotation.Resource;
+
+import java.util.Date;
+
+/**
+ * Incremental sync of the user directory mirrors. A mirror asks for the
+ * changes after the last sequence it applied instead of exporting all users.
+ * A reconciliation asks for the users modified after the cursor of its last
+ * run.
+ */
+@Controller
+public class UserChangeController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserChangeController.class);
+
+    protected static final String REQUEST_MAPPING_CHANGES = "/user/changes";
+    protected static final String REQUEST_MAPPING_MODIFIED = "/user/modified";
+
+    @Resource
+    private UserChangeLogService userChangeLogService;
+
+    @Resource
+    private UserService userService;
+
+    /**
+     * 유저 변경 내역. 지정한 순번 이후의 생성, 수정, 삭제 내역을 순서대로 돌려준다.
+     *
+     * @param after The sequence of the last change the mirror applied, 0 for all logged changes.
+     * @param limit The maximum number of returned changes.
+     * @return  The next batch of changes.
+     */
+    @RequestMapping(value = REQUEST_MAPPING_CHANGES, method = RequestMethod.GET, produces = "application/json")
+    @ResponseBody
+    public UserChangeBatchDTO findChanges(@RequestParam(value = "after", defaultValue = "0") long after,
+                                          @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        LOGGER.debug("Finding user changes after sequence: " + after);
+        return userChangeLogService.findChangesAfter(after, limit);
+    }
+
+    /**
+     * 변경된 유저 목록. 지정한 수정 시간과 아이디 이후에 생성되거나 수정된 유저를 수정 시간 순서로 돌려준다.
+     *
+     * @param after     The modification time of the cursor in milliseconds, 0 for all users.
+     * @param afterId   The id of the cursor, 0 to include the users modified at the time of the cursor.
+     * @param limit     The maximum number of returned users.
+     * @return  The next page of users.
+     */
+    @Bulkhead(BulkheadType.READ)
+    @RequestMapping(value = REQUEST_MAPPING_MODIFIED, method = RequestMethod.GET, produces = "application/json")
+    @ResponseBody
+    public UserDeltaPageDTO findModified(@RequestParam(value = "after", defaultValue = "0") long after,
+                                         @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+                                         @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        LOGGER.debug("Finding users modified after " + after + " and id: " + afterId);
+        return userService.findModifiedAfter(new Date(after), afterId, limit);
+    }
+
+    /**
+     * Junit 테스트를 위한 Setter
+     *
+     * @param userChangeLogService
+     */
+    protected void setUserChangeLogService(UserChangeLogService userChangeLogService) {
+        this.userChangeLogService = userChangeLogService;
+    }
+
+    /**
+     * Junit 테스트를 위한 Setter
+     *
+     * @param userService
+     */
+    protected void setUserService(UserService userService) {
+        this.userService = userService;
+    }
+}
@@ -2,31 +2,54 @@ package com.daou.book.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import com.daou.book.domain.User;
+import com.daou.book.dto.BulkEditDTO;
+import com.daou.book.dto.BulkResultDTO;
+import com.daou.book.dto.NameField;
+import com.daou.book.dto.PageDTO;
 import com.daou.book.dto.UserDTO;
+import com.daou.book.dto.UserListStateDTO;
 import com.daou.book.dto.SearchDTO;
+import com.daou.book.dto.UserPageDTO;
+import com.daou.book.dto.UserRowDTO;
+import com.daou.book.exception.InvalidBulkCriteriaException;
 import com.daou.book.exception.UserNotFoundException;
+import com.daou.book.service.NameSuggestionService;
 import com.daou.book.service.UserService;
+import com.daou.book.web.Bulkhead;
+import com.daou.book.web.BulkheadType;
+import com.daou.book.web.HmacSigner;
 
 import javax.annotation.Resource;
 import javax.validation.Valid;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Keeps no state in the session. The edit form sends the id and the version
+ * of the user with a signature, and a concurrent edit is detected by the
+ * version when the user is updated.
+ */
 @Controller
-@SessionAttributes("user")
 public class UserController extends AbstractController {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(UserController.class);
     
+    protected static final String ERROR_MESSAGE_KEY_CREATE_REJECTED = "error.message.create.busy";
     protected static final String ERROR_MESSAGE_KEY_DELETED_USER_WAS_NOT_FOUND = "error.message.deleted.not.found";
     protected static final String ERROR_MESSAGE_KEY_EDITED_USER_WAS_NOT_FOUND = "error.message.edited.not.found";
+    protected static final String ERROR_MESSAGE_KEY_EDITED_USER_WAS_MODIFIED = "error.message.edited.conflict";
+    protected static final String ERROR_MESSAGE_KEY_EDITED_USER_WAS_INVALID = "error.message.edited.invalid";
     
     protected static final String FEEDBACK_MESSAGE_KEY_USER_CREATED = "feedback.message.user.created";
     protected static final String FEEDBACK_MESSAGE_KEY_USER_DELETED = "feedback.message.user.deleted";
@@ -35,6 +58,8 @@ public class UserController extends AbstractController {
     protected static final String MODEL_ATTIRUTE_USER = "user";
     protected static final String MODEL_ATTRIBUTE_USERS = "users";
     protected static final String MODEL_ATTRIBUTE_SEARCHCRITERIA = "searchCriteria";
+    protected static final String MODEL_ATTRIBUTE_PAGECRITERIA = "pageCriteria";
+    protected static final String MODEL_ATTRIBUTE_USER_PAGE = "userPage";
     
     protected static final String USER_ADD_FORM_VIEW = "user/create";
     protected static final String USER_EDIT_FORM_VIEW = "user/edit";
@@ -42,10 +67,59 @@ public class UserController extends AbstractController {
     protected static final String USER_SEARCH_RESULT_VIEW = "user/searchResults";
     
     protected static final String REQUEST_MAPPING_LIST = "/";
+    protected static final String REQUEST_MAPPING_EDIT = "/user/edit/";
     
     @Resource
     private UserService userService;
 
+    @Resource
+    private NameSuggestionService nameSuggestionService;
+
+    @Resource
+    private HmacSigner signer;
+
+    /**
+     * 유저 일괄 삭제. 아이디 목록 또는 검색 조건으로 선택한 유저를 삭제한다.
+     *
+     * @param bulkCriteria  The ids or the search criteria of the deleted users.
+     * @return  The outcome of every selected id and the counts.
+     */
+    @Bulkhead(BulkheadType.WRITE)
+    @RequestMapping(value = "/user/bulk/delete", method = RequestMethod.POST, consumes = "application/json")
+    @ResponseBody
+    public BulkResultDTO bulkDelete(@RequestBody BulkEditDTO bulkCriteria) {
+        LOGGER.debug("Deleting users in bulk with criteria: " + bulkCriteria);
+        return userService.bulkDelete(bulkCriteria);
+    }
+
+    /**
+     * 유저 일괄 수정. 아이디 목록 또는 검색 조건으로 선택한 유저의 이름을 수정한다.
+     *
+     * @param bulkCriteria  The ids or the search criteria of the edited users and their new names.
+     * @return  The outcome of every selected id and the counts.
+     */
+    @Bulkhead(BulkheadType.WRITE)
+    @RequestMapping(value = "/user/bulk/edit", method = RequestMethod.POST, consumes = "application/json")
+    @ResponseBody
+    public BulkResultDTO bulkEdit(@RequestBody BulkEditDTO bulkCriteria) {
+        LOGGER.debug("Editing users in bulk with criteria: " + bulkCriteria);
+        return userService.bulkUpdate(bulkCriteria);
+    }
+
+    /**
+     * 일괄 처리 조건 오류. 클라이언트의 잘못된 요청이므로 400으로 응답한다.
+     *
+     * @param e The rejected criteria.
+     * @return  The message telling what is wrong with the criteria.
+     */
+    @ExceptionHandler(InvalidBulkCriteriaException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public String handleInvalidBulkCriteria(InvalidBulkCriteriaException e) {
+        LOGGER.debug("Bulk criteria were rejected: " + e.getMessage());
+        return e.getMessage();
+    }
+
     /**
      * 유저 삭제 처리
      * 
@@ -53,13 +127,15 @@ public class UserController extends AbstractController {
      * @param attributes
      * @return
      */
+    @Bulkhead(BulkheadType.WRITE)
     @RequestMapping(value = "/user/delete/{id}", method = RequestMethod.GET)
     public String delete(@PathVariable("id") Long id, RedirectAttributes attributes) {
         LOGGER.debug("Deleting user with id: " + id);
 
         try {
-            User deleted = userService.delete(id);
-            addFeedbackMessage(attributes, FEEDBACK_MESSAGE_KEY_USER_DELETED, deleted.getName());
+            userService.delete(id);
+            // A number argument would be formatted with grouping separators
+            addFeedbackMessage(attributes, FEEDBACK_MESSAGE_KEY_USER_DELETED, String.valueOf(id));
         } catch (UserNotFoundException e) {
             LOGGER.debug("No user found with id: " + id);
             addErrorMessage(attributes, ERROR_MESSAGE_KEY_DELETED_USER_WAS_NOT_FOUND);
@@ -68,17 +144,32 @@ public class UserController extends AbstractController {
         return createRedirectViewPath(REQUEST_MAPPING_LIST);
     }
 
+    @Bulkhead(BulkheadType.READ)
     @RequestMapping(value = "/user/search", method = RequestMethod.POST)
     public String search(@ModelAttribute(MODEL_ATTRIBUTE_SEARCHCRITERIA) SearchDTO searchCriteria, Model model) {
         LOGGER.debug("Searching users with search criteria: " + searchCriteria);
         
-        List<User> users = userService.search(searchCriteria);
+        List<UserRowDTO> users = userService.search(searchCriteria);
         LOGGER.debug("Found " + users.size() + " users");
 
         model.addAttribute(MODEL_ATTRIBUTE_USERS, users);
         
         return USER_SEARCH_RESULT_VIEW;
     }
+
+    /**
+     * 이름 자동 완성. 입력한 접두어로 시작하는 가장 많이 쓰인 이름 목록.
+     *
+     * @param prefix    The typed prefix of the name.
+     * @param field     The suggested names, the last names by default.
+     * @return  The suggested names, the most common first.
+     */
+    @RequestMapping(value = "/user/suggest", method = RequestMethod.GET, produces = "application/json")
+    @ResponseBody
+    public List<String> suggest(@RequestParam("prefix") String prefix,
+                                @RequestParam(value = "field", defaultValue = "LAST_NAME") NameField field) {
+        return nameSuggestionService.suggest(field, prefix);
+    }
     
     /**
      * 유저 생성 화면
@@ -103,6 +194,7 @@ public class UserController extends AbstractController {
      * @param attributes
      * @return
      */
+    @Bulkhead(BulkheadType.CREATE)
     @RequestMapping(value = "/user/create", method = RequestMethod.POST)
     public String submitCreateUserForm(@Valid @ModelAttribute(MODEL_ATTIRUTE_USER) UserDTO created, BindingResult bindingResult, RedirectAttributes attributes) {
         LOGGER.debug("Create user form was submitted with information: " + created);
@@ -111,7 +203,14 @@ public class UserController extends AbstractController {
             return USER_ADD_FORM_VIEW;
         }
                 
-        User user = userService.create(created);
+        User user;
+        try {
+            user = userService.create(created);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Creating user was rejected: " + e.getMessage());
+            bindingResult.reject(ERROR_MESSAGE_KEY_CREATE_REJECTED);
+            return USER_ADD_FORM_VIEW;
+        }
 
         addFeedbackMessage(attributes, FEEDBACK_MESSAGE_KEY_USER_CREATED, user.getName());
 
@@ -124,11 +223,19 @@ public class UserController extends AbstractController {
      * @param id    The id of the edited user.
      * @param model
      * @param attributes
-     * @return  The name of the edit user form view.
+     * @param request
+     * @return  The name of the edit user form view or null if the form was not modified.
      */
+    @Bulkhead(BulkheadType.READ)
     @RequestMapping(value = "/user/edit/{id}", method = RequestMethod.GET)
-    public String showEditUserForm(@PathVariable("id") Long id, Model model, RedirectAttributes attributes) {
+    public String showEditUserForm(@PathVariable("id") Long id, Model model, RedirectAttributes attributes, NativeWebRequest request) {
         LOGGER.debug("Rendering edit user form for user with id: " + id);
+
+        Long version = userService.findVersion(id);
+        if (version != null && checkNotModified(request, "user-" + id + "-" + version)) {
+            LOGGER.debug("Edit user form for user with id: " + id + " was not modified");
+            return null;
+        }
         
         User user = userService.findById(id);
         if (user == null) {
@@ -150,9 +257,16 @@ public class UserController extends AbstractController {
      * @param attributes
      * @return
      */
+    @Bulkhead(BulkheadType.WRITE)
     @RequestMapping(value = "/user/edit", method = RequestMethod.POST)
     public String submitEditUserForm(@Valid @ModelAttribute(MODEL_ATTIRUTE_USER) UserDTO updated, BindingResult bindingResult, RedirectAttributes attributes) {
         LOGGER.debug("Edit user form was submitted with information: " + updated);
+
+        if (updated.getVersion() == null || !signer.verify(constructSignedFormState(updated), updated.getSignature())) {
+            LOGGER.debug("Edit user form of user with id: " + updated.getId() + " has no version or an invalid signature");
+            addErrorMessage(attributes, ERROR_MESSAGE_KEY_EDITED_USER_WAS_INVALID);
+            return createRedirectViewPath(updated.getId() == null ? REQUEST_MAPPING_LIST : REQUEST_MAPPING_EDIT + updated.getId());
+        }
         
         if (bindingResult.hasErrors()) {
             LOGGER.debug("Edit user form contains validation errors. Rendering form view.");
@@ -160,11 +274,15 @@ public class UserController extends AbstractController {
         }
         
         try {
-            User user = userService.update(updated);
-            addFeedbackMessage(attributes, FEEDBACK_MESSAGE_KEY_USER_EDITED, user.getName());
+            userService.update(updated);
+            addFeedbackMessage(attributes, FEEDBACK_MESSAGE_KEY_USER_EDITED, constructName(updated));
         } catch (UserNotFoundException e) {
             LOGGER.debug("No user was found with id: " + updated.getId());
             addErrorMessage(attributes, ERROR_MESSAGE_KEY_EDITED_USER_WAS_NOT_FOUND);
+        } catch (OptimisticLockingFailureException e) {
+            LOGGER.debug("User with id: " + updated.getId() + " was modified by someone else");
+            addErrorMessage(attributes, ERROR_MESSAGE_KEY_EDITED_USER_WAS_MODIFIED);
+            return createRedirectViewPath(REQUEST_MAPPING_EDIT + updated.getId());
         }
         
         return createRedirectViewPath(REQUEST_MAPPING_LIST);
@@ -176,21 +294,53 @@ public class UserController extends AbstractController {
         formObject.setId(user.getId());
         formObject.setFirstName(user.getFirstName());
         formObject.setLastName(user.getLastName());
+        formObject.setVersion(user.getVersion());
+        formObject.setSignature(signer.sign(constructSignedFormState(formObject)));
         
         return formObject;
     }
 
+    /*
+     * The id and the version are the only state of the form which is not
+     * edited, signing them keeps a forged form from overwriting another user
+     * or a newer version without the conflict check.
+     */
+    private String constructSignedFormState(UserDTO user) {
+        return "user-" + user.getId() + "-" + user.getVersion();
+    }
+
+    private String constructName(UserDTO user) {
+        StringBuilder name = new StringBuilder();
+
+        name.append(user.getFirstName());
+        name.append(" ");
+        name.append(user.getLastName());
+
+        return name.toString();
+    }
+
     /**
-     * 유저 목록 제공.
+     * 유저 목록 제공. 한 페이지씩 keyset 방식으로 조회한다.
+     * @param pageCriteria  The sort order and the cursor of the requested page.
      * @param model
-     * @return  The name of the user list view.
+     * @param request
+     * @return  The name of the user list view or null if the list was not modified.
      */
+    @Bulkhead(BulkheadType.READ)
     @RequestMapping(value = REQUEST_MAPPING_LIST, method = RequestMethod.GET)
-    public String showList(Model model) {
-        LOGGER.debug("Rendering user list page");
+    public String showList(@ModelAttribute(MODEL_ATTRIBUTE_PAGECRITERIA) PageDTO pageCriteria, Model model, NativeWebRequest request) {
+        LOGGER.debug("Rendering user list page with criteria: " + pageCriteria);
 
-        List<User> users = userService.findAll();
-        model.addAttribute(MODEL_ATTRIBUTE_USERS, users);
+        UserListStateDTO state = userService.findListState();
+        long lastModified = state.getLastModified() == null ? 0 : state.getLastModified().getTime();
+        if (checkNotModified(request, "users-" + state.getCount() + "-" + state.getVersionSum() + "-" + lastModified)) {
+            LOGGER.debug("User list page was not modified");
+            return null;
+        }
+
+        UserPageDTO page = userService.findPage(pageCriteria);
+        model.addAttribute(MODEL_ATTRIBUTE_USER_PAGE, page);
+        model.addAttribute(MODEL_ATTRIBUTE_USERS, page.getUsers());
         model.addAttribute(MODEL_ATTRIBUTE_SEARCHCRITERIA, new SearchDTO());
 
         return USER_LIST_VIEW;
@@ -204,4 +354,22 @@ public class UserController extends AbstractController {
     protected void setUserService(UserService userService) {
         this.userService = userService;
     }
+
+    /**
+     * Junit 테스트를 위한 Setter
+     *
+     * @param nameSuggestionService
+     */
+    protected void setNameSuggestionService(NameSuggestionService nameSuggestionService) {
+        this.nameSuggestionService = nameSuggestionService;
+    }
+
+    /**
+     * Junit 테스트를 위한 Setter
+     *
+     * @param signer
+     */
+    protected void setSigner(HmacSigner signer) {
+        this.signer = signer;
+    }
 }
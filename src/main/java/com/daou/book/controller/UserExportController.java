@@ -0,0 +1,61 @@
+package com.daou.book.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import com.daou.book.dto.ExportFormat;
+import com.daou.book.service.UserService;
+import com.daou.book.web.Bulkhead;
+import com.daou.book.web.BulkheadType;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+@Controller
+public class UserExportController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserExportController.class);
+
+    protected static final String CHARACTER_ENCODING = "UTF-8";
+    protected static final String EXPORT_FILE_NAME = "users";
+    protected static final String HEADER_CONTENT_DISPOSITION = "Content-Disposition";
+
+    protected static final String REQUEST_MAPPING_EXPORT = "/user/export";
+
+    @Resource
+    private UserService userService;
+
+    /**
+     * 유저 전체 내보내기. 조회된 유저를 응답으로 바로 흘려보낸다.
+     *
+     * @param format    The format of the exported file.
+     * @param response
+     * @throws IOException
+     */
+    @RequestMapping(value = REQUEST_MAPPING_EXPORT, method = RequestMethod.GET)
+    @Bulkhead(BulkheadType.BULK)
+    public void export(@RequestParam(value = "format", defaultValue = "CSV") ExportFormat format, HttpServletResponse response) throws IOException {
+        LOGGER.debug("Exporting users as " + format);
+
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(CHARACTER_ENCODING);
+        response.setHeader(HEADER_CONTENT_DISPOSITION, "attachment; filename=" + EXPORT_FILE_NAME + "." + format.getFileExtension());
+
+        userService.export(format, response.getWriter());
+    }
+
+    /**
+     * Junit 테스트를 위한 Setter
+     *
+     * @param userService
+     */
+    protected void setUserService(UserService userService) {
+        this.userService = userService;
+    }
+}
@@ -0,0 +1,81 @@
+package com.daou.book.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.daou.book.dto.ImportResultDTO;
+import com.daou.book.dto.UserDTO;
+import com.daou.book.service.UserImportService;
+import com.daou.book.web.Bulkhead;
+import com.daou.book.web.BulkheadType;
+
+import javax.annotation.Resource;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+
+@Controller
+public class UserImportController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserImportController.class);
+
+    protected static final String CHARACTER_ENCODING = "UTF-8";
+
+    protected static final String REQUEST_MAPPING_IMPORT = "/user/import";
+
+    @Resource
+    private UserImportService userImportService;
+
+    /**
+     * 유저 일괄 등록. JSON 배열로 전달된 유저를 등록한다.
+     *
+     * @param users The imported users.
+     * @return  The number of imported users and the rows that failed.
+     */
+    @RequestMapping(value = REQUEST_MAPPING_IMPORT, method = RequestMethod.POST, consumes = "application/json")
+    @Bulkhead(BulkheadType.BULK)
+    @ResponseBody
+    public ImportResultDTO importUsers(@RequestBody UserDTO[] users) {
+        LOGGER.debug("Importing " + users.length + " users from JSON");
+        return userImportService.importUsers(Arrays.asList(users));
+    }
+
+    /**
+     * 유저 일괄 등록. 업로드된 CSV 파일의 유저를 등록한다.
+     *
+     * @param file  CSV file with a header row containing first_name and last_name columns.
+     * @return  The number of imported users and the rows that failed.
+     * @throws IOException
+     */
+    @RequestMapping(value = REQUEST_MAPPING_IMPORT, method = RequestMethod.POST, consumes = "multipart/form-data")
+    @Bulkhead(BulkheadType.BULK)
+    @ResponseBody
+    public ImportResultDTO importFile(@RequestParam("file") MultipartFile file) throws IOException {
+        LOGGER.debug("Importing users from uploaded file: " + file.getOriginalFilename());
+
+        Reader csv = new InputStreamReader(file.getInputStream(), CHARACTER_ENCODING);
+        try {
+            return userImportService.importCsv(csv);
+        } finally {
+            csv.close();
+        }
+    }
+
+    /**
+     * Junit 테스트를 위한 Setter
+     *
+     * @param userImportService
+     */
+    protected void setUserImportService(UserImportService userImportService) {
+        this.userImportService = userImportService;
+    }
+}
@@ -0,0 +1,66 @@
+package com.daou.book.datasource;
+
+import com.jolbox.bonecp.BoneCP;
+import com.jolbox.bonecp.BoneCPDataSource;
+import com.jolbox.bonecp.ConnectionHandle;
+import com.jolbox.bonecp.Statistics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BoneCP data source which counts the failed connection requests and gives
+ * access to the statistics of the pool. The pool is created lazily by the
+ * first connection request, before that there are no statistics.
+ */
+public class MonitoredBoneCPDataSource extends BoneCPDataSource {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient volatile BoneCP pool;
+
+    private final AtomicLong acquireFailures = new AtomicLong();
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            return capturePool(super.getConnection());
+        } catch (SQLException e) {
+            acquireFailures.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        try {
+            return capturePool(super.getConnection(username, password));
+        } catch (SQLException e) {
+            acquireFailures.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private Connection capturePool(Connection connection) {
+        if (pool == null && connection instanceof ConnectionHandle) {
+            pool = ((ConnectionHandle) connection).getPool();
+        }
+        return connection;
+    }
+
+    /**
+     * @return  The statistics of the pool or null if no connection has been requested yet.
+     */
+    public Statistics getStatistics() {
+        BoneCP current = pool;
+        return current == null ? null : current.getStatistics();
+    }
+
+    /**
+     * @return  The number of connection requests which failed or timed out.
+     */
+    public long getAcquireFailures() {
+        return acquireFailures.get();
+    }
+}
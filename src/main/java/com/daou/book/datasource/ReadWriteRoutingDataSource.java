@@ -0,0 +1,103 @@
+package com.daou.book.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends the connections of read-only transactions to the replica and all other
+ * connections to the primary database. When the replica cannot be reached the
+ * reads fall back to the primary and the replica is tried again after the retry
+ * interval.
+ *
+ * The read-only flag of the transaction is set after the transaction manager has
+ * asked for the connection, so this data source must be wrapped in a
+ * LazyConnectionDataSourceProxy which picks the route on the first statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final DataSource primary;
+
+    private final DataSource replica;
+
+    private final long retryIntervalMillis;
+
+    private volatile long replicaRetryTime;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long retryIntervalMillis) {
+        this.primary = primary;
+        this.replica = replica;
+        this.retryIntervalMillis = retryIntervalMillis;
+
+        Map<Object, Object> targetDataSources = new HashMap<Object, Object>();
+        targetDataSources.put(Route.PRIMARY, primary);
+        targetDataSources.put(Route.REPLICA, replica);
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && isReplicaAvailable()) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Route.PRIMARY) {
+            return primary.getConnection();
+        }
+        try {
+            return determineTargetDataSource().getConnection();
+        } catch (SQLException e) {
+            markReplicaUnavailable(e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (determineCurrentLookupKey() == Route.PRIMARY) {
+            return primary.getConnection(username, password);
+        }
+        try {
+            return determineTargetDataSource().getConnection(username, password);
+        } catch (SQLException e) {
+            markReplicaUnavailable(e);
+            return primary.getConnection(username, password);
+        }
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+
+    public boolean isReplicaAvailable() {
+        return System.currentTimeMillis() >= replicaRetryTime;
+    }
+
+    private void markReplicaUnavailable(SQLException e) {
+        LOGGER.warn("Replica is not available, reading from the primary for the next " + retryIntervalMillis + " ms", e);
+        replicaRetryTime = System.currentTimeMillis() + retryIntervalMillis;
+    }
+}
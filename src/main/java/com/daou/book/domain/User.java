@@ -1,17 +1,41 @@
 package com.daou.book.domain;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.util.Date;
+import java.util.Locale;
 
 @Entity
-@NamedQuery(name = "User.findByName", query = "SELECT u FROM User u WHERE LOWER(u.lastName) = LOWER(?1)")
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedQuery(name = "User.findByName",
+        query = "SELECT NEW com.daou.book.dto.UserRowDTO(u.id, u.firstName, u.lastName) FROM User u WHERE u.lastNameKey = ?1",
+        hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
 @Table(name = "users")
+@org.hibernate.annotations.Table(appliesTo = "users", indexes = {
+        @Index(name = "ix_users_last_name_id", columnNames = {"last_name", "id"}),
+        @Index(name = "ix_users_last_name_key", columnNames = {"last_name_key"}),
+        @Index(name = "ix_users_modification_time_id", columnNames = {"modification_time", "id", "version"})
+})
 public class User {
     
+    /*
+     * A pooled sequence hands out blocks of ids so Hibernate can batch the
+     * inserts. IDENTITY style generation (what AUTO picks on MySQL) disables
+     * JDBC batching because the id is known only after each insert.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "users_id")
+    @GenericGenerator(name = "users_id", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "users_id_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled")
+    })
     private Long id;
     
     @Column(name = "creation_time", nullable = false)
@@ -22,6 +46,14 @@ public class User {
 
     @Column(name = "last_name", nullable = false)
     private String lastName;
+
+    /*
+     * Lower cased copy of the last name used by the case-insensitive searches.
+     * Comparing LOWER(last_name) cannot use an index, an equality on this
+     * column can.
+     */
+    @Column(name = "last_name_key", nullable = false)
+    private String lastNameKey;
     
     @Column(name = "modification_time", nullable = false)
     private Date modificationTime;
@@ -49,6 +81,23 @@ public class User {
         return lastName;
     }
 
+    public String getLastNameKey() {
+        return lastNameKey;
+    }
+
+    /**
+     * Normalizes a last name or a search term to the value stored in the
+     * last name key column.
+     * @param lastName  The last name.
+     * @return  The normalized last name or null if the last name is null.
+     */
+    public static String toLastNameKey(String lastName) {
+        if (lastName == null) {
+            return null;
+        }
+        return lastName.trim().toLowerCase(Locale.ENGLISH);
+    }
+
     @Transient
     public String getName() {
         StringBuilder name = new StringBuilder();
@@ -76,6 +125,7 @@ public class User {
     @PreUpdate
     public void preUpdate() {
         modificationTime = new Date();
+        lastNameKey = toLastNameKey(lastName);
     }
     
     @PrePersist
@@ -83,6 +133,7 @@ public class User {
         Date now = new Date();
         creationTime = now;
         modificationTime = now;
+        lastNameKey = toLastNameKey(lastName);
     }
 
     @Override
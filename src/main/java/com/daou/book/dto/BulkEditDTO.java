@@ -0,0 +1,61 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.List;
+
+/**
+ * Selects the users of a bulk operation either by ids or by search criteria.
+ * The names are the new values of a bulk update, a null name is left as it is.
+ */
+public class BulkEditDTO {
+
+    private List<Long> ids;
+
+    private SearchDTO searchCriteria;
+
+    private String firstName;
+
+    private String lastName;
+
+    public BulkEditDTO() {
+
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public SearchDTO getSearchCriteria() {
+        return searchCriteria;
+    }
+
+    public void setSearchCriteria(SearchDTO searchCriteria) {
+        this.searchCriteria = searchCriteria;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
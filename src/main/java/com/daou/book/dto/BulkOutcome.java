@@ -0,0 +1,7 @@
+package com.daou.book.dto;
+
+public enum BulkOutcome {
+    DELETED,
+    UPDATED,
+    NOT_FOUND;
+}
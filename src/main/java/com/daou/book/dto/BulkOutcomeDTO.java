@@ -0,0 +1,28 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+public class BulkOutcomeDTO {
+
+    private final Long id;
+
+    private final BulkOutcome outcome;
+
+    public BulkOutcomeDTO(Long id, BulkOutcome outcome) {
+        this.id = id;
+        this.outcome = outcome;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public BulkOutcome getOutcome() {
+        return outcome;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
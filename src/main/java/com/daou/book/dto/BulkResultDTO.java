@@ -0,0 +1,56 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk delete or update. Every selected id is listed once in the
+ * order it was selected.
+ */
+public class BulkResultDTO {
+
+    private int total;
+
+    private int changed;
+
+    private int notFound;
+
+    private List<BulkOutcomeDTO> outcomes = new ArrayList<BulkOutcomeDTO>();
+
+    public BulkResultDTO() {
+
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getChanged() {
+        return changed;
+    }
+
+    public int getNotFound() {
+        return notFound;
+    }
+
+    public List<BulkOutcomeDTO> getOutcomes() {
+        return outcomes;
+    }
+
+    public void addOutcome(Long id, BulkOutcome outcome) {
+        total++;
+        if (outcome == BulkOutcome.NOT_FOUND) {
+            notFound++;
+        } else {
+            changed++;
+        }
+        outcomes.add(new BulkOutcomeDTO(id, outcome));
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
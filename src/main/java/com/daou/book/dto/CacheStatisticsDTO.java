@@ -0,0 +1,68 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+public class CacheStatisticsDTO {
+
+    private final String region;
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long putCount;
+
+    private final long size;
+
+    private final long evictionCount;
+
+    public CacheStatisticsDTO(String region, long hitCount, long missCount, long putCount, long size) {
+        this(region, hitCount, missCount, putCount, size, 0);
+    }
+
+    public CacheStatisticsDTO(String region, long hitCount, long missCount, long putCount, long size, long evictionCount) {
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.size = size;
+        this.evictionCount = evictionCount;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getPutCount() {
+        return putCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return  The number of entries dropped to keep the size bounded, 0 for the second-level cache regions.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public double getHitRatio() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,7 @@
+package com.daou.book.dto;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED;
+}
@@ -0,0 +1,123 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+public class ConnectionPoolStatisticsDTO {
+
+    private String poolName;
+
+    private int leasedConnections;
+
+    private int freeConnections;
+
+    private int createdConnections;
+
+    private long connectionsRequested;
+
+    private long acquireFailures;
+
+    private double connectionWaitTimeAverage;
+
+    private long statementCacheHits;
+
+    private long statementCacheMisses;
+
+    private long statementsCached;
+
+    public ConnectionPoolStatisticsDTO() {
+
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public void setPoolName(String poolName) {
+        this.poolName = poolName;
+    }
+
+    public int getLeasedConnections() {
+        return leasedConnections;
+    }
+
+    public void setLeasedConnections(int leasedConnections) {
+        this.leasedConnections = leasedConnections;
+    }
+
+    public int getFreeConnections() {
+        return freeConnections;
+    }
+
+    public void setFreeConnections(int freeConnections) {
+        this.freeConnections = freeConnections;
+    }
+
+    public int getCreatedConnections() {
+        return createdConnections;
+    }
+
+    public void setCreatedConnections(int createdConnections) {
+        this.createdConnections = createdConnections;
+    }
+
+    public long getConnectionsRequested() {
+        return connectionsRequested;
+    }
+
+    public void setConnectionsRequested(long connectionsRequested) {
+        this.connectionsRequested = connectionsRequested;
+    }
+
+    public long getAcquireFailures() {
+        return acquireFailures;
+    }
+
+    public void setAcquireFailures(long acquireFailures) {
+        this.acquireFailures = acquireFailures;
+    }
+
+    /**
+     * @return  The average wait for a connection in milliseconds.
+     */
+    public double getConnectionWaitTimeAverage() {
+        return connectionWaitTimeAverage;
+    }
+
+    public void setConnectionWaitTimeAverage(double connectionWaitTimeAverage) {
+        this.connectionWaitTimeAverage = connectionWaitTimeAverage;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public void setStatementCacheHits(long statementCacheHits) {
+        this.statementCacheHits = statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    public void setStatementCacheMisses(long statementCacheMisses) {
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    public long getStatementsCached() {
+        return statementsCached;
+    }
+
+    public void setStatementsCached(long statementsCached) {
+        this.statementsCached = statementsCached;
+    }
+
+    public double getStatementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,28 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+public class ImportFailureDTO {
+
+    private final int row;
+
+    private final String message;
+
+    public ImportFailureDTO(int row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,62 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk user import. Rows are numbered from one in the order they
+ * were received. Only the first failures are listed, <code>failed</code>
+ * counts all of them.
+ */
+public class ImportResultDTO {
+
+    private int total;
+
+    private int imported;
+
+    private int failed;
+
+    private List<ImportFailureDTO> failures = new ArrayList<ImportFailureDTO>();
+
+    public ImportResultDTO() {
+
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<ImportFailureDTO> getFailures() {
+        return failures;
+    }
+
+    public void addRow() {
+        total++;
+    }
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    public void addFailure(ImportFailureDTO failure, int maxReportedFailures) {
+        failed++;
+        if (failures.size() < maxReportedFailures) {
+            failures.add(failure);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,6 @@
+package com.daou.book.dto;
+
+public enum NameField {
+    FIRST_NAME,
+    LAST_NAME;
+}
@@ -0,0 +1,59 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * Keyset cursor of the user list. The cursor points to the last row of the
+ * current page (NEXT) or to the first one (PREVIOUS).
+ */
+public class PageDTO {
+
+    private SortType sortType;
+
+    private PageDirection direction;
+
+    private Long cursorId;
+
+    private String cursorLastName;
+
+    public PageDTO() {
+
+    }
+
+    public SortType getSortType() {
+        return sortType;
+    }
+
+    public void setSortType(SortType sortType) {
+        this.sortType = sortType;
+    }
+
+    public PageDirection getDirection() {
+        return direction;
+    }
+
+    public void setDirection(PageDirection direction) {
+        this.direction = direction;
+    }
+
+    public Long getCursorId() {
+        return cursorId;
+    }
+
+    public void setCursorId(Long cursorId) {
+        this.cursorId = cursorId;
+    }
+
+    public String getCursorLastName() {
+        return cursorLastName;
+    }
+
+    public void setCursorLastName(String cursorLastName) {
+        this.cursorLastName = cursorLastName;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
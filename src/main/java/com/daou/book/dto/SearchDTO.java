@@ -8,6 +8,11 @@ public class SearchDTO {
 
     private SearchType searchType;
 
+    /**
+     * The zero based page of a full text search, the other searches are not paginated.
+     */
+    private Integer page;
+
     public SearchDTO() {
 
     }
@@ -28,6 +33,14 @@ public class SearchDTO {
         this.searchType = searchType;
     }
 
+    public Integer getPage() {
+        return page;
+    }
+
+    public void setPage(Integer page) {
+        this.page = page;
+    }
+
     @Override
     public String toString() {
         return ToStringBuilder.reflectionToString(this);
@@ -3,5 +3,6 @@ package com.daou.book.dto;
 public enum SearchType {
     METHOD_NAME,
     NAMED_QUERY,
-    QUERY_ANNOTATION;
+    QUERY_ANNOTATION,
+    FULL_TEXT;
 }
@@ -0,0 +1,6 @@
+package com.daou.book.dto;
+
+public enum SortType {
+    ID,
+    LAST_NAME;
+}
@@ -0,0 +1,64 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.List;
+
+/**
+ * A batch of the change log. A mirror asks for the next batch after
+ * lastSequence until hasMore is false. If resyncRequired is true the changes
+ * after the requested sequence are no longer kept. The mirror then notes the
+ * headSequence, copies all users again, e.g. from the export, and continues
+ * after the noted sequence.
+ */
+public class UserChangeBatchDTO {
+
+    private final List<UserChangeDTO> changes;
+
+    private final long lastSequence;
+
+    private final long headSequence;
+
+    private final boolean hasMore;
+
+    private final boolean resyncRequired;
+
+    public UserChangeBatchDTO(List<UserChangeDTO> changes, long lastSequence, long headSequence, boolean hasMore, boolean resyncRequired) {
+        this.changes = changes;
+        this.lastSequence = lastSequence;
+        this.headSequence = headSequence;
+        this.hasMore = hasMore;
+        this.resyncRequired = resyncRequired;
+    }
+
+    public List<UserChangeDTO> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return  The sequence of the last change of the batch, or the requested sequence if the batch is empty.
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * @return  The sequence of the latest change in the log, 0 if nothing was logged.
+     */
+    public long getHeadSequence() {
+        return headSequence;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public boolean isResyncRequired() {
+        return resyncRequired;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
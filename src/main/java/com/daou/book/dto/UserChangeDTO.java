@@ -0,0 +1,78 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.Date;
+
+/**
+ * One change of the change log. The names are null for a deleted user, the
+ * version is the last version the user had when it was deleted.
+ *
+ * The changes of two transactions committed at almost the same time can be
+ * logged in the other order than they were committed, an update even after
+ * the delete of the same user. Ids are never reused and the versions order
+ * the changes of one user, so a mirror applies a created or updated change
+ * only if its version is newer than the version it has of the user, and a
+ * deleted change if its version is not older. It keeps the id and the version
+ * of a deleted user, so an update logged after the delete is ignored. The
+ * delete locks the user, no update can commit with a newer version.
+ */
+public class UserChangeDTO {
+
+    private final long sequence;
+
+    private final Date time;
+
+    private final ChangeType type;
+
+    private final Long userId;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final Long version;
+
+    public UserChangeDTO(long sequence, Date time, ChangeType type, Long userId, String firstName, String lastName, Long version) {
+        this.sequence = sequence;
+        this.time = time;
+        this.type = type;
+        this.userId = userId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.version = version;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -14,6 +14,10 @@ public class UserDTO {
     @NotEmpty
     private String lastName;
 
+    private Long version;
+
+    private String signature;
+
     public UserDTO() {
 
     }
@@ -42,6 +46,25 @@ public class UserDTO {
         this.lastName = lastName;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return  The signature of the id and the version, sent with the edit form.
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    public void setSignature(String signature) {
+        this.signature = signature;
+    }
+
     @Override
     public String toString() {
         return ToStringBuilder.reflectionToString(this);
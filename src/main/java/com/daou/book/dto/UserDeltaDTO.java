@@ -0,0 +1,56 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.Date;
+
+/**
+ * A created or modified user of the delta query. The modification time and
+ * the id are the cursor of the next page, the version tells a reconciliation
+ * whether its copy of the user is older.
+ */
+public class UserDeltaDTO {
+
+    private final Long id;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final long version;
+
+    private final Date modificationTime;
+
+    public UserDeltaDTO(Long id, String firstName, String lastName, long version, Date modificationTime) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.version = version;
+        this.modificationTime = modificationTime;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Date getModificationTime() {
+        return modificationTime;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,56 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A page of the users created or modified after a cursor. The caller asks for
+ * the next page after cursorTime and cursorId until hasMore is false, and
+ * keeps the last cursor for its next run.
+ */
+public class UserDeltaPageDTO {
+
+    private final List<UserDeltaDTO> users;
+
+    private final Date cursorTime;
+
+    private final Long cursorId;
+
+    private final boolean hasMore;
+
+    public UserDeltaPageDTO(List<UserDeltaDTO> users, Date cursorTime, Long cursorId, boolean hasMore) {
+        this.users = users;
+        this.cursorTime = cursorTime;
+        this.cursorId = cursorId;
+        this.hasMore = hasMore;
+    }
+
+    public List<UserDeltaDTO> getUsers() {
+        return users;
+    }
+
+    /**
+     * @return  The modification time of the last user of the page, or the requested time if the page is empty.
+     */
+    public Date getCursorTime() {
+        return cursorTime;
+    }
+
+    /**
+     * @return  The id of the last user of the page, or the requested id if the page is empty.
+     */
+    public Long getCursorId() {
+        return cursorId;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
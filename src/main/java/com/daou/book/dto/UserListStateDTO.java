@@ -0,0 +1,50 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.Date;
+
+/**
+ * Number of users, the sum of their versions and the latest modification
+ * time. Every create and delete changes the count and every update increments
+ * a version, so together they tell whether a user list rendered earlier is
+ * still current. The modification time alone is not enough, it is taken
+ * before the commit and a later commit can carry an older time.
+ */
+public class UserListStateDTO {
+
+    private final long count;
+
+    private final long versionSum;
+
+    private final Date lastModified;
+
+    /**
+     * @param versionSum    The sum of the versions or null if there are no users.
+     */
+    public UserListStateDTO(long count, Long versionSum, Date lastModified) {
+        this.count = count;
+        this.versionSum = versionSum == null ? 0 : versionSum;
+        this.lastModified = lastModified;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getVersionSum() {
+        return versionSum;
+    }
+
+    /**
+     * @return  The latest modification time or null if there are no users.
+     */
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
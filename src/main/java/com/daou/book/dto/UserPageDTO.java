@@ -0,0 +1,52 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.List;
+
+public class UserPageDTO {
+
+    private final List<UserRowDTO> users;
+
+    private final SortType sortType;
+
+    private final boolean firstPage;
+
+    private final boolean lastPage;
+
+    public UserPageDTO(List<UserRowDTO> users, SortType sortType, boolean firstPage, boolean lastPage) {
+        this.users = users;
+        this.sortType = sortType;
+        this.firstPage = firstPage;
+        this.lastPage = lastPage;
+    }
+
+    public List<UserRowDTO> getUsers() {
+        return users;
+    }
+
+    public SortType getSortType() {
+        return sortType;
+    }
+
+    public boolean isFirstPage() {
+        return firstPage;
+    }
+
+    public boolean isLastPage() {
+        return lastPage;
+    }
+
+    public UserRowDTO getFirst() {
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    public UserRowDTO getLast() {
+        return users.isEmpty() ? null : users.get(users.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
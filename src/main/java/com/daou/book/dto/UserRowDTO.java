@@ -0,0 +1,57 @@
+package com.daou.book.dto;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * Read-only view of a user for the list and search pages. Rows are created
+ * by constructor expressions, so the persistence context neither manages
+ * them nor keeps snapshots of them for dirty checking.
+ */
+public class UserRowDTO {
+
+    private final Long id;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final Long version;
+
+    public UserRowDTO(Long id, String firstName, String lastName) {
+        this(id, firstName, lastName, null);
+    }
+
+    /**
+     * @param version   The version of the user after the change, set only for the published changes.
+     */
+    public UserRowDTO(Long id, String firstName, String lastName, Long version) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    /**
+     * @return  The version of the user or null if the row was not read for a change.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
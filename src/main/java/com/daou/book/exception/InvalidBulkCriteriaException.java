@@ -0,0 +1,12 @@
+package com.daou.book.exception;
+
+/**
+ * Thrown when the criteria of a bulk operation sent by a client cannot be
+ * executed. The message tells the client what to fix.
+ */
+public class InvalidBulkCriteriaException extends IllegalArgumentException {
+
+    public InvalidBulkCriteriaException(String message) {
+        super(message);
+    }
+}
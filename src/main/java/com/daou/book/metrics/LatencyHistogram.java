@@ -0,0 +1,76 @@
+package com.daou.book.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram. Every power of two is split into 32 buckets,
+ * so a recorded value is off by less than 3.2%. The histogram is shared by
+ * the few threads of one stripe of a LatencyRecorder, the counts are
+ * incremented atomically and readers see every completed recording.
+ */
+class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values above 2^36 nanoseconds (about 68 seconds) are recorded as 2^36.
+     */
+    static final int MAX_VALUE_BITS = 36;
+    static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+        long bounded = bound(value);
+        counts.incrementAndGet(getBucketIndex(bounded));
+
+        long current = max.get();
+        while (bounded > current && !max.compareAndSet(current, bounded)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Adds the counts of this histogram to the given buckets.
+     * @param buckets   The buckets of the merged histogram.
+     * @return  The largest recorded value.
+     */
+    long addTo(long[] buckets) {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            buckets[index] += counts.get(index);
+        }
+        return max.get();
+    }
+
+    static long bound(long value) {
+        return value < 0 ? 0 : Math.min(value, MAX_VALUE);
+    }
+
+    static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Returns the largest value recorded into the bucket of the given index.
+     */
+    static long getHighestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        long subBucket = SUB_BUCKET_COUNT + (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,125 @@
+package com.daou.book.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records the latencies of one operation. The threads are spread over a fixed
+ * number of stripes by their ids, so the memory does not grow with the threads
+ * which ever recorded, and the stripes are merged only when a snapshot is
+ * taken.
+ *
+ * The count and the sum are kept since the start. The histograms are kept per
+ * window and a snapshot merges the current and the previous window, so the
+ * quantiles and the maximum show the latencies of the last one to two windows.
+ */
+class LatencyRecorder {
+
+    static final int STRIPE_COUNT = getStripeCount(Runtime.getRuntime().availableProcessors());
+
+    private static final int MAX_STRIPE_COUNT = 16;
+
+    private final long windowNanos;
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPE_COUNT);
+
+    private final AtomicLongArray sums = new AtomicLongArray(STRIPE_COUNT);
+
+    private volatile Window current;
+
+    // Null when nothing was recorded in the window before the current one
+    private volatile Window previous;
+
+    LatencyRecorder(long windowNanos) {
+        this.windowNanos = windowNanos;
+        this.current = new Window(System.nanoTime());
+    }
+
+    void record(long nanos) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPE_COUNT - 1);
+        counts.incrementAndGet(stripe);
+        sums.addAndGet(stripe, LatencyHistogram.bound(nanos));
+        getWindow(System.nanoTime()).getHistogram(stripe).record(nanos);
+    }
+
+    LatencySnapshot snapshot() {
+        Window window = getWindow(System.nanoTime());
+        Window before = previous;
+
+        long[] buckets = new long[LatencyHistogram.BUCKET_COUNT];
+        long max = window.addTo(buckets);
+        if (before != null) {
+            max = Math.max(max, before.addTo(buckets));
+        }
+
+        long count = 0;
+        long sum = 0;
+        for (int stripe = 0; stripe < STRIPE_COUNT; stripe++) {
+            count += counts.get(stripe);
+            sum += sums.get(stripe);
+        }
+
+        return new LatencySnapshot(buckets, count, sum, max);
+    }
+
+    private Window getWindow(long now) {
+        Window window = current;
+        if (now - window.startTime < windowNanos) {
+            return window;
+        }
+        return rotate(now);
+    }
+
+    private synchronized Window rotate(long now) {
+        Window window = current;
+        if (now - window.startTime >= windowNanos) {
+            // A window which ended before the previous window began is too old to be shown
+            previous = now - window.startTime < 2 * windowNanos ? window : null;
+            window = new Window(now);
+            current = window;
+        }
+        return window;
+    }
+
+    static int getStripeCount(int processors) {
+        int stripeCount = 1;
+        while (stripeCount < processors && stripeCount < MAX_STRIPE_COUNT) {
+            stripeCount <<= 1;
+        }
+        return stripeCount;
+    }
+
+    /**
+     * The histograms of one window, created on the first recording of their stripe.
+     */
+    private static class Window {
+
+        private final long startTime;
+
+        private final AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<LatencyHistogram>(STRIPE_COUNT);
+
+        Window(long startTime) {
+            this.startTime = startTime;
+        }
+
+        LatencyHistogram getHistogram(int stripe) {
+            LatencyHistogram histogram = histograms.get(stripe);
+            if (histogram == null) {
+                histograms.compareAndSet(stripe, null, new LatencyHistogram());
+                histogram = histograms.get(stripe);
+            }
+            return histogram;
+        }
+
+        long addTo(long[] buckets) {
+            long max = 0;
+            for (int stripe = 0; stripe < STRIPE_COUNT; stripe++) {
+                LatencyHistogram histogram = histograms.get(stripe);
+                if (histogram != null) {
+                    max = Math.max(max, histogram.addTo(buckets));
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.daou.book.metrics;
+
+/**
+ * The latencies of one operation merged from all threads. The values are in
+ * nanoseconds.
+ */
+public class LatencySnapshot {
+
+    private final long[] buckets;
+
+    private final long count;
+
+    private final long sum;
+
+    private final long max;
+
+    LatencySnapshot(long[] buckets, long count, long sum, long max) {
+        this.buckets = buckets;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the latency below which the given fraction of the recorded
+     * latencies fall.
+     * @param quantile  The quantile between 0 and 1.
+     * @return  The latency in nanoseconds or 0 if nothing is recorded.
+     */
+    public long getQuantile(double quantile) {
+        long total = 0;
+        for (long bucket : buckets) {
+            total += bucket;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int index = 0; index < buckets.length; index++) {
+            seen += buckets[index];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.getHighestValue(index), max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,47 @@
+package com.daou.book.metrics;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records the latency of every request handled by a @RequestMapping method,
+ * including the view rendering. The metric is named after the controller and
+ * the handler method, for example http.UserController.showList.
+ */
+@Component
+public class MetricsInterceptor extends HandlerInterceptorAdapter {
+
+    protected static final String METRIC_NAME_PREFIX = "http.";
+
+    private static final String REQUEST_ATTRIBUTE_START_TIME = MetricsInterceptor.class.getName() + ".startTime";
+
+    @Resource
+    private MetricsRegistry metricsRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            request.setAttribute(REQUEST_ATTRIBUTE_START_TIME, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Long startTime = (Long) request.getAttribute(REQUEST_ATTRIBUTE_START_TIME);
+        if (startTime != null) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            String name = METRIC_NAME_PREFIX + handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+            metricsRegistry.record(name, System.nanoTime() - startTime);
+        }
+    }
+
+    protected void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+}
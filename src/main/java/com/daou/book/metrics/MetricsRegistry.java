@@ -0,0 +1,67 @@
+package com.daou.book.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms of the request handlers and service methods by name.
+ */
+@Component
+public class MetricsRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    private static final String PROPERTY_NAME_WINDOW_SECONDS = "metrics.window.seconds";
+
+    private static final int DEFAULT_WINDOW_SECONDS = 60;
+
+    private final ConcurrentMap<String, LatencyRecorder> recorders = new ConcurrentHashMap<String, LatencyRecorder>();
+
+    @Resource
+    private Environment environment;
+
+    private long windowNanos = TimeUnit.SECONDS.toNanos(DEFAULT_WINDOW_SECONDS);
+
+    @PostConstruct
+    public void init() {
+        int windowSeconds = environment.getProperty(PROPERTY_NAME_WINDOW_SECONDS, Integer.class, DEFAULT_WINDOW_SECONDS);
+        windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        LOGGER.debug("Latency window is " + windowSeconds + " seconds, stripes per metric: " + LatencyRecorder.STRIPE_COUNT);
+    }
+
+    public void record(String name, long nanos) {
+        LatencyRecorder recorder = recorders.get(name);
+        if (recorder == null) {
+            LatencyRecorder created = new LatencyRecorder(windowNanos);
+            recorder = recorders.putIfAbsent(name, created);
+            if (recorder == null) {
+                recorder = created;
+            }
+        }
+        recorder.record(nanos);
+    }
+
+    public SortedMap<String, LatencySnapshot> getSnapshots() {
+        SortedMap<String, LatencySnapshot> snapshots = new TreeMap<String, LatencySnapshot>();
+        for (Map.Entry<String, LatencyRecorder> recorder : recorders.entrySet()) {
+            snapshots.put(recorder.getKey(), recorder.getValue().snapshot());
+        }
+        return snapshots;
+    }
+
+    protected void setWindowNanos(long windowNanos) {
+        this.windowNanos = windowNanos;
+    }
+}
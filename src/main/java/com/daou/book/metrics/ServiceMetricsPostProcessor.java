@@ -0,0 +1,70 @@
+package com.daou.book.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import com.daou.book.service.UserService;
+
+import javax.annotation.Resource;
+
+/**
+ * Wraps the service beans in a proxy that records the latency of every
+ * service method, for example service.UserService.findById. The proxy is
+ * created after the transaction proxy, so the measured time includes the
+ * commit.
+ */
+@Component
+public class ServiceMetricsPostProcessor implements BeanPostProcessor {
+
+    protected static final String METRIC_NAME_PREFIX = "service.";
+
+    private static final Class<?>[] INSTRUMENTED_SERVICES = {UserService.class};
+
+    @Resource
+    private MetricsRegistry metricsRegistry;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        for (Class<?> service : INSTRUMENTED_SERVICES) {
+            if (service.isInstance(bean)) {
+                ProxyFactory proxyFactory = new ProxyFactory();
+                proxyFactory.setTarget(bean);
+                proxyFactory.addInterface(service);
+                proxyFactory.addAdvice(new LatencyInterceptor(METRIC_NAME_PREFIX + service.getSimpleName() + "."));
+                return proxyFactory.getProxy();
+            }
+        }
+        return bean;
+    }
+
+    private class LatencyInterceptor implements MethodInterceptor {
+
+        private final String namePrefix;
+
+        LatencyInterceptor(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long startTime = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                metricsRegistry.record(namePrefix + invocation.getMethod().getName(), System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    protected void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+}
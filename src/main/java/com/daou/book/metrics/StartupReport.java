@@ -0,0 +1,115 @@
+package com.daou.book.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boot time of the application context broken down by refresh phase and by
+ * bean. The time of a bean is split into its own time and the total time,
+ * which includes the creation of the beans it depends on.
+ */
+public class StartupReport {
+
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<String, Long>();
+
+    private final List<BeanTiming> beans = new ArrayList<BeanTiming>();
+
+    private long totalNanos;
+
+    public synchronized void addPhase(String phase, long nanos) {
+        phaseNanos.put(phase, nanos);
+    }
+
+    public synchronized void addBean(String beanName, long selfNanos, long totalNanos) {
+        beans.add(new BeanTiming(beanName, selfNanos, totalNanos));
+    }
+
+    public synchronized void setTotalNanos(long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
+
+    public synchronized long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public synchronized Map<String, Long> getPhaseNanos() {
+        return new LinkedHashMap<String, Long>(phaseNanos);
+    }
+
+    /**
+     * @param maxBeans  The maximum number of returned beans.
+     * @return  The beans with the longest own time, the slowest first.
+     */
+    public synchronized List<BeanTiming> getSlowestBeans(int maxBeans) {
+        List<BeanTiming> sorted = new ArrayList<BeanTiming>(beans);
+        Collections.sort(sorted, new Comparator<BeanTiming>() {
+            @Override
+            public int compare(BeanTiming first, BeanTiming second) {
+                return first.selfNanos < second.selfNanos ? 1 : (first.selfNanos == second.selfNanos ? 0 : -1);
+            }
+        });
+        return sorted.subList(0, Math.min(maxBeans, sorted.size()));
+    }
+
+    public synchronized int getBeanCount() {
+        return beans.size();
+    }
+
+    /**
+     * Formats the report as text, one phase or bean per line.
+     *
+     * @param maxBeans  The maximum number of listed beans.
+     */
+    public String format(int maxBeans) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Application context started in ").append(toMillis(getTotalNanos())).append(" ms\n");
+
+        builder.append("Phases:\n");
+        for (Map.Entry<String, Long> phase : getPhaseNanos().entrySet()) {
+            builder.append(String.format("  %8d ms  %s%n", toMillis(phase.getValue()), phase.getKey()));
+        }
+
+        builder.append("Slowest of ").append(getBeanCount()).append(" beans (own ms, total ms):\n");
+        for (BeanTiming bean : getSlowestBeans(maxBeans)) {
+            builder.append(String.format("  %8d %8d  %s%n", toMillis(bean.selfNanos), toMillis(bean.totalNanos), bean.beanName));
+        }
+
+        return builder.toString();
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public static class BeanTiming {
+
+        private final String beanName;
+
+        private final long selfNanos;
+
+        private final long totalNanos;
+
+        BeanTiming(String beanName, long selfNanos, long totalNanos) {
+            this.beanName = beanName;
+            this.selfNanos = selfNanos;
+            this.totalNanos = totalNanos;
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+    }
+}
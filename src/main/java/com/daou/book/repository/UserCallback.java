@@ -0,0 +1,13 @@
+package com.daou.book.repository;
+
+import com.daou.book.domain.User;
+
+import java.io.IOException;
+
+/**
+ * Receives the users one by one while a query result is being scrolled.
+ */
+public interface UserCallback {
+
+    public void handle(User user) throws IOException;
+}
@@ -1,19 +1,130 @@
 package com.daou.book.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import com.daou.book.domain.User;
+import com.daou.book.dto.UserDeltaDTO;
+import com.daou.book.dto.UserListStateDTO;
+import com.daou.book.dto.UserRowDTO;
 
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+
+    /*
+     * The list and search queries return row views instead of entities, the
+     * pages only show the names and ids.
+     *
+     * The search results are kept in the query cache when it is enabled. The
+     * cached entry holds the selected columns of the rows. Derived queries
+     * ignore the hints, so the cached queries are declared.
+     *
+     * The searches compare the indexed last name key, the argument must be
+     * normalized with User.toLastNameKey(String).
+     */
+
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query("SELECT NEW com.daou.book.dto.UserRowDTO(u.id, u.firstName, u.lastName) FROM User u WHERE u.lastNameKey = :lastNameKey")
+    public List<UserRowDTO> find(@Param("lastNameKey") String lastNameKey);
+
+    public List<UserRowDTO> findByName(String lastNameKey);
+
+    /*
+     * Case-sensitive search. The key or the exact last name narrows the rows
+     * through an index, the database picks the more selective one. The last
+     * name comparison keeps the exact match.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query("SELECT NEW com.daou.book.dto.UserRowDTO(u.id, u.firstName, u.lastName) FROM User u WHERE u.lastNameKey = :lastNameKey AND u.lastName = :lastName")
+    public List<UserRowDTO> findByLastName(@Param("lastNameKey") String lastNameKey, @Param("lastName") String lastName);
+
+    /*
+     * Validators of the conditional GETs of the list and edit pages. Both
+     * read indexed columns only, no entity is loaded. The modification time
+     * index also holds the version for the version sum of the list.
+     */
+
+    @Query("SELECT NEW com.daou.book.dto.UserListStateDTO(COUNT(u), SUM(u.version), MAX(u.modificationTime)) FROM User u")
+    public UserListStateDTO findListState();
+
+    @Query("SELECT u.version FROM User u WHERE u.id = :id")
+    public Long findVersion(@Param("id") Long id);
+
+    /*
+     * Single statement writes. The update checks and increments the version
+     * like a flush of a managed entity would, but the entity callbacks are
+     * not invoked so the caller sets the last name key and the modification
+     * time. Both return the number of changed rows.
+     */
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.firstName = :firstName, u.lastName = :lastName, u.lastNameKey = :lastNameKey, "
+            + "u.modificationTime = :modificationTime, u.version = u.version + 1 WHERE u.id = :id AND u.version = :version")
+    public int update(@Param("id") Long id, @Param("version") long version, @Param("firstName") String firstName,
+                      @Param("lastName") String lastName, @Param("lastNameKey") String lastNameKey,
+                      @Param("modificationTime") Date modificationTime);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM User u WHERE u.id = :id")
+    public int deleteById(@Param("id") Long id);
+
+    /*
+     * Set-based statements of the bulk operations. The ids are passed in
+     * chunks, the length of an IN list is limited by the database.
+     */
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    public List<Long> findIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT NEW com.daou.book.dto.UserRowDTO(u.id, u.firstName, u.lastName, u.version) FROM User u WHERE u.id IN :ids")
+    public List<UserRowDTO> findRowsByIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM User u WHERE u.id IN :ids")
+    public int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /*
+     * Keyset pagination. The pageable argument is only used to limit the
+     * number of returned rows, the cursor columns are always the sort keys
+     * so every page is a single index range scan instead of an OFFSET scan.
+     */
+
+    @Query("SELECT NEW com.daou.book.dto.UserRowDTO(u.id, u.firstName, u.lastName) FROM User u ORDER BY u.id ASC")
+    public List<UserRowDTO> findFirstPageOrderById(Pageable limit);
+
+    @Query("SELECT NEW com.daou.book.dto.UserRowDTO(u.id, u.firstName, u.lastName) FROM User u WHERE u.id > :id ORDER BY u.id ASC")
+    public List<UserRowDTO> findPageAfterId(@Param("id") Long id, Pageable limit);
+
+    @Query("SELECT NEW com.daou.book.dto.UserRowDTO(u.id, u.firstName, u.lastName) FROM User u WHERE u.id < :id ORDER BY u.id DESC")
+    public List<UserRowDTO> findPageBeforeId(@Param("id") Long id, Pageable limit);
+
+    @Query("SELECT NEW com.daou.book.dto.UserRowDTO(u.id, u.firstName, u.lastName) FROM User u ORDER BY u.lastName ASC, u.id ASC")
+    public List<UserRowDTO> findFirstPageOrderByLastName(Pageable limit);
+
+    @Query("SELECT NEW com.daou.book.dto.UserRowDTO(u.id, u.firstName, u.lastName) FROM User u WHERE u.lastName >= :lastName AND (u.lastName > :lastName OR u.id > :id) ORDER BY u.lastName ASC, u.id ASC")
+    public List<UserRowDTO> findPageAfterLastName(@Param("lastName") String lastName, @Param("id") Long id, Pageable limit);
+
+    @Query("SELECT NEW com.daou.book.dto.UserRowDTO(u.id, u.firstName, u.lastName) FROM User u WHERE u.lastName <= :lastName AND (u.lastName < :lastName OR u.id < :id) ORDER BY u.lastName DESC, u.id DESC")
+    public List<UserRowDTO> findPageBeforeLastName(@Param("lastName") String lastName, @Param("id") Long id, Pageable limit);
 
-    @Query("SELECT u FROM User u WHERE LOWER(u.lastName) = LOWER(:lastName)")
-    public List<User> find(@Param("lastName") String lastName);
+    /*
+     * Delta query of the reconciliation. The cursor is the modification time
+     * and the id of the last returned user, both are the columns of the index
+     * so a page is a range scan of the index. The rows modified at or after
+     * the until time are left for a later page.
+     */
 
-    public List<User> findByName(String lastName);
-    
-    public List<User> findByLastName(String lastName);
+    @Query("SELECT NEW com.daou.book.dto.UserDeltaDTO(u.id, u.firstName, u.lastName, u.version, u.modificationTime) FROM User u "
+            + "WHERE u.modificationTime >= :time AND (u.modificationTime > :time OR u.id > :id) AND u.modificationTime < :until "
+            + "ORDER BY u.modificationTime ASC, u.id ASC")
+    public List<UserDeltaDTO> findModifiedAfter(@Param("time") Date time, @Param("id") Long id, @Param("until") Date until, Pageable limit);
 }
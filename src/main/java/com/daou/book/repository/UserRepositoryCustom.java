@@ -0,0 +1,59 @@
+package com.daou.book.repository;
+
+import com.daou.book.domain.User;
+import com.daou.book.dto.UserRowDTO;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Repository operations that can not be expressed as Spring Data query methods.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Walks through all users ordered by id using a forward only cursor. The
+     * loaded users are read only and the persistence context is cleared after
+     * every <code>clearInterval</code> users so the heap usage does not grow
+     * with the size of the table. Must be called inside a transaction.
+     *
+     * @param fetchSize     The JDBC fetch size of the cursor.
+     * @param clearInterval The number of users handled between two clears of the persistence context.
+     * @param callback      Receives the users.
+     */
+    public void scrollAll(int fetchSize, int clearInterval, UserCallback callback) throws IOException;
+
+    /**
+     * Persists the given users with JDBC batch inserts and detaches them from
+     * the persistence context afterwards. Must be called inside a transaction.
+     *
+     * @param users The new users.
+     */
+    public void insertBatch(List<User> users);
+
+    /**
+     * Updates the names of the given users with one UPDATE statement and
+     * increments their versions. Like every bulk statement it bypasses the
+     * entity callbacks, the last name key is set here and the modification
+     * time is given by the caller. Must be called inside a transaction.
+     *
+     * @param ids               The ids of the updated users.
+     * @param firstName         The new first name or null if it is not changed.
+     * @param lastName          The new last name or null if it is not changed.
+     * @param modificationTime  The new modification time.
+     * @return  The number of updated users.
+     */
+    public int updateNames(Collection<Long> ids, String firstName, String lastName, Date modificationTime);
+
+    /**
+     * Reads the given users with a write lock, so their versions can not
+     * change before the transaction ends. A delete reads the last versions
+     * of the deleted users with it. Must be called inside a transaction.
+     *
+     * @param ids   The ids of the users.
+     * @return  The found users with their names and versions.
+     */
+    public List<UserRowDTO> lockRowsByIds(Collection<Long> ids);
+}
@@ -0,0 +1,111 @@
+package com.daou.book.repository;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.daou.book.domain.User;
+import com.daou.book.dto.UserRowDTO;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserRepositoryImpl.class);
+
+    private static final String QUERY_ALL_ORDER_BY_ID = "SELECT u FROM User u ORDER BY u.id ASC";
+
+    private static final String QUERY_ROWS_BY_IDS = "SELECT NEW com.daou.book.dto.UserRowDTO(u.id, u.firstName, u.lastName, u.version) "
+            + "FROM User u WHERE u.id IN :ids";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void scrollAll(int fetchSize, int clearInterval, UserCallback callback) throws IOException {
+        LOGGER.debug("Scrolling all users with fetch size: " + fetchSize + " and clear interval: " + clearInterval);
+
+        Session session = entityManager.unwrap(Session.class);
+        ScrollableResults results = session.createQuery(QUERY_ALL_ORDER_BY_ID)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+
+        try {
+            long count = 0;
+            while (results.next()) {
+                callback.handle((User) results.get(0));
+                if (++count % clearInterval == 0) {
+                    session.clear();
+                }
+            }
+            LOGGER.debug("Scrolled " + count + " users");
+        } finally {
+            results.close();
+        }
+    }
+
+    @Override
+    public void insertBatch(List<User> users) {
+        LOGGER.debug("Inserting a batch of " + users.size() + " users");
+
+        for (User user : users) {
+            entityManager.persist(user);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public int updateNames(Collection<Long> ids, String firstName, String lastName, Date modificationTime) {
+        LOGGER.debug("Updating names of " + ids.size() + " users");
+
+        StringBuilder statement = new StringBuilder("UPDATE User u SET u.version = u.version + 1, u.modificationTime = :modificationTime");
+        if (firstName != null) {
+            statement.append(", u.firstName = :firstName");
+        }
+        if (lastName != null) {
+            statement.append(", u.lastName = :lastName, u.lastNameKey = :lastNameKey");
+        }
+        statement.append(" WHERE u.id IN :ids");
+
+        Query query = entityManager.createQuery(statement.toString())
+                .setParameter("modificationTime", modificationTime)
+                .setParameter("ids", ids);
+        if (firstName != null) {
+            query.setParameter("firstName", firstName);
+        }
+        if (lastName != null) {
+            query.setParameter("lastName", lastName);
+            query.setParameter("lastNameKey", User.toLastNameKey(lastName));
+        }
+
+        int updated = query.executeUpdate();
+        entityManager.clear();
+
+        return updated;
+    }
+
+    @Override
+    public List<UserRowDTO> lockRowsByIds(Collection<Long> ids) {
+        LOGGER.debug("Locking " + ids.size() + " users");
+
+        return entityManager.createQuery(QUERY_ROWS_BY_IDS, UserRowDTO.class)
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+}
@@ -0,0 +1,10 @@
+package com.daou.book.service;
+
+import java.util.List;
+
+import com.daou.book.dto.CacheStatisticsDTO;
+
+public interface CacheStatisticsService {
+
+    public List<CacheStatisticsDTO> findCacheStatistics();
+}
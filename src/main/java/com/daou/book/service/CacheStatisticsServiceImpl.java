@@ -0,0 +1,75 @@
+package com.daou.book.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.jpa.EntityManagerFactoryInfo;
+import org.springframework.stereotype.Service;
+
+import com.daou.book.dto.CacheStatisticsDTO;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the second-level and query cache statistics from Hibernate. The
+ * counters are collected only when hibernate.generate_statistics is enabled.
+ * The statistics of the user cache of the service follow the regions.
+ */
+@Service
+public class CacheStatisticsServiceImpl implements CacheStatisticsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheStatisticsServiceImpl.class);
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @Resource
+    private UserCache userCache;
+
+    @Override
+    public List<CacheStatisticsDTO> findCacheStatistics() {
+        LOGGER.debug("Finding cache statistics");
+
+        Statistics statistics = getSessionFactory().getStatistics();
+        String[] regions = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regions);
+
+        List<CacheStatisticsDTO> cacheStatistics = new ArrayList<CacheStatisticsDTO>();
+        for (String region : regions) {
+            SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(region);
+            if (regionStatistics != null) {
+                cacheStatistics.add(new CacheStatisticsDTO(region, regionStatistics.getHitCount(), regionStatistics.getMissCount(),
+                        regionStatistics.getPutCount(), regionStatistics.getElementCountInMemory()));
+            }
+        }
+
+        cacheStatistics.add(userCache.getStatistics());
+
+        return cacheStatistics;
+    }
+
+    private SessionFactory getSessionFactory() {
+        EntityManagerFactory nativeFactory = entityManagerFactory;
+        if (nativeFactory instanceof EntityManagerFactoryInfo) {
+            nativeFactory = ((EntityManagerFactoryInfo) nativeFactory).getNativeEntityManagerFactory();
+        }
+        return ((HibernateEntityManagerFactory) nativeFactory).getSessionFactory();
+    }
+
+    protected void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    protected void setUserCache(UserCache userCache) {
+        this.userCache = userCache;
+    }
+}
@@ -0,0 +1,81 @@
+package com.daou.book.service;
+
+import com.jolbox.bonecp.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Service;
+
+import com.daou.book.datasource.MonitoredBoneCPDataSource;
+import com.daou.book.datasource.ReadWriteRoutingDataSource;
+import com.daou.book.dto.ConnectionPoolStatisticsDTO;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the statistics of the connection pools behind the data source of the
+ * application, the primary pool first. The wait time and statement cache
+ * counters are collected only when db.pool.statistics.enabled is set.
+ */
+@Service
+public class ConnectionPoolStatisticsServiceImpl implements ConnectionPoolStatisticsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolStatisticsServiceImpl.class);
+
+    @Resource
+    private DataSource dataSource;
+
+    @Override
+    public List<ConnectionPoolStatisticsDTO> findConnectionPoolStatistics() {
+        LOGGER.debug("Finding connection pool statistics");
+
+        List<MonitoredBoneCPDataSource> pools = new ArrayList<MonitoredBoneCPDataSource>();
+        collectPools(dataSource, pools);
+
+        List<ConnectionPoolStatisticsDTO> poolStatistics = new ArrayList<ConnectionPoolStatisticsDTO>();
+        for (MonitoredBoneCPDataSource pool : pools) {
+            poolStatistics.add(createStatistics(pool));
+        }
+
+        return poolStatistics;
+    }
+
+    private void collectPools(DataSource current, List<MonitoredBoneCPDataSource> pools) {
+        if (current instanceof MonitoredBoneCPDataSource) {
+            pools.add((MonitoredBoneCPDataSource) current);
+        } else if (current instanceof ReadWriteRoutingDataSource) {
+            collectPools(((ReadWriteRoutingDataSource) current).getPrimary(), pools);
+            collectPools(((ReadWriteRoutingDataSource) current).getReplica(), pools);
+        } else if (current instanceof DelegatingDataSource) {
+            collectPools(((DelegatingDataSource) current).getTargetDataSource(), pools);
+        }
+    }
+
+    private ConnectionPoolStatisticsDTO createStatistics(MonitoredBoneCPDataSource pool) {
+        ConnectionPoolStatisticsDTO dto = new ConnectionPoolStatisticsDTO();
+        dto.setPoolName(pool.getPoolName());
+        dto.setAcquireFailures(pool.getAcquireFailures());
+
+        Statistics statistics = pool.getStatistics();
+        if (statistics != null) {
+            dto.setLeasedConnections(statistics.getTotalLeased());
+            dto.setFreeConnections(statistics.getTotalFree());
+            dto.setCreatedConnections(statistics.getTotalCreatedConnections());
+            dto.setConnectionsRequested(statistics.getConnectionsRequested());
+            dto.setConnectionWaitTimeAverage(statistics.getConnectionWaitTimeAvg());
+            dto.setStatementCacheHits(statistics.getCacheHits());
+            dto.setStatementCacheMisses(statistics.getCacheMiss());
+            dto.setStatementsCached(statistics.getStatementsCached());
+        }
+
+        return dto;
+    }
+
+    protected void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+}
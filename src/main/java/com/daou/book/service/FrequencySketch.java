@@ -0,0 +1,94 @@
+package com.daou.book.service;
+
+/**
+ * Approximate lookup counts of the user ids, used by UserCache to admit only
+ * the users which are looked up more often than the users they replace. A
+ * count-min sketch of four 4-bit counters per id: every id increments one
+ * counter in each of four rows and its count is the smallest of them, so a
+ * collision can only overestimate a count.
+ *
+ * All counters are halved after ten lookups per cached user, the counts follow
+ * the recent lookups and the counters, which stop at 15, do not saturate.
+ *
+ * Not thread-safe, UserCache calls it while holding its lock.
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    private int additions;
+
+    /**
+     * @param maximumSize   The maximum number of cached users, sizes the table and the sample.
+     */
+    FrequencySketch(int maximumSize) {
+        int length = Integer.highestOneBit(Math.max(maximumSize, 16) - 1) << 1;
+        table = new long[length];
+        tableMask = length - 1;
+        sampleSize = 10 * Math.max(maximumSize, 1);
+    }
+
+    int frequency(long id) {
+        int hash = spread(id);
+        int start = (hash & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int shift = (start + i) << 2;
+            frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> shift) & 0xF));
+        }
+        return frequency;
+    }
+
+    void increment(long id) {
+        int hash = spread(id);
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int shift = counter << 2;
+        long mask = 0xFL << shift;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << shift;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    private static int spread(long id) {
+        int h = (int) (id ^ (id >>> 32));
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        return (h >>> 16) ^ h;
+    }
+}
@@ -0,0 +1,321 @@
+package com.daou.book.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.daou.book.domain.User;
+import com.daou.book.dto.UserDTO;
+import com.daou.book.repository.UserRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind queue of created users. The submitted users are inserted by a
+ * few writer threads, each takes all the queued users up to the batch size and
+ * inserts them with JDBC batching in one transaction. Under load many users
+ * share one commit and the callers do not hold a connection while they wait.
+ *
+ * The queue is bounded. When it stays full for the offer timeout the user is
+ * rejected so the callers slow down instead of piling up. When a batch fails
+ * its users are retried one by one so a single bad user fails only its own
+ * future.
+ */
+@Service
+public class GroupCommitUserWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitUserWriter.class);
+
+    public static final String PROPERTY_NAME_GROUP_COMMIT_ENABLED = "user.create.group.commit.enabled";
+    public static final String PROPERTY_NAME_QUEUE_CAPACITY = "user.create.queue.capacity";
+    private static final String PROPERTY_NAME_WRITER_THREADS = "user.create.writer.threads";
+    private static final String PROPERTY_NAME_MAX_BATCH_SIZE = "user.create.max.batch.size";
+    private static final String PROPERTY_NAME_OFFER_TIMEOUT_MILLIS = "user.create.offer.timeout.millis";
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final int DEFAULT_WRITER_THREADS = 2;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 50;
+    private static final long DEFAULT_OFFER_TIMEOUT_MILLIS = 500;
+
+    private static final String WRITER_THREAD_NAME_PREFIX = "user-writer-";
+
+    @Resource
+    private UserRepository userRepository;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private Environment environment;
+
+    private boolean enabled;
+
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    private long offerTimeoutMillis = DEFAULT_OFFER_TIMEOUT_MILLIS;
+
+    private BlockingQueue<PendingUser> queue;
+
+    private final List<Thread> writers = new ArrayList<Thread>();
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        enabled = environment.getProperty(PROPERTY_NAME_GROUP_COMMIT_ENABLED, Boolean.class, Boolean.FALSE);
+        if (!enabled) {
+            LOGGER.debug("Group commit of created users is disabled");
+            return;
+        }
+
+        maxBatchSize = environment.getProperty(PROPERTY_NAME_MAX_BATCH_SIZE, Integer.class, DEFAULT_MAX_BATCH_SIZE);
+        offerTimeoutMillis = environment.getProperty(PROPERTY_NAME_OFFER_TIMEOUT_MILLIS, Long.class, DEFAULT_OFFER_TIMEOUT_MILLIS);
+        int queueCapacity = environment.getProperty(PROPERTY_NAME_QUEUE_CAPACITY, Integer.class, DEFAULT_QUEUE_CAPACITY);
+        int writerThreads = environment.getProperty(PROPERTY_NAME_WRITER_THREADS, Integer.class, DEFAULT_WRITER_THREADS);
+
+        start(queueCapacity, writerThreads);
+    }
+
+    protected void start(int queueCapacity, int writerThreads) {
+        LOGGER.debug("Starting " + writerThreads + " user writers with queue capacity " + queueCapacity + " and batch size " + maxBatchSize);
+
+        enabled = true;
+        queue = new ArrayBlockingQueue<PendingUser>(queueCapacity);
+        running = true;
+        for (int index = 0; index < writerThreads; index++) {
+            Thread writer = new Thread(new Writer(), WRITER_THREAD_NAME_PREFIX + index);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+
+        LOGGER.debug("Stopping user writers");
+        running = false;
+        for (Thread writer : writers) {
+            writer.interrupt();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writers.clear();
+
+        List<PendingUser> remaining = new ArrayList<PendingUser>();
+        queue.drainTo(remaining);
+        for (PendingUser pending : remaining) {
+            pending.fail(new RejectedExecutionException("User writer was stopped"));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a validated user for insertion.
+     *
+     * @param created   The information of the created user.
+     * @return  The future of the persisted user.
+     * @throws RejectedExecutionException   If the queue stayed full for the offer timeout or the writer is stopped.
+     */
+    public Future<User> submit(UserDTO created) {
+        if (!running) {
+            throw new RejectedExecutionException("User writer is not running");
+        }
+
+        PendingUser pending = new PendingUser(User.getBuilder(created.getFirstName(), created.getLastName()).build());
+        try {
+            if (!queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                LOGGER.debug("User create queue is full, rejecting user: " + created);
+                throw new RejectedExecutionException("User create queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+
+        // Stop may have drained the queue after the check above. If the user
+        // is still queued nobody would take it, else stop or a writer has it.
+        if (!running && queue.remove(pending)) {
+            throw new RejectedExecutionException("User writer was stopped");
+        }
+        return pending;
+    }
+
+    private class Writer implements Runnable {
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    writeNext();
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for a queued user and inserts it together with the users queued
+     * behind it, up to the batch size.
+     */
+    protected void writeNext() throws InterruptedException {
+        List<PendingUser> batch = new ArrayList<PendingUser>(maxBatchSize);
+        batch.add(queue.take());
+        queue.drainTo(batch, maxBatchSize - 1);
+
+        write(batch);
+    }
+
+    private void write(List<PendingUser> batch) {
+        List<User> users = new ArrayList<User>(batch.size());
+        for (PendingUser pending : batch) {
+            users.add(pending.user);
+        }
+
+        try {
+            insert(users);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Inserting a batch of " + batch.size() + " users failed, retrying the users one by one", e);
+            writeOneByOne(batch);
+            return;
+        }
+
+        for (PendingUser pending : batch) {
+            pending.complete();
+        }
+    }
+
+    private void writeOneByOne(List<PendingUser> batch) {
+        for (PendingUser pending : batch) {
+            User retried = User.getBuilder(pending.user.getFirstName(), pending.user.getLastName()).build();
+            try {
+                insert(Collections.singletonList(retried));
+                pending.complete(retried);
+            } catch (RuntimeException e) {
+                pending.fail(e);
+            }
+        }
+    }
+
+    private void insert(final List<User> users) {
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                userRepository.insertBatch(users);
+            }
+        });
+    }
+
+    /**
+     * Future of a queued user, completed once by the writer thread or by stop.
+     * It cannot be cancelled, the user may already be inserted.
+     */
+    protected static class PendingUser implements Future<User> {
+
+        private final User user;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        // Written before the latch is released and read after it was released
+        private User result;
+
+        private Throwable failure;
+
+        PendingUser(User user) {
+            this.user = user;
+        }
+
+        void complete() {
+            complete(user);
+        }
+
+        void complete(User persisted) {
+            result = persisted;
+            done.countDown();
+        }
+
+        void fail(Throwable cause) {
+            failure = cause;
+            done.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        @Override
+        public User get() throws InterruptedException, ExecutionException {
+            done.await();
+            return getResult();
+        }
+
+        @Override
+        public User get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException("User was not written in time");
+            }
+            return getResult();
+        }
+
+        private User getResult() throws ExecutionException {
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return result;
+        }
+    }
+
+    protected void setUserRepository(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    protected void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    protected void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    protected void setOfferTimeoutMillis(long offerTimeoutMillis) {
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+}
@@ -0,0 +1,17 @@
+package com.daou.book.service;
+
+import java.util.List;
+
+import com.daou.book.dto.NameField;
+
+public interface NameSuggestionService {
+
+    /**
+     * Suggests names from memory without a database query.
+     *
+     * @param field     The suggested names.
+     * @param prefix    The typed prefix of the name.
+     * @return  The most common names starting with the prefix, the most common first.
+     */
+    public List<String> suggest(NameField field, String prefix);
+}
@@ -0,0 +1,242 @@
+package com.daou.book.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.daou.book.domain.User;
+import com.daou.book.dto.NameField;
+import com.daou.book.dto.UserRowDTO;
+import com.daou.book.repository.UserCallback;
+import com.daou.book.repository.UserRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Suggests the first and last names from two in-memory tries. The tries are
+ * built from the database on startup and updated by the committed user
+ * changes. The counted names of every user are kept to uncount the old names
+ * of an updated or deleted user. The kept users share the node budget with
+ * the trie nodes, a user whose names do not fit is neither counted nor kept.
+ *
+ * The suggestions share the read lock. A change takes the write lock, which
+ * blocks all suggestions while the top names on the paths of its names are
+ * recomputed.
+ */
+@Service
+public class NameSuggestionServiceImpl implements NameSuggestionService, UserChangeListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NameSuggestionServiceImpl.class);
+
+    private static final String PROPERTY_NAME_TOP_COUNT = "suggest.top.count";
+    private static final String PROPERTY_NAME_MAX_NODES = "suggest.max.nodes";
+    private static final String PROPERTY_NAME_BUILD_FETCH_SIZE = "suggest.build.fetch.size";
+
+    private static final int DEFAULT_TOP_COUNT = 10;
+    private static final int DEFAULT_MAX_NODES = 1000000;
+    private static final int DEFAULT_BUILD_FETCH_SIZE = 500;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final Map<Long, UserRowDTO> names = new HashMap<Long, UserRowDTO>();
+
+    private NameTrie firstNames;
+
+    private NameTrie lastNames;
+
+    // Guarded by lock
+    private int droppedCount;
+
+    @Resource
+    private UserRepository userRepository;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private Environment environment;
+
+    private int topCount = DEFAULT_TOP_COUNT;
+
+    private int maxNodes = DEFAULT_MAX_NODES;
+
+    private int buildFetchSize = DEFAULT_BUILD_FETCH_SIZE;
+
+    @PostConstruct
+    public void init() throws IOException {
+        topCount = environment.getProperty(PROPERTY_NAME_TOP_COUNT, Integer.class, DEFAULT_TOP_COUNT);
+        maxNodes = environment.getProperty(PROPERTY_NAME_MAX_NODES, Integer.class, DEFAULT_MAX_NODES);
+        buildFetchSize = environment.getProperty(PROPERTY_NAME_BUILD_FETCH_SIZE, Integer.class, DEFAULT_BUILD_FETCH_SIZE);
+        LOGGER.debug("Name suggestion top count is " + topCount + " and node budget is " + maxNodes);
+
+        open();
+        build();
+    }
+
+    /**
+     * Creates empty tries. Called by init, a test can call it without reading the database.
+     */
+    protected void open() {
+        names.clear();
+        droppedCount = 0;
+        firstNames = new NameTrie(topCount, maxNodes);
+        lastNames = new NameTrie(topCount, maxNodes);
+    }
+
+    /*
+     * The write lock is held while the users are read, the changes committed
+     * meanwhile wait for the build. The build runs before the requests are
+     * served. The users are read in a read-write transaction, which uses the
+     * primary database, a lagging replica would miss the changes committed
+     * before the build.
+     */
+    protected void build() throws IOException {
+        long startTime = System.currentTimeMillis();
+
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        lock.writeLock().lock();
+        try {
+            IOException failure = transactionTemplate.execute(new TransactionCallback<IOException>() {
+                @Override
+                public IOException doInTransaction(TransactionStatus status) {
+                    try {
+                        userRepository.scrollAll(buildFetchSize, buildFetchSize, new UserCallback() {
+                            @Override
+                            public void handle(User user) {
+                                add(new UserRowDTO(user.getId(), user.getFirstName(), user.getLastName()));
+                            }
+                        });
+                        return null;
+                    } catch (IOException e) {
+                        return e;
+                    }
+                }
+            });
+            if (failure != null) {
+                throw failure;
+            }
+
+            LOGGER.info("Built the name suggestions of " + names.size() + " users in " + (System.currentTimeMillis() - startTime)
+                    + " ms, nodes: " + firstNames.getNodeCount() + " first name and " + lastNames.getNodeCount() + " last name"
+                    + ", dropped users: " + droppedCount);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> suggest(NameField field, String prefix) {
+        lock.readLock().lock();
+        try {
+            return getTrie(field).suggest(prefix);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void usersCreated(List<UserRowDTO> users) {
+        lock.writeLock().lock();
+        try {
+            for (UserRowDTO user : users) {
+                remove(user.getId());
+                add(user);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void usersUpdated(List<UserRowDTO> users) {
+        usersCreated(users);
+    }
+
+    @Override
+    public void usersDeleted(List<UserRowDTO> users) {
+        lock.writeLock().lock();
+        try {
+            for (UserRowDTO user : users) {
+                remove(user.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return  The number of trie nodes of the names, used to size the node budget.
+     */
+    protected int getNodeCount(NameField field) {
+        lock.readLock().lock();
+        try {
+            return getTrie(field).getNodeCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * A kept user counts as one node of the budget, its map entry and row take
+     * about the memory of a node. The tries are sized to the whole budget, so
+     * the names of a user which fits are always added.
+     */
+    private void add(UserRowDTO user) {
+        int neededNodes = 1 + firstNames.getNewNodeCount(user.getFirstName()) + lastNames.getNewNodeCount(user.getLastName());
+        if (getUsedNodeCount() + neededNodes > maxNodes) {
+            droppedCount++;
+            return;
+        }
+
+        names.put(user.getId(), new UserRowDTO(user.getId(), user.getFirstName(), user.getLastName()));
+        firstNames.add(user.getFirstName());
+        lastNames.add(user.getLastName());
+    }
+
+    private int getUsedNodeCount() {
+        return firstNames.getNodeCount() + lastNames.getNodeCount() + names.size();
+    }
+
+    private void remove(Long id) {
+        UserRowDTO removed = names.remove(id);
+        if (removed != null) {
+            firstNames.remove(removed.getFirstName());
+            lastNames.remove(removed.getLastName());
+        }
+    }
+
+    private NameTrie getTrie(NameField field) {
+        return field == NameField.FIRST_NAME ? firstNames : lastNames;
+    }
+
+    protected void setUserRepository(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    protected void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    protected void setTopCount(int topCount) {
+        this.topCount = topCount;
+    }
+
+    protected void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+}
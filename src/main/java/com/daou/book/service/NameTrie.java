@@ -0,0 +1,283 @@
+package com.daou.book.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Counts the names and suggests the most common names starting with a prefix.
+ * Every node keeps its own top suggestions, so a suggestion walks only the
+ * characters of the prefix and copies at most the top count of names. A
+ * change recomputes the top suggestions of the nodes on the path of the name.
+ *
+ * The names are matched case insensitively, the first added spelling of a
+ * name is suggested. The children of a node are kept in sorted arrays instead
+ * of maps to keep the nodes small.
+ *
+ * Not thread-safe, the caller guards the trie with a read-write lock.
+ */
+public class NameTrie {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+    private static final Comparator<Suggestion> MOST_COMMON_FIRST = new Comparator<Suggestion>() {
+        @Override
+        public int compare(Suggestion first, Suggestion second) {
+            if (first.count != second.count) {
+                return first.count > second.count ? -1 : 1;
+            }
+            return first.name.compareTo(second.name);
+        }
+    };
+
+    private final int topCount;
+
+    private final int maxNodes;
+
+    private final Node root = new Node();
+
+    private int nodeCount = 1;
+
+    private int droppedCount;
+
+    /**
+     * @param topCount  The number of suggestions kept for every prefix.
+     * @param maxNodes  The memory budget as the maximum number of nodes. A name which needs more nodes is not added.
+     */
+    public NameTrie(int topCount, int maxNodes) {
+        if (topCount < 1 || maxNodes < 1) {
+            throw new IllegalArgumentException("Top count and node budget must be positive");
+        }
+        this.topCount = topCount;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Counts one more use of the name.
+     *
+     * @return  False if the name was dropped because the nodes of the name do not fit in the budget.
+     */
+    public boolean add(String name) {
+        String key = toKey(name);
+        if (key.length() == 0) {
+            return true;
+        }
+
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        int depth = 0;
+        while (depth < key.length() && path[depth].child(key.charAt(depth)) != null) {
+            path[depth + 1] = path[depth].child(key.charAt(depth));
+            depth++;
+        }
+
+        if (nodeCount + key.length() - depth > maxNodes) {
+            droppedCount++;
+            return false;
+        }
+
+        for (; depth < key.length(); depth++) {
+            path[depth + 1] = path[depth].addChild(key.charAt(depth));
+            nodeCount++;
+        }
+
+        Node node = path[key.length()];
+        if (node.count == 0) {
+            node.name = name.trim();
+        }
+        node.count++;
+
+        updateTop(path, key.length());
+        return true;
+    }
+
+    /**
+     * @return  The number of nodes which adding the name would create.
+     */
+    public int getNewNodeCount(String name) {
+        String key = toKey(name);
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length() && node.child(key.charAt(depth)) != null) {
+            node = node.child(key.charAt(depth));
+            depth++;
+        }
+        return key.length() - depth;
+    }
+
+    /**
+     * Counts one less use of the name. A name which is not counted is ignored.
+     */
+    public void remove(String name) {
+        String key = toKey(name);
+        if (key.length() == 0) {
+            return;
+        }
+
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int depth = 0; depth < key.length(); depth++) {
+            path[depth + 1] = path[depth].child(key.charAt(depth));
+            if (path[depth + 1] == null) {
+                return;
+            }
+        }
+
+        Node node = path[key.length()];
+        if (node.count == 0) {
+            return;
+        }
+        node.count--;
+        if (node.count == 0) {
+            node.name = null;
+        }
+
+        // Prunes the nodes which no longer lead to a name
+        int depth = key.length();
+        while (depth > 0 && path[depth].count == 0 && path[depth].keys.length == 0) {
+            path[depth - 1].removeChild(key.charAt(depth - 1));
+            nodeCount--;
+            depth--;
+        }
+
+        updateTop(path, depth);
+    }
+
+    /**
+     * @param prefix    The typed prefix of a name.
+     * @return  The most common names starting with the prefix, the most common first. Empty for an empty prefix.
+     */
+    public List<String> suggest(String prefix) {
+        String key = toKey(prefix);
+        if (key.length() == 0) {
+            return new ArrayList<String>();
+        }
+
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return new ArrayList<String>();
+        }
+
+        Suggestion[] top = node.top;
+        List<String> names = new ArrayList<String>(top.length);
+        for (Suggestion suggestion : top) {
+            names.add(suggestion.name);
+        }
+        return names;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return  The number of names which were not added because of the node budget.
+     */
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+
+    private void updateTop(Node[] path, int depth) {
+        for (int i = depth; i >= 0; i--) {
+            path[i].top = computeTop(path[i]);
+        }
+    }
+
+    private Suggestion[] computeTop(Node node) {
+        List<Suggestion> candidates = new ArrayList<Suggestion>();
+        if (node.count > 0) {
+            candidates.add(new Suggestion(node.name, node.count));
+        }
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        if (candidates.isEmpty()) {
+            return NO_SUGGESTIONS;
+        }
+
+        Collections.sort(candidates, MOST_COMMON_FIRST);
+        return candidates.subList(0, Math.min(topCount, candidates.size())).toArray(NO_SUGGESTIONS);
+    }
+
+    private static String toKey(String name) {
+        if (name == null) {
+            return "";
+        }
+        return name.trim().toLowerCase(Locale.ENGLISH);
+    }
+
+    private static class Node {
+
+        private char[] keys = NO_KEYS;
+
+        private Node[] children = NO_CHILDREN;
+
+        private int count;
+
+        private String name;
+
+        private Suggestion[] top = NO_SUGGESTIONS;
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index < 0 ? null : children[index];
+        }
+
+        Node addChild(char key) {
+            int index = -Arrays.binarySearch(keys, key) - 1;
+            Node child = new Node();
+
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newKeys[index] = key;
+            newChildren[index] = child;
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (keys.length == 1) {
+                keys = NO_KEYS;
+                children = NO_CHILDREN;
+                return;
+            }
+
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+
+            keys = newKeys;
+            children = newChildren;
+        }
+    }
+
+    private static class Suggestion {
+
+        private final String name;
+
+        private final int count;
+
+        Suggestion(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+    }
+}
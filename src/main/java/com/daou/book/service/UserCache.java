@@ -0,0 +1,360 @@
+package com.daou.book.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.daou.book.domain.User;
+import com.daou.book.dto.CacheStatisticsDTO;
+import com.daou.book.metrics.MetricsRegistry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the users found by id. A few active users get most of the
+ * lookups, so the users are admitted by frequency (W-TinyLFU): a new user
+ * enters a small LRU window, and a user leaving the window replaces the least
+ * recently used user of the main area only if the frequency sketch counted
+ * more lookups of it. A burst of one-off lookups does not push out the active
+ * users. The main area is a segmented LRU, a user hit again in the probation
+ * segment moves to the protected segment.
+ *
+ * The service calls beginWrite before it changes a user and endWrite after the
+ * transaction completed. While a write is in flight the user is neither served
+ * nor cached, and a load which overlapped a write is returned but not cached.
+ * So the cache never serves a version older than the last write committed by
+ * this node. The writes of other nodes are not seen, the expire time bounds
+ * how long their old versions are served.
+ *
+ * The cached users are detached entities shared by the callers, who must not
+ * modify them. One lock guards the cache, every lookup reorders the LRU lists.
+ */
+@Component
+public class UserCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserCache.class);
+
+    private static final String PROPERTY_NAME_MAX_SIZE = "user.cache.max.size";
+    private static final String PROPERTY_NAME_EXPIRE_SECONDS = "user.cache.expire.seconds";
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final int DEFAULT_EXPIRE_SECONDS = 60;
+
+    private static final String REGION_NAME = "userService.findById";
+
+    private static final String METRIC_NAME_LOAD = "cache.UserCache.load";
+
+    // The window takes 1% and the protected segment 80% of the main area
+    private static final int WINDOW_PERCENTAGE = 1;
+    private static final int PROTECTED_PERCENTAGE = 80;
+
+    /**
+     * Reads a user which is not cached.
+     */
+    public interface Loader {
+
+        /**
+         * @return  The user or null if no user was found, which is not cached.
+         */
+        public User load(Long id);
+    }
+
+    @Resource
+    private MetricsRegistry metricsRegistry;
+
+    @Resource
+    private Environment environment;
+
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    private long expireMillis = DEFAULT_EXPIRE_SECONDS * 1000L;
+
+    // The fields below are guarded by this
+
+    private LinkedHashMap<Long, Entry> window;
+
+    private LinkedHashMap<Long, Entry> probation;
+
+    private LinkedHashMap<Long, Entry> protectedSegment;
+
+    private final Map<Long, Guard> guards = new HashMap<Long, Guard>();
+
+    private FrequencySketch sketch;
+
+    private int maxWindowSize;
+
+    private int maxMainSize;
+
+    private int maxProtectedSize;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long putCount;
+
+    private long evictionCount;
+
+    @PostConstruct
+    public void init() {
+        maxSize = environment.getProperty(PROPERTY_NAME_MAX_SIZE, Integer.class, DEFAULT_MAX_SIZE);
+        int expireSeconds = environment.getProperty(PROPERTY_NAME_EXPIRE_SECONDS, Integer.class, DEFAULT_EXPIRE_SECONDS);
+        expireMillis = expireSeconds < 0 ? -1 : expireSeconds * 1000L;
+        LOGGER.debug("User cache max size is " + maxSize + " and expire time is " + expireSeconds + " seconds");
+
+        open();
+    }
+
+    /**
+     * Creates the empty segments. Called by init, a test can call it after setting the size.
+     */
+    protected synchronized void open() {
+        if (maxSize < 2) {
+            throw new IllegalArgumentException("User cache needs room for at least two users");
+        }
+        maxWindowSize = Math.max(1, maxSize * WINDOW_PERCENTAGE / 100);
+        maxMainSize = maxSize - maxWindowSize;
+        maxProtectedSize = maxMainSize * PROTECTED_PERCENTAGE / 100;
+
+        window = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+        probation = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+        protectedSegment = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+        sketch = new FrequencySketch(maxSize);
+    }
+
+    /**
+     * Returns the cached user or loads and caches it.
+     */
+    public User get(Long id, Loader loader) {
+        long generation;
+        synchronized (this) {
+            sketch.increment(id);
+            Guard guard = guards.get(id);
+            if (guard == null || guard.writes == 0) {
+                User cached = lookup(id);
+                if (cached != null) {
+                    hitCount++;
+                    return cached;
+                }
+            }
+            missCount++;
+
+            guard = acquireGuard(id);
+            guard.loads++;
+            generation = guard.generation;
+        }
+
+        long startTime = System.nanoTime();
+        User user = null;
+        try {
+            user = loader.load(id);
+            return user;
+        } finally {
+            metricsRegistry.record(METRIC_NAME_LOAD, System.nanoTime() - startTime);
+            synchronized (this) {
+                Guard guard = guards.get(id);
+                guard.loads--;
+                if (user != null && guard.writes == 0 && guard.generation == generation) {
+                    insert(id, user);
+                }
+                releaseGuard(id, guard);
+            }
+        }
+    }
+
+    /**
+     * Caches a created user, unless the user is written meanwhile.
+     */
+    public synchronized void put(User user) {
+        Guard guard = guards.get(user.getId());
+        if (guard != null) {
+            if (guard.writes > 0) {
+                return;
+            }
+            // The loads in flight may have read an older version
+            guard.generation++;
+        }
+        insert(user.getId(), user);
+    }
+
+    /**
+     * Removes the users and keeps them out of the cache until endWrite.
+     */
+    public synchronized void beginWrite(Collection<Long> ids) {
+        for (Long id : ids) {
+            Guard guard = acquireGuard(id);
+            guard.writes++;
+            guard.generation++;
+            remove(id);
+        }
+    }
+
+    /**
+     * Ends a write started by beginWrite, after a commit or a rollback.
+     */
+    public synchronized void endWrite(Collection<Long> ids) {
+        for (Long id : ids) {
+            Guard guard = guards.get(id);
+            if (guard == null || guard.writes == 0) {
+                throw new IllegalStateException("No write in flight for user: " + id);
+            }
+            guard.writes--;
+            guard.generation++;
+            remove(id);
+            releaseGuard(id, guard);
+        }
+    }
+
+    public synchronized CacheStatisticsDTO getStatistics() {
+        return new CacheStatisticsDTO(REGION_NAME, hitCount, missCount, putCount, size(), evictionCount);
+    }
+
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    private User lookup(Long id) {
+        Entry entry = window.get(id);
+        if (entry == null) {
+            entry = protectedSegment.get(id);
+        }
+        if (entry == null) {
+            entry = probation.remove(id);
+            if (entry != null) {
+                promote(id, entry);
+            }
+        }
+        if (entry == null) {
+            return null;
+        }
+
+        if (expireMillis >= 0 && System.currentTimeMillis() - entry.loadTime >= expireMillis) {
+            remove(id);
+            return null;
+        }
+        return entry.user;
+    }
+
+    private void promote(Long id, Entry entry) {
+        protectedSegment.put(id, entry);
+        if (protectedSegment.size() > maxProtectedSize) {
+            Long demotedId = eldest(protectedSegment);
+            probation.put(demotedId, protectedSegment.remove(demotedId));
+        }
+    }
+
+    private void insert(Long id, User user) {
+        putCount++;
+        Entry entry = new Entry(user, System.currentTimeMillis());
+        if (window.containsKey(id)) {
+            window.put(id, entry);
+            return;
+        }
+        if (protectedSegment.containsKey(id)) {
+            protectedSegment.put(id, entry);
+            return;
+        }
+        if (probation.containsKey(id)) {
+            probation.put(id, entry);
+            return;
+        }
+
+        window.put(id, entry);
+        if (window.size() > maxWindowSize) {
+            Long candidateId = eldest(window);
+            admit(candidateId, window.remove(candidateId));
+        }
+    }
+
+    /*
+     * A user leaving the window enters the main area if there is room. Else it
+     * competes with the least recently used user of the main area and the one
+     * looked up less often is evicted, a tie keeps the user already cached.
+     */
+    private void admit(Long candidateId, Entry candidate) {
+        if (probation.size() + protectedSegment.size() < maxMainSize) {
+            probation.put(candidateId, candidate);
+            return;
+        }
+
+        LinkedHashMap<Long, Entry> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        Long victimId = eldest(victimSegment);
+        if (sketch.frequency(candidateId) > sketch.frequency(victimId)) {
+            victimSegment.remove(victimId);
+            probation.put(candidateId, candidate);
+        }
+        evictionCount++;
+    }
+
+    private void remove(Long id) {
+        if (window.remove(id) == null && probation.remove(id) == null) {
+            protectedSegment.remove(id);
+        }
+    }
+
+    private Guard acquireGuard(Long id) {
+        Guard guard = guards.get(id);
+        if (guard == null) {
+            guard = new Guard();
+            guards.put(id, guard);
+        }
+        return guard;
+    }
+
+    /*
+     * The guards are kept only while a load or a write is in flight.
+     */
+    private void releaseGuard(Long id, Guard guard) {
+        if (guard.loads == 0 && guard.writes == 0) {
+            guards.remove(id);
+        }
+    }
+
+    private static Long eldest(LinkedHashMap<Long, Entry> segment) {
+        return segment.keySet().iterator().next();
+    }
+
+    protected void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    protected void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    protected void setExpireMillis(long expireMillis) {
+        this.expireMillis = expireMillis;
+    }
+
+    private static class Entry {
+
+        private final User user;
+
+        private final long loadTime;
+
+        Entry(User user, long loadTime) {
+            this.user = user;
+            this.loadTime = loadTime;
+        }
+    }
+
+    /*
+     * The generation changes on every begin and end of a write, a load which
+     * sees another generation when it ends overlapped a write.
+     */
+    private static class Guard {
+
+        private int loads;
+
+        private int writes;
+
+        private long generation;
+    }
+}
@@ -0,0 +1,29 @@
+package com.daou.book.service;
+
+import com.daou.book.dto.UserRowDTO;
+
+import java.util.List;
+
+/**
+ * Receives the changed users after the transaction which changed them was
+ * committed. Every create, update and delete of UserService and the user
+ * import are published, including the bulk statements which bypass the
+ * lifecycle callbacks of the User entity. See UserChangePublisher.
+ */
+public interface UserChangeListener {
+
+    /**
+     * @param users The created users with their versions.
+     */
+    public void usersCreated(List<UserRowDTO> users);
+
+    /**
+     * @param users The updated users with their new names and versions.
+     */
+    public void usersUpdated(List<UserRowDTO> users);
+
+    /**
+     * @param users The deleted users with their last versions.
+     */
+    public void usersDeleted(List<UserRowDTO> users);
+}
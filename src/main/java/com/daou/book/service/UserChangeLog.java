@@ -0,0 +1,458 @@
+package com.daou.book.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.daou.book.dto.ChangeType;
+import com.daou.book.dto.UserChangeBatchDTO;
+import com.daou.book.dto.UserChangeDTO;
+import com.daou.book.dto.UserRowDTO;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the user changes in memory-mapped segment files. Every
+ * change gets the next sequence number, starting from 1. A segment is named
+ * by the sequence of its first change and has a fixed size, a change which
+ * does not fit starts the next segment. The oldest segments are deleted when
+ * there are more than the maximum number of segments.
+ *
+ * A record is the length and the CRC32 of its payload followed by the payload:
+ * the sequence, the time, the change type, the user id, the user version and
+ * the names. The
+ * unwritten end of a segment is zeros. On open the records are scanned up to
+ * the first invalid record, e.g. one torn by a crash, which is overwritten by
+ * the next change.
+ *
+ * Every segment keeps the position of every INDEX_INTERVAL th record, so a
+ * read skips at most INDEX_INTERVAL records to find its first change.
+ *
+ * Changes which could not be appended are marked lost by skipping a sequence
+ * and starting a new segment, so the gap is also found when the log is opened
+ * again. A reader whose next changes include a gap must resync.
+ */
+public class UserChangeLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserChangeLog.class);
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int INDEX_INTERVAL = 256;
+
+    private static final short NULL_NAME = -1;
+
+    private static final long NULL_VERSION = -1;
+
+    private static final ChangeType[] CHANGE_TYPES = ChangeType.values();
+
+    protected static final int MIN_SEGMENT_SIZE = 4096;
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final boolean force;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+
+    private long nextSequence = 1;
+
+    // The last sequence of the latest gap, the readers before it must resync
+    private long lostSequence;
+
+    private boolean rollRequired;
+
+    /**
+     * Opens the segments found from the directory or creates the first segment.
+     *
+     * @param directory     The directory of the segment files, created if missing.
+     * @param segmentSize   The size of a new segment file in bytes.
+     * @param maxSegments   The number of segments kept.
+     * @param force         True if every append is forced to the disk before it returns.
+     */
+    public UserChangeLog(File directory, int segmentSize, int maxSegments, boolean force) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE || maxSegments < 1) {
+            throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE + " bytes and segment count positive");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create change log directory " + directory);
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.force = force;
+
+        for (long firstSequence : findSegmentSequences()) {
+            if (!segments.isEmpty() && firstSequence != nextSequence) {
+                LOGGER.warn("Change log has no changes from " + nextSequence + " to " + (firstSequence - 1));
+                lostSequence = firstSequence - 1;
+            }
+            Segment segment = Segment.open(segmentFile(firstSequence), firstSequence, segmentSize);
+            segments.put(firstSequence, segment);
+            nextSequence = firstSequence + segment.count;
+        }
+        if (segments.isEmpty()) {
+            segments.put(nextSequence, Segment.open(segmentFile(nextSequence), nextSequence, segmentSize));
+        }
+
+        LOGGER.info("Opened change log " + directory + " with " + segments.size() + " segments, next sequence is " + nextSequence);
+    }
+
+    /**
+     * Appends one change per user.
+     *
+     * @param type  The type of the changes.
+     * @param users The changed users. Only the ids are logged for deleted users.
+     * @return  The sequence of the last appended change.
+     */
+    public synchronized long append(ChangeType type, List<UserRowDTO> users) throws IOException {
+        long time = System.currentTimeMillis();
+        for (UserRowDTO user : users) {
+            byte[] payload = encode(nextSequence, time, type, user);
+            if (HEADER_SIZE + payload.length > segmentSize) {
+                throw new IllegalArgumentException("Change of user " + user.getId() + " does not fit in a segment");
+            }
+
+            Segment segment = segments.lastEntry().getValue();
+            if (rollRequired || !segment.hasRoom(HEADER_SIZE + payload.length)) {
+                segment = roll();
+            }
+            segment.append(payload);
+            nextSequence++;
+        }
+
+        if (force) {
+            segments.lastEntry().getValue().buffer.force();
+        }
+        return nextSequence - 1;
+    }
+
+    /**
+     * Marks that changes were lost, e.g. because their append failed. The next
+     * sequence is skipped and the next change starts a new segment, so the
+     * readers of the changes before the gap are told to resync also after a
+     * restart. If the new segment cannot be created now, the next append
+     * creates it.
+     */
+    public synchronized void markLost() {
+        lostSequence = nextSequence;
+        nextSequence++;
+        rollRequired = true;
+        LOGGER.warn("Changes were lost at sequence " + lostSequence + ", readers before it must resync");
+
+        try {
+            roll();
+        } catch (IOException e) {
+            LOGGER.error("Cannot start a change log segment after the lost changes", e);
+        }
+    }
+
+    /**
+     * @param sequence  The sequence of the last change the caller has, 0 for all changes.
+     * @param limit     The maximum number of returned changes.
+     * @return  The changes after the sequence, in order.
+     */
+    public synchronized UserChangeBatchDTO readAfter(long sequence, int limit) {
+        long headSequence = nextSequence - 1;
+        long oldestSequence = segments.firstKey();
+
+        if (sequence + 1 < oldestSequence || sequence > headSequence || sequence < lostSequence) {
+            LOGGER.debug("Changes after " + sequence + " are not in the log, oldest is " + oldestSequence + ", head is " + headSequence
+                    + " and last lost is " + lostSequence);
+            return new UserChangeBatchDTO(new ArrayList<UserChangeDTO>(), sequence, headSequence, false, true);
+        }
+
+        List<UserChangeDTO> changes = new ArrayList<UserChangeDTO>(Math.min(limit, (int) Math.min(Integer.MAX_VALUE, headSequence - sequence)));
+        long next = sequence + 1;
+        while (changes.size() < limit && next <= headSequence) {
+            long after = segments.floorEntry(next).getValue().read(next, limit - changes.size(), changes);
+            if (after == next) {
+                // A gap before the last lost sequence, the changes continue in the next segment
+                Long nextSegment = segments.higherKey(next);
+                if (nextSegment == null) {
+                    break;
+                }
+                after = nextSegment;
+            }
+            next = after;
+        }
+
+        long lastSequence = changes.isEmpty() ? sequence : changes.get(changes.size() - 1).getSequence();
+        return new UserChangeBatchDTO(changes, lastSequence, headSequence, lastSequence < headSequence, false);
+    }
+
+    public synchronized long getHeadSequence() {
+        return nextSequence - 1;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Forces the segments to the disk. The mappings are released by the garbage collector.
+     */
+    public synchronized void close() {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+        segments.clear();
+    }
+
+    private Segment roll() throws IOException {
+        Segment full = segments.lastEntry().getValue();
+        full.buffer.force();
+
+        Segment segment = Segment.open(segmentFile(nextSequence), nextSequence, segmentSize);
+        segments.put(nextSequence, segment);
+        rollRequired = false;
+        LOGGER.debug("Started change log segment " + segment.file);
+
+        while (segments.size() > maxSegments) {
+            Map.Entry<Long, Segment> oldest = segments.pollFirstEntry();
+            if (!oldest.getValue().file.delete()) {
+                LOGGER.warn("Cannot delete change log segment " + oldest.getValue().file);
+            }
+            LOGGER.debug("Deleted change log segment " + oldest.getValue().file);
+        }
+        return segment;
+    }
+
+    private long[] findSegmentSequences() {
+        String[] names = directory.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+
+        long[] sequences = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            sequences[i] = Long.parseLong(names[i].substring(0, names[i].length() - SEGMENT_SUFFIX.length()));
+        }
+        Arrays.sort(sequences);
+        return sequences;
+    }
+
+    /*
+     * Zero padded, so the names sort like the sequences.
+     */
+    private File segmentFile(long firstSequence) {
+        return new File(directory, String.format("%020d", firstSequence) + SEGMENT_SUFFIX);
+    }
+
+    private static byte[] encode(long sequence, long time, ChangeType type, UserRowDTO user) {
+        byte[] firstName = toBytes(type == ChangeType.DELETED ? null : user.getFirstName());
+        byte[] lastName = toBytes(type == ChangeType.DELETED ? null : user.getLastName());
+
+        Long version = user.getVersion();
+
+        ByteBuffer payload = ByteBuffer.allocate(8 + 8 + 1 + 8 + 8 + nameSize(firstName) + nameSize(lastName));
+        payload.putLong(sequence);
+        payload.putLong(time);
+        payload.put((byte) type.ordinal());
+        payload.putLong(user.getId());
+        payload.putLong(version == null ? NULL_VERSION : version);
+        putName(payload, firstName);
+        putName(payload, lastName);
+        return payload.array();
+    }
+
+    private static UserChangeDTO decode(ByteBuffer payload) {
+        long sequence = payload.getLong();
+        Date time = new Date(payload.getLong());
+        ChangeType type = CHANGE_TYPES[payload.get()];
+        Long userId = payload.getLong();
+        long version = payload.getLong();
+        String firstName = getName(payload);
+        String lastName = getName(payload);
+        return new UserChangeDTO(sequence, time, type, userId, firstName, lastName, version == NULL_VERSION ? null : version);
+    }
+
+    private static byte[] toBytes(String name) {
+        if (name == null) {
+            return null;
+        }
+        byte[] bytes = name.getBytes(CHARSET);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Name is too long for the change log");
+        }
+        return bytes;
+    }
+
+    private static int nameSize(byte[] name) {
+        return 2 + (name == null ? 0 : name.length);
+    }
+
+    private static void putName(ByteBuffer payload, byte[] name) {
+        if (name == null) {
+            payload.putShort(NULL_NAME);
+            return;
+        }
+        payload.putShort((short) name.length);
+        payload.put(name);
+    }
+
+    private static String getName(ByteBuffer payload) {
+        short length = payload.getShort();
+        if (length == NULL_NAME) {
+            return null;
+        }
+        byte[] name = new byte[length];
+        payload.get(name);
+        return new String(name, CHARSET);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static class Segment {
+
+        private final File file;
+
+        private final long firstSequence;
+
+        private final MappedByteBuffer buffer;
+
+        private int position;
+
+        private int count;
+
+        private int[] index = new int[16];
+
+        private Segment(File file, long firstSequence, MappedByteBuffer buffer) {
+            this.file = file;
+            this.firstSequence = firstSequence;
+            this.buffer = buffer;
+        }
+
+        /*
+         * An existing segment keeps its size, the segment size applies to the
+         * new segments. The mapping stays valid after the file is closed.
+         */
+        static Segment open(File file, long firstSequence, int segmentSize) throws IOException {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                if (randomAccessFile.length() == 0) {
+                    randomAccessFile.setLength(segmentSize);
+                }
+                FileChannel channel = randomAccessFile.getChannel();
+                Segment segment = new Segment(file, firstSequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+                segment.recover();
+                return segment;
+            } finally {
+                randomAccessFile.close();
+            }
+        }
+
+        boolean hasRoom(int recordSize) {
+            return position + recordSize <= buffer.capacity();
+        }
+
+        void append(byte[] payload) {
+            addToIndex();
+
+            ByteBuffer record = buffer.duplicate();
+            record.position(position);
+            record.putInt(payload.length);
+            record.putInt(checksum(payload));
+            record.put(payload);
+
+            position = record.position();
+            count++;
+        }
+
+        /**
+         * @return  The sequence after the last read change.
+         */
+        long read(long sequence, int limit, List<UserChangeDTO> changes) {
+            int skipped = (int) (sequence - firstSequence);
+            if (skipped >= count) {
+                return sequence;
+            }
+            int recordPosition = index[skipped / INDEX_INTERVAL];
+            for (int i = 0; i < skipped % INDEX_INTERVAL; i++) {
+                recordPosition += HEADER_SIZE + buffer.getInt(recordPosition);
+            }
+
+            int read = 0;
+            while (read < limit && skipped + read < count) {
+                int length = buffer.getInt(recordPosition);
+                changes.add(decode(slice(recordPosition + HEADER_SIZE, length)));
+                recordPosition += HEADER_SIZE + length;
+                read++;
+            }
+            return sequence + read;
+        }
+
+        private void recover() {
+            while (position + HEADER_SIZE <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                slice(position + HEADER_SIZE, length).get(payload);
+                if (checksum(payload) != buffer.getInt(position + 4) || ByteBuffer.wrap(payload).getLong() != firstSequence + count) {
+                    break;
+                }
+
+                addToIndex();
+                position += HEADER_SIZE + length;
+                count++;
+            }
+
+            for (int i = position; i < buffer.capacity(); i++) {
+                if (buffer.get(i) != 0) {
+                    LOGGER.warn("Change log segment " + file + " has an invalid record at " + position + ", it is discarded");
+                    for (int j = position; j < buffer.capacity(); j++) {
+                        buffer.put(j, (byte) 0);
+                    }
+                    break;
+                }
+            }
+        }
+
+        private void addToIndex() {
+            if (count % INDEX_INTERVAL != 0) {
+                return;
+            }
+            int slot = count / INDEX_INTERVAL;
+            if (slot == index.length) {
+                index = Arrays.copyOf(index, index.length * 2);
+            }
+            index[slot] = position;
+        }
+
+        private ByteBuffer slice(int from, int length) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(from);
+            slice.limit(from + length);
+            return slice.slice();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.daou.book.service;
+
+import com.daou.book.dto.UserChangeBatchDTO;
+
+public interface UserChangeLogService {
+
+    /**
+     * Finds the logged user changes after a sequence, the oldest first.
+     *
+     * @param sequence  The sequence of the last change the caller has, 0 for all changes.
+     * @param limit     The maximum number of returned changes, capped by the configured batch size.
+     * @return  The next batch of changes.
+     */
+    public UserChangeBatchDTO findChangesAfter(long sequence, int limit);
+}
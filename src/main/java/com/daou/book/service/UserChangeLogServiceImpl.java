@@ -0,0 +1,110 @@
+package com.daou.book.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import com.daou.book.dto.ChangeType;
+import com.daou.book.dto.UserChangeBatchDTO;
+import com.daou.book.dto.UserRowDTO;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Logs the committed user changes for the mirrors of the user directory. The
+ * changes are appended after the commit, a crash between the commit and the
+ * append loses the change from the log. A mirror which suspects this can copy
+ * all users again like after resyncRequired. A failed append marks the changes
+ * lost, and the mirrors which have not read past them are told to resync.
+ * See UserChangeDTO for how a mirror orders the changes of one user.
+ */
+@Service
+public class UserChangeLogServiceImpl implements UserChangeLogService, UserChangeListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserChangeLogServiceImpl.class);
+
+    private static final String PROPERTY_NAME_DIRECTORY = "changelog.directory";
+    private static final String PROPERTY_NAME_SEGMENT_SIZE = "changelog.segment.size";
+    private static final String PROPERTY_NAME_MAX_SEGMENTS = "changelog.max.segments";
+    private static final String PROPERTY_NAME_FORCE = "changelog.force";
+    private static final String PROPERTY_NAME_MAX_BATCH_SIZE = "changelog.max.batch.size";
+
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int DEFAULT_MAX_SEGMENTS = 16;
+    private static final boolean DEFAULT_FORCE = true;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    private UserChangeLog changeLog;
+
+    @Resource
+    private Environment environment;
+
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    @PostConstruct
+    public void init() throws IOException {
+        // No default, a temporary directory would lose the log on reboot
+        File directory = new File(environment.resolveRequiredPlaceholders(environment.getRequiredProperty(PROPERTY_NAME_DIRECTORY)));
+        int segmentSize = environment.getProperty(PROPERTY_NAME_SEGMENT_SIZE, Integer.class, DEFAULT_SEGMENT_SIZE);
+        int maxSegments = environment.getProperty(PROPERTY_NAME_MAX_SEGMENTS, Integer.class, DEFAULT_MAX_SEGMENTS);
+        boolean force = environment.getProperty(PROPERTY_NAME_FORCE, Boolean.class, DEFAULT_FORCE);
+        maxBatchSize = environment.getProperty(PROPERTY_NAME_MAX_BATCH_SIZE, Integer.class, DEFAULT_MAX_BATCH_SIZE);
+        LOGGER.debug("Change log segment size is " + segmentSize + " bytes, " + maxSegments + " segments are kept and force is " + force);
+
+        changeLog = new UserChangeLog(directory, segmentSize, maxSegments, force);
+    }
+
+    @PreDestroy
+    public void close() {
+        changeLog.close();
+    }
+
+    @Override
+    public UserChangeBatchDTO findChangesAfter(long sequence, int limit) {
+        LOGGER.debug("Finding at most " + limit + " user changes after sequence: " + sequence);
+        return changeLog.readAfter(sequence, Math.max(1, Math.min(limit, maxBatchSize)));
+    }
+
+    @Override
+    public void usersCreated(List<UserRowDTO> users) {
+        append(ChangeType.CREATED, users);
+    }
+
+    @Override
+    public void usersUpdated(List<UserRowDTO> users) {
+        append(ChangeType.UPDATED, users);
+    }
+
+    @Override
+    public void usersDeleted(List<UserRowDTO> users) {
+        append(ChangeType.DELETED, users);
+    }
+
+    private void append(ChangeType type, List<UserRowDTO> users) {
+        try {
+            long sequence = changeLog.append(type, users);
+            LOGGER.debug("Logged " + users.size() + " " + type + " changes up to sequence: " + sequence);
+        } catch (IOException e) {
+            changeLog.markLost();
+            throw new IllegalStateException("Appending to the change log failed", e);
+        } catch (RuntimeException e) {
+            changeLog.markLost();
+            throw e;
+        }
+    }
+
+    protected void setChangeLog(UserChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    protected void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+}
@@ -0,0 +1,103 @@
+package com.daou.book.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.daou.book.dto.UserRowDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Publishes the user changes to every UserChangeListener. Inside a transaction
+ * the listeners are called after the commit and not at all after a rollback,
+ * outside of a transaction they are called at once. A failing listener is
+ * logged and does not fail the change, which is already committed.
+ */
+@Component
+public class UserChangePublisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserChangePublisher.class);
+
+    private List<UserChangeListener> listeners = Collections.emptyList();
+
+    /**
+     * The listeners are components too, none of them is required.
+     */
+    @Autowired(required = false)
+    public void setListeners(List<UserChangeListener> listeners) {
+        this.listeners = new ArrayList<UserChangeListener>(listeners);
+    }
+
+    /**
+     * @return  True if a listener is registered. Used to skip reading the changed users when nobody listens.
+     */
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    public void publishCreated(final List<UserRowDTO> users) {
+        publish(new Notification() {
+            @Override
+            public void notify(UserChangeListener listener) {
+                listener.usersCreated(users);
+            }
+        });
+    }
+
+    public void publishUpdated(final List<UserRowDTO> users) {
+        publish(new Notification() {
+            @Override
+            public void notify(UserChangeListener listener) {
+                listener.usersUpdated(users);
+            }
+        });
+    }
+
+    public void publishDeleted(final List<UserRowDTO> users) {
+        publish(new Notification() {
+            @Override
+            public void notify(UserChangeListener listener) {
+                listener.usersDeleted(users);
+            }
+        });
+    }
+
+    private void publish(final Notification notification) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    notifyListeners(notification);
+                }
+            });
+        }
+        else {
+            notifyListeners(notification);
+        }
+    }
+
+    private void notifyListeners(Notification notification) {
+        for (UserChangeListener listener : listeners) {
+            try {
+                notification.notify(listener);
+            } catch (RuntimeException e) {
+                LOGGER.error("User change listener " + listener + " failed", e);
+            }
+        }
+    }
+
+    private interface Notification {
+
+        public void notify(UserChangeListener listener);
+    }
+}
@@ -0,0 +1,134 @@
+package com.daou.book.service;
+
+import com.daou.book.dto.UserDTO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads users from CSV. The first line is a header naming the columns, the
+ * <code>first_name</code> and <code>last_name</code> columns are required and
+ * the others (for example the ones written by the export) are ignored. Quoted
+ * values may contain separators, doubled quotes and line breaks.
+ */
+public class UserCsvReader {
+
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    private static final String COLUMN_FIRST_NAME = "first_name";
+    private static final String COLUMN_LAST_NAME = "last_name";
+
+    private final BufferedReader reader;
+
+    private int firstNameColumn = -1;
+
+    private int lastNameColumn = -1;
+
+    public UserCsvReader(Reader reader) {
+        this.reader = new BufferedReader(reader);
+    }
+
+    /**
+     * @return  The next user or null when the input is exhausted. Missing values are null.
+     * @throws IOException  If reading fails or the header lacks a required column.
+     */
+    public UserDTO next() throws IOException {
+        if (firstNameColumn < 0) {
+            readHeader();
+        }
+
+        List<String> values = readRecord();
+        while (values != null && isBlank(values)) {
+            values = readRecord();
+        }
+        if (values == null) {
+            return null;
+        }
+
+        UserDTO user = new UserDTO();
+        user.setFirstName(getValue(values, firstNameColumn));
+        user.setLastName(getValue(values, lastNameColumn));
+        return user;
+    }
+
+    private void readHeader() throws IOException {
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IOException("CSV input has no header");
+        }
+
+        for (int index = 0; index < header.size(); index++) {
+            String column = header.get(index).trim().toLowerCase(Locale.ENGLISH);
+            if (COLUMN_FIRST_NAME.equals(column)) {
+                firstNameColumn = index;
+            }
+            else if (COLUMN_LAST_NAME.equals(column)) {
+                lastNameColumn = index;
+            }
+        }
+
+        if (firstNameColumn < 0 || lastNameColumn < 0) {
+            throw new IOException("CSV header must contain the columns " + COLUMN_FIRST_NAME + " and " + COLUMN_LAST_NAME + ": " + header);
+        }
+    }
+
+    private List<String> readRecord() throws IOException {
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+
+        List<String> values = new ArrayList<String>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        while (c >= 0) {
+            if (quoted) {
+                if (c == QUOTE) {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == QUOTE) {
+                        value.append(QUOTE);
+                    }
+                    else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                }
+                else {
+                    value.append((char) c);
+                }
+            }
+            else if (c == QUOTE) {
+                quoted = true;
+            }
+            else if (c == SEPARATOR) {
+                values.add(value.toString());
+                value.setLength(0);
+            }
+            else if (c == '\n') {
+                break;
+            }
+            else if (c != '\r') {
+                value.append((char) c);
+            }
+            c = reader.read();
+        }
+
+        values.add(value.toString());
+        return values;
+    }
+
+    private boolean isBlank(List<String> values) {
+        return values.size() == 1 && values.get(0).trim().length() == 0;
+    }
+
+    private String getValue(List<String> values, int column) {
+        return column < values.size() ? values.get(column) : null;
+    }
+}
@@ -0,0 +1,174 @@
+package com.daou.book.service;
+
+import org.apache.commons.lang.StringEscapeUtils;
+
+import com.daou.book.domain.User;
+import com.daou.book.dto.ExportFormat;
+import com.daou.book.repository.UserCallback;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Writes exported users to a character stream. The stream is flushed after
+ * every <code>flushInterval</code> users so the client starts receiving data
+ * while the database is still being read.
+ */
+public abstract class UserExportWriter implements UserCallback {
+
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+    protected final Writer writer;
+
+    private final int flushInterval;
+
+    private final DateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT);
+
+    private long written = 0;
+
+    protected UserExportWriter(Writer writer, int flushInterval) {
+        this.writer = writer;
+        this.flushInterval = flushInterval;
+    }
+
+    public static UserExportWriter create(ExportFormat format, Writer writer, int flushInterval) {
+        if (format == ExportFormat.NDJSON) {
+            return new NdjsonWriter(writer, flushInterval);
+        }
+        return new CsvWriter(writer, flushInterval);
+    }
+
+    public void start() throws IOException {
+        writeHeader();
+        writer.flush();
+    }
+
+    @Override
+    public void handle(User user) throws IOException {
+        writeUser(user);
+        if (++written % flushInterval == 0) {
+            writer.flush();
+        }
+    }
+
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    protected abstract void writeHeader() throws IOException;
+
+    protected abstract void writeUser(User user) throws IOException;
+
+    protected String formatDate(Date date) {
+        return date == null ? null : dateFormat.format(date);
+    }
+
+    static class CsvWriter extends UserExportWriter {
+
+        private static final String HEADER = "id,first_name,last_name,creation_time,modification_time,version\n";
+
+        CsvWriter(Writer writer, int flushInterval) {
+            super(writer, flushInterval);
+        }
+
+        @Override
+        protected void writeHeader() throws IOException {
+            writer.write(HEADER);
+        }
+
+        @Override
+        protected void writeUser(User user) throws IOException {
+            writer.write(String.valueOf(user.getId()));
+            writer.write(',');
+            writeValue(user.getFirstName());
+            writer.write(',');
+            writeValue(user.getLastName());
+            writer.write(',');
+            writeValue(formatDate(user.getCreationTime()));
+            writer.write(',');
+            writeValue(formatDate(user.getModificationTime()));
+            writer.write(',');
+            writer.write(String.valueOf(user.getVersion()));
+            writer.write('\n');
+        }
+
+        private void writeValue(String value) throws IOException {
+            if (value != null) {
+                writer.write(StringEscapeUtils.escapeCsv(value));
+            }
+        }
+    }
+
+    static class NdjsonWriter extends UserExportWriter {
+
+        NdjsonWriter(Writer writer, int flushInterval) {
+            super(writer, flushInterval);
+        }
+
+        @Override
+        protected void writeHeader() {
+            //NDJSON has no header
+        }
+
+        @Override
+        protected void writeUser(User user) throws IOException {
+            writer.write("{\"id\":");
+            writer.write(String.valueOf(user.getId()));
+            writer.write(",\"firstName\":");
+            writeString(user.getFirstName());
+            writer.write(",\"lastName\":");
+            writeString(user.getLastName());
+            writer.write(",\"creationTime\":");
+            writeString(formatDate(user.getCreationTime()));
+            writer.write(",\"modificationTime\":");
+            writeString(formatDate(user.getModificationTime()));
+            writer.write(",\"version\":");
+            writer.write(String.valueOf(user.getVersion()));
+            writer.write("}\n");
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writer.write("null");
+                return;
+            }
+
+            writer.write('"');
+            for (int index = 0; index < value.length(); index++) {
+                char c = value.charAt(index);
+                switch (c) {
+                    case '"':
+                        writer.write("\\\"");
+                        break;
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    case '\n':
+                        writer.write("\\n");
+                        break;
+                    case '\r':
+                        writer.write("\\r");
+                        break;
+                    case '\t':
+                        writer.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            writer.write(String.format("\\u%04x", (int) c));
+                        }
+                        else {
+                            writer.write(c);
+                        }
+                }
+            }
+            writer.write('"');
+        }
+    }
+}
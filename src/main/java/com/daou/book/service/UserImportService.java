@@ -0,0 +1,15 @@
+package com.daou.book.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+import com.daou.book.dto.ImportResultDTO;
+import com.daou.book.dto.UserDTO;
+
+public interface UserImportService {
+
+    public ImportResultDTO importCsv(Reader csv) throws IOException;
+
+    public ImportResultDTO importUsers(List<UserDTO> users);
+}
@@ -0,0 +1,234 @@
+package com.daou.book.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.daou.book.domain.User;
+import com.daou.book.dto.ImportFailureDTO;
+import com.daou.book.dto.ImportResultDTO;
+import com.daou.book.dto.UserDTO;
+import com.daou.book.dto.UserRowDTO;
+import com.daou.book.repository.UserRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Imports users in chunks. Every chunk is inserted with JDBC batching in its
+ * own transaction. When a chunk fails its rows are retried one by one so a
+ * single bad row costs only itself and not the whole load.
+ */
+@Service
+public class UserImportServiceImpl implements UserImportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserImportServiceImpl.class);
+
+    private static final String PROPERTY_NAME_IMPORT_CHUNK_SIZE = "user.import.chunk.size";
+    private static final String PROPERTY_NAME_IMPORT_MAX_REPORTED_FAILURES = "user.import.max.reported.failures";
+
+    private static final int DEFAULT_IMPORT_CHUNK_SIZE = 1000;
+    private static final int DEFAULT_IMPORT_MAX_REPORTED_FAILURES = 1000;
+
+    @Resource
+    private UserRepository userRepository;
+
+    @Resource
+    private Validator validator;
+
+    @Resource
+    private UserChangePublisher changePublisher;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private Environment environment;
+
+    private int chunkSize = DEFAULT_IMPORT_CHUNK_SIZE;
+
+    private int maxReportedFailures = DEFAULT_IMPORT_MAX_REPORTED_FAILURES;
+
+    @PostConstruct
+    public void init() {
+        chunkSize = environment.getProperty(PROPERTY_NAME_IMPORT_CHUNK_SIZE, Integer.class, DEFAULT_IMPORT_CHUNK_SIZE);
+        maxReportedFailures = environment.getProperty(PROPERTY_NAME_IMPORT_MAX_REPORTED_FAILURES, Integer.class, DEFAULT_IMPORT_MAX_REPORTED_FAILURES);
+        LOGGER.debug("User import chunk size is " + chunkSize);
+    }
+
+    @Override
+    public ImportResultDTO importCsv(Reader csv) throws IOException {
+        LOGGER.debug("Importing users from CSV");
+
+        UserCsvReader reader = new UserCsvReader(csv);
+        ImportBatch batch = new ImportBatch();
+
+        UserDTO user = reader.next();
+        while (user != null) {
+            batch.add(user);
+            user = reader.next();
+        }
+
+        return batch.finish();
+    }
+
+    @Override
+    public ImportResultDTO importUsers(List<UserDTO> users) {
+        LOGGER.debug("Importing " + users.size() + " users");
+
+        ImportBatch batch = new ImportBatch();
+        for (UserDTO user : users) {
+            batch.add(user);
+        }
+
+        return batch.finish();
+    }
+
+    private class ImportBatch {
+
+        private final ImportResultDTO result = new ImportResultDTO();
+
+        private List<User> chunk = new ArrayList<User>(chunkSize);
+
+        private List<Integer> chunkRows = new ArrayList<Integer>(chunkSize);
+
+        void add(UserDTO user) {
+            result.addRow();
+            int row = result.getTotal();
+
+            String violations = validate(user);
+            if (violations != null) {
+                LOGGER.debug("Row " + row + " is not valid: " + violations);
+                result.addFailure(new ImportFailureDTO(row, violations), maxReportedFailures);
+                return;
+            }
+
+            chunk.add(User.getBuilder(user.getFirstName(), user.getLastName()).build());
+            chunkRows.add(row);
+
+            if (chunk.size() >= chunkSize) {
+                insertChunk();
+            }
+        }
+
+        ImportResultDTO finish() {
+            if (!chunk.isEmpty()) {
+                insertChunk();
+            }
+            LOGGER.debug("User import finished: " + result.getImported() + " imported, " + result.getFailed() + " failed");
+            return result;
+        }
+
+        private void insertChunk() {
+            try {
+                insert(chunk);
+                result.addImported(chunk.size());
+            } catch (RuntimeException e) {
+                LOGGER.debug("Inserting a chunk of " + chunk.size() + " users failed, retrying the rows one by one", e);
+                insertOneByOne();
+            }
+
+            chunk = new ArrayList<User>(chunkSize);
+            chunkRows = new ArrayList<Integer>(chunkSize);
+        }
+
+        private void insertOneByOne() {
+            for (int index = 0; index < chunk.size(); index++) {
+                User user = chunk.get(index);
+                User retried = User.getBuilder(user.getFirstName(), user.getLastName()).build();
+                try {
+                    insert(Collections.singletonList(retried));
+                    result.addImported(1);
+                } catch (RuntimeException e) {
+                    int row = chunkRows.get(index);
+                    LOGGER.debug("Inserting row " + row + " failed", e);
+                    result.addFailure(new ImportFailureDTO(row, getRootMessage(e)), maxReportedFailures);
+                }
+            }
+        }
+    }
+
+    private void insert(final List<User> users) {
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                userRepository.insertBatch(users);
+                if (changePublisher.hasListeners()) {
+                    changePublisher.publishCreated(toRows(users));
+                }
+            }
+        });
+    }
+
+    private List<UserRowDTO> toRows(List<User> users) {
+        List<UserRowDTO> rows = new ArrayList<UserRowDTO>(users.size());
+        for (User user : users) {
+            rows.add(new UserRowDTO(user.getId(), user.getFirstName(), user.getLastName(), user.getVersion()));
+        }
+        return rows;
+    }
+
+    private String validate(UserDTO user) {
+        Set<ConstraintViolation<UserDTO>> violations = validator.validate(user);
+        if (violations.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder message = new StringBuilder();
+        for (ConstraintViolation<UserDTO> violation : violations) {
+            if (message.length() > 0) {
+                message.append(", ");
+            }
+            message.append(violation.getPropertyPath());
+            message.append(" ");
+            message.append(violation.getMessage());
+        }
+        return message.toString();
+    }
+
+    private String getRootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    protected void setUserRepository(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    protected void setValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    protected void setChangePublisher(UserChangePublisher changePublisher) {
+        this.changePublisher = changePublisher;
+    }
+
+    protected void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    protected void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    protected void setMaxReportedFailures(int maxReportedFailures) {
+        this.maxReportedFailures = maxReportedFailures;
+    }
+}
@@ -0,0 +1,147 @@
+package com.daou.book.service;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.daou.book.domain.User;
+import com.daou.book.dto.SearchType;
+import com.daou.book.dto.UserRowDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares one database query between identical concurrent searches. The first
+ * caller of a search runs the query, the callers arriving while it runs wait
+ * for it and get a copy of its result or its exception. Nothing is kept after
+ * the query ended, this is not a cache.
+ *
+ * The searches are identical when the search type and the normalized search
+ * term are equal, the term is normalized like the search normalizes it. A
+ * committed user change stops the sharing of the queries in flight, so a
+ * search started after the commit runs a new query which sees the change.
+ */
+@Component
+public class UserSearchCoalescer implements UserChangeListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserSearchCoalescer.class);
+
+    private final ConcurrentMap<SearchKey, FutureTask<List<UserRowDTO>>> flights = new ConcurrentHashMap<SearchKey, FutureTask<List<UserRowDTO>>>();
+
+    private final AtomicLong sharedCount = new AtomicLong();
+
+    /**
+     * Runs the query or waits for the identical query in flight.
+     *
+     * @param query The query of the search, run by the calling thread if no identical query is in flight.
+     * @return  The result of the query. The callers which shared a query get copies of the list.
+     */
+    public List<UserRowDTO> search(SearchType searchType, String searchTerm, Callable<List<UserRowDTO>> query) {
+        SearchKey key = new SearchKey(searchType, normalize(searchType, searchTerm));
+
+        FutureTask<List<UserRowDTO>> flight = new FutureTask<List<UserRowDTO>>(query);
+        FutureTask<List<UserRowDTO>> running = flights.putIfAbsent(key, flight);
+        if (running == null) {
+            try {
+                flight.run();
+            } finally {
+                flights.remove(key, flight);
+            }
+            return getResult(flight);
+        }
+
+        LOGGER.debug("Sharing the query in flight of search: " + key);
+        sharedCount.incrementAndGet();
+        return new ArrayList<UserRowDTO>(getResult(running));
+    }
+
+    /**
+     * @return  The number of searches which shared the query of another search.
+     */
+    public long getSharedCount() {
+        return sharedCount.get();
+    }
+
+    @Override
+    public void usersCreated(List<UserRowDTO> users) {
+        flights.clear();
+    }
+
+    @Override
+    public void usersUpdated(List<UserRowDTO> users) {
+        flights.clear();
+    }
+
+    @Override
+    public void usersDeleted(List<UserRowDTO> users) {
+        flights.clear();
+    }
+
+    /*
+     * The method name query compares the last name case-sensitively, the
+     * other queries compare the last name key.
+     */
+    private static String normalize(SearchType searchType, String searchTerm) {
+        if (searchType == SearchType.METHOD_NAME) {
+            return searchTerm;
+        }
+        return User.toLastNameKey(searchTerm);
+    }
+
+    private static List<UserRowDTO> getResult(FutureTask<List<UserRowDTO>> flight) {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the search in flight", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static class SearchKey {
+
+        private final SearchType searchType;
+
+        private final String searchTerm;
+
+        SearchKey(SearchType searchType, String searchTerm) {
+            this.searchType = searchType;
+            this.searchTerm = searchTerm;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof SearchKey)) {
+                return false;
+            }
+            SearchKey key = (SearchKey) other;
+            return new EqualsBuilder().append(searchType, key.searchType).append(searchTerm, key.searchTerm).isEquals();
+        }
+
+        @Override
+        public int hashCode() {
+            return new HashCodeBuilder().append(searchType).append(searchTerm).toHashCode();
+        }
+
+        @Override
+        public String toString() {
+            return searchType + " " + searchTerm;
+        }
+    }
+}
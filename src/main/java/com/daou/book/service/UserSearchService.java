@@ -0,0 +1,33 @@
+package com.daou.book.service;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.daou.book.dto.UserRowDTO;
+
+public interface UserSearchService {
+
+    /**
+     * Finds the users whose first or last name matches the tokens of the
+     * search term exactly, by prefix or approximately. The best matches are
+     * returned first.
+     *
+     * @param searchTerm    The searched names.
+     * @param page          The number of the page, the first page is 0.
+     * @return  The users of the requested page.
+     */
+    public List<UserRowDTO> search(String searchTerm, int page);
+
+    /**
+     * Builds a new index from the database while the current index serves the
+     * searches, and replaces the current index with it.
+     *
+     * @return  The number of indexed users.
+     */
+    public int rebuild() throws IOException;
+
+    /**
+     * @return  The number of users in the index.
+     */
+    public int getIndexedCount();
+}
@@ -0,0 +1,473 @@
+package com.daou.book.service;
+
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.ReusableAnalyzerBase;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.daou.book.domain.User;
+import com.daou.book.dto.UserRowDTO;
+import com.daou.book.repository.UserCallback;
+import com.daou.book.repository.UserRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory Lucene index of the user names. The database stays the source of
+ * the users: the index is built from it on startup, kept up to date by the
+ * committed user changes and can be rebuilt from it at any time.
+ *
+ * The changes are applied under a lock. While a rebuild reads the database the
+ * changes are also queued and replayed to the new index before it replaces the
+ * current one, so a change committed during the rebuild is not lost. Replaying
+ * a change which the rebuild already read is harmless, the documents are
+ * replaced by id.
+ */
+@Service
+public class UserSearchServiceImpl implements UserSearchService, UserChangeListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserSearchServiceImpl.class);
+
+    private static final String PROPERTY_NAME_PAGE_SIZE = "search.page.size";
+    private static final String PROPERTY_NAME_FUZZY_MIN_SIMILARITY = "search.fuzzy.min.similarity";
+    private static final String PROPERTY_NAME_REBUILD_FETCH_SIZE = "search.rebuild.fetch.size";
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final float DEFAULT_FUZZY_MIN_SIMILARITY = 0.6f;
+    private static final int DEFAULT_REBUILD_FETCH_SIZE = 500;
+
+    private static final Version LUCENE_VERSION = Version.LUCENE_36;
+
+    protected static final String FIELD_ID = "id";
+    protected static final String FIELD_FIRST_NAME = "firstName";
+    protected static final String FIELD_LAST_NAME = "lastName";
+
+    /*
+     * An exact token ranks above a prefix, which ranks above a misspelling.
+     * A match in the last name ranks above the same match in the first name.
+     */
+    private static final float BOOST_EXACT = 4.0f;
+    private static final float BOOST_PREFIX = 2.0f;
+    private static final float BOOST_FUZZY = 1.0f;
+    private static final float BOOST_LAST_NAME = 1.5f;
+
+    // Shorter tokens would match almost every name approximately
+    private static final int FUZZY_MIN_TOKEN_LENGTH = 3;
+    private static final int FUZZY_PREFIX_LENGTH = 1;
+    private static final int FUZZY_MAX_EXPANSIONS = 50;
+
+    private final ReusableAnalyzerBase analyzer = new NameAnalyzer();
+
+    private final Object lock = new Object();
+
+    private volatile NameIndex index;
+
+    // Guarded by lock, not null while a rebuild is running
+    private List<IndexChange> rebuildChanges;
+
+    @Resource
+    private UserRepository userRepository;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private Environment environment;
+
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    private float fuzzyMinSimilarity = DEFAULT_FUZZY_MIN_SIMILARITY;
+
+    private int rebuildFetchSize = DEFAULT_REBUILD_FETCH_SIZE;
+
+    @PostConstruct
+    public void init() throws IOException {
+        pageSize = environment.getProperty(PROPERTY_NAME_PAGE_SIZE, Integer.class, DEFAULT_PAGE_SIZE);
+        fuzzyMinSimilarity = environment.getProperty(PROPERTY_NAME_FUZZY_MIN_SIMILARITY, Float.class, DEFAULT_FUZZY_MIN_SIMILARITY);
+        rebuildFetchSize = environment.getProperty(PROPERTY_NAME_REBUILD_FETCH_SIZE, Integer.class, DEFAULT_REBUILD_FETCH_SIZE);
+        LOGGER.debug("User search page size is " + pageSize + " and fuzzy minimum similarity is " + fuzzyMinSimilarity);
+
+        open();
+        rebuild();
+    }
+
+    /**
+     * Opens an empty index. Called by init, a test can call it without reading the database.
+     */
+    protected void open() throws IOException {
+        index = new NameIndex(analyzer);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (index != null) {
+                index.close();
+                index = null;
+            }
+        }
+    }
+
+    @Override
+    public List<UserRowDTO> search(String searchTerm, int page) {
+        LOGGER.debug("Searching users by full text: " + searchTerm + ", page: " + page);
+
+        Query query = createQuery(searchTerm);
+        if (query == null || page < 0) {
+            return new ArrayList<UserRowDTO>();
+        }
+
+        try {
+            try {
+                return index.search(query, page * pageSize, pageSize);
+            } catch (AlreadyClosedException e) {
+                LOGGER.debug("The user index was replaced by a rebuild, searching the new index");
+                return index.search(query, page * pageSize, pageSize);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Searching the user index failed", e);
+        }
+    }
+
+    @Override
+    public int rebuild() throws IOException {
+        LOGGER.debug("Rebuilding the user index");
+        long startTime = System.currentTimeMillis();
+
+        synchronized (lock) {
+            if (rebuildChanges != null) {
+                throw new IllegalStateException("The user index is already being rebuilt");
+            }
+            rebuildChanges = new ArrayList<IndexChange>();
+        }
+
+        NameIndex rebuilt = new NameIndex(analyzer);
+        NameIndex replaced;
+        try {
+            indexAllUsers(rebuilt);
+
+            synchronized (lock) {
+                for (IndexChange change : rebuildChanges) {
+                    change.apply(rebuilt);
+                }
+                replaced = index;
+                index = rebuilt;
+            }
+        } catch (IOException e) {
+            rebuilt.close();
+            throw e;
+        } catch (RuntimeException e) {
+            rebuilt.close();
+            throw e;
+        } finally {
+            synchronized (lock) {
+                rebuildChanges = null;
+            }
+        }
+
+        if (replaced != null) {
+            replaced.close();
+        }
+
+        int count = rebuilt.getCount();
+        LOGGER.info("Rebuilt the user index with " + count + " users in " + (System.currentTimeMillis() - startTime) + " ms");
+        return count;
+    }
+
+    @Override
+    public int getIndexedCount() {
+        return index.getCount();
+    }
+
+    @Override
+    public void usersCreated(List<UserRowDTO> users) {
+        apply(IndexChange.save(users));
+    }
+
+    @Override
+    public void usersUpdated(List<UserRowDTO> users) {
+        apply(IndexChange.save(users));
+    }
+
+    @Override
+    public void usersDeleted(List<UserRowDTO> users) {
+        apply(IndexChange.delete(users));
+    }
+
+    private void apply(IndexChange change) {
+        synchronized (lock) {
+            try {
+                change.apply(index);
+            } catch (IOException e) {
+                throw new IllegalStateException("Updating the user index failed, rebuild the index", e);
+            }
+            if (rebuildChanges != null) {
+                rebuildChanges.add(change);
+            }
+        }
+    }
+
+    /*
+     * The users are read in a read-write transaction, which uses the primary
+     * database. A lagging replica would miss the changes committed before the
+     * rebuild, and they are not replayed.
+     */
+    private void indexAllUsers(final NameIndex rebuilt) throws IOException {
+        IOException failure = new TransactionTemplate(transactionManager).execute(new TransactionCallback<IOException>() {
+            @Override
+            public IOException doInTransaction(TransactionStatus status) {
+                try {
+                    userRepository.scrollAll(rebuildFetchSize, rebuildFetchSize, new UserCallback() {
+                        @Override
+                        public void handle(User user) throws IOException {
+                            rebuilt.add(new UserRowDTO(user.getId(), user.getFirstName(), user.getLastName()));
+                        }
+                    });
+                    return null;
+                } catch (IOException e) {
+                    return e;
+                }
+            }
+        });
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Every token of the search term must match the first or the last name,
+     * exactly, by prefix or, for longer tokens, approximately.
+     *
+     * @return  The query or null if the search term has no tokens.
+     */
+    protected Query createQuery(String searchTerm) {
+        if (searchTerm == null) {
+            return null;
+        }
+
+        List<String> tokens = tokenize(searchTerm);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        BooleanQuery query = new BooleanQuery();
+        for (String token : tokens) {
+            BooleanQuery tokenQuery = new BooleanQuery();
+            addTokenClauses(tokenQuery, FIELD_LAST_NAME, token, BOOST_LAST_NAME);
+            addTokenClauses(tokenQuery, FIELD_FIRST_NAME, token, 1.0f);
+            query.add(tokenQuery, BooleanClause.Occur.MUST);
+        }
+        return query;
+    }
+
+    private void addTokenClauses(BooleanQuery tokenQuery, String field, String token, float fieldBoost) {
+        Term term = new Term(field, token);
+
+        TermQuery exact = new TermQuery(term);
+        exact.setBoost(BOOST_EXACT * fieldBoost);
+        tokenQuery.add(exact, BooleanClause.Occur.SHOULD);
+
+        PrefixQuery prefix = new PrefixQuery(term);
+        prefix.setBoost(BOOST_PREFIX * fieldBoost);
+        tokenQuery.add(prefix, BooleanClause.Occur.SHOULD);
+
+        if (token.length() >= FUZZY_MIN_TOKEN_LENGTH) {
+            FuzzyQuery fuzzy = new FuzzyQuery(term, fuzzyMinSimilarity, FUZZY_PREFIX_LENGTH, FUZZY_MAX_EXPANSIONS);
+            fuzzy.setBoost(BOOST_FUZZY * fieldBoost);
+            tokenQuery.add(fuzzy, BooleanClause.Occur.SHOULD);
+        }
+    }
+
+    private List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<String>();
+        try {
+            TokenStream stream = analyzer.reusableTokenStream(FIELD_LAST_NAME, new StringReader(text));
+            CharTermAttribute termAttribute = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAttribute.toString());
+            }
+            stream.end();
+            stream.close();
+        } catch (IOException e) {
+            // Not thrown by a StringReader
+            throw new IllegalStateException(e);
+        }
+        return tokens;
+    }
+
+    /**
+     * Splits the names into words like the standard tokenizer and lower cases
+     * them. Unlike the standard analyzer no stop words are removed, a name
+     * like "An" is a word to search.
+     */
+    private static class NameAnalyzer extends ReusableAnalyzerBase {
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName, Reader reader) {
+            Tokenizer tokenizer = new StandardTokenizer(LUCENE_VERSION, reader);
+            return new TokenStreamComponents(tokenizer, new LowerCaseFilter(LUCENE_VERSION, tokenizer));
+        }
+    }
+
+    /**
+     * One generation of the index. The searcher manager opens near real-time
+     * searchers from the writer, a search sees every change applied before it.
+     */
+    private static class NameIndex {
+
+        private final Directory directory = new RAMDirectory();
+
+        private final IndexWriter writer;
+
+        private final SearcherManager searcherManager;
+
+        NameIndex(ReusableAnalyzerBase analyzer) throws IOException {
+            writer = new IndexWriter(directory, new IndexWriterConfig(LUCENE_VERSION, analyzer));
+            searcherManager = new SearcherManager(writer, true, new SearcherFactory());
+        }
+
+        void add(UserRowDTO user) throws IOException {
+            writer.addDocument(createDocument(user));
+        }
+
+        void save(List<UserRowDTO> users) throws IOException {
+            for (UserRowDTO user : users) {
+                writer.updateDocument(new Term(FIELD_ID, user.getId().toString()), createDocument(user));
+            }
+        }
+
+        void delete(List<UserRowDTO> users) throws IOException {
+            for (UserRowDTO user : users) {
+                writer.deleteDocuments(new Term(FIELD_ID, user.getId().toString()));
+            }
+        }
+
+        int getCount() {
+            try {
+                searcherManager.maybeRefresh();
+                IndexSearcher searcher = searcherManager.acquire();
+                try {
+                    return searcher.getIndexReader().numDocs();
+                } finally {
+                    searcherManager.release(searcher);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Reading the user index failed", e);
+            }
+        }
+
+        List<UserRowDTO> search(Query query, int first, int count) throws IOException {
+            searcherManager.maybeRefresh();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                ScoreDoc[] hits = searcher.search(query, first + count).scoreDocs;
+                if (hits.length <= first) {
+                    return new ArrayList<UserRowDTO>();
+                }
+
+                List<UserRowDTO> users = new ArrayList<UserRowDTO>(hits.length - first);
+                for (int i = first; i < hits.length; i++) {
+                    Document document = searcher.doc(hits[i].doc);
+                    users.add(new UserRowDTO(Long.valueOf(document.get(FIELD_ID)), document.get(FIELD_FIRST_NAME), document.get(FIELD_LAST_NAME)));
+                }
+                return users;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        }
+
+        /*
+         * Searches which still hold a searcher of this index finish with it,
+         * the searcher is closed when it is released.
+         */
+        void close() throws IOException {
+            searcherManager.close();
+            writer.close();
+        }
+
+        private Document createDocument(UserRowDTO user) {
+            Document document = new Document();
+            document.add(new Field(FIELD_ID, user.getId().toString(), Field.Store.YES, Field.Index.NOT_ANALYZED_NO_NORMS));
+            document.add(new Field(FIELD_FIRST_NAME, user.getFirstName(), Field.Store.YES, Field.Index.ANALYZED));
+            document.add(new Field(FIELD_LAST_NAME, user.getLastName(), Field.Store.YES, Field.Index.ANALYZED));
+            return document;
+        }
+    }
+
+    private abstract static class IndexChange {
+
+        static IndexChange save(final List<UserRowDTO> users) {
+            return new IndexChange() {
+                @Override
+                void apply(NameIndex target) throws IOException {
+                    target.save(users);
+                }
+            };
+        }
+
+        static IndexChange delete(final List<UserRowDTO> users) {
+            return new IndexChange() {
+                @Override
+                void apply(NameIndex target) throws IOException {
+                    target.delete(users);
+                }
+            };
+        }
+
+        abstract void apply(NameIndex target) throws IOException;
+    }
+
+    protected void setUserRepository(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    protected void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    protected void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    protected void setFuzzyMinSimilarity(float fuzzyMinSimilarity) {
+        this.fuzzyMinSimilarity = fuzzyMinSimilarity;
+    }
+}
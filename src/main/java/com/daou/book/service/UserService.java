@@ -1,23 +1,48 @@
 package com.daou.book.service;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Date;
 import java.util.List;
 
 import com.daou.book.domain.User;
+import com.daou.book.dto.BulkEditDTO;
+import com.daou.book.dto.BulkResultDTO;
+import com.daou.book.dto.ExportFormat;
+import com.daou.book.dto.PageDTO;
+import com.daou.book.dto.UserDeltaPageDTO;
 import com.daou.book.dto.UserDTO;
+import com.daou.book.dto.UserListStateDTO;
+import com.daou.book.dto.UserPageDTO;
+import com.daou.book.dto.UserRowDTO;
 import com.daou.book.dto.SearchDTO;
 import com.daou.book.exception.UserNotFoundException;
 
 public interface UserService {
 
+    public BulkResultDTO bulkDelete(BulkEditDTO bulkCriteria);
+
+    public BulkResultDTO bulkUpdate(BulkEditDTO bulkCriteria);
+
     public User create(UserDTO created);
 
-    public User delete(Long userId) throws UserNotFoundException;
+    public void delete(Long userId) throws UserNotFoundException;
+
+    public void export(ExportFormat format, Writer writer) throws IOException;
 
     public List<User> findAll();
 
     public User findById(Long id);
 
-    public List<User> search(SearchDTO searchCriteria);
+    public UserListStateDTO findListState();
+
+    public UserDeltaPageDTO findModifiedAfter(Date time, Long id, int limit);
+
+    public UserPageDTO findPage(PageDTO pageCriteria);
+
+    public Long findVersion(Long id);
+
+    public List<UserRowDTO> search(SearchDTO searchCriteria);
 
-    public User update(UserDTO updated) throws UserNotFoundException;
+    public void update(UserDTO updated) throws UserNotFoundException;
 }
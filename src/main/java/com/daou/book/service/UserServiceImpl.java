@@ -2,52 +2,315 @@ package com.daou.book.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
 import com.daou.book.domain.User;
+import com.daou.book.dto.BulkEditDTO;
+import com.daou.book.dto.BulkOutcome;
+import com.daou.book.dto.BulkResultDTO;
+import com.daou.book.dto.ExportFormat;
+import com.daou.book.dto.PageDTO;
+import com.daou.book.dto.PageDirection;
+import com.daou.book.dto.SortType;
 import com.daou.book.dto.UserDTO;
+import com.daou.book.dto.UserListStateDTO;
 import com.daou.book.dto.SearchDTO;
 import com.daou.book.dto.SearchType;
+import com.daou.book.dto.UserDeltaDTO;
+import com.daou.book.dto.UserDeltaPageDTO;
+import com.daou.book.dto.UserPageDTO;
+import com.daou.book.dto.UserRowDTO;
+import com.daou.book.exception.InvalidBulkCriteriaException;
 import com.daou.book.exception.UserNotFoundException;
 import com.daou.book.repository.UserRepository;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class UserServiceImpl implements UserService {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(UserServiceImpl.class);
+
+    private static final String PROPERTY_NAME_LIST_PAGE_SIZE = "user.list.page.size";
+
+    private static final int DEFAULT_LIST_PAGE_SIZE = 20;
+
+    private static final String PROPERTY_NAME_EXPORT_FETCH_SIZE = "user.export.fetch.size";
+    private static final String PROPERTY_NAME_EXPORT_CLEAR_INTERVAL = "user.export.clear.interval";
+
+    private static final int DEFAULT_EXPORT_FETCH_SIZE = 500;
+    private static final int DEFAULT_EXPORT_CLEAR_INTERVAL = 500;
+
+    private static final String PROPERTY_NAME_CREATE_WAIT_TIMEOUT_MILLIS = "user.create.wait.timeout.millis";
+
+    private static final long DEFAULT_CREATE_WAIT_TIMEOUT_MILLIS = 30000;
+
+    private static final String PROPERTY_NAME_BULK_CHUNK_SIZE = "user.bulk.chunk.size";
+
+    private static final int DEFAULT_BULK_CHUNK_SIZE = 500;
+
+    private static final String PROPERTY_NAME_DELTA_MAX_PAGE_SIZE = "user.delta.max.page.size";
+    private static final String PROPERTY_NAME_DELTA_SETTLE_MILLIS = "user.delta.settle.millis";
+
+    private static final int DEFAULT_DELTA_MAX_PAGE_SIZE = 1000;
+    private static final long DEFAULT_DELTA_SETTLE_MILLIS = 5000;
     
     @Resource
     private UserRepository userRepository;
 
-    @Transactional
+    @Resource
+    private GroupCommitUserWriter userWriter;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private UserChangePublisher changePublisher;
+
+    @Resource
+    private UserSearchService userSearchService;
+
+    @Resource
+    private UserCache userCache;
+
+    @Resource
+    private UserSearchCoalescer searchCoalescer;
+
+    @Resource
+    private Environment environment;
+
+    private int listPageSize = DEFAULT_LIST_PAGE_SIZE;
+
+    private int exportFetchSize = DEFAULT_EXPORT_FETCH_SIZE;
+
+    private int exportClearInterval = DEFAULT_EXPORT_CLEAR_INTERVAL;
+
+    private long createWaitTimeoutMillis = DEFAULT_CREATE_WAIT_TIMEOUT_MILLIS;
+
+    private int bulkChunkSize = DEFAULT_BULK_CHUNK_SIZE;
+
+    private int deltaMaxPageSize = DEFAULT_DELTA_MAX_PAGE_SIZE;
+
+    private long deltaSettleMillis = DEFAULT_DELTA_SETTLE_MILLIS;
+
+    @PostConstruct
+    public void init() {
+        listPageSize = environment.getProperty(PROPERTY_NAME_LIST_PAGE_SIZE, Integer.class, DEFAULT_LIST_PAGE_SIZE);
+        LOGGER.debug("User list page size is " + listPageSize);
+
+        exportFetchSize = environment.getProperty(PROPERTY_NAME_EXPORT_FETCH_SIZE, Integer.class, DEFAULT_EXPORT_FETCH_SIZE);
+        exportClearInterval = environment.getProperty(PROPERTY_NAME_EXPORT_CLEAR_INTERVAL, Integer.class, DEFAULT_EXPORT_CLEAR_INTERVAL);
+        LOGGER.debug("User export fetch size is " + exportFetchSize + " and clear interval is " + exportClearInterval);
+
+        createWaitTimeoutMillis = environment.getProperty(PROPERTY_NAME_CREATE_WAIT_TIMEOUT_MILLIS, Long.class, DEFAULT_CREATE_WAIT_TIMEOUT_MILLIS);
+        LOGGER.debug("User create wait timeout is " + createWaitTimeoutMillis + " ms");
+
+        bulkChunkSize = environment.getProperty(PROPERTY_NAME_BULK_CHUNK_SIZE, Integer.class, DEFAULT_BULK_CHUNK_SIZE);
+        LOGGER.debug("User bulk chunk size is " + bulkChunkSize);
+
+        deltaMaxPageSize = environment.getProperty(PROPERTY_NAME_DELTA_MAX_PAGE_SIZE, Integer.class, DEFAULT_DELTA_MAX_PAGE_SIZE);
+        deltaSettleMillis = environment.getProperty(PROPERTY_NAME_DELTA_SETTLE_MILLIS, Long.class, DEFAULT_DELTA_SETTLE_MILLIS);
+        LOGGER.debug("User delta max page size is " + deltaMaxPageSize + " and settle time is " + deltaSettleMillis + " ms");
+    }
+
+    @Override
+    public BulkResultDTO bulkDelete(BulkEditDTO bulkCriteria) {
+        LOGGER.debug("Deleting users in bulk with criteria: " + bulkCriteria);
+
+        return executeInChunks(selectIds(bulkCriteria), BulkOutcome.DELETED, new BulkStatement() {
+            @Override
+            public void execute(Set<Long> ids) {
+                List<UserRowDTO> deleted = userRepository.lockRowsByIds(ids);
+                userRepository.deleteByIds(ids);
+                invalidateCached(ids);
+                changePublisher.publishDeleted(deleted);
+            }
+        });
+    }
+
+    @Override
+    public BulkResultDTO bulkUpdate(final BulkEditDTO bulkCriteria) {
+        LOGGER.debug("Updating users in bulk with criteria: " + bulkCriteria);
+
+        final String firstName = bulkCriteria.getFirstName();
+        final String lastName = bulkCriteria.getLastName();
+        if ((firstName == null && lastName == null)
+                || (firstName != null && !StringUtils.hasText(firstName))
+                || (lastName != null && !StringUtils.hasText(lastName))) {
+            throw new InvalidBulkCriteriaException("Bulk update needs a new first name or last name");
+        }
+
+        return executeInChunks(selectIds(bulkCriteria), BulkOutcome.UPDATED, new BulkStatement() {
+            @Override
+            public void execute(Set<Long> ids) {
+                // Taken in the transaction of the chunk, see findModifiedAfter
+                userRepository.updateNames(ids, firstName, lastName, new Date());
+                invalidateCached(ids);
+                if (changePublisher.hasListeners()) {
+                    changePublisher.publishUpdated(userRepository.findRowsByIds(ids));
+                }
+            }
+        });
+    }
+
+    private List<Long> selectIds(BulkEditDTO bulkCriteria) {
+        if (bulkCriteria.getIds() != null && !bulkCriteria.getIds().isEmpty()) {
+            Set<Long> ids = new LinkedHashSet<Long>(bulkCriteria.getIds());
+            ids.remove(null);
+            return new ArrayList<Long>(ids);
+        }
+        if (bulkCriteria.getSearchCriteria() == null) {
+            throw new InvalidBulkCriteriaException("Bulk operation needs ids or search criteria");
+        }
+        // The full text search returns similar names and only one page of them
+        if (bulkCriteria.getSearchCriteria().getSearchType() == SearchType.FULL_TEXT) {
+            throw new InvalidBulkCriteriaException("Bulk operation cannot select users by full text search");
+        }
+
+        List<Long> ids = new ArrayList<Long>();
+        for (UserRowDTO row : search(bulkCriteria.getSearchCriteria())) {
+            ids.add(row.getId());
+        }
+        return ids;
+    }
+
+    private interface BulkStatement {
+
+        public void execute(Set<Long> ids);
+    }
+
+    /*
+     * Every chunk runs in its own transaction: one query finds the existing
+     * ids of the chunk and one statement changes them. A failing chunk does
+     * not roll back the chunks before it.
+     */
+    private BulkResultDTO executeInChunks(List<Long> ids, BulkOutcome outcome, final BulkStatement statement) {
+        BulkResultDTO result = new BulkResultDTO();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        for (int from = 0; from < ids.size(); from += bulkChunkSize) {
+            final List<Long> chunk = ids.subList(from, Math.min(from + bulkChunkSize, ids.size()));
+
+            Set<Long> existing = transactionTemplate.execute(new TransactionCallback<Set<Long>>() {
+                @Override
+                public Set<Long> doInTransaction(TransactionStatus status) {
+                    Set<Long> found = new HashSet<Long>(userRepository.findIds(chunk));
+                    if (!found.isEmpty()) {
+                        statement.execute(found);
+                    }
+                    return found;
+                }
+            });
+
+            for (Long id : chunk) {
+                result.addOutcome(id, existing.contains(id) ? outcome : BulkOutcome.NOT_FOUND);
+            }
+        }
+
+        LOGGER.debug("Bulk operation changed " + result.getChanged() + " users, " + result.getNotFound() + " were not found");
+        return result;
+    }
+
+    /*
+     * Not transactional. The repository opens the transaction of the direct
+     * insert, and a caller waiting for the group commit must not hold a
+     * connection.
+     */
     @Override
     public User create(UserDTO created) {
         LOGGER.debug("Creating a new user with information: " + created);
-        
-        User user = User.getBuilder(created.getFirstName(), created.getLastName()).build();
-        
-        return userRepository.save(user);
+
+        User user;
+        if (userWriter.isEnabled()) {
+            user = waitFor(userWriter.submit(created));
+        }
+        else {
+            user = userRepository.save(User.getBuilder(created.getFirstName(), created.getLastName()).build());
+        }
+
+        userCache.put(user);
+        changePublisher.publishCreated(Collections.singletonList(new UserRowDTO(user.getId(), user.getFirstName(), user.getLastName(), user.getVersion())));
+        return user;
+    }
+
+    /*
+     * A user not written in time may still be inserted later, the caller gets
+     * an error instead of a confirmation.
+     */
+    private User waitFor(Future<User> created) {
+        try {
+            return created.get(createWaitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the created user", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Created user was not written in " + createWaitTimeoutMillis + " ms", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 
     @Transactional(rollbackFor = UserNotFoundException.class)
     @Override
-    public User delete(Long userId) throws UserNotFoundException {
+    public void delete(Long userId) throws UserNotFoundException {
         LOGGER.debug("Deleting user with id: " + userId);
         
-        User deleted = userRepository.findOne(userId);
+        // The change log needs the last version, locked so no update commits after it
+        List<UserRowDTO> deleted = userRepository.lockRowsByIds(Collections.singleton(userId));
         
-        if (deleted == null) {
+        if (deleted.isEmpty()) {
             LOGGER.debug("No user found with id: " + userId);
             throw new UserNotFoundException();
         }
-        
-        userRepository.delete(deleted);
-        return deleted;
+
+        userRepository.deleteById(userId);
+        invalidateCached(Collections.singleton(userId));
+        changePublisher.publishDeleted(deleted);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void export(ExportFormat format, Writer writer) throws IOException {
+        LOGGER.debug("Exporting all users as " + format);
+
+        UserExportWriter exportWriter = UserExportWriter.create(format, writer, exportClearInterval);
+        exportWriter.start();
+        userRepository.scrollAll(exportFetchSize, exportClearInterval, exportWriter);
+        exportWriter.finish();
+
+        LOGGER.debug("Exported " + exportWriter.getWritten() + " users");
     }
 
     @Transactional(readOnly = true)
@@ -57,65 +320,314 @@ public class UserServiceImpl implements UserService {
         return userRepository.findAll();
     }
 
-    @Transactional(readOnly = true)
+    /*
+     * The users missing from the cache are read in a read-write transaction,
+     * which uses the primary database. A lagging replica could return a
+     * version older than the last write and the cache would keep it.
+     */
     @Override
     public User findById(Long id) {
         LOGGER.debug("Finding user by id: " + id);
-        return userRepository.findOne(id);
+        return userCache.get(id, new UserCache.Loader() {
+            @Override
+            public User load(final Long id) {
+                return new TransactionTemplate(transactionManager).execute(new TransactionCallback<User>() {
+                    @Override
+                    public User doInTransaction(TransactionStatus status) {
+                        return userRepository.findOne(id);
+                    }
+                });
+            }
+        });
     }
 
     @Transactional(readOnly = true)
     @Override
-    public List<User> search(SearchDTO searchCriteria) {
+    public UserListStateDTO findListState() {
+        LOGGER.debug("Finding user list state");
+        return userRepository.findListState();
+    }
+
+    /*
+     * The modification time is set before the commit, a user committed late
+     * can have an earlier time than a user already returned. The users
+     * modified during the last settle time are not returned yet, so the
+     * cursor does not pass the transactions still in flight.
+     *
+     * Deleted users are not returned, the change feed or a comparison of the
+     * ids finds them.
+     *
+     * Read in a read-write transaction, which uses the primary database. The
+     * settle time does not cover the lag of a replica, a user committed on
+     * the primary but not yet replicated would be passed by the cursor.
+     */
+    @Override
+    public UserDeltaPageDTO findModifiedAfter(final Date time, final Long id, int limit) {
+        LOGGER.debug("Finding at most " + limit + " users modified after " + time + " and id: " + id);
+
+        final int pageSize = Math.max(1, Math.min(limit, deltaMaxPageSize));
+        final Date until = new Date(System.currentTimeMillis() - deltaSettleMillis);
+
+        // One extra row tells whether there is another page.
+        List<UserDeltaDTO> users = new TransactionTemplate(transactionManager).execute(new TransactionCallback<List<UserDeltaDTO>>() {
+            @Override
+            public List<UserDeltaDTO> doInTransaction(TransactionStatus status) {
+                return userRepository.findModifiedAfter(time, id, until, new PageRequest(0, pageSize + 1));
+            }
+        });
+
+        boolean hasMore = users.size() > pageSize;
+        if (hasMore) {
+            users = new ArrayList<UserDeltaDTO>(users.subList(0, pageSize));
+        }
+        if (users.isEmpty()) {
+            return new UserDeltaPageDTO(users, time, id, false);
+        }
+
+        UserDeltaDTO last = users.get(users.size() - 1);
+        return new UserDeltaPageDTO(users, last.getModificationTime(), last.getId(), hasMore);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public UserPageDTO findPage(PageDTO pageCriteria) {
+        LOGGER.debug("Finding user page with criteria: " + pageCriteria);
+
+        SortType sortType = pageCriteria.getSortType() == null ? SortType.ID : pageCriteria.getSortType();
+        boolean hasCursor = hasCursor(pageCriteria, sortType);
+        boolean previous = hasCursor && pageCriteria.getDirection() == PageDirection.PREVIOUS;
+
+        // One extra row tells whether there is another page in the walking direction.
+        Pageable limit = new PageRequest(0, listPageSize + 1);
+
+        List<UserRowDTO> users;
+        if (!hasCursor) {
+            users = findFirstPage(sortType, limit);
+        }
+        else if (previous) {
+            users = findPageBefore(pageCriteria, sortType, limit);
+            if (users.isEmpty()) {
+                LOGGER.debug("Nothing found before the cursor. Returning the first page.");
+                PageDTO firstPage = new PageDTO();
+                firstPage.setSortType(sortType);
+                return findPage(firstPage);
+            }
+        }
+        else {
+            users = findPageAfter(pageCriteria, sortType, limit);
+        }
+
+        boolean hasMore = users.size() > listPageSize;
+        if (hasMore) {
+            users = new ArrayList<UserRowDTO>(users.subList(0, listPageSize));
+        }
+
+        if (previous) {
+            Collections.reverse(users);
+            return new UserPageDTO(users, sortType, !hasMore, false);
+        }
+
+        return new UserPageDTO(users, sortType, !hasCursor, !hasMore);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Long findVersion(Long id) {
+        LOGGER.debug("Finding version of user with id: " + id);
+        return userRepository.findVersion(id);
+    }
+
+    private boolean hasCursor(PageDTO pageCriteria, SortType sortType) {
+        if (pageCriteria.getCursorId() == null) {
+            return false;
+        }
+        return sortType == SortType.ID || pageCriteria.getCursorLastName() != null;
+    }
+
+    private List<UserRowDTO> findFirstPage(SortType sortType, Pageable limit) {
+        if (sortType == SortType.LAST_NAME) {
+            return userRepository.findFirstPageOrderByLastName(limit);
+        }
+        return userRepository.findFirstPageOrderById(limit);
+    }
+
+    private List<UserRowDTO> findPageAfter(PageDTO pageCriteria, SortType sortType, Pageable limit) {
+        if (sortType == SortType.LAST_NAME) {
+            return userRepository.findPageAfterLastName(pageCriteria.getCursorLastName(), pageCriteria.getCursorId(), limit);
+        }
+        return userRepository.findPageAfterId(pageCriteria.getCursorId(), limit);
+    }
+
+    private List<UserRowDTO> findPageBefore(PageDTO pageCriteria, SortType sortType, Pageable limit) {
+        if (sortType == SortType.LAST_NAME) {
+            return userRepository.findPageBeforeLastName(pageCriteria.getCursorLastName(), pageCriteria.getCursorId(), limit);
+        }
+        return userRepository.findPageBeforeId(pageCriteria.getCursorId(), limit);
+    }
+
+    /*
+     * Not transactional. Identical concurrent searches share one query and
+     * the callers waiting for it must not hold a connection, the query runs
+     * in a read-only transaction of the caller which started it. The full
+     * text search reads the in-memory index and is not shared.
+     */
+    @Override
+    public List<UserRowDTO> search(SearchDTO searchCriteria) {
         LOGGER.debug("Searching users with search criteria: " + searchCriteria);
         
-        String searchTerm = searchCriteria.getSearchTerm();
-        SearchType searchType = searchCriteria.getSearchType();
+        final String searchTerm = searchCriteria.getSearchTerm();
+        final SearchType searchType = searchCriteria.getSearchType();
         
         if (searchType == null) {
             throw new IllegalArgumentException();
         }
-         
-        return findUsersBySearchType(searchTerm, searchType);
+
+        if (searchType == SearchType.FULL_TEXT) {
+            LOGGER.debug("Searching users by using the full text index");
+            int page = searchCriteria.getPage() == null ? 0 : searchCriteria.getPage();
+            return userSearchService.search(searchTerm, page);
+        }
+
+        return searchCoalescer.search(searchType, searchTerm, new Callable<List<UserRowDTO>>() {
+            @Override
+            public List<UserRowDTO> call() {
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.setReadOnly(true);
+                return transactionTemplate.execute(new TransactionCallback<List<UserRowDTO>>() {
+                    @Override
+                    public List<UserRowDTO> doInTransaction(TransactionStatus status) {
+                        return findUsersBySearchType(searchTerm, searchType);
+                    }
+                });
+            }
+        });
     }
     
-    private List<User> findUsersBySearchType(String searchTerm, SearchType searchType) {
-        List<User> users;
+    private List<UserRowDTO> findUsersBySearchType(String searchTerm, SearchType searchType) {
+        List<UserRowDTO> users;
+        String lastNameKey = User.toLastNameKey(searchTerm);
 
         if (searchType == SearchType.METHOD_NAME) {
             LOGGER.debug("Searching users by using method name query creation.");
-            users = userRepository.findByLastName(searchTerm);
+            users = userRepository.findByLastName(lastNameKey, searchTerm);
         }
         else if (searchType == SearchType.NAMED_QUERY) {
             LOGGER.debug("Searching users by using named query");
-            users = userRepository.findByName(searchTerm);
+            users = userRepository.findByName(lastNameKey);
         }
         else {
             LOGGER.debug("Searching users by using query annotation");
-            users = userRepository.find(searchTerm);
+            users = userRepository.find(lastNameKey);
         }
 
         return users;
     }
 
+    /*
+     * The user is updated with one versioned UPDATE statement instead of
+     * loading and flushing the entity. The existence check runs only when no
+     * row was updated, to tell a missing user from a concurrent modification.
+     */
     @Transactional(rollbackFor = UserNotFoundException.class)
     @Override
-    public User update(UserDTO updated) throws UserNotFoundException {
+    public void update(UserDTO updated) throws UserNotFoundException {
         LOGGER.debug("Updating user with information: " + updated);
+
+        if (updated.getVersion() == null) {
+            throw new IllegalArgumentException();
+        }
         
-        User user = userRepository.findOne(updated.getId());
+        int updatedRows = userRepository.update(updated.getId(), updated.getVersion(), updated.getFirstName(), updated.getLastName(),
+                User.toLastNameKey(updated.getLastName()), new Date());
         
-        if (user == null) {
-            LOGGER.debug("No user found with id: " + updated.getId());
-            throw new UserNotFoundException();
+        if (updatedRows == 0) {
+            if (!userRepository.exists(updated.getId())) {
+                LOGGER.debug("No user found with id: " + updated.getId());
+                throw new UserNotFoundException();
+            }
+            LOGGER.debug("User with id: " + updated.getId() + " was modified after version: " + updated.getVersion());
+            throw new ObjectOptimisticLockingFailureException(User.class, updated.getId());
         }
-        
-        user.update(updated.getFirstName(), updated.getLastName());
 
-        return user;
+        invalidateCached(Collections.singleton(updated.getId()));
+        // The statement incremented the version
+        changePublisher.publishUpdated(Collections.singletonList(
+                new UserRowDTO(updated.getId(), updated.getFirstName(), updated.getLastName(), updated.getVersion() + 1)));
+    }
+
+    /*
+     * Called after the statement and before the commit. The changed users are
+     * kept out of the cache until the transaction completed, outside of a
+     * transaction the statement is already committed.
+     */
+    private void invalidateCached(final Collection<Long> ids) {
+        userCache.beginWrite(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    userCache.endWrite(ids);
+                }
+            });
+        }
+        else {
+            userCache.endWrite(ids);
+        }
     }
 
     protected void setUserRepository(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
+
+    protected void setUserWriter(GroupCommitUserWriter userWriter) {
+        this.userWriter = userWriter;
+    }
+
+    protected void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    protected void setChangePublisher(UserChangePublisher changePublisher) {
+        this.changePublisher = changePublisher;
+    }
+
+    protected void setUserSearchService(UserSearchService userSearchService) {
+        this.userSearchService = userSearchService;
+    }
+
+    protected void setUserCache(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    protected void setSearchCoalescer(UserSearchCoalescer searchCoalescer) {
+        this.searchCoalescer = searchCoalescer;
+    }
+
+    protected void setCreateWaitTimeoutMillis(long createWaitTimeoutMillis) {
+        this.createWaitTimeoutMillis = createWaitTimeoutMillis;
+    }
+
+    protected void setBulkChunkSize(int bulkChunkSize) {
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    protected void setListPageSize(int listPageSize) {
+        this.listPageSize = listPageSize;
+    }
+
+    protected void setExportFetchSize(int exportFetchSize) {
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    protected void setExportClearInterval(int exportClearInterval) {
+        this.exportClearInterval = exportClearInterval;
+    }
+
+    protected void setDeltaMaxPageSize(int deltaMaxPageSize) {
+        this.deltaMaxPageSize = deltaMaxPageSize;
+    }
+
+    protected void setDeltaSettleMillis(long deltaSettleMillis) {
+        this.deltaSettleMillis = deltaSettleMillis;
+    }
 }
@@ -0,0 +1,20 @@
+package com.daou.book.web;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler method whose requests are admitted by the bulkhead of the
+ * type, see BulkheadInterceptor. The handlers which do not use the database
+ * are not marked and always admitted.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Bulkhead {
+
+    BulkheadType value();
+}
@@ -0,0 +1,78 @@
+package com.daou.book.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Admits the requests of the handler methods marked with @Bulkhead through the
+ * limiter of their type. The reads and the writes have separate limiters whose
+ * permits together stay below the size of the connection pool, so the requests
+ * wait here instead of in the pool and a slow class of requests cannot starve
+ * the other. A request which is not admitted gets 503 Service Unavailable with
+ * a Retry-After header at once, without running the handler.
+ *
+ * The permit is released after the view was rendered, also when the handler
+ * failed.
+ */
+public class BulkheadInterceptor extends HandlerInterceptorAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkheadInterceptor.class);
+
+    protected static final String RETRY_AFTER_SECONDS = "1";
+
+    private static final String REQUEST_ATTRIBUTE_LIMITER = BulkheadInterceptor.class.getName() + ".limiter";
+
+    private final Map<BulkheadType, ConcurrencyLimiter> limiters;
+
+    /**
+     * @param limiters  The limiter of every bulkhead type.
+     */
+    public BulkheadInterceptor(Map<BulkheadType, ConcurrencyLimiter> limiters) {
+        this.limiters = new EnumMap<BulkheadType, ConcurrencyLimiter>(limiters);
+        for (BulkheadType type : BulkheadType.values()) {
+            if (!this.limiters.containsKey(type)) {
+                throw new IllegalArgumentException("No limiter for bulkhead: " + type);
+            }
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        Bulkhead bulkhead = ((HandlerMethod) handler).getMethodAnnotation(Bulkhead.class);
+        if (bulkhead == null) {
+            return true;
+        }
+
+        ConcurrencyLimiter limiter = limiters.get(bulkhead.value());
+        if (limiter.acquire()) {
+            request.setAttribute(REQUEST_ATTRIBUTE_LIMITER, limiter);
+            return true;
+        }
+
+        LOGGER.debug("Rejecting " + bulkhead.value() + " request: " + request.getRequestURI());
+        response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The server is busy, please try again shortly");
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ConcurrencyLimiter limiter = (ConcurrencyLimiter) request.getAttribute(REQUEST_ATTRIBUTE_LIMITER);
+        if (limiter != null) {
+            request.removeAttribute(REQUEST_ATTRIBUTE_LIMITER);
+            limiter.release();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.daou.book.web;
+
+/**
+ * The classes of requests which are admitted by separate bulkheads, so a burst
+ * of one class cannot take the connections needed by the other.
+ *
+ * A create waits for the group commit of the created users without holding a
+ * connection, so it has its own bulkhead when the group commit is enabled.
+ * Otherwise it shares the bulkhead of the writes.
+ *
+ * The export, the import and the search index rebuild hold a connection while
+ * they read or write the whole table, so they have a bulkhead of a few permits
+ * which does not queue.
+ */
+public enum BulkheadType {
+    READ,
+    WRITE,
+    CREATE,
+    BULK
+}
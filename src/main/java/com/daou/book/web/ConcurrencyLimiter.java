@@ -0,0 +1,146 @@
+package com.daou.book.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.daou.book.metrics.MetricsRegistry;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of requests of one bulkhead running at the same time. A
+ * request which finds no free permit waits in a bounded queue, and is rejected
+ * if the queue is full or no permit was freed in time.
+ *
+ * The wait adapts to the load like the CoDel queue management: while the queue
+ * is emptied regularly a request waits up to the interval, which absorbs a
+ * short burst. When the queue was not empty for longer than the interval the
+ * requests arrive faster than they are served, and a request waits only up to
+ * the target. The queue then drains quickly instead of making every request
+ * wait the full interval and fail anyway.
+ *
+ * The wait of every admitted request is recorded as bulkhead.[name].wait and
+ * every rejection as bulkhead.[name].rejected.
+ */
+public class ConcurrencyLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    private static final String METRIC_NAME_PREFIX = "bulkhead.";
+
+    private final Semaphore permits;
+
+    private final int maxWaiting;
+
+    private final long intervalNanos;
+
+    private final long targetNanos;
+
+    private final MetricsRegistry metricsRegistry;
+
+    private final String waitMetricName;
+
+    private final String rejectedMetricName;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    // The last time no request was waiting
+    private volatile long lastEmptyTime = System.nanoTime();
+
+    /**
+     * @param name              The name of the metrics.
+     * @param maxConcurrent     The maximum number of admitted requests.
+     * @param maxWaiting        The maximum number of requests waiting for a permit.
+     * @param intervalMillis    The wait while the queue is emptied regularly.
+     * @param targetMillis      The wait when the queue was not empty for longer than the interval.
+     */
+    public ConcurrencyLimiter(String name, int maxConcurrent, int maxWaiting, long intervalMillis, long targetMillis, MetricsRegistry metricsRegistry) {
+        if (maxConcurrent < 1 || maxWaiting < 0) {
+            throw new IllegalArgumentException("Bulkhead " + name + " needs at least one permit and a queue that is not negative");
+        }
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxWaiting = maxWaiting;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.metricsRegistry = metricsRegistry;
+        this.waitMetricName = METRIC_NAME_PREFIX + name + ".wait";
+        this.rejectedMetricName = METRIC_NAME_PREFIX + name + ".rejected";
+    }
+
+    /**
+     * Takes a permit, waiting for it if none is free.
+     *
+     * @return  True if the request was admitted and must call release, false if it was rejected.
+     */
+    public boolean acquire() {
+        long startTime = System.nanoTime();
+
+        // Only a request arriving at an empty queue may take a permit without queueing
+        if (waiting.get() == 0 && permits.tryAcquire()) {
+            lastEmptyTime = startTime;
+            metricsRegistry.record(waitMetricName, 0);
+            return true;
+        }
+
+        if (waiting.incrementAndGet() > maxWaiting) {
+            leaveQueue();
+            reject(startTime, "the queue is full");
+            return false;
+        }
+
+        boolean acquired = false;
+        try {
+            long timeout = startTime - lastEmptyTime > intervalNanos ? targetNanos : intervalNanos;
+            acquired = permits.tryAcquire(timeout, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            leaveQueue();
+        }
+
+        if (!acquired) {
+            reject(startTime, "no permit was freed in time");
+            return false;
+        }
+        metricsRegistry.record(waitMetricName, System.nanoTime() - startTime);
+        return true;
+    }
+
+    /**
+     * Returns the permit of an admitted request.
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * @return  The number of rejected requests.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return  The number of requests waiting for a permit.
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    private void leaveQueue() {
+        if (waiting.decrementAndGet() == 0) {
+            lastEmptyTime = System.nanoTime();
+        }
+    }
+
+    private void reject(long startTime, String reason) {
+        LOGGER.debug("Rejecting request of " + rejectedMetricName + " because " + reason);
+        rejectedCount.incrementAndGet();
+        metricsRegistry.record(rejectedMetricName, System.nanoTime() - startTime);
+    }
+}
@@ -0,0 +1,214 @@
+package com.daou.book.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.FlashMapManager;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+import org.springframework.web.servlet.support.RequestContextUtils;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the flash attributes of a redirect in a signed cookie instead of the
+ * session, so a redirect can be followed by any node and no session is
+ * created. The attribute values are read back as strings.
+ *
+ * The redirect response is committed before FlashMapManager.requestCompleted
+ * is called, so the cookie is written by the postHandle method of this class,
+ * which must also be registered as an interceptor. The cookie is consumed by
+ * the first request to the target path of the redirect.
+ */
+public class CookieFlashMapManager extends HandlerInterceptorAdapter implements FlashMapManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CookieFlashMapManager.class);
+
+    protected static final String COOKIE_NAME = "FLASH";
+
+    private static final String CHARSET = "UTF-8";
+
+    private static final String VIEW_REDIRECT_PREFIX = "redirect:";
+
+    private static final String CONSUMED_ATTRIBUTE = CookieFlashMapManager.class.getName() + ".CONSUMED";
+
+    private final HmacSigner signer;
+
+    public CookieFlashMapManager(HmacSigner signer) {
+        this.signer = signer;
+    }
+
+    @Override
+    public void requestStarted(HttpServletRequest request) {
+        if (request.getAttribute(OUTPUT_FLASH_MAP_ATTRIBUTE) != null) {
+            return;
+        }
+
+        Cookie cookie = findCookie(request);
+        if (cookie != null) {
+            Map<String, String> attributes = decode(cookie.getValue(), request.getRequestURI());
+            if (attributes != null) {
+                request.setAttribute(INPUT_FLASH_MAP_ATTRIBUTE, Collections.unmodifiableMap(attributes));
+                request.setAttribute(CONSUMED_ATTRIBUTE, Boolean.TRUE);
+            }
+        }
+
+        request.setAttribute(OUTPUT_FLASH_MAP_ATTRIBUTE, new FlashMap());
+    }
+
+    @Override
+    public void requestCompleted(HttpServletRequest request) {
+        // The cookie is written by postHandle before the response is committed
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(CONSUMED_ATTRIBUTE) != null) {
+            response.addCookie(createCookie(request, "", 0));
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        FlashMap flashMap = RequestContextUtils.getOutputFlashMap(request);
+        if (flashMap == null || flashMap.isEmpty()) {
+            return;
+        }
+
+        String targetPath = getRedirectPath(request, modelAndView);
+        if (targetPath == null) {
+            LOGGER.debug("Flash attributes without a redirect are dropped: " + flashMap);
+            return;
+        }
+        response.addCookie(createCookie(request, encode(targetPath, flashMap), -1));
+    }
+
+    /*
+     * Only the paths of the redirect view names are supported, the view names
+     * are relative to the context path.
+     */
+    private String getRedirectPath(HttpServletRequest request, ModelAndView modelAndView) {
+        if (modelAndView == null || modelAndView.getViewName() == null || !modelAndView.getViewName().startsWith(VIEW_REDIRECT_PREFIX)) {
+            return null;
+        }
+
+        String path = modelAndView.getViewName().substring(VIEW_REDIRECT_PREFIX.length());
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        return request.getContextPath() + path;
+    }
+
+    private Cookie findCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                return cookie;
+            }
+        }
+        return null;
+    }
+
+    private Cookie createCookie(HttpServletRequest request, String value, int maxAge) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setPath(request.getContextPath().length() == 0 ? "/" : request.getContextPath());
+        cookie.setMaxAge(maxAge);
+        cookie.setHttpOnly(true);
+        return cookie;
+    }
+
+    /*
+     * The target path and the attributes are URL encoded and the result is
+     * hex encoded, which needs no quoting in a cookie. The signature follows
+     * after a dot.
+     */
+    protected String encode(String targetPath, Map<String, ?> attributes) {
+        StringBuilder payload = new StringBuilder();
+        payload.append(urlEncode(targetPath));
+        for (Map.Entry<String, ?> attribute : attributes.entrySet()) {
+            payload.append('&');
+            payload.append(urlEncode(attribute.getKey()));
+            payload.append('=');
+            payload.append(urlEncode(String.valueOf(attribute.getValue())));
+        }
+
+        String data = HmacSigner.toHex(getBytes(payload.toString()));
+        return data + "." + signer.sign(data);
+    }
+
+    /**
+     * @param value The value of the cookie.
+     * @param requestPath   The path of the current request.
+     * @return  The flash attributes or null if the cookie is not signed or it is for another path.
+     */
+    protected Map<String, String> decode(String value, String requestPath) {
+        int separator = value.indexOf('.');
+        if (separator < 0 || !signer.verify(value.substring(0, separator), value.substring(separator + 1))) {
+            LOGGER.debug("Ignoring flash cookie with an invalid signature");
+            return null;
+        }
+
+        byte[] bytes = HmacSigner.fromHex(value.substring(0, separator));
+        if (bytes == null) {
+            return null;
+        }
+
+        String[] parts = newString(bytes).split("&");
+        if (!urlDecode(parts[0]).equals(requestPath)) {
+            return null;
+        }
+
+        Map<String, String> attributes = new HashMap<String, String>();
+        for (int i = 1; i < parts.length; i++) {
+            int equals = parts[i].indexOf('=');
+            attributes.put(urlDecode(parts[i].substring(0, equals)), urlDecode(parts[i].substring(equals + 1)));
+        }
+        return attributes;
+    }
+
+    private static String urlEncode(String value) {
+        try {
+            return URLEncoder.encode(value, CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String urlDecode(String value) {
+        try {
+            return URLDecoder.decode(value, CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] getBytes(String value) {
+        try {
+            return value.getBytes(CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String newString(byte[] bytes) {
+        try {
+            return new String(bytes, CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.daou.book.web;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * Signs the state which is round-tripped through the browser instead of being
+ * kept in the session, e.g. the id and the version of an edited user. Every
+ * node of the application must use the same key to accept the signatures of
+ * the other nodes.
+ */
+public class HmacSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final String CHARSET = "UTF-8";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final SecretKeySpec key;
+
+    public HmacSigner(byte[] key) {
+        if (key == null || key.length == 0) {
+            throw new IllegalArgumentException("Signing key cannot be empty");
+        }
+        this.key = new SecretKeySpec(key, ALGORITHM);
+    }
+
+    /**
+     * @param data  The signed data.
+     * @return  The signature of the data as lower case hex digits.
+     */
+    public String sign(String data) {
+        return toHex(mac(data));
+    }
+
+    /**
+     * Checks the signature in a constant time, the time does not tell how
+     * many leading characters of a forged signature are correct.
+     *
+     * @param data  The signed data.
+     * @param signature The signature sent by the browser, can be null.
+     * @return  True if the signature is the signature of the data.
+     */
+    public boolean verify(String data, String signature) {
+        if (signature == null) {
+            return false;
+        }
+        try {
+            return MessageDigest.isEqual(sign(data).getBytes(CHARSET), signature.getBytes(CHARSET));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * @return  The bytes of the hex digits or null if the text is not hex digits.
+     */
+    static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    /*
+     * Mac is not thread-safe, a new instance is cheap compared to the request
+     * which needs the signature.
+     */
+    private byte[] mac(String data) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data.getBytes(CHARSET));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,4 +1,4 @@
-<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ page contentType="text/html;charset=UTF-8" language="java" session="false" %>
 <%@ taglib prefix="spring" uri="http://www.springframework.org/tags" %>
 <%@ taglib prefix="form" uri="http://www.springframework.org/tags/form"%>
 <html>
@@ -11,6 +11,7 @@
     <h1><spring:message code="user.create.page.title"/></h1>
     <div>
         <form:form action="/user/create" commandName="user" method="POST">
+            <form:errors cssClass="error" element="div"/>
             <div>
                 <form:label path="firstName"><spring:message code="user.label.firstName"/>:</form:label>
                 <form:input path="firstName" size="20"/>
@@ -1,4 +1,4 @@
-<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ page contentType="text/html;charset=UTF-8" language="java" session="false" %>
 <%@ taglib prefix="spring" uri="http://www.springframework.org/tags" %>
 <%@ taglib prefix="form" uri="http://www.springframework.org/tags/form"%>
 <html>
@@ -12,6 +12,8 @@
 <div>
     <form:form action="/user/edit" commandName="user" method="POST">
         <form:hidden path="id"/>
+        <form:hidden path="version"/>
+        <form:hidden path="signature"/>
         <div>
             <form:label path="firstName"><spring:message code="user.label.firstName"/>:</form:label>
             <form:input path="firstName" size="20"/>
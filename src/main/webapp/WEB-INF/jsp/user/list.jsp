@@ -1,4 +1,4 @@
-<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ page contentType="text/html;charset=UTF-8" language="java" session="false" %>
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@ taglib prefix="spring" uri="http://www.springframework.org/tags" %>
 <html>
@@ -18,5 +18,6 @@
 </div>
 <jsp:include page="searchForm.jsp"/>
 <jsp:include page="userList.jsp"/>
+<jsp:include page="pagination.jsp"/>
 </body>
 </html>
\ No newline at end of file
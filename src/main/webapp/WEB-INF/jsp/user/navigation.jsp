@@ -1,7 +1,9 @@
-<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ page contentType="text/html;charset=UTF-8" language="java" session="false" %>
 <%@ taglib prefix="spring" uri="http://www.springframework.org/tags" %>
 
 <div>
     <a href="/"><spring:message code="user.list.link.label"/></a> |
-    <a href="/user/create"><spring:message code="user.create.link.label"/></a>
+    <a href="/user/create"><spring:message code="user.create.link.label"/></a> |
+    <a href="/user/export?format=CSV"><spring:message code="user.export.csv.link.label"/></a> |
+    <a href="/user/export?format=NDJSON"><spring:message code="user.export.ndjson.link.label"/></a>
 </div>
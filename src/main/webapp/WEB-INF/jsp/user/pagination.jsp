@@ -0,0 +1,36 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" session="false" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@ taglib prefix="spring" uri="http://www.springframework.org/tags" %>
+
+<div class="pagination">
+    <c:url var="sortByIdUrl" value="/">
+        <c:param name="sortType" value="ID"/>
+    </c:url>
+    <c:url var="sortByLastNameUrl" value="/">
+        <c:param name="sortType" value="LAST_NAME"/>
+    </c:url>
+    <a href="${sortByIdUrl}"><spring:message code="user.list.sort.id.label"/></a> |
+    <a href="${sortByLastNameUrl}"><spring:message code="user.list.sort.lastName.label"/></a>
+    <c:if test="${not userPage.firstPage}">
+        <c:url var="previousPageUrl" value="/">
+            <c:param name="sortType" value="${userPage.sortType}"/>
+            <c:param name="direction" value="PREVIOUS"/>
+            <c:param name="cursorId" value="${userPage.first.id}"/>
+            <c:if test="${userPage.sortType == 'LAST_NAME'}">
+                <c:param name="cursorLastName" value="${userPage.first.lastName}"/>
+            </c:if>
+        </c:url>
+        | <a href="${previousPageUrl}"><spring:message code="user.list.page.previous.label"/></a>
+    </c:if>
+    <c:if test="${not userPage.lastPage}">
+        <c:url var="nextPageUrl" value="/">
+            <c:param name="sortType" value="${userPage.sortType}"/>
+            <c:param name="direction" value="NEXT"/>
+            <c:param name="cursorId" value="${userPage.last.id}"/>
+            <c:if test="${userPage.sortType == 'LAST_NAME'}">
+                <c:param name="cursorLastName" value="${userPage.last.lastName}"/>
+            </c:if>
+        </c:url>
+        | <a href="${nextPageUrl}"><spring:message code="user.list.page.next.label"/></a>
+    </c:if>
+</div>
@@ -1,4 +1,4 @@
-<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ page contentType="text/html;charset=UTF-8" language="java" session="false" %>
 <%@ taglib prefix="spring" uri="http://www.springframework.org/tags" %>
 <%@ taglib prefix="form" uri="http://www.springframework.org/tags/form" %>
 <form:form action="/user/search" commandName="searchCriteria" method="POST">
@@ -6,7 +6,8 @@
         <legend><spring:message code="user.search.form.title"/></legend>
         <div>
             <form:label path="searchTerm"><spring:message code="user.search.searchterm.label"/></form:label>
-            <form:input path="searchTerm" type="text"/>
+            <form:input path="searchTerm" type="text" list="searchTermSuggestions" autocomplete="off"/>
+            <datalist id="searchTermSuggestions"></datalist>
         </div>
         <div>
             <form:label path="searchType"><spring:message code="user.search.searchtype.label"/></form:label>
@@ -14,10 +15,41 @@
                 <form:option value="METHOD_NAME"><spring:message code="SearchType.METHOD_NAME"/></form:option>
                 <form:option value="NAMED_QUERY"><spring:message code="SearchType.NAMED_QUERY"/></form:option>
                 <form:option value="QUERY_ANNOTATION"><spring:message code="SearchType.QUERY_ANNOTATION"/></form:option>
+                <form:option value="FULL_TEXT"><spring:message code="SearchType.FULL_TEXT"/></form:option>
             </form:select>
         </div>
         <div>
             <input type="submit" value="<spring:message code="user.search.form.submit.label"/>"/>
         </div>
     </fieldset>
-</form:form>
\ No newline at end of file
+</form:form>
+<script type="text/javascript">
+    (function () {
+        var input = document.getElementById("searchTerm");
+        var suggestions = document.getElementById("searchTermSuggestions");
+        var request = null;
+        input.addEventListener("input", function () {
+            if (request !== null) {
+                request.abort();
+            }
+            if (input.value.length === 0) {
+                return;
+            }
+            request = new XMLHttpRequest();
+            request.open("GET", "/user/suggest?prefix=" + encodeURIComponent(input.value));
+            request.onload = function () {
+                if (request.status !== 200) {
+                    return;
+                }
+                var names = JSON.parse(request.responseText);
+                suggestions.innerHTML = "";
+                for (var i = 0; i < names.length; i++) {
+                    var option = document.createElement("option");
+                    option.value = names[i];
+                    suggestions.appendChild(option);
+                }
+            };
+            request.send();
+        });
+    })();
+</script>
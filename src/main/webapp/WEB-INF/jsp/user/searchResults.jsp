@@ -1,4 +1,4 @@
-<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ page contentType="text/html;charset=UTF-8" language="java" session="false" %>
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@ taglib prefix="spring" uri="http://www.springframework.org/tags" %>
 <html>
@@ -11,5 +11,26 @@
 <jsp:include page="searchForm.jsp"/>
 <h1><spring:message code="user.search.result.page.title"/>: <c:out value="${searchCriteria.searchTerm}"/></h1>
 <jsp:include page="userList.jsp"/>
+<c:if test="${searchCriteria.searchType == 'FULL_TEXT'}">
+    <c:set var="searchPage" value="${empty searchCriteria.page ? 0 : searchCriteria.page}"/>
+    <div class="pagination">
+        <c:if test="${searchPage > 0}">
+            <form action="/user/search" method="POST">
+                <input type="hidden" name="searchTerm" value="<c:out value="${searchCriteria.searchTerm}"/>"/>
+                <input type="hidden" name="searchType" value="FULL_TEXT"/>
+                <input type="hidden" name="page" value="${searchPage - 1}"/>
+                <input type="submit" value="<spring:message code="user.list.page.previous.label"/>"/>
+            </form>
+        </c:if>
+        <c:if test="${not empty users}">
+            <form action="/user/search" method="POST">
+                <input type="hidden" name="searchTerm" value="<c:out value="${searchCriteria.searchTerm}"/>"/>
+                <input type="hidden" name="searchType" value="FULL_TEXT"/>
+                <input type="hidden" name="page" value="${searchPage + 1}"/>
+                <input type="submit" value="<spring:message code="user.list.page.next.label"/>"/>
+            </form>
+        </c:if>
+    </div>
+</c:if>
 </body>
 </html>
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.daou.book.config;
+
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+
+import javax.persistence.Entity;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class FastBootContextTest {
+
+    private static final String[] COMPONENT_PACKAGES = {"com.daou.book.controller", "com.daou.book.metrics", "com.daou.book.service"};
+    private static final String ENTITY_PACKAGE = "com.daou.book.domain";
+
+    @Test
+    public void componentListsMatchScannedComponents() {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(true);
+
+        Set<String> scanned = new HashSet<String>();
+        for (String basePackage : COMPONENT_PACKAGES) {
+            scanned.addAll(getClassNames(scanner.findCandidateComponents(basePackage)));
+        }
+
+        Set<String> listed = new HashSet<String>();
+        listed.addAll(getClassNames(FastBootContext.EAGER_COMPONENTS));
+        listed.addAll(getClassNames(FastBootContext.LAZY_COMPONENTS));
+
+        assertEquals(scanned, listed);
+        assertEquals(FastBootContext.EAGER_COMPONENTS.length + FastBootContext.LAZY_COMPONENTS.length, listed.size());
+    }
+
+    @Test
+    public void entityListMatchesScannedEntities() {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+
+        assertEquals(getClassNames(scanner.findCandidateComponents(ENTITY_PACKAGE)), getClassNames(FastBootContext.ENTITIES));
+    }
+
+    @Test
+    public void registerBeanDefinitions() {
+        DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+
+        new FastBootContext.ComponentRegistrar().registerBeanDefinitions(null, registry);
+
+        for (Class<?> component : FastBootContext.EAGER_COMPONENTS) {
+            assertFalse(getBeanDefinition(registry, component).isLazyInit());
+        }
+        for (Class<?> component : FastBootContext.LAZY_COMPONENTS) {
+            assertTrue(getBeanDefinition(registry, component).isLazyInit());
+        }
+    }
+
+    private BeanDefinition getBeanDefinition(DefaultListableBeanFactory registry, Class<?> component) {
+        String[] beanNames = registry.getBeanNamesForType(component, true, false);
+        assertEquals(1, beanNames.length);
+        return registry.getBeanDefinition(beanNames[0]);
+    }
+
+    private Set<String> getClassNames(Set<BeanDefinition> beanDefinitions) {
+        Set<String> classNames = new HashSet<String>();
+        for (BeanDefinition beanDefinition : beanDefinitions) {
+            classNames.add(beanDefinition.getBeanClassName());
+        }
+        return classNames;
+    }
+
+    private Set<String> getClassNames(Class<?>[] classes) {
+        Set<String> classNames = new HashSet<String>();
+        for (Class<?> type : Arrays.asList(classes)) {
+            classNames.add(type.getName());
+        }
+        return classNames;
+    }
+}
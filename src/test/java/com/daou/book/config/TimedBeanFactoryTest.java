@@ -0,0 +1,81 @@
+package com.daou.book.config;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import com.daou.book.metrics.StartupReport;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class TimedBeanFactoryTest {
+
+    private static final long SLEEP_MILLIS = 20;
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    private StartupReport report;
+
+    private TimedBeanFactory beanFactory;
+
+    @Before
+    public void setUp() {
+        report = new StartupReport();
+        beanFactory = new TimedBeanFactory(null, report);
+
+        RootBeanDefinition dependent = new RootBeanDefinition(SlowBean.class);
+        dependent.getPropertyValues().add("dependency", new RootBeanDefinition(SlowBean.class));
+        beanFactory.registerBeanDefinition("dependent", dependent);
+        beanFactory.registerBeanDefinition("other", new RootBeanDefinition(SlowBean.class));
+    }
+
+    @Test
+    public void dependencyIsSubtractedFromOwnTime() {
+        beanFactory.getBean("dependent");
+
+        List<StartupReport.BeanTiming> beans = report.getSlowestBeans(Integer.MAX_VALUE);
+        assertEquals(2, beans.size());
+
+        StartupReport.BeanTiming dependent = findBean(beans, "dependent");
+        assertTrue(dependent.getTotalNanos() >= 2 * SLEEP_MILLIS * NANOS_PER_MILLI);
+        assertTrue(dependent.getSelfNanos() >= SLEEP_MILLIS * NANOS_PER_MILLI);
+        assertTrue(dependent.getSelfNanos() < dependent.getTotalNanos());
+    }
+
+    @Test
+    public void stopTiming() {
+        beanFactory.stopTiming();
+
+        beanFactory.getBean("other");
+
+        assertEquals(0, report.getBeanCount());
+    }
+
+    private StartupReport.BeanTiming findBean(List<StartupReport.BeanTiming> beans, String beanName) {
+        for (StartupReport.BeanTiming bean : beans) {
+            if (bean.getBeanName().equals(beanName)) {
+                return bean;
+            }
+        }
+        throw new AssertionError("No timing of " + beanName);
+    }
+
+    public static class SlowBean {
+
+        private SlowBean dependency;
+
+        public SlowBean() throws InterruptedException {
+            Thread.sleep(SLEEP_MILLIS);
+        }
+
+        public void setDependency(SlowBean dependency) {
+            this.dependency = dependency;
+        }
+
+        public SlowBean getDependency() {
+            return dependency;
+        }
+    }
+}
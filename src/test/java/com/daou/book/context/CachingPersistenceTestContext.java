@@ -0,0 +1,35 @@
+package com.daou.book.context;
+
+import org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import java.util.Properties;
+
+/**
+ * The persistence test context with the second-level and query caches
+ * enabled as in ApplicationContext, and the statistics which count their
+ * hits and puts. The regions use the default Ehcache configuration.
+ * EnableTransactionManagement is repeated because Spring reads it from the
+ * imported class only.
+ */
+@Configuration
+@EnableTransactionManagement
+public class CachingPersistenceTestContext extends PersistenceTestContext {
+
+    private static final String DATABASE_URL = "jdbc:h2:mem:datajpa-cache-test;DB_CLOSE_DELAY=-1";
+
+    @Override
+    protected String getDatabaseUrl() {
+        return DATABASE_URL;
+    }
+
+    @Override
+    protected void addCacheProperties(Properties jpaProterties) {
+        jpaProterties.put("hibernate.cache.use_second_level_cache", "true");
+        jpaProterties.put("hibernate.cache.use_query_cache", "true");
+        jpaProterties.put("hibernate.cache.region.factory_class", SingletonEhCacheRegionFactory.class.getName());
+        jpaProterties.put("hibernate.generate_statistics", "true");
+        jpaProterties.put("javax.persistence.sharedCache.mode", "ENABLE_SELECTIVE");
+    }
+}
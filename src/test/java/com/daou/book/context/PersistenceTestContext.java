@@ -0,0 +1,78 @@
+package com.daou.book.context;
+
+import org.hibernate.ejb.HibernatePersistence;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportResource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+
+/**
+ * Repositories backed by an in-memory H2 database for the persistence tests.
+ * The second-level cache is disabled, see CachingPersistenceTestContext.
+ */
+@Configuration
+@EnableTransactionManagement
+@ImportResource("classpath:persistenceTestContext.xml")
+public class PersistenceTestContext {
+
+    private static final String DATABASE_DRIVER = "org.h2.Driver";
+    private static final String DATABASE_URL = "jdbc:h2:mem:datajpa-test;DB_CLOSE_DELAY=-1";
+    private static final String DATABASE_USERNAME = "sa";
+    private static final String DATABASE_PASSWORD = "";
+
+    private static final String ENTITYMANAGER_PACKAGES_TO_SCAN = "com.daou.book.domain";
+
+    @Bean
+    public DataSource dataSource() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(getDatabaseUrl(), DATABASE_USERNAME, DATABASE_PASSWORD);
+        dataSource.setDriverClassName(DATABASE_DRIVER);
+        return dataSource;
+    }
+
+    @Bean
+    public LocalContainerEntityManagerFactoryBean entityManagerFactoryBean() {
+        LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+
+        entityManagerFactoryBean.setDataSource(dataSource());
+        entityManagerFactoryBean.setPackagesToScan(ENTITYMANAGER_PACKAGES_TO_SCAN);
+        entityManagerFactoryBean.setPersistenceProviderClass(HibernatePersistence.class);
+
+        Properties jpaProterties = new Properties();
+        jpaProterties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        jpaProterties.put("hibernate.hbm2ddl.auto", "create-drop");
+        jpaProterties.put("hibernate.ejb.naming_strategy", "org.hibernate.cfg.ImprovedNamingStrategy");
+        jpaProterties.put("hibernate.show_sql", "false");
+        jpaProterties.put("hibernate.ejb.interceptor", StatementCapturingInterceptor.class.getName());
+        addCacheProperties(jpaProterties);
+
+        entityManagerFactoryBean.setJpaProperties(jpaProterties);
+
+        return entityManagerFactoryBean;
+    }
+
+    /**
+     * A context with other settings uses its own database, the tables are created and dropped with the context.
+     */
+    protected String getDatabaseUrl() {
+        return DATABASE_URL;
+    }
+
+    protected void addCacheProperties(Properties jpaProterties) {
+        jpaProterties.put("hibernate.cache.use_second_level_cache", "false");
+    }
+
+    @Bean
+    public JpaTransactionManager transactionManager() {
+        JpaTransactionManager transactionManager = new JpaTransactionManager();
+
+        transactionManager.setEntityManagerFactory(entityManagerFactoryBean().getObject());
+
+        return transactionManager;
+    }
+}
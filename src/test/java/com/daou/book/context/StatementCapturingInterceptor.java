@@ -0,0 +1,38 @@
+package com.daou.book.context;
+
+import org.hibernate.EmptyInterceptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the SQL statements prepared by Hibernate, so a test can check the
+ * statements generated for its queries.
+ */
+public class StatementCapturingInterceptor extends EmptyInterceptor {
+
+    private static final List<String> STATEMENTS = new ArrayList<String>();
+
+    @Override
+    public String onPrepareStatement(String sql) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+
+    public static void clear() {
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+    }
+
+    /**
+     * @return  The statements prepared since the last clear, in order.
+     */
+    public static List<String> getStatements() {
+        synchronized (STATEMENTS) {
+            return new ArrayList<String>(STATEMENTS);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.daou.book.controller;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import com.daou.book.config.TimedWebApplicationContext;
+import com.daou.book.dto.CacheStatisticsDTO;
+import com.daou.book.dto.ConnectionPoolStatisticsDTO;
+import com.daou.book.service.CacheStatisticsService;
+import com.daou.book.metrics.StartupReport;
+import com.daou.book.service.ConnectionPoolStatisticsService;
+import com.daou.book.service.UserSearchService;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class AdminControllerTest {
+
+    private AdminController controller;
+
+    private CacheStatisticsService cacheStatisticsServiceMock;
+
+    private ConnectionPoolStatisticsService connectionPoolStatisticsServiceMock;
+
+    private UserSearchService userSearchServiceMock;
+
+    @Before
+    public void setUp() {
+        controller = new AdminController();
+
+        cacheStatisticsServiceMock = mock(CacheStatisticsService.class);
+        controller.setCacheStatisticsService(cacheStatisticsServiceMock);
+
+        connectionPoolStatisticsServiceMock = mock(ConnectionPoolStatisticsService.class);
+        controller.setConnectionPoolStatisticsService(connectionPoolStatisticsServiceMock);
+
+        userSearchServiceMock = mock(UserSearchService.class);
+        controller.setUserSearchService(userSearchServiceMock);
+    }
+
+    @Test
+    public void showSearchIndex() {
+        when(userSearchServiceMock.getIndexedCount()).thenReturn(12);
+
+        assertEquals("indexed=12\n", controller.showSearchIndex());
+    }
+
+    @Test
+    public void rebuildSearchIndex() throws IOException {
+        when(userSearchServiceMock.rebuild()).thenReturn(12);
+
+        String body = controller.rebuildSearchIndex();
+
+        verify(userSearchServiceMock, times(1)).rebuild();
+        verifyNoMoreInteractions(userSearchServiceMock);
+
+        assertEquals("indexed=12\n", body);
+    }
+
+    @Test
+    public void showCacheStatistics() {
+        CacheStatisticsDTO statistics = new CacheStatisticsDTO("com.daou.book.domain.User", 3, 1, 4, 4, 2);
+        when(cacheStatisticsServiceMock.findCacheStatistics()).thenReturn(Arrays.asList(statistics));
+
+        String body = controller.showCacheStatistics();
+
+        verify(cacheStatisticsServiceMock, times(1)).findCacheStatistics();
+        verifyNoMoreInteractions(cacheStatisticsServiceMock);
+
+        assertEquals("region=com.daou.book.domain.User hits=3 misses=1 puts=4 size=4 evictions=2 hitRatio=0.7500\n", body);
+    }
+
+    @Test
+    public void showCacheStatisticsWhenNoRegions() {
+        when(cacheStatisticsServiceMock.findCacheStatistics()).thenReturn(Arrays.<CacheStatisticsDTO>asList());
+
+        assertEquals("", controller.showCacheStatistics());
+    }
+
+    @Test
+    public void showConnectionPoolStatistics() {
+        ConnectionPoolStatisticsDTO statistics = new ConnectionPoolStatisticsDTO();
+        statistics.setPoolName("primary");
+        statistics.setLeasedConnections(2);
+        statistics.setFreeConnections(3);
+        statistics.setCreatedConnections(5);
+        statistics.setConnectionsRequested(40);
+        statistics.setAcquireFailures(1);
+        statistics.setConnectionWaitTimeAverage(0.25);
+        statistics.setStatementCacheHits(9);
+        statistics.setStatementCacheMisses(1);
+        statistics.setStatementsCached(4);
+        when(connectionPoolStatisticsServiceMock.findConnectionPoolStatistics()).thenReturn(Arrays.asList(statistics));
+
+        String body = controller.showConnectionPoolStatistics();
+
+        verify(connectionPoolStatisticsServiceMock, times(1)).findConnectionPoolStatistics();
+        verifyNoMoreInteractions(connectionPoolStatisticsServiceMock);
+        verifyZeroInteractions(cacheStatisticsServiceMock);
+
+        assertEquals("pool=primary leased=2 free=3 created=5 requested=40 acquireFailures=1 waitTimeAvgMs=0.2500 "
+                + "statementCacheHits=9 statementCacheMisses=1 statementsCached=4 statementCacheHitRatio=0.9000\n", body);
+    }
+
+    @Test
+    public void showStartupReport() {
+        StartupReport report = new StartupReport();
+        report.addPhase("singletons", 2000000);
+        report.addBean("entityManagerFactoryBean", 1000000, 2000000);
+        report.setTotalNanos(3000000);
+        TimedWebApplicationContext contextMock = mock(TimedWebApplicationContext.class);
+        when(contextMock.getStartupReport()).thenReturn(report);
+        controller.setContext(contextMock);
+
+        String body = controller.showStartupReport();
+
+        assertTrue(body.startsWith("Application context started in 3 ms\n"));
+        assertTrue(body.contains("entityManagerFactoryBean"));
+    }
+
+    @Test
+    public void showStartupReportWhenContextIsNotTimed() {
+        controller.setContext(new StaticApplicationContext());
+
+        assertEquals("", controller.showStartupReport());
+    }
+}
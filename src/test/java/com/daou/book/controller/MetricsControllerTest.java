@@ -0,0 +1,43 @@
+package com.daou.book.controller;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.daou.book.metrics.MetricsRegistry;
+
+import static junit.framework.Assert.assertEquals;
+
+public class MetricsControllerTest {
+
+    private MetricsController controller;
+
+    private MetricsRegistry metricsRegistry;
+
+    @Before
+    public void setUp() {
+        controller = new MetricsController();
+
+        metricsRegistry = new MetricsRegistry();
+        controller.setMetricsRegistry(metricsRegistry);
+    }
+
+    @Test
+    public void showMetrics() {
+        metricsRegistry.record("http.UserController.showList", 2000000);
+
+        String expected = "# TYPE latency_seconds summary\n"
+                + "latency_seconds{name=\"http.UserController.showList\",quantile=\"0.5\"} 0.002000000\n"
+                + "latency_seconds{name=\"http.UserController.showList\",quantile=\"0.99\"} 0.002000000\n"
+                + "latency_seconds{name=\"http.UserController.showList\",quantile=\"0.999\"} 0.002000000\n"
+                + "latency_seconds_sum{name=\"http.UserController.showList\"} 0.002000000\n"
+                + "latency_seconds_count{name=\"http.UserController.showList\"} 1\n"
+                + "# TYPE latency_seconds_max gauge\n"
+                + "latency_seconds_max{name=\"http.UserController.showList\"} 0.002000000\n";
+        assertEquals(expected, controller.showMetrics());
+    }
+
+    @Test
+    public void showMetricsWhenNothingIsRecorded() {
+        assertEquals("# TYPE latency_seconds summary\n# TYPE latency_seconds_max gauge\n", controller.showMetrics());
+    }
+}
@@ -0,0 +1,63 @@
+package com.daou.book.controller;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.daou.book.dto.UserChangeBatchDTO;
+import com.daou.book.dto.UserChangeDTO;
+import com.daou.book.dto.UserDeltaDTO;
+import com.daou.book.dto.UserDeltaPageDTO;
+import com.daou.book.service.UserChangeLogService;
+import com.daou.book.service.UserService;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class UserChangeControllerTest {
+
+    private UserChangeController controller;
+
+    private UserChangeLogService userChangeLogServiceMock;
+
+    private UserService userServiceMock;
+
+    @Before
+    public void setUp() {
+        controller = new UserChangeController();
+
+        userChangeLogServiceMock = mock(UserChangeLogService.class);
+        controller.setUserChangeLogService(userChangeLogServiceMock);
+        userServiceMock = mock(UserService.class);
+        controller.setUserService(userServiceMock);
+    }
+
+    @Test
+    public void findChanges() {
+        UserChangeBatchDTO expected = new UserChangeBatchDTO(new ArrayList<UserChangeDTO>(), 5, 5, false, false);
+        when(userChangeLogServiceMock.findChangesAfter(5, 100)).thenReturn(expected);
+
+        UserChangeBatchDTO actual = controller.findChanges(5, 100);
+
+        verify(userChangeLogServiceMock, times(1)).findChangesAfter(5, 100);
+        verifyNoMoreInteractions(userChangeLogServiceMock);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void findModified() {
+        UserDeltaPageDTO expected = new UserDeltaPageDTO(new ArrayList<UserDeltaDTO>(), new Date(1000L), 3L, false);
+        when(userServiceMock.findModifiedAfter(new Date(1000L), 3L, 100)).thenReturn(expected);
+
+        UserDeltaPageDTO actual = controller.findModified(1000L, 3L, 100);
+
+        verify(userServiceMock, times(1)).findModifiedAfter(new Date(1000L), 3L, 100);
+        verifyNoMoreInteractions(userServiceMock);
+        verifyZeroInteractions(userChangeLogServiceMock);
+
+        assertEquals(expected, actual);
+    }
+}
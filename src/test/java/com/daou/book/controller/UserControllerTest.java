@@ -1,8 +1,12 @@
 package com.daou.book.controller;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -10,24 +14,52 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.junit.Test;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.support.BindingAwareModelMap;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.FlashMapManager;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
 
 import com.daou.book.domain.User;
+import com.daou.book.dto.BulkEditDTO;
+import com.daou.book.dto.BulkResultDTO;
+import com.daou.book.dto.NameField;
 import com.daou.book.domain.UserTestUtil;
+import com.daou.book.dto.PageDTO;
 import com.daou.book.dto.SearchDTO;
 import com.daou.book.dto.SearchType;
+import com.daou.book.dto.SortType;
 import com.daou.book.dto.UserDTO;
+import com.daou.book.dto.UserListStateDTO;
+import com.daou.book.dto.UserPageDTO;
+import com.daou.book.dto.UserRowDTO;
+import com.daou.book.exception.InvalidBulkCriteriaException;
 import com.daou.book.exception.UserNotFoundException;
+import com.daou.book.service.NameSuggestionService;
 import com.daou.book.service.UserService;
+import com.daou.book.web.HmacSigner;
 
 public class UserControllerTest extends AbstractTestController {
 
@@ -40,10 +72,20 @@ public class UserControllerTest extends AbstractTestController {
     private static final String LAST_NAME = "Bar";
     private static final String LAST_NAME_UPDATED = "BarUpdated";
 
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+
+    private static final String SIGNING_KEY = "signingKey";
+    private static final String INVALID_SIGNATURE = "invalid";
+
     private UserController controller;
     
     private UserService userServiceMock;
 
+    private NameSuggestionService nameSuggestionServiceMock;
+
+    private HmacSigner signer;
+
     @Override
     public void setUpTest() {
         controller = new UserController();
@@ -52,13 +94,56 @@ public class UserControllerTest extends AbstractTestController {
 
         userServiceMock = mock(UserService.class);
         controller.setUserService(userServiceMock);
+
+        nameSuggestionServiceMock = mock(NameSuggestionService.class);
+        controller.setNameSuggestionService(nameSuggestionServiceMock);
+
+        signer = new HmacSigner(SIGNING_KEY.getBytes());
+        controller.setSigner(signer);
     }
     
+    @Test
+    public void bulkDelete() {
+        BulkEditDTO bulkCriteria = new BulkEditDTO();
+        BulkResultDTO result = new BulkResultDTO();
+        when(userServiceMock.bulkDelete(bulkCriteria)).thenReturn(result);
+
+        BulkResultDTO returned = controller.bulkDelete(bulkCriteria);
+
+        verify(userServiceMock, times(1)).bulkDelete(bulkCriteria);
+        verifyNoMoreInteractions(userServiceMock);
+        assertEquals(result, returned);
+    }
+
+    @Test
+    public void bulkEdit() {
+        BulkEditDTO bulkCriteria = new BulkEditDTO();
+        BulkResultDTO result = new BulkResultDTO();
+        when(userServiceMock.bulkUpdate(bulkCriteria)).thenReturn(result);
+
+        BulkResultDTO returned = controller.bulkEdit(bulkCriteria);
+
+        verify(userServiceMock, times(1)).bulkUpdate(bulkCriteria);
+        verifyNoMoreInteractions(userServiceMock);
+        assertEquals(result, returned);
+    }
+
+    @Test
+    public void bulkDeleteWithInvalidCriteria() throws Exception {
+        InvalidBulkCriteriaException exception = new InvalidBulkCriteriaException("Bulk operation needs ids or search criteria");
+        ExceptionHandlerExceptionResolver resolver = new ExceptionHandlerExceptionResolver();
+        resolver.afterPropertiesSet();
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+
+        resolver.resolveException(new MockHttpServletRequest("POST", "/user/bulk/delete"), mockResponse,
+                new HandlerMethod(controller, "bulkDelete", BulkEditDTO.class), exception);
+
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, mockResponse.getStatus());
+        assertEquals(exception.getMessage(), mockResponse.getContentAsString());
+    }
+
     @Test
     public void delete() throws UserNotFoundException {
-        User deleted = UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME);
-        when(userServiceMock.delete(USER_ID)).thenReturn(deleted);
-        
         initMessageSourceForFeedbackMessage(UserController.FEEDBACK_MESSAGE_KEY_USER_DELETED);
         
         RedirectAttributes attributes = new RedirectAttributesModelMap();
@@ -72,9 +157,21 @@ public class UserControllerTest extends AbstractTestController {
         assertEquals(expectedView, view);
     }
     
+    @Test
+    public void deleteMessageShowsIdWithoutGrouping() throws UserNotFoundException {
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.addMessage(UserController.FEEDBACK_MESSAGE_KEY_USER_DELETED, LocaleContextHolder.getLocale(), "Deleted user: {0}");
+        controller.setMessageSource(messageSource);
+
+        RedirectAttributes attributes = new RedirectAttributesModelMap();
+        controller.delete(1234L, attributes);
+
+        assertEquals("Deleted user: 1234", attributes.getFlashAttributes().get("feedbackMessage"));
+    }
+
     @Test
     public void deleteWhenUserIsNotFound() throws UserNotFoundException {
-        when(userServiceMock.delete(USER_ID)).thenThrow(new UserNotFoundException());
+        doThrow(new UserNotFoundException()).when(userServiceMock).delete(USER_ID);
         
         initMessageSourceForErrorMessage(UserController.ERROR_MESSAGE_KEY_DELETED_USER_WAS_NOT_FOUND);
         
@@ -92,7 +189,7 @@ public class UserControllerTest extends AbstractTestController {
     @Test
     public void search() {
         SearchDTO searchCriteria = createSearchCriteria(LAST_NAME, SearchType.METHOD_NAME);
-        List<User> expected = new ArrayList<User>();
+        List<UserRowDTO> expected = new ArrayList<UserRowDTO>();
         when(userServiceMock.search(searchCriteria)).thenReturn(expected);
         
         BindingAwareModelMap model = new BindingAwareModelMap();
@@ -102,7 +199,20 @@ public class UserControllerTest extends AbstractTestController {
         verifyNoMoreInteractions(userServiceMock);
         
         assertEquals(UserController.USER_SEARCH_RESULT_VIEW, view);
-        List<User> actual = (List<User>) model.asMap().get(UserController.MODEL_ATTRIBUTE_USERS);
+        List<UserRowDTO> actual = (List<UserRowDTO>) model.asMap().get(UserController.MODEL_ATTRIBUTE_USERS);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void suggest() {
+        List<String> expected = Arrays.asList(LAST_NAME);
+        when(nameSuggestionServiceMock.suggest(NameField.LAST_NAME, "Ba")).thenReturn(expected);
+
+        List<String> actual = controller.suggest("Ba", NameField.LAST_NAME);
+
+        verify(nameSuggestionServiceMock, times(1)).suggest(NameField.LAST_NAME, "Ba");
+        verifyZeroInteractions(userServiceMock);
+
         assertEquals(expected, actual);
     }
     
@@ -160,6 +270,26 @@ public class UserControllerTest extends AbstractTestController {
         verifyNoMoreInteractions(userServiceMock);
     }
     
+    @Test
+    public void submitCreateUserFormWhenCreateIsRejected() {
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("/user/create", "POST");
+        
+        UserDTO created = UserTestUtil.createDTO(null, FIRST_NAME, LAST_NAME);
+        when(userServiceMock.create(created)).thenThrow(new RejectedExecutionException());
+        
+        RedirectAttributes attributes = new RedirectAttributesModelMap();
+        BindingResult result = bindAndValidate(mockRequest, created);
+        
+        String view = controller.submitCreateUserForm(created, result, attributes);
+        
+        verify(userServiceMock, times(1)).create(created);
+        verifyNoMoreInteractions(userServiceMock);
+        
+        assertEquals(UserController.USER_ADD_FORM_VIEW, view);
+        assertEquals(UserController.ERROR_MESSAGE_KEY_CREATE_REJECTED, result.getGlobalError().getCode());
+        assertTrue(attributes.getFlashAttributes().isEmpty());
+    }
+    
     @Test
     public void submitEmptyCreateUserForm() {
         MockHttpServletRequest mockRequest = new MockHttpServletRequest("/user/create", "POST");
@@ -219,8 +349,9 @@ public class UserControllerTest extends AbstractTestController {
         Model model = new BindingAwareModelMap();
         RedirectAttributes attributes = new RedirectAttributesModelMap();
         
-        String view = controller.showEditUserForm(USER_ID, model, attributes);
+        String view = controller.showEditUserForm(USER_ID, model, attributes, createWebRequest(new MockHttpServletRequest("GET", "/user/edit/" + USER_ID)));
         
+        verify(userServiceMock, times(1)).findVersion(USER_ID);
         verify(userServiceMock, times(1)).findById(USER_ID);
         verifyNoMoreInteractions(userServiceMock);
         
@@ -232,6 +363,8 @@ public class UserControllerTest extends AbstractTestController {
         assertEquals(user.getId(), formObject.getId());
         assertEquals(user.getFirstName(), formObject.getFirstName());
         assertEquals(user.getLastName(), formObject.getLastName());
+        assertEquals(Long.valueOf(user.getVersion()), formObject.getVersion());
+        assertEquals(signer.sign("user-" + user.getId() + "-" + user.getVersion()), formObject.getSignature());
     }
     
     @Test
@@ -243,8 +376,9 @@ public class UserControllerTest extends AbstractTestController {
         Model model = new BindingAwareModelMap();
         RedirectAttributes attributes = new RedirectAttributesModelMap();
         
-        String view = controller.showEditUserForm(USER_ID, model, attributes);
+        String view = controller.showEditUserForm(USER_ID, model, attributes, createWebRequest(new MockHttpServletRequest("GET", "/user/edit/" + USER_ID)));
         
+        verify(userServiceMock, times(1)).findVersion(USER_ID);
         verify(userServiceMock, times(1)).findById(USER_ID);
         verifyNoMoreInteractions(userServiceMock);
         
@@ -258,9 +392,7 @@ public class UserControllerTest extends AbstractTestController {
     public void submitEditUserForm() throws UserNotFoundException {
         MockHttpServletRequest mockRequest = new MockHttpServletRequest("/user/edit", "POST");
         UserDTO updated = UserTestUtil.createDTO(USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
-        User user = UserTestUtil.createModelObject(USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
-        
-        when(userServiceMock.update(updated)).thenReturn(user);
+        sign(updated);
         
         initMessageSourceForFeedbackMessage(UserController.FEEDBACK_MESSAGE_KEY_USER_EDITED);
         
@@ -276,17 +408,15 @@ public class UserControllerTest extends AbstractTestController {
         assertEquals(expectedView, view);
 
         assertFeedbackMessage(attributes, UserController.FEEDBACK_MESSAGE_KEY_USER_EDITED);
-        
-        assertEquals(updated.getFirstName(), user.getFirstName());
-        assertEquals(updated.getLastName(), user.getLastName());
     }
     
     @Test
     public void submitEditUserFormWhenUserIsNotFound() throws UserNotFoundException {
         MockHttpServletRequest mockRequest = new MockHttpServletRequest("/user/edit", "POST");
         UserDTO updated = UserTestUtil.createDTO(USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
+        sign(updated);
         
-        when(userServiceMock.update(updated)).thenThrow(new UserNotFoundException());
+        doThrow(new UserNotFoundException()).when(userServiceMock).update(updated);
         initMessageSourceForErrorMessage(UserController.ERROR_MESSAGE_KEY_EDITED_USER_WAS_NOT_FOUND);
         
         BindingResult bindingResult = bindAndValidate(mockRequest, updated);
@@ -303,10 +433,97 @@ public class UserControllerTest extends AbstractTestController {
         assertErrorMessage(attributes, UserController.ERROR_MESSAGE_KEY_EDITED_USER_WAS_NOT_FOUND);
     }
     
+    @Test
+    public void submitEditUserFormWhenUserIsModified() throws UserNotFoundException {
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("/user/edit", "POST");
+        UserDTO updated = UserTestUtil.createDTO(USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
+        sign(updated);
+        
+        doThrow(new OptimisticLockingFailureException("")).when(userServiceMock).update(updated);
+        initMessageSourceForErrorMessage(UserController.ERROR_MESSAGE_KEY_EDITED_USER_WAS_MODIFIED);
+        
+        BindingResult bindingResult = bindAndValidate(mockRequest, updated);
+        RedirectAttributes attributes = new RedirectAttributesModelMap();
+        
+        String view = controller.submitEditUserForm(updated, bindingResult, attributes);
+        
+        verify(userServiceMock, times(1)).update(updated);
+        verifyNoMoreInteractions(userServiceMock);
+        
+        String expectedView = createExpectedRedirectViewPath(UserController.REQUEST_MAPPING_EDIT + USER_ID);
+        assertEquals(expectedView, view);
+
+        assertErrorMessage(attributes, UserController.ERROR_MESSAGE_KEY_EDITED_USER_WAS_MODIFIED);
+    }
+    
+    @Test
+    public void submitEditUserFormWithInvalidSignature() {
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("/user/edit", "POST");
+        UserDTO updated = UserTestUtil.createDTO(USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
+        updated.setSignature(INVALID_SIGNATURE);
+
+        initMessageSourceForErrorMessage(UserController.ERROR_MESSAGE_KEY_EDITED_USER_WAS_INVALID);
+
+        BindingResult bindingResult = bindAndValidate(mockRequest, updated);
+        RedirectAttributes attributes = new RedirectAttributesModelMap();
+
+        String view = controller.submitEditUserForm(updated, bindingResult, attributes);
+
+        verifyZeroInteractions(userServiceMock);
+
+        String expectedView = createExpectedRedirectViewPath(UserController.REQUEST_MAPPING_EDIT + USER_ID);
+        assertEquals(expectedView, view);
+
+        assertErrorMessage(attributes, UserController.ERROR_MESSAGE_KEY_EDITED_USER_WAS_INVALID);
+    }
+
+    @Test
+    public void submitEditUserFormWithoutVersion() {
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("/user/edit", "POST");
+        UserDTO updated = UserTestUtil.createDTO(USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
+        updated.setVersion(null);
+        updated.setSignature(signer.sign("user-" + USER_ID + "-null"));
+
+        initMessageSourceForErrorMessage(UserController.ERROR_MESSAGE_KEY_EDITED_USER_WAS_INVALID);
+
+        BindingResult bindingResult = bindAndValidate(mockRequest, updated);
+        RedirectAttributes attributes = new RedirectAttributesModelMap();
+
+        String view = controller.submitEditUserForm(updated, bindingResult, attributes);
+
+        verifyZeroInteractions(userServiceMock);
+
+        String expectedView = createExpectedRedirectViewPath(UserController.REQUEST_MAPPING_EDIT + USER_ID);
+        assertEquals(expectedView, view);
+
+        assertErrorMessage(attributes, UserController.ERROR_MESSAGE_KEY_EDITED_USER_WAS_INVALID);
+    }
+
+    @Test
+    public void submitEditUserFormWithChangedVersion() {
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("/user/edit", "POST");
+        UserDTO updated = UserTestUtil.createDTO(USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
+        sign(updated);
+        updated.setVersion(Long.valueOf(updated.getVersion() + 1));
+
+        initMessageSourceForErrorMessage(UserController.ERROR_MESSAGE_KEY_EDITED_USER_WAS_INVALID);
+
+        BindingResult bindingResult = bindAndValidate(mockRequest, updated);
+        RedirectAttributes attributes = new RedirectAttributesModelMap();
+
+        String view = controller.submitEditUserForm(updated, bindingResult, attributes);
+
+        verifyZeroInteractions(userServiceMock);
+
+        String expectedView = createExpectedRedirectViewPath(UserController.REQUEST_MAPPING_EDIT + USER_ID);
+        assertEquals(expectedView, view);
+    }
+
     @Test
     public void submitEmptyEditUserForm() {
         MockHttpServletRequest mockRequest = new MockHttpServletRequest("/user/edit", "POST");
         UserDTO updated = UserTestUtil.createDTO(USER_ID, null, null);
+        sign(updated);
         
         BindingResult bindingResult = bindAndValidate(mockRequest, updated);
         RedirectAttributes attributes = new RedirectAttributesModelMap();
@@ -323,6 +540,7 @@ public class UserControllerTest extends AbstractTestController {
     public void submitEditUserFormWhenFirstNameIsEmpty() {
         MockHttpServletRequest mockRequest = new MockHttpServletRequest("/user/edit", "POST");
         UserDTO updated = UserTestUtil.createDTO(USER_ID, null, LAST_NAME_UPDATED);
+        sign(updated);
 
         BindingResult bindingResult = bindAndValidate(mockRequest, updated);
         RedirectAttributes attributes = new RedirectAttributesModelMap();
@@ -339,6 +557,7 @@ public class UserControllerTest extends AbstractTestController {
     public void submitEditUserFormWhenLastNameIsEmpty() {
         MockHttpServletRequest mockRequest = new MockHttpServletRequest("/user/edit", "POST");
         UserDTO updated = UserTestUtil.createDTO(USER_ID, FIRST_NAME_UPDATED, null);
+        sign(updated);
 
         BindingResult bindingResult = bindAndValidate(mockRequest, updated);
         RedirectAttributes attributes = new RedirectAttributesModelMap();
@@ -353,16 +572,22 @@ public class UserControllerTest extends AbstractTestController {
     
     @Test
     public void showList() {
-        List<User> users = new ArrayList<User>();
-        when(userServiceMock.findAll()).thenReturn(users);
+        PageDTO pageCriteria = new PageDTO();
+        List<UserRowDTO> users = new ArrayList<UserRowDTO>();
+        UserPageDTO page = new UserPageDTO(users, SortType.ID, true, true);
+        when(userServiceMock.findPage(pageCriteria)).thenReturn(page);
+        
+        when(userServiceMock.findListState()).thenReturn(new UserListStateDTO(0, null, null));
         
         Model model = new BindingAwareModelMap();
-        String view = controller.showList(model);
+        String view = controller.showList(pageCriteria, model, createWebRequest(new MockHttpServletRequest("GET", "/")));
         
-        verify(userServiceMock, times(1)).findAll();
+        verify(userServiceMock, times(1)).findListState();
+        verify(userServiceMock, times(1)).findPage(pageCriteria);
         verifyNoMoreInteractions(userServiceMock);
         
         assertEquals(UserController.USER_LIST_VIEW, view);
+        assertEquals(page, model.asMap().get(UserController.MODEL_ATTRIBUTE_USER_PAGE));
         assertEquals(users, model.asMap().get(UserController.MODEL_ATTRIBUTE_USERS));
 
         SearchDTO searchCriteria = (SearchDTO) model.asMap().get(UserController.MODEL_ATTRIBUTE_SEARCHCRITERIA);
@@ -370,4 +595,137 @@ public class UserControllerTest extends AbstractTestController {
         assertNull(searchCriteria.getSearchTerm());
         assertNull(searchCriteria.getSearchType());
     }
+
+    @Test
+    public void showListETagContainsBuild() throws IOException {
+        Properties build = new Properties();
+        InputStream in = getClass().getResourceAsStream("/build.properties");
+        try {
+            build.load(in);
+        } finally {
+            in.close();
+        }
+        when(userServiceMock.findListState()).thenReturn(new UserListStateDTO(2, 3L, new Date(1000)));
+
+        String etag = requestListETag();
+
+        assertTrue(etag.endsWith("-" + build.getProperty("build.version") + "-" + build.getProperty("build.timestamp") + "\""));
+        assertFalse(etag.contains("${"));
+    }
+
+    @Test
+    public void showListWhenNotModified() {
+        when(userServiceMock.findListState()).thenReturn(new UserListStateDTO(2, 3L, new Date(1000)));
+        String etag = requestListETag();
+
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", "/");
+        mockRequest.addHeader(HEADER_IF_NONE_MATCH, etag);
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+
+        String view = controller.showList(new PageDTO(), new BindingAwareModelMap(), new ServletWebRequest(mockRequest, mockResponse));
+
+        verify(userServiceMock, times(2)).findListState();
+        verify(userServiceMock, times(1)).findPage(any(PageDTO.class));
+        verifyNoMoreInteractions(userServiceMock);
+
+        assertNull(view);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, mockResponse.getStatus());
+        assertEquals("no-cache", mockResponse.getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void showListWhenModified() {
+        when(userServiceMock.findListState()).thenReturn(new UserListStateDTO(2, 3L, new Date(1000)));
+        String etag = requestListETag();
+        when(userServiceMock.findListState()).thenReturn(new UserListStateDTO(1, 3L, new Date(1000)));
+
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", "/");
+        mockRequest.addHeader(HEADER_IF_NONE_MATCH, etag);
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+
+        String view = controller.showList(new PageDTO(), new BindingAwareModelMap(), new ServletWebRequest(mockRequest, mockResponse));
+
+        assertEquals(UserController.USER_LIST_VIEW, view);
+        assertEquals(HttpServletResponse.SC_OK, mockResponse.getStatus());
+        assertFalse(etag.equals(mockResponse.getHeader(HEADER_ETAG)));
+    }
+
+    @Test
+    public void showListWhenUpdatedWithOlderModificationTime() {
+        when(userServiceMock.findListState()).thenReturn(new UserListStateDTO(2, 3L, new Date(1000)));
+        String etag = requestListETag();
+        when(userServiceMock.findListState()).thenReturn(new UserListStateDTO(2, 4L, new Date(1000)));
+
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", "/");
+        mockRequest.addHeader(HEADER_IF_NONE_MATCH, etag);
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+
+        String view = controller.showList(new PageDTO(), new BindingAwareModelMap(), new ServletWebRequest(mockRequest, mockResponse));
+
+        assertEquals(UserController.USER_LIST_VIEW, view);
+        assertEquals(HttpServletResponse.SC_OK, mockResponse.getStatus());
+    }
+
+    @Test
+    public void showListWithFlashAttributes() {
+        when(userServiceMock.findListState()).thenReturn(new UserListStateDTO(2, 3L, new Date(1000)));
+        String etag = requestListETag();
+
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", "/");
+        mockRequest.addHeader(HEADER_IF_NONE_MATCH, etag);
+        mockRequest.setAttribute(FlashMapManager.INPUT_FLASH_MAP_ATTRIBUTE, new FlashMap());
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+
+        String view = controller.showList(new PageDTO(), new BindingAwareModelMap(), new ServletWebRequest(mockRequest, mockResponse));
+
+        assertEquals(UserController.USER_LIST_VIEW, view);
+        assertEquals(HttpServletResponse.SC_OK, mockResponse.getStatus());
+    }
+
+    @Test
+    public void showEditUserFormWhenNotModified() {
+        User user = UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME);
+        when(userServiceMock.findById(USER_ID)).thenReturn(user);
+        when(userServiceMock.findVersion(USER_ID)).thenReturn(user.getVersion());
+
+        MockHttpServletRequest firstRequest = new MockHttpServletRequest("GET", "/user/edit/" + USER_ID);
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        controller.showEditUserForm(USER_ID, new BindingAwareModelMap(), new RedirectAttributesModelMap(), new ServletWebRequest(firstRequest, firstResponse));
+        String etag = firstResponse.getHeader(HEADER_ETAG);
+
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", "/user/edit/" + USER_ID);
+        mockRequest.addHeader(HEADER_IF_NONE_MATCH, etag);
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+
+        String view = controller.showEditUserForm(USER_ID, new BindingAwareModelMap(), new RedirectAttributesModelMap(), new ServletWebRequest(mockRequest, mockResponse));
+
+        verify(userServiceMock, times(2)).findVersion(USER_ID);
+        verify(userServiceMock, times(1)).findById(USER_ID);
+        verifyNoMoreInteractions(userServiceMock);
+
+        assertNull(view);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, mockResponse.getStatus());
+    }
+
+    private String requestListETag() {
+        UserPageDTO page = new UserPageDTO(new ArrayList<UserRowDTO>(), SortType.ID, true, true);
+        when(userServiceMock.findPage(any(PageDTO.class))).thenReturn(page);
+
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+        controller.showList(new PageDTO(), new BindingAwareModelMap(), new ServletWebRequest(new MockHttpServletRequest("GET", "/"), mockResponse));
+        String etag = (String) mockResponse.getHeader(HEADER_ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+
+    private void sign(UserDTO user) {
+        if (user.getVersion() == null) {
+            user.setVersion(Long.valueOf(0));
+        }
+        user.setSignature(signer.sign("user-" + user.getId() + "-" + user.getVersion()));
+    }
+
+    private ServletWebRequest createWebRequest(MockHttpServletRequest mockRequest) {
+        return new ServletWebRequest(mockRequest, new MockHttpServletResponse());
+    }
 }
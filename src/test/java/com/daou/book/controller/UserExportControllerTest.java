@@ -0,0 +1,55 @@
+package com.daou.book.controller;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.daou.book.dto.ExportFormat;
+import com.daou.book.service.UserService;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class UserExportControllerTest {
+
+    private UserExportController controller;
+
+    private UserService userServiceMock;
+
+    @Before
+    public void setUp() {
+        controller = new UserExportController();
+
+        userServiceMock = mock(UserService.class);
+        controller.setUserService(userServiceMock);
+    }
+
+    @Test
+    public void exportCsv() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.export(ExportFormat.CSV, response);
+
+        verify(userServiceMock, times(1)).export(eq(ExportFormat.CSV), any(Writer.class));
+        verifyNoMoreInteractions(userServiceMock);
+
+        assertEquals("text/csv", response.getContentType());
+        assertEquals(UserExportController.CHARACTER_ENCODING, response.getCharacterEncoding());
+        assertEquals("attachment; filename=users.csv", response.getHeader(UserExportController.HEADER_CONTENT_DISPOSITION));
+    }
+
+    @Test
+    public void exportNdjson() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.export(ExportFormat.NDJSON, response);
+
+        verify(userServiceMock, times(1)).export(eq(ExportFormat.NDJSON), any(Writer.class));
+        verifyNoMoreInteractions(userServiceMock);
+
+        assertEquals("attachment; filename=users.ndjson", response.getHeader(UserExportController.HEADER_CONTENT_DISPOSITION));
+    }
+}
@@ -0,0 +1,60 @@
+package com.daou.book.controller;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.daou.book.domain.UserTestUtil;
+import com.daou.book.dto.ImportResultDTO;
+import com.daou.book.dto.UserDTO;
+import com.daou.book.service.UserImportService;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class UserImportControllerTest {
+
+    private UserImportController controller;
+
+    private UserImportService userImportServiceMock;
+
+    @Before
+    public void setUp() {
+        controller = new UserImportController();
+
+        userImportServiceMock = mock(UserImportService.class);
+        controller.setUserImportService(userImportServiceMock);
+    }
+
+    @Test
+    public void importUsers() {
+        UserDTO[] users = {UserTestUtil.createDTO(null, "Foo", "Bar")};
+        ImportResultDTO expected = new ImportResultDTO();
+        when(userImportServiceMock.importUsers(Arrays.asList(users))).thenReturn(expected);
+
+        ImportResultDTO actual = controller.importUsers(users);
+
+        verify(userImportServiceMock, times(1)).importUsers(Arrays.asList(users));
+        verifyNoMoreInteractions(userImportServiceMock);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void importFile() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "users.csv", "text/csv", "first_name,last_name\nFoo,Bar\n".getBytes("UTF-8"));
+        ImportResultDTO expected = new ImportResultDTO();
+        when(userImportServiceMock.importCsv(any(Reader.class))).thenReturn(expected);
+
+        ImportResultDTO actual = controller.importFile(file);
+
+        verify(userImportServiceMock, times(1)).importCsv(any(Reader.class));
+        verifyNoMoreInteractions(userImportServiceMock);
+
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,89 @@
+package com.daou.book.datasource;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.fail;
+
+public class MonitoredBoneCPDataSourceTest {
+
+    private static final String URL = "jdbc:h2:mem:monitored-pool";
+    private static final String UNKNOWN_DATABASE_URL = "jdbc:h2:file:/nonexistent/monitored-pool;IFEXISTS=TRUE";
+
+    private static final String QUERY = "SELECT 1";
+
+    private MonitoredBoneCPDataSource dataSource;
+
+    @After
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void statisticsBeforeFirstConnection() {
+        dataSource = createDataSource(URL);
+
+        assertNull(dataSource.getStatistics());
+        assertEquals(0, dataSource.getAcquireFailures());
+    }
+
+    @Test
+    public void statementCacheHits() throws SQLException {
+        dataSource = createDataSource(URL);
+
+        executeQuery();
+        executeQuery();
+
+        assertEquals(1, dataSource.getStatistics().getCacheMiss());
+        assertEquals(1, dataSource.getStatistics().getCacheHits());
+        assertEquals(2, dataSource.getStatistics().getConnectionsRequested());
+        assertEquals(0, dataSource.getStatistics().getTotalLeased());
+    }
+
+    @Test
+    public void acquireFailures() {
+        dataSource = createDataSource(UNKNOWN_DATABASE_URL);
+
+        try {
+            dataSource.getConnection();
+            fail();
+        } catch (SQLException e) {
+            assertEquals(1, dataSource.getAcquireFailures());
+        }
+    }
+
+    private MonitoredBoneCPDataSource createDataSource(String url) {
+        MonitoredBoneCPDataSource dataSource = new MonitoredBoneCPDataSource();
+        dataSource.setDriverClass("org.h2.Driver");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        dataSource.setPartitionCount(1);
+        dataSource.setMinConnectionsPerPartition(1);
+        dataSource.setMaxConnectionsPerPartition(1);
+        dataSource.setAcquireRetryAttempts(0);
+        dataSource.setReleaseHelperThreads(0);
+        dataSource.setStatementReleaseHelperThreads(0);
+        dataSource.setStatementsCacheSize(10);
+        dataSource.setStatisticsEnabled(true);
+        dataSource.setDisableJMX(true);
+        return dataSource;
+    }
+
+    private void executeQuery() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            PreparedStatement statement = connection.prepareStatement(QUERY);
+            statement.executeQuery().close();
+            statement.close();
+        } finally {
+            connection.close();
+        }
+    }
+}
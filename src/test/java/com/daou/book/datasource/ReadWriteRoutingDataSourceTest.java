@@ -0,0 +1,125 @@
+package com.daou.book.datasource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReadWriteRoutingDataSourceTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private static final long RETRY_INTERVAL_MILLIS = 60000;
+
+    private DataSource primary;
+
+    private DataSource replica;
+
+    @Before
+    public void setUp() {
+        primary = createDatabase(PRIMARY_URL, PRIMARY);
+        replica = createDatabase(REPLICA_URL, REPLICA);
+    }
+
+    @Test
+    public void readOnlyTransactionUsesReplica() {
+        DataSource dataSource = createDataSource(primary, replica);
+
+        assertEquals(REPLICA, findDatabaseName(dataSource, true));
+    }
+
+    @Test
+    public void readWriteTransactionUsesPrimary() {
+        DataSource dataSource = createDataSource(primary, replica);
+
+        assertEquals(PRIMARY, findDatabaseName(dataSource, false));
+    }
+
+    @Test
+    public void withoutTransactionUsesPrimary() {
+        DataSource dataSource = createDataSource(primary, replica);
+
+        assertEquals(PRIMARY, new JdbcTemplate(dataSource).queryForObject("SELECT name FROM database_name", String.class));
+    }
+
+    @Test
+    public void readOnlyTransactionFallsBackToPrimaryWhenReplicaIsDown() throws SQLException {
+        DataSource replicaMock = mock(DataSource.class);
+        when(replicaMock.getConnection()).thenThrow(new SQLException());
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, replicaMock, RETRY_INTERVAL_MILLIS);
+        routingDataSource.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        assertEquals(PRIMARY, findDatabaseName(dataSource, true));
+        assertFalse(routingDataSource.isReplicaAvailable());
+
+        assertEquals(PRIMARY, findDatabaseName(dataSource, true));
+        verify(replicaMock, times(1)).getConnection();
+    }
+
+    @Test
+    public void replicaIsRetriedAfterRetryInterval() throws SQLException {
+        DataSource replicaMock = mock(DataSource.class);
+        when(replicaMock.getConnection()).thenThrow(new SQLException());
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, replicaMock, 0);
+        routingDataSource.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        findDatabaseName(dataSource, true);
+        assertTrue(routingDataSource.isReplicaAvailable());
+
+        findDatabaseName(dataSource, true);
+        verify(replicaMock, times(2)).getConnection();
+    }
+
+    private DataSource createDatabase(String url, String name) {
+        DataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS database_name");
+        jdbcTemplate.execute("CREATE TABLE database_name (name VARCHAR(10))");
+        jdbcTemplate.update("INSERT INTO database_name VALUES (?)", name);
+
+        return dataSource;
+    }
+
+    private DataSource createDataSource(DataSource primary, DataSource replica) {
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, replica, RETRY_INTERVAL_MILLIS);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private String findDatabaseName(DataSource dataSource, boolean readOnly) {
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+
+        return transactionTemplate.execute(new TransactionCallback<String>() {
+            @Override
+            public String doInTransaction(TransactionStatus status) {
+                return jdbcTemplate.queryForObject("SELECT name FROM database_name", String.class);
+            }
+        });
+    }
+}
@@ -61,6 +61,7 @@ public class UserTest {
         assertNotNull(creationTime);
         assertNotNull(modificationTime);
         assertEquals(creationTime, modificationTime);
+        assertEquals("bar", built.getLastNameKey());
     }
     
     @Test
@@ -92,4 +93,21 @@ public class UserTest {
         assertEquals(FIRST_NAME_UPDATED, built.getFirstName());
         assertEquals(LAST_NAME_UPDATED, built.getLastName());
     }
+
+    @Test
+    public void preUpdateWhenLastNameIsUpdated() {
+        User built = User.getBuilder(FIRST_NAME, LAST_NAME).build();
+        built.prePersist();
+
+        built.update(FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
+        built.preUpdate();
+
+        assertEquals("bar1", built.getLastNameKey());
+    }
+
+    @Test
+    public void toLastNameKey() {
+        assertEquals("bar", User.toLastNameKey(" BaR "));
+        assertNull(User.toLastNameKey(null));
+    }
 }
@@ -0,0 +1,48 @@
+package com.daou.book.metrics;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void getBucketIndexWhenValueIsSmall() {
+        for (long value = 0; value < LatencyHistogram.SUB_BUCKET_COUNT; value++) {
+            int index = LatencyHistogram.getBucketIndex(value);
+            assertEquals(value, index);
+            assertEquals(value, LatencyHistogram.getHighestValue(index));
+        }
+    }
+
+    @Test
+    public void getHighestValueIsWithinRelativeError() {
+        for (long value = LatencyHistogram.SUB_BUCKET_COUNT; value < LatencyHistogram.MAX_VALUE; value = value * 3 / 2 + 7) {
+            long highest = LatencyHistogram.getHighestValue(LatencyHistogram.getBucketIndex(value));
+
+            assertTrue(highest >= value);
+            assertTrue((highest - value) <= value / LatencyHistogram.SUB_BUCKET_COUNT);
+        }
+    }
+
+    @Test
+    public void getBucketIndexWhenValueIsMaximum() {
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.getBucketIndex(LatencyHistogram.MAX_VALUE));
+        assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.getHighestValue(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void recordWhenValueIsOutOfRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+
+        long[] buckets = new long[LatencyHistogram.BUCKET_COUNT];
+        long max = histogram.addTo(buckets);
+
+        assertEquals(LatencyHistogram.MAX_VALUE, max);
+        assertEquals(1, buckets[0]);
+        assertEquals(1, buckets[LatencyHistogram.BUCKET_COUNT - 1]);
+    }
+}
@@ -0,0 +1,73 @@
+package com.daou.book.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+
+public class LatencyRecorderTest {
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    public void snapshotShowsPreviousWindow() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder(WINDOW_NANOS);
+        recorder.record(1000);
+
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(WINDOW_NANOS) + 10);
+        recorder.record(10);
+
+        LatencySnapshot snapshot = recorder.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(10, snapshot.getQuantile(0.5));
+    }
+
+    @Test
+    public void snapshotDropsOldWindows() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder(WINDOW_NANOS);
+        recorder.record(1000);
+
+        Thread.sleep(2 * TimeUnit.NANOSECONDS.toMillis(WINDOW_NANOS) + 10);
+
+        LatencySnapshot snapshot = recorder.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertEquals(1000, snapshot.getSum());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0, snapshot.getQuantile(0.99));
+    }
+
+    @Test
+    public void recordFromManyThreads() throws InterruptedException {
+        final LatencyRecorder recorder = new LatencyRecorder(TimeUnit.MINUTES.toNanos(1));
+        Thread[] threads = new Thread[LatencyRecorder.STRIPE_COUNT * 4];
+        for (int index = 0; index < threads.length; index++) {
+            final long value = index + 1;
+            threads[index] = new Thread() {
+                @Override
+                public void run() {
+                    for (int count = 0; count < 100; count++) {
+                        recorder.record(value);
+                    }
+                }
+            };
+            threads[index].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencySnapshot snapshot = recorder.snapshot();
+        assertEquals(threads.length * 100, snapshot.getCount());
+        assertEquals(threads.length, snapshot.getMax());
+        assertEquals(threads.length, snapshot.getQuantile(1));
+    }
+
+    @Test
+    public void getStripeCount() {
+        assertEquals(1, LatencyRecorder.getStripeCount(1));
+        assertEquals(8, LatencyRecorder.getStripeCount(6));
+        assertEquals(16, LatencyRecorder.getStripeCount(64));
+    }
+}
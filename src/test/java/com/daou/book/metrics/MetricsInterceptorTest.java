@@ -0,0 +1,53 @@
+package com.daou.book.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import com.daou.book.controller.AdminController;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class MetricsInterceptorTest {
+
+    private MetricsInterceptor interceptor;
+
+    private MetricsRegistry metricsRegistryMock;
+
+    @Before
+    public void setUp() {
+        interceptor = new MetricsInterceptor();
+
+        metricsRegistryMock = mock(MetricsRegistry.class);
+        interceptor.setMetricsRegistry(metricsRegistryMock);
+    }
+
+    @Test
+    public void afterCompletion() throws NoSuchMethodException {
+        HandlerMethod handler = new HandlerMethod(new AdminController(), "showCacheStatistics");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, handler);
+        interceptor.afterCompletion(request, response, handler, null);
+
+        verify(metricsRegistryMock, times(1)).record(eq("http.AdminController.showCacheStatistics"), anyLong());
+        verifyNoMoreInteractions(metricsRegistryMock);
+    }
+
+    @Test
+    public void afterCompletionWhenHandlerIsNotHandlerMethod() {
+        Object handler = new Object();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, handler);
+        interceptor.afterCompletion(request, response, handler, null);
+
+        verifyZeroInteractions(metricsRegistryMock);
+    }
+}
@@ -0,0 +1,76 @@
+package com.daou.book.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.SortedMap;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class MetricsRegistryTest {
+
+    private static final String NAME = "service.UserService.findById";
+
+    private MetricsRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    public void getSnapshots() {
+        for (long value = 1; value <= 1000; value++) {
+            registry.record(NAME, value * 1000);
+        }
+
+        SortedMap<String, LatencySnapshot> snapshots = registry.getSnapshots();
+
+        assertEquals(1, snapshots.size());
+        LatencySnapshot snapshot = snapshots.get(NAME);
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000000, snapshot.getMax());
+        assertEquals(500500000, snapshot.getSum());
+        assertWithinRelativeError(500000, snapshot.getQuantile(0.5));
+        assertWithinRelativeError(990000, snapshot.getQuantile(0.99));
+        assertWithinRelativeError(999000, snapshot.getQuantile(0.999));
+        assertEquals(1000000, snapshot.getQuantile(1));
+    }
+
+    @Test
+    public void getSnapshotsMergesThreads() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int index = 0; index < threads.length; index++) {
+            threads[index] = new Thread() {
+                @Override
+                public void run() {
+                    for (int count = 0; count < 1000; count++) {
+                        registry.record(NAME, 100);
+                    }
+                }
+            };
+            threads[index].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencySnapshot snapshot = registry.getSnapshots().get(NAME);
+
+        assertEquals(4000, snapshot.getCount());
+        assertEquals(100, snapshot.getMax());
+    }
+
+    @Test
+    public void getQuantileWhenNothingIsRecorded() {
+        LatencySnapshot snapshot = new LatencySnapshot(new long[LatencyHistogram.BUCKET_COUNT], 0, 0, 0);
+
+        assertEquals(0, snapshot.getQuantile(0.99));
+    }
+
+    private void assertWithinRelativeError(long expected, long actual) {
+        assertTrue("Expected " + expected + " but was " + actual, actual >= expected);
+        assertTrue("Expected " + expected + " but was " + actual, actual - expected <= expected / LatencyHistogram.SUB_BUCKET_COUNT);
+    }
+}
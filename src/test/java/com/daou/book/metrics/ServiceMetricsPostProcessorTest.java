@@ -0,0 +1,52 @@
+package com.daou.book.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.daou.book.service.UserService;
+
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ServiceMetricsPostProcessorTest {
+
+    private static final Long USER_ID = Long.valueOf(5);
+
+    private ServiceMetricsPostProcessor postProcessor;
+
+    private MetricsRegistry metricsRegistryMock;
+
+    @Before
+    public void setUp() {
+        postProcessor = new ServiceMetricsPostProcessor();
+
+        metricsRegistryMock = mock(MetricsRegistry.class);
+        postProcessor.setMetricsRegistry(metricsRegistryMock);
+    }
+
+    @Test
+    public void postProcessAfterInitialization() {
+        UserService userServiceMock = mock(UserService.class);
+
+        Object processed = postProcessor.postProcessAfterInitialization(userServiceMock, "userService");
+
+        assertTrue(processed instanceof UserService);
+        assertNull(((UserService) processed).findById(USER_ID));
+
+        verify(userServiceMock, times(1)).findById(USER_ID);
+        verifyNoMoreInteractions(userServiceMock);
+        verify(metricsRegistryMock, times(1)).record(eq("service.UserService.findById"), anyLong());
+        verifyNoMoreInteractions(metricsRegistryMock);
+    }
+
+    @Test
+    public void postProcessAfterInitializationWhenBeanIsNotService() {
+        Object bean = new Object();
+
+        assertSame(bean, postProcessor.postProcessAfterInitialization(bean, "bean"));
+    }
+}
@@ -0,0 +1,194 @@
+package com.daou.book.repository;
+
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.daou.book.context.CachingPersistenceTestContext;
+import com.daou.book.domain.User;
+import com.daou.book.dto.UserRowDTO;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * The caches are shared by the transactions, so every step runs in its own
+ * transaction and the users are deleted after each test.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = CachingPersistenceTestContext.class)
+public class UserRepositoryCacheTest {
+
+    private static final String FIRST_NAME = "Foo";
+    private static final String LAST_NAME = "Bar";
+
+    @Resource
+    private UserRepository userRepository;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        statistics = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getStatistics();
+    }
+
+    @After
+    public void tearDown() {
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                userRepository.deleteAll();
+            }
+        });
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    public void findOneIsCached() {
+        Long id = save(LAST_NAME).getId();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        findOne(id);
+        findOne(id);
+
+        SecondLevelCacheStatistics userStatistics = statistics.getSecondLevelCacheStatistics(User.class.getName());
+        assertEquals(1, userStatistics.getMissCount());
+        assertEquals(1, userStatistics.getPutCount());
+        assertEquals(1, userStatistics.getHitCount());
+        assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void findOneAfterUpdateIsCached() {
+        final Long id = save(LAST_NAME).getId();
+        findOne(id);
+        statistics.clear();
+
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                userRepository.findOne(id).update(FIRST_NAME, "Baz");
+            }
+        });
+        User found = findOne(id);
+
+        assertEquals("Baz", found.getLastName());
+        SecondLevelCacheStatistics userStatistics = statistics.getSecondLevelCacheStatistics(User.class.getName());
+        assertEquals(2, userStatistics.getHitCount());
+        assertEquals(0, userStatistics.getMissCount());
+    }
+
+    @Test
+    public void findIsCached() {
+        save(LAST_NAME);
+        statistics.clear();
+
+        assertEquals(1, find(LAST_NAME).size());
+        assertEquals(1, find(LAST_NAME).size());
+
+        assertEquals(1, statistics.getQueryCacheMissCount());
+        assertEquals(1, statistics.getQueryCachePutCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void findByNameIsCached() {
+        save(LAST_NAME);
+        statistics.clear();
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(1, new TransactionTemplate(transactionManager).execute(new TransactionCallback<List<UserRowDTO>>() {
+                @Override
+                public List<UserRowDTO> doInTransaction(TransactionStatus status) {
+                    return userRepository.findByName(User.toLastNameKey(LAST_NAME));
+                }
+            }).size());
+        }
+
+        assertEquals(1, statistics.getQueryCachePutCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    public void findByLastNameIsCached() {
+        save(LAST_NAME);
+        statistics.clear();
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(1, new TransactionTemplate(transactionManager).execute(new TransactionCallback<List<UserRowDTO>>() {
+                @Override
+                public List<UserRowDTO> doInTransaction(TransactionStatus status) {
+                    return userRepository.findByLastName(User.toLastNameKey(LAST_NAME), LAST_NAME);
+                }
+            }).size());
+        }
+
+        assertEquals(1, statistics.getQueryCachePutCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    public void findAfterInsertIsNotServedFromCache() {
+        save(LAST_NAME);
+        find(LAST_NAME);
+        statistics.clear();
+
+        save(LAST_NAME);
+
+        assertEquals(2, find(LAST_NAME).size());
+        assertEquals(0, statistics.getQueryCacheHitCount());
+        assertEquals(1, statistics.getQueryCacheMissCount());
+        assertEquals(1, statistics.getQueryCachePutCount());
+    }
+
+    private User save(final String lastName) {
+        return new TransactionTemplate(transactionManager).execute(new TransactionCallback<User>() {
+            @Override
+            public User doInTransaction(TransactionStatus status) {
+                return userRepository.save(User.getBuilder(FIRST_NAME, lastName).build());
+            }
+        });
+    }
+
+    private User findOne(final Long id) {
+        return new TransactionTemplate(transactionManager).execute(new TransactionCallback<User>() {
+            @Override
+            public User doInTransaction(TransactionStatus status) {
+                return userRepository.findOne(id);
+            }
+        });
+    }
+
+    private List<UserRowDTO> find(final String lastName) {
+        return new TransactionTemplate(transactionManager).execute(new TransactionCallback<List<UserRowDTO>>() {
+            @Override
+            public List<UserRowDTO> doInTransaction(TransactionStatus status) {
+                return userRepository.find(User.toLastNameKey(lastName));
+            }
+        });
+    }
+}
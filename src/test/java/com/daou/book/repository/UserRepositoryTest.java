@@ -0,0 +1,317 @@
+package com.daou.book.repository;
+
+import org.hibernate.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.daou.book.context.PersistenceTestContext;
+import com.daou.book.context.StatementCapturingInterceptor;
+import com.daou.book.domain.User;
+import com.daou.book.dto.UserDeltaDTO;
+import com.daou.book.dto.UserListStateDTO;
+import com.daou.book.dto.UserRowDTO;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = PersistenceTestContext.class)
+@Transactional
+public class UserRepositoryTest {
+
+    private static final String FIRST_NAME = "Foo";
+    private static final String LAST_NAME = "Bar";
+
+    private static final String INDEX_LAST_NAME_ID = "IX_USERS_LAST_NAME_ID";
+    private static final String INDEX_LAST_NAME_KEY = "IX_USERS_LAST_NAME_KEY";
+    private static final String INDEX_MODIFICATION_TIME_ID = "IX_USERS_MODIFICATION_TIME_ID";
+
+    @Resource
+    private UserRepository userRepository;
+
+    @Resource
+    private DataSource dataSource;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    public void findIgnoresCase() {
+        userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+
+        assertEquals(1, userRepository.find(User.toLastNameKey("BAR")).size());
+        assertEquals(1, userRepository.findByName(User.toLastNameKey("bar")).size());
+    }
+
+    @Test
+    public void findByLastNameIsCaseSensitive() {
+        userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+
+        assertEquals(1, userRepository.findByLastName(User.toLastNameKey(LAST_NAME), LAST_NAME).size());
+        assertEquals(0, userRepository.findByLastName(User.toLastNameKey("bar"), "bar").size());
+    }
+
+    @Test
+    public void findWhenLastNameIsUpdated() {
+        User user = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+
+        user.update(FIRST_NAME, "Baz");
+        userRepository.flush();
+
+        assertEquals(0, userRepository.find(User.toLastNameKey(LAST_NAME)).size());
+        assertEquals(1, userRepository.find(User.toLastNameKey("baz")).size());
+    }
+
+    @Test
+    public void findFirstPageOrderByIdReturnsUnmanagedRows() {
+        User user = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+        entityManager.clear();
+
+        List<UserRowDTO> rows = userRepository.findFirstPageOrderById(new PageRequest(0, 10));
+
+        assertEquals(1, rows.size());
+        assertEquals(user.getId(), rows.get(0).getId());
+        assertEquals(FIRST_NAME, rows.get(0).getFirstName());
+        assertEquals(LAST_NAME, rows.get(0).getLastName());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    public void updateIncrementsVersion() {
+        User user = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+        long version = user.getVersion();
+        Date modificationTime = new Date();
+
+        int updated = userRepository.update(user.getId(), version, FIRST_NAME, "Baz", User.toLastNameKey("Baz"), modificationTime);
+
+        assertEquals(1, updated);
+        User found = userRepository.findOne(user.getId());
+        assertEquals("Baz", found.getLastName());
+        assertEquals(version + 1, found.getVersion());
+        assertEquals(1, userRepository.find(User.toLastNameKey("baz")).size());
+    }
+
+    @Test
+    public void updateWhenVersionIsStale() {
+        User user = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+        long version = user.getVersion();
+
+        assertEquals(1, userRepository.update(user.getId(), version, FIRST_NAME, "Baz", User.toLastNameKey("Baz"), new Date()));
+        assertEquals(0, userRepository.update(user.getId(), version, FIRST_NAME, "Qux", User.toLastNameKey("Qux"), new Date()));
+        assertEquals("Baz", userRepository.findOne(user.getId()).getLastName());
+    }
+
+    @Test
+    public void deleteById() {
+        User user = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+
+        assertEquals(1, userRepository.deleteById(user.getId()));
+        assertEquals(0, userRepository.deleteById(user.getId()));
+        assertFalse(userRepository.exists(user.getId()));
+    }
+
+    @Test
+    public void deleteByIds() {
+        User first = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        User second = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+
+        List<Long> ids = Arrays.asList(first.getId(), second.getId(), second.getId() + 1);
+
+        assertEquals(2, userRepository.findIds(ids).size());
+        assertEquals(2, userRepository.deleteByIds(ids));
+        assertEquals(0, userRepository.findIds(ids).size());
+    }
+
+    @Test
+    public void lockRowsByIds() {
+        User user = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+        StatementCapturingInterceptor.clear();
+
+        List<UserRowDTO> rows = userRepository.lockRowsByIds(Arrays.asList(user.getId(), user.getId() + 1));
+
+        assertEquals(1, rows.size());
+        assertEquals(user.getId(), rows.get(0).getId());
+        assertEquals(Long.valueOf(user.getVersion()), rows.get(0).getVersion());
+
+        List<String> statements = StatementCapturingInterceptor.getStatements();
+        assertEquals(statements.toString(), 1, statements.size());
+        assertTrue(statements.get(0), statements.get(0).toLowerCase().endsWith(" for update"));
+    }
+
+    @Test
+    public void updateNames() {
+        User first = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        User second = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+        long version = first.getVersion();
+
+        int updated = userRepository.updateNames(Arrays.asList(first.getId()), null, "Baz", new Date());
+
+        assertEquals(1, updated);
+        User found = userRepository.findOne(first.getId());
+        assertEquals(FIRST_NAME, found.getFirstName());
+        assertEquals("Baz", found.getLastName());
+        assertEquals(version + 1, found.getVersion());
+        assertEquals(LAST_NAME, userRepository.findOne(second.getId()).getLastName());
+        assertEquals(1, userRepository.find(User.toLastNameKey("baz")).size());
+
+        UserRowDTO row = userRepository.findRowsByIds(Arrays.asList(first.getId())).get(0);
+        assertEquals("Baz", row.getLastName());
+        assertEquals(Long.valueOf(version + 1), row.getVersion());
+    }
+
+    @Test
+    public void findListState() {
+        assertEquals(0, userRepository.findListState().getCount());
+        assertEquals(0, userRepository.findListState().getVersionSum());
+        assertNull(userRepository.findListState().getLastModified());
+
+        User user = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+
+        UserListStateDTO state = userRepository.findListState();
+        assertEquals(1, state.getCount());
+        assertEquals(user.getVersion(), state.getVersionSum());
+        assertEquals(user.getModificationTime().getTime(), state.getLastModified().getTime());
+    }
+
+    @Test
+    public void findListStateWhenUpdatedWithOlderModificationTime() {
+        User user = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+        UserListStateDTO before = userRepository.findListState();
+
+        userRepository.update(user.getId(), user.getVersion(), FIRST_NAME, "Baz", User.toLastNameKey("Baz"), new Date(0L));
+
+        UserListStateDTO after = userRepository.findListState();
+        assertEquals(before.getCount(), after.getCount());
+        assertEquals(before.getLastModified().getTime(), after.getLastModified().getTime());
+        assertEquals(before.getVersionSum() + 1, after.getVersionSum());
+    }
+
+    @Test
+    public void findVersion() {
+        User user = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+
+        assertEquals(Long.valueOf(user.getVersion()), userRepository.findVersion(user.getId()));
+        assertNull(userRepository.findVersion(user.getId() + 1));
+    }
+
+    @Test
+    public void findUsesLastNameKeyIndex() {
+        StatementCapturingInterceptor.clear();
+        userRepository.find(User.toLastNameKey(LAST_NAME));
+
+        assertUsesIndex(INDEX_LAST_NAME_KEY, User.toLastNameKey(LAST_NAME));
+    }
+
+    @Test
+    public void findByNameUsesLastNameKeyIndex() {
+        StatementCapturingInterceptor.clear();
+        userRepository.findByName(User.toLastNameKey(LAST_NAME));
+
+        assertUsesIndex(INDEX_LAST_NAME_KEY, User.toLastNameKey(LAST_NAME));
+    }
+
+    /*
+     * H2 prefers the exact last name index, both lookups avoid a table scan.
+     */
+    @Test
+    public void findByLastNameUsesLastNameIndex() {
+        StatementCapturingInterceptor.clear();
+        userRepository.findByLastName(User.toLastNameKey(LAST_NAME), LAST_NAME);
+
+        assertUsesIndex(INDEX_LAST_NAME_ID, User.toLastNameKey(LAST_NAME), LAST_NAME);
+    }
+
+    @Test
+    public void findModifiedAfter() {
+        Date first = new Date(1000000L);
+        Date second = new Date(2000000L);
+        User early = saveModifiedAt(second);
+        User late = saveModifiedAt(second);
+        User earliest = saveModifiedAt(first);
+        Date until = new Date(3000000L);
+
+        List<UserDeltaDTO> all = userRepository.findModifiedAfter(new Date(0L), 0L, until, new PageRequest(0, 10));
+        List<UserDeltaDTO> afterCursor = userRepository.findModifiedAfter(second, early.getId(), until, new PageRequest(0, 10));
+        List<UserDeltaDTO> limited = userRepository.findModifiedAfter(first, earliest.getId(), until, new PageRequest(0, 1));
+
+        assertDeltaIds(all, earliest.getId(), early.getId(), late.getId());
+        assertEquals(first.getTime(), all.get(0).getModificationTime().getTime());
+        assertEquals(earliest.getVersion() + 1, all.get(0).getVersion());
+        assertDeltaIds(afterCursor, late.getId());
+        assertDeltaIds(limited, early.getId());
+    }
+
+    @Test
+    public void findModifiedAfterLeavesRowsFromUntil() {
+        Date time = new Date(1000000L);
+        saveModifiedAt(time);
+
+        assertTrue(userRepository.findModifiedAfter(new Date(0L), 0L, time, new PageRequest(0, 10)).isEmpty());
+    }
+
+    @Test
+    public void deltaQueryUsesModificationTimeIndex() {
+        Date time = new Date(0L);
+        Date until = new Date();
+        StatementCapturingInterceptor.clear();
+        userRepository.findModifiedAfter(time, 0L, until, new PageRequest(0, 10));
+
+        // The time is compared twice, the page size is bound last
+        assertUsesIndex(INDEX_MODIFICATION_TIME_ID, time, time, 0L, until, 10);
+    }
+
+    /*
+     * Explains the statement Hibernate generated for the last query, with the
+     * same parameters.
+     */
+    private void assertUsesIndex(String index, Object... parameters) {
+        List<String> statements = StatementCapturingInterceptor.getStatements();
+        assertEquals(statements.toString(), 1, statements.size());
+
+        List<String> plan = new JdbcTemplate(dataSource).queryForList("EXPLAIN " + statements.get(0), String.class, parameters);
+
+        assertTrue(plan.toString(), plan.get(0).toUpperCase().contains(index));
+    }
+
+    private User saveModifiedAt(Date modificationTime) {
+        User user = userRepository.save(User.getBuilder(FIRST_NAME, LAST_NAME).build());
+        userRepository.flush();
+        userRepository.update(user.getId(), user.getVersion(), FIRST_NAME, LAST_NAME, User.toLastNameKey(LAST_NAME), modificationTime);
+        return user;
+    }
+
+    private void assertDeltaIds(List<UserDeltaDTO> users, Long... ids) {
+        assertEquals(ids.length, users.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], users.get(i).getId());
+        }
+    }
+}
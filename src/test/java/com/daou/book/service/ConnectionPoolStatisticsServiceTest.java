@@ -0,0 +1,65 @@
+package com.daou.book.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.daou.book.datasource.MonitoredBoneCPDataSource;
+import com.daou.book.datasource.ReadWriteRoutingDataSource;
+import com.daou.book.dto.ConnectionPoolStatisticsDTO;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConnectionPoolStatisticsServiceTest {
+
+    private static final String POOL_NAME_PRIMARY = "primary";
+    private static final String POOL_NAME_REPLICA = "replica";
+
+    private ConnectionPoolStatisticsServiceImpl statisticsService;
+
+    private MonitoredBoneCPDataSource primaryMock;
+
+    private MonitoredBoneCPDataSource replicaMock;
+
+    @Before
+    public void setUp() {
+        statisticsService = new ConnectionPoolStatisticsServiceImpl();
+
+        primaryMock = mock(MonitoredBoneCPDataSource.class);
+        when(primaryMock.getPoolName()).thenReturn(POOL_NAME_PRIMARY);
+        when(primaryMock.getAcquireFailures()).thenReturn(2L);
+
+        replicaMock = mock(MonitoredBoneCPDataSource.class);
+        when(replicaMock.getPoolName()).thenReturn(POOL_NAME_REPLICA);
+    }
+
+    @Test
+    public void findConnectionPoolStatistics() {
+        statisticsService.setDataSource(primaryMock);
+
+        List<ConnectionPoolStatisticsDTO> statistics = statisticsService.findConnectionPoolStatistics();
+
+        assertEquals(1, statistics.size());
+        assertEquals(POOL_NAME_PRIMARY, statistics.get(0).getPoolName());
+        assertEquals(2, statistics.get(0).getAcquireFailures());
+        assertEquals(0, statistics.get(0).getLeasedConnections());
+    }
+
+    @Test
+    public void findConnectionPoolStatisticsWithReplica() {
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primaryMock, replicaMock, 0);
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(routingDataSource);
+        statisticsService.setDataSource(dataSource);
+
+        List<ConnectionPoolStatisticsDTO> statistics = statisticsService.findConnectionPoolStatistics();
+
+        assertEquals(2, statistics.size());
+        assertEquals(POOL_NAME_PRIMARY, statistics.get(0).getPoolName());
+        assertEquals(POOL_NAME_REPLICA, statistics.get(1).getPoolName());
+    }
+}
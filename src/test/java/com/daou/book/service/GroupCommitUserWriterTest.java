@@ -0,0 +1,227 @@
+package com.daou.book.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.daou.book.domain.User;
+import com.daou.book.domain.UserTestUtil;
+import com.daou.book.dto.UserDTO;
+import com.daou.book.repository.UserRepository;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class GroupCommitUserWriterTest {
+
+    private static final String FIRST_NAME = "Foo";
+    private static final String LAST_NAME = "Bar";
+    private static final String LAST_NAME_REJECTED_BY_DATABASE = "Rejected";
+
+    private static final int MAX_BATCH_SIZE = 2;
+    private static final int QUEUE_CAPACITY = 3;
+
+    private GroupCommitUserWriter userWriter;
+
+    private UserRepository userRepositoryMock;
+
+    private PlatformTransactionManager transactionManagerMock;
+
+    @Before
+    public void setUp() {
+        userWriter = new GroupCommitUserWriter();
+
+        userRepositoryMock = mock(UserRepository.class);
+        userWriter.setUserRepository(userRepositoryMock);
+
+        transactionManagerMock = mock(PlatformTransactionManager.class);
+        when(transactionManagerMock.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+        userWriter.setTransactionManager(transactionManagerMock);
+
+        userWriter.setMaxBatchSize(MAX_BATCH_SIZE);
+        userWriter.setOfferTimeoutMillis(0);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        userWriter.stop();
+    }
+
+    @Test
+    public void writeQueuedUsersInGroupedTransactions() throws Exception {
+        userWriter.start(QUEUE_CAPACITY, 0);
+
+        Future<User> first = userWriter.submit(createDTO(LAST_NAME));
+        Future<User> second = userWriter.submit(createDTO(LAST_NAME));
+        Future<User> third = userWriter.submit(createDTO(LAST_NAME));
+
+        userWriter.writeNext();
+
+        ArgumentCaptor<List> batchArgument = ArgumentCaptor.forClass(List.class);
+        verify(userRepositoryMock, times(1)).insertBatch(batchArgument.capture());
+        verify(transactionManagerMock, times(1)).commit(any(SimpleTransactionStatus.class));
+
+        assertEquals(MAX_BATCH_SIZE, batchArgument.getValue().size());
+        assertEquals(batchArgument.getValue().get(0), first.get());
+        assertEquals(batchArgument.getValue().get(1), second.get());
+        assertFalse(third.isDone());
+
+        userWriter.writeNext();
+
+        verify(userRepositoryMock, times(2)).insertBatch(anyList());
+        assertEquals(LAST_NAME, third.get().getLastName());
+    }
+
+    @Test
+    public void writeWhenDatabaseRejectsUser() throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                List<User> batch = (List<User>) invocation.getArguments()[0];
+                for (User user : batch) {
+                    if (LAST_NAME_REJECTED_BY_DATABASE.equals(user.getLastName())) {
+                        throw new DataIntegrityViolationException("rejected");
+                    }
+                }
+                return null;
+            }
+        }).when(userRepositoryMock).insertBatch(anyList());
+        userWriter.start(QUEUE_CAPACITY, 0);
+
+        Future<User> accepted = userWriter.submit(createDTO(LAST_NAME));
+        Future<User> rejected = userWriter.submit(createDTO(LAST_NAME_REJECTED_BY_DATABASE));
+
+        userWriter.writeNext();
+
+        verify(userRepositoryMock, times(3)).insertBatch(anyList());
+        assertEquals(LAST_NAME, accepted.get().getLastName());
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DataIntegrityViolationException);
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void submitWhenQueueIsFull() {
+        userWriter.start(QUEUE_CAPACITY, 0);
+
+        for (int index = 0; index <= QUEUE_CAPACITY; index++) {
+            userWriter.submit(createDTO(LAST_NAME));
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void submitWhenNotStarted() {
+        userWriter.submit(createDTO(LAST_NAME));
+    }
+
+    @Test
+    public void stopFailsQueuedUsers() throws Exception {
+        userWriter.start(QUEUE_CAPACITY, 0);
+        Future<User> queued = userWriter.submit(createDTO(LAST_NAME));
+
+        userWriter.stop();
+
+        try {
+            queued.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        verifyZeroInteractions(userRepositoryMock);
+    }
+
+    @Test
+    public void stopRejectsUserOfferedDuringStop() throws Exception {
+        userWriter.setOfferTimeoutMillis(TimeUnit.SECONDS.toMillis(10));
+        userWriter.start(1, 0);
+        userWriter.submit(createDTO(LAST_NAME));
+
+        // The second user passed the running check and waits for room in the full queue
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Thread[] submitter = new Thread[1];
+            Future<Future<User>> submitted = executor.submit(new Callable<Future<User>>() {
+                @Override
+                public Future<User> call() {
+                    submitter[0] = Thread.currentThread();
+                    return userWriter.submit(createDTO(LAST_NAME));
+                }
+            });
+            awaitWaiting(submitter);
+
+            // Stop drains the queue, which lets the offer of the second user in
+            userWriter.stop();
+
+            try {
+                submitted.get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void pendingUserCannotBeCancelled() throws Exception {
+        userWriter.start(QUEUE_CAPACITY, 0);
+        Future<User> queued = userWriter.submit(createDTO(LAST_NAME));
+
+        assertFalse(queued.cancel(true));
+        assertFalse(queued.isCancelled());
+        assertFalse(queued.isDone());
+        try {
+            queued.get(1, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void writerThreadsCompleteSubmittedUsers() throws Exception {
+        userWriter.start(QUEUE_CAPACITY, 1);
+
+        Future<User> created = userWriter.submit(createDTO(LAST_NAME));
+
+        assertEquals(LAST_NAME, created.get(10, TimeUnit.SECONDS).getLastName());
+    }
+
+    private static void awaitWaiting(Thread[] thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread[0] == null || thread[0].getState() != Thread.State.TIMED_WAITING) {
+            if (System.nanoTime() > deadline) {
+                fail("User was not offered");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private UserDTO createDTO(String lastName) {
+        return UserTestUtil.createDTO(null, FIRST_NAME, lastName);
+    }
+}
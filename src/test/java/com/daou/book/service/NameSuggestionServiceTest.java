@@ -0,0 +1,151 @@
+package com.daou.book.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.daou.book.domain.UserTestUtil;
+import com.daou.book.dto.NameField;
+import com.daou.book.dto.UserRowDTO;
+import com.daou.book.repository.UserCallback;
+import com.daou.book.repository.UserRepository;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class NameSuggestionServiceTest {
+
+    private NameSuggestionServiceImpl nameSuggestionService;
+
+    private UserRepository userRepositoryMock;
+
+    private PlatformTransactionManager transactionManagerMock;
+
+    @Before
+    public void setUp() {
+        nameSuggestionService = new NameSuggestionServiceImpl();
+
+        userRepositoryMock = mock(UserRepository.class);
+        nameSuggestionService.setUserRepository(userRepositoryMock);
+        transactionManagerMock = mock(PlatformTransactionManager.class);
+        when(transactionManagerMock.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+        nameSuggestionService.setTransactionManager(transactionManagerMock);
+
+        nameSuggestionService.setTopCount(10);
+        nameSuggestionService.setMaxNodes(1000);
+        nameSuggestionService.open();
+    }
+
+    @Test
+    public void build() throws IOException {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                UserCallback callback = (UserCallback) invocation.getArguments()[2];
+                callback.handle(UserTestUtil.createModelObject(1L, "John", "Smith"));
+                callback.handle(UserTestUtil.createModelObject(2L, "Jane", "Smyth"));
+                return null;
+            }
+        }).when(userRepositoryMock).scrollAll(anyInt(), anyInt(), any(UserCallback.class));
+
+        nameSuggestionService.build();
+
+        verify(transactionManagerMock, times(1)).commit(any(SimpleTransactionStatus.class));
+
+        // Read from the primary database
+        ArgumentCaptor<TransactionDefinition> definitionArgument = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManagerMock, times(1)).getTransaction(definitionArgument.capture());
+        assertFalse(definitionArgument.getValue().isReadOnly());
+        assertEquals(Arrays.asList("Smith", "Smyth"), nameSuggestionService.suggest(NameField.LAST_NAME, "sm"));
+        assertEquals(Arrays.asList("Jane", "John"), nameSuggestionService.suggest(NameField.FIRST_NAME, "j"));
+    }
+
+    @Test
+    public void usersCreated() {
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(1L, "John", "Smith")));
+
+        assertEquals(Arrays.asList("Smith"), nameSuggestionService.suggest(NameField.LAST_NAME, "s"));
+        assertEquals(Arrays.asList("John"), nameSuggestionService.suggest(NameField.FIRST_NAME, "jo"));
+    }
+
+    @Test
+    public void usersCreatedTwiceIsCountedOnce() {
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(1L, "John", "Smith")));
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(2L, "Jane", "Smyth")));
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(3L, "Mary", "Smyth")));
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(1L, "John", "Smith")));
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(1L, "John", "Smith")));
+
+        assertEquals(Arrays.asList("Smyth", "Smith"), nameSuggestionService.suggest(NameField.LAST_NAME, "sm"));
+    }
+
+    @Test
+    public void usersUpdatedUncountsOldNames() {
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(1L, "John", "Smith")));
+
+        nameSuggestionService.usersUpdated(Arrays.asList(new UserRowDTO(1L, "John", "Jones")));
+
+        assertTrue(nameSuggestionService.suggest(NameField.LAST_NAME, "sm").isEmpty());
+        assertEquals(Arrays.asList("Jones"), nameSuggestionService.suggest(NameField.LAST_NAME, "j"));
+        assertEquals(Arrays.asList("John"), nameSuggestionService.suggest(NameField.FIRST_NAME, "j"));
+    }
+
+    @Test
+    public void usersDeleted() {
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(1L, "John", "Smith")));
+        int emptyNodeCount = 1;
+
+        nameSuggestionService.usersDeleted(Arrays.asList(new UserRowDTO(1L, "John", "Smith"), new UserRowDTO(2L, "Jane", "Doe")));
+
+        assertTrue(nameSuggestionService.suggest(NameField.LAST_NAME, "s").isEmpty());
+        assertEquals(emptyNodeCount, nameSuggestionService.getNodeCount(NameField.LAST_NAME));
+        assertEquals(emptyNodeCount, nameSuggestionService.getNodeCount(NameField.FIRST_NAME));
+    }
+
+    @Test
+    public void usersBeyondBudgetAreNotKept() {
+        // Root nodes and "Kim" "Lee" with their user
+        nameSuggestionService.setMaxNodes(2 + 3 + 3 + 1);
+        nameSuggestionService.open();
+
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(1L, "Kim", "Lee")));
+        // Needs no new node but its user does not fit
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(2L, "Kim", "Lee")));
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(3L, "Kim", "Lee")));
+
+        nameSuggestionService.usersDeleted(Arrays.asList(new UserRowDTO(2L, "Kim", "Lee"), new UserRowDTO(3L, "Kim", "Lee")));
+
+        assertEquals(Arrays.asList("Lee"), nameSuggestionService.suggest(NameField.LAST_NAME, "l"));
+        assertEquals(Arrays.asList("Kim"), nameSuggestionService.suggest(NameField.FIRST_NAME, "k"));
+
+        nameSuggestionService.usersDeleted(Arrays.asList(new UserRowDTO(1L, "Kim", "Lee")));
+
+        assertTrue(nameSuggestionService.suggest(NameField.LAST_NAME, "l").isEmpty());
+    }
+
+    @Test
+    public void removingDroppedUserKeepsNamesOfOtherUsers() {
+        nameSuggestionService.setMaxNodes(2 + 3 + 3 + 1);
+        nameSuggestionService.open();
+
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(1L, "Kim", "Lee")));
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(2L, "Ann", "Cho")));
+        nameSuggestionService.usersDeleted(Arrays.asList(new UserRowDTO(1L, "Kim", "Lee")));
+        nameSuggestionService.usersCreated(Arrays.asList(new UserRowDTO(3L, "Ann", "Cho")));
+
+        nameSuggestionService.usersDeleted(Arrays.asList(new UserRowDTO(2L, "Ann", "Cho")));
+
+        assertEquals(Arrays.asList("Cho"), nameSuggestionService.suggest(NameField.LAST_NAME, "c"));
+        assertEquals(Arrays.asList("Ann"), nameSuggestionService.suggest(NameField.FIRST_NAME, "a"));
+    }
+}
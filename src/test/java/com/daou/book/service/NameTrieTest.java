@@ -0,0 +1,131 @@
+package com.daou.book.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class NameTrieTest {
+
+    private static final int TOP_COUNT = 2;
+
+    private static final int MAX_NODES = 100;
+
+    private NameTrie trie;
+
+    @Before
+    public void setUp() {
+        trie = new NameTrie(TOP_COUNT, MAX_NODES);
+        trie.add("Smith");
+        trie.add("Smith");
+        trie.add("Smithson");
+        trie.add("Smyth");
+        trie.add("Smyth");
+        trie.add("Smyth");
+    }
+
+    @Test
+    public void suggestMostCommonFirst() {
+        assertEquals(Arrays.asList("Smyth", "Smith"), trie.suggest("sm"));
+        assertEquals(Arrays.asList("Smith", "Smithson"), trie.suggest("Smi"));
+    }
+
+    @Test
+    public void suggestEqualCountsByName() {
+        trie.add("Smithson");
+
+        assertEquals(Arrays.asList("Smith", "Smithson"), trie.suggest("smith"));
+    }
+
+    @Test
+    public void suggestIsCaseInsensitive() {
+        trie.add("SMITHSON");
+
+        assertEquals(Arrays.asList("Smithson"), trie.suggest("SMITHS"));
+    }
+
+    @Test
+    public void suggestUnknownOrEmptyPrefix() {
+        assertTrue(trie.suggest("x").isEmpty());
+        assertTrue(trie.suggest("Smithsonian").isEmpty());
+        assertTrue(trie.suggest("").isEmpty());
+        assertTrue(trie.suggest(null).isEmpty());
+    }
+
+    @Test
+    public void removeUpdatesTopSuggestions() {
+        trie.remove("Smyth");
+        trie.remove("Smyth");
+
+        assertEquals(Arrays.asList("Smith", "Smithson"), trie.suggest("sm"));
+    }
+
+    @Test
+    public void removeLastUsePrunesNodes() {
+        int nodeCount = trie.getNodeCount();
+
+        trie.remove("Smithson");
+
+        // "son" is pruned, "Smith" still ends at its node
+        assertEquals(nodeCount - 3, trie.getNodeCount());
+        assertEquals(Arrays.asList("Smith"), trie.suggest("smith"));
+    }
+
+    @Test
+    public void removeUnknownName() {
+        int nodeCount = trie.getNodeCount();
+
+        trie.remove("Smi");
+        trie.remove("Jones");
+
+        assertEquals(nodeCount, trie.getNodeCount());
+        assertEquals(Arrays.asList("Smith", "Smithson"), trie.suggest("smi"));
+    }
+
+    @Test
+    public void getNewNodeCount() {
+        assertEquals(0, trie.getNewNodeCount("smith"));
+        assertEquals(1, trie.getNewNodeCount("Smithy"));
+        assertEquals(3, trie.getNewNodeCount("Lee"));
+        assertEquals(0, trie.getNewNodeCount(" "));
+    }
+
+    @Test
+    public void addBeyondBudgetIsDropped() {
+        NameTrie small = new NameTrie(TOP_COUNT, 4);
+
+        assertTrue(small.add("Kim"));
+        assertFalse(small.add("Lee"));
+        // Needs no new node
+        assertTrue(small.add("Kim"));
+
+        assertEquals(4, small.getNodeCount());
+        assertEquals(1, small.getDroppedCount());
+        assertTrue(small.suggest("l").isEmpty());
+    }
+
+    @Test
+    public void removedNodesFreeBudget() {
+        NameTrie small = new NameTrie(TOP_COUNT, 4);
+        small.add("Kim");
+
+        small.remove("Kim");
+
+        assertEquals(1, small.getNodeCount());
+        assertTrue(small.add("Lee"));
+        assertEquals(Arrays.asList("Lee"), small.suggest("le"));
+    }
+
+    @Test
+    public void addKoreanNames() {
+        trie.add("김철수");
+        trie.add("김영희");
+        trie.add("김영희");
+
+        assertEquals(Arrays.asList("김영희", "김철수"), trie.suggest("김"));
+    }
+}
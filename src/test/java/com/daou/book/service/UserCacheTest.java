@@ -0,0 +1,227 @@
+package com.daou.book.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.daou.book.domain.User;
+import com.daou.book.domain.UserTestUtil;
+import com.daou.book.dto.CacheStatisticsDTO;
+import com.daou.book.metrics.MetricsRegistry;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class UserCacheTest {
+
+    // A window of one user and a main area of 99 users
+    private static final int MAX_SIZE = 100;
+
+    private static final String METRIC_NAME_LOAD = "cache.UserCache.load";
+
+    private UserCache userCache;
+
+    private MetricsRegistry metricsRegistry;
+
+    private CountingLoader loader;
+
+    @Before
+    public void setUp() {
+        userCache = new UserCache();
+        metricsRegistry = new MetricsRegistry();
+        userCache.setMetricsRegistry(metricsRegistry);
+        userCache.setMaxSize(MAX_SIZE);
+        userCache.open();
+
+        loader = new CountingLoader();
+    }
+
+    @Test
+    public void get() {
+        User first = userCache.get(1L, loader);
+        User second = userCache.get(1L, loader);
+
+        assertSame(first, second);
+        assertEquals(1, loader.getLoadCount(1L));
+
+        CacheStatisticsDTO statistics = userCache.getStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(1, statistics.getPutCount());
+        assertEquals(1, statistics.getSize());
+        assertEquals(0.5, statistics.getHitRatio());
+        assertEquals(1, metricsRegistry.getSnapshots().get(METRIC_NAME_LOAD).getCount());
+    }
+
+    @Test
+    public void getWhenUserIsNotFound() {
+        assertNull(userCache.get(1L, new UserCache.Loader() {
+            @Override
+            public User load(Long id) {
+                return null;
+            }
+        }));
+
+        assertEquals(0, userCache.size());
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        for (long id = 1; id <= 3 * MAX_SIZE; id++) {
+            userCache.get(id, loader);
+        }
+
+        assertEquals(MAX_SIZE, userCache.size());
+        assertEquals(2 * MAX_SIZE, userCache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void frequentUsersSurviveScan() {
+        for (int i = 0; i < 5; i++) {
+            for (long id = 1; id <= 50; id++) {
+                userCache.get(id, loader);
+            }
+        }
+
+        // One-off lookups of many other users
+        for (long id = 1000; id < 1000 + 10 * MAX_SIZE; id++) {
+            userCache.get(id, loader);
+        }
+
+        for (long id = 1; id <= 50; id++) {
+            userCache.get(id, loader);
+            assertEquals(1, loader.getLoadCount(id));
+        }
+    }
+
+    @Test
+    public void put() {
+        User user = UserTestUtil.createModelObject(1L, "Foo", "Bar");
+
+        userCache.put(user);
+
+        assertSame(user, userCache.get(1L, loader));
+        assertEquals(0, loader.getLoadCount(1L));
+    }
+
+    @Test
+    public void userIsNotServedWhileWritten() {
+        userCache.get(1L, loader);
+
+        userCache.beginWrite(Arrays.asList(1L));
+        userCache.get(1L, loader);
+        userCache.get(1L, loader);
+        userCache.put(UserTestUtil.createModelObject(1L, "Foo", "Bar"));
+
+        assertEquals(3, loader.getLoadCount(1L));
+        assertEquals(0, userCache.size());
+
+        userCache.endWrite(Arrays.asList(1L));
+        userCache.get(1L, loader);
+        userCache.get(1L, loader);
+
+        assertEquals(4, loader.getLoadCount(1L));
+    }
+
+    @Test
+    public void loadOverlappingWriteIsNotCached() {
+        final User stale = UserTestUtil.createModelObject(1L, "Foo", "Bar");
+
+        User returned = userCache.get(1L, new UserCache.Loader() {
+            @Override
+            public User load(Long id) {
+                // The write begins and commits while the old version is read
+                userCache.beginWrite(Collections.singleton(id));
+                userCache.endWrite(Collections.singleton(id));
+                return stale;
+            }
+        });
+
+        assertSame(stale, returned);
+        assertEquals(0, userCache.size());
+        assertEquals(1, userCache.get(1L, loader).getId().longValue());
+        assertEquals(1, loader.getLoadCount(1L));
+    }
+
+    @Test
+    public void endWriteWithoutBeginWrite() {
+        try {
+            userCache.endWrite(Arrays.asList(1L));
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void expiredUserIsLoaded() {
+        userCache.setExpireMillis(0);
+
+        userCache.get(1L, loader);
+        userCache.get(1L, loader);
+
+        assertEquals(2, loader.getLoadCount(1L));
+        assertEquals(0, userCache.getStatistics().getHitCount());
+    }
+
+    @Test
+    public void tooSmall() {
+        userCache.setMaxSize(1);
+        try {
+            userCache.open();
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void frequencySketch() {
+        FrequencySketch sketch = new FrequencySketch(MAX_SIZE);
+        for (int i = 0; i < 5; i++) {
+            sketch.increment(1L);
+        }
+        sketch.increment(2L);
+
+        assertEquals(5, sketch.frequency(1L));
+        assertTrue(sketch.frequency(2L) >= 1);
+        assertTrue(sketch.frequency(3L) < 5);
+    }
+
+    @Test
+    public void frequencySketchIsHalved() {
+        FrequencySketch sketch = new FrequencySketch(MAX_SIZE);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(1L);
+        }
+        // Ten additions per cached user halve the counters
+        for (long id = 2; id < 2 + 10 * MAX_SIZE; id++) {
+            sketch.increment(id);
+        }
+
+        assertTrue(sketch.frequency(1L) < 10);
+    }
+
+    private static class CountingLoader implements UserCache.Loader {
+
+        private final Map<Long, Integer> loadCounts = new HashMap<Long, Integer>();
+
+        @Override
+        public User load(Long id) {
+            loadCounts.put(id, getLoadCount(id) + 1);
+            return UserTestUtil.createModelObject(id, "Foo", "Bar");
+        }
+
+        int getLoadCount(Long id) {
+            Integer count = loadCounts.get(id);
+            return count == null ? 0 : count;
+        }
+    }
+}
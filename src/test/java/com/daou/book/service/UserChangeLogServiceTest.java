@@ -0,0 +1,96 @@
+package com.daou.book.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.daou.book.dto.ChangeType;
+import com.daou.book.dto.UserRowDTO;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class UserChangeLogServiceTest {
+
+    private static final int MAX_BATCH_SIZE = 10;
+
+    private UserChangeLogServiceImpl userChangeLogService;
+
+    private UserChangeLog changeLogMock;
+
+    @Before
+    public void setUp() {
+        userChangeLogService = new UserChangeLogServiceImpl();
+
+        changeLogMock = mock(UserChangeLog.class);
+        userChangeLogService.setChangeLog(changeLogMock);
+        userChangeLogService.setMaxBatchSize(MAX_BATCH_SIZE);
+    }
+
+    @Test
+    public void findChangesAfter() {
+        userChangeLogService.findChangesAfter(5, 3);
+
+        verify(changeLogMock, times(1)).readAfter(5, 3);
+    }
+
+    @Test
+    public void findChangesAfterLimitsBatchSize() {
+        userChangeLogService.findChangesAfter(5, 1000);
+        userChangeLogService.findChangesAfter(5, 0);
+
+        verify(changeLogMock, times(1)).readAfter(5, MAX_BATCH_SIZE);
+        verify(changeLogMock, times(1)).readAfter(5, 1);
+    }
+
+    @Test
+    public void usersUpdated() throws IOException {
+        List<UserRowDTO> users = Arrays.asList(new UserRowDTO(1L, "Foo", "Bar"));
+
+        userChangeLogService.usersUpdated(users);
+
+        verify(changeLogMock, times(1)).append(ChangeType.UPDATED, users);
+    }
+
+    @Test
+    public void usersDeleted() throws IOException {
+        List<UserRowDTO> users = Arrays.asList(new UserRowDTO(1L, "Foo", "Bar", 2L));
+
+        userChangeLogService.usersDeleted(users);
+
+        verify(changeLogMock, times(1)).append(ChangeType.DELETED, users);
+    }
+
+    @Test
+    public void appendFails() throws IOException {
+        List<UserRowDTO> users = Arrays.asList(new UserRowDTO(1L, "Foo", "Bar"));
+        when(changeLogMock.append(ChangeType.CREATED, users)).thenThrow(new IOException());
+
+        try {
+            userChangeLogService.usersCreated(users);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        verify(changeLogMock, times(1)).markLost();
+    }
+
+    @Test
+    public void appendFailsWithRuntimeException() throws IOException {
+        List<UserRowDTO> users = Arrays.asList(new UserRowDTO(1L, "Foo", "Bar"));
+        when(changeLogMock.append(ChangeType.UPDATED, users)).thenThrow(new IllegalArgumentException());
+
+        try {
+            userChangeLogService.usersUpdated(users);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        verify(changeLogMock, times(1)).markLost();
+    }
+}
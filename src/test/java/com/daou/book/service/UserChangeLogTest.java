@@ -0,0 +1,301 @@
+package com.daou.book.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.daou.book.dto.ChangeType;
+import com.daou.book.dto.UserChangeBatchDTO;
+import com.daou.book.dto.UserChangeDTO;
+import com.daou.book.dto.UserRowDTO;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class UserChangeLogTest {
+
+    private static final int SEGMENT_SIZE = UserChangeLog.MIN_SEGMENT_SIZE;
+
+    private static final int MAX_SEGMENTS = 3;
+
+    private static final String FIRST_NAME = "Foo";
+    private static final String LAST_NAME = "Bar";
+
+    private File directory;
+
+    private UserChangeLog changeLog;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("changelog", "");
+        directory.delete();
+
+        changeLog = open();
+    }
+
+    @After
+    public void tearDown() {
+        changeLog.close();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void appendAndRead() throws IOException {
+        assertEquals(2, changeLog.append(ChangeType.CREATED, createUsers(1L, 2L)));
+        assertEquals(3, changeLog.append(ChangeType.UPDATED, Arrays.asList(new UserRowDTO(1L, "김철수", LAST_NAME, 1L))));
+        assertEquals(4, changeLog.append(ChangeType.DELETED, createUsers(2L)));
+
+        UserChangeBatchDTO batch = changeLog.readAfter(0, 10);
+
+        assertEquals(4, batch.getChanges().size());
+        assertEquals(4, batch.getLastSequence());
+        assertEquals(4, batch.getHeadSequence());
+        assertFalse(batch.isHasMore());
+        assertFalse(batch.isResyncRequired());
+        assertChange(batch.getChanges().get(0), 1, ChangeType.CREATED, 1L, FIRST_NAME, LAST_NAME);
+        assertChange(batch.getChanges().get(1), 2, ChangeType.CREATED, 2L, FIRST_NAME, LAST_NAME);
+        assertChange(batch.getChanges().get(2), 3, ChangeType.UPDATED, 1L, "김철수", LAST_NAME);
+        assertChange(batch.getChanges().get(3), 4, ChangeType.DELETED, 2L, null, null);
+        assertEquals(Long.valueOf(0L), batch.getChanges().get(0).getVersion());
+        assertEquals(Long.valueOf(1L), batch.getChanges().get(2).getVersion());
+        // The last version of the deleted user
+        assertEquals(Long.valueOf(0L), batch.getChanges().get(3).getVersion());
+    }
+
+    @Test
+    public void appendWithoutVersion() throws IOException {
+        changeLog.append(ChangeType.CREATED, Arrays.asList(new UserRowDTO(1L, FIRST_NAME, LAST_NAME)));
+
+        assertNull(changeLog.readAfter(0, 10).getChanges().get(0).getVersion());
+    }
+
+    @Test
+    public void readBeforeLostChangesRequiresResync() throws IOException {
+        changeLog.append(ChangeType.CREATED, createUsers(1L, 2L));
+
+        changeLog.markLost();
+        changeLog.append(ChangeType.CREATED, createUsers(3L));
+
+        assertEquals(4, changeLog.getHeadSequence());
+        assertTrue(changeLog.readAfter(0, 10).isResyncRequired());
+        assertTrue(changeLog.readAfter(2, 10).isResyncRequired());
+
+        // A mirror which resynced continues after the noted head
+        UserChangeBatchDTO batch = changeLog.readAfter(3, 10);
+        assertFalse(batch.isResyncRequired());
+        assertChange(batch.getChanges().get(0), 4, ChangeType.CREATED, 3L, FIRST_NAME, LAST_NAME);
+    }
+
+    @Test
+    public void lostChangesRequireResyncAfterReopen() throws IOException {
+        changeLog.append(ChangeType.CREATED, createUsers(1L, 2L));
+        changeLog.markLost();
+        changeLog.close();
+
+        changeLog = open();
+
+        assertEquals(3, changeLog.getHeadSequence());
+        assertTrue(changeLog.readAfter(2, 10).isResyncRequired());
+        assertFalse(changeLog.readAfter(3, 10).isResyncRequired());
+        assertEquals(4, changeLog.append(ChangeType.CREATED, createUsers(3L)));
+    }
+
+    @Test
+    public void readInBatches() throws IOException {
+        changeLog.append(ChangeType.CREATED, createUsers(1L, 2L, 3L, 4L, 5L));
+
+        UserChangeBatchDTO first = changeLog.readAfter(0, 2);
+        UserChangeBatchDTO second = changeLog.readAfter(first.getLastSequence(), 2);
+        UserChangeBatchDTO third = changeLog.readAfter(second.getLastSequence(), 2);
+
+        assertSequences(first, 1, 2);
+        assertTrue(first.isHasMore());
+        assertSequences(second, 3, 4);
+        assertSequences(third, 5);
+        assertFalse(third.isHasMore());
+    }
+
+    @Test
+    public void readAtHead() throws IOException {
+        changeLog.append(ChangeType.CREATED, createUsers(1L));
+
+        UserChangeBatchDTO batch = changeLog.readAfter(1, 10);
+
+        assertTrue(batch.getChanges().isEmpty());
+        assertEquals(1, batch.getLastSequence());
+        assertFalse(batch.isHasMore());
+        assertFalse(batch.isResyncRequired());
+    }
+
+    @Test
+    public void readEmptyLog() {
+        UserChangeBatchDTO batch = changeLog.readAfter(0, 10);
+
+        assertTrue(batch.getChanges().isEmpty());
+        assertEquals(0, batch.getHeadSequence());
+        assertFalse(batch.isResyncRequired());
+    }
+
+    @Test
+    public void readAfterHeadRequiresResync() {
+        assertTrue(changeLog.readAfter(5, 10).isResyncRequired());
+    }
+
+    @Test
+    public void readAcrossSegments() throws IOException {
+        int count = appendUntilSegments(2);
+
+        List<UserChangeDTO> changes = readAll(7);
+
+        assertEquals(2, changeLog.getSegmentCount());
+        assertEquals(count, changes.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i + 1, changes.get(i).getSequence());
+        }
+    }
+
+    @Test
+    public void readFromMiddleOfSegment() throws IOException {
+        // More records than the index interval of a segment
+        List<UserRowDTO> users = new ArrayList<UserRowDTO>();
+        for (long id = 1; id <= 300; id++) {
+            users.add(new UserRowDTO(id, "F", "L"));
+        }
+        UserChangeLog large = new UserChangeLog(new File(directory, "large"), 64 * 1024, MAX_SEGMENTS, false);
+        try {
+            large.append(ChangeType.CREATED, users);
+
+            assertSequences(large.readAfter(259, 2), 260, 261);
+        } finally {
+            large.close();
+            for (File file : new File(directory, "large").listFiles()) {
+                file.delete();
+            }
+            new File(directory, "large").delete();
+        }
+    }
+
+    @Test
+    public void oldSegmentsAreDeleted() throws IOException {
+        appendUntilSegments(MAX_SEGMENTS + 1);
+
+        assertEquals(MAX_SEGMENTS, changeLog.getSegmentCount());
+        assertEquals(MAX_SEGMENTS, directory.listFiles().length);
+
+        UserChangeBatchDTO batch = changeLog.readAfter(0, 10);
+        assertTrue(batch.isResyncRequired());
+        assertTrue(batch.getChanges().isEmpty());
+    }
+
+    @Test
+    public void reopen() throws IOException {
+        int count = appendUntilSegments(2);
+        changeLog.close();
+
+        changeLog = open();
+
+        assertEquals(count, changeLog.getHeadSequence());
+        assertEquals(count, readAll(100).size());
+        assertEquals(count + 1, changeLog.append(ChangeType.CREATED, createUsers(99L)));
+    }
+
+    @Test
+    public void reopenDiscardsTornRecord() throws IOException {
+        changeLog.append(ChangeType.CREATED, createUsers(1L, 2L));
+        changeLog.close();
+        corruptLastByteOfSecondRecord();
+
+        changeLog = open();
+
+        assertEquals(1, changeLog.getHeadSequence());
+        changeLog.append(ChangeType.CREATED, createUsers(3L));
+        assertChange(changeLog.readAfter(1, 10).getChanges().get(0), 2, ChangeType.CREATED, 3L, FIRST_NAME, LAST_NAME);
+    }
+
+    private UserChangeLog open() throws IOException {
+        return new UserChangeLog(directory, SEGMENT_SIZE, MAX_SEGMENTS, true);
+    }
+
+    /*
+     * Appends one change at a time until the given number of segments were created.
+     */
+    private int appendUntilSegments(int segmentCount) throws IOException {
+        Set<String> createdSegments = new HashSet<String>();
+        int count = 0;
+        while (createdSegments.size() < segmentCount) {
+            changeLog.append(ChangeType.CREATED, createUsers((long) count));
+            count++;
+            createdSegments.addAll(Arrays.asList(directory.list()));
+        }
+        return count;
+    }
+
+    private List<UserChangeDTO> readAll(int limit) {
+        List<UserChangeDTO> changes = new ArrayList<UserChangeDTO>();
+        UserChangeBatchDTO batch;
+        long sequence = 0;
+        do {
+            batch = changeLog.readAfter(sequence, limit);
+            changes.addAll(batch.getChanges());
+            sequence = batch.getLastSequence();
+        } while (batch.isHasMore());
+        return changes;
+    }
+
+    /*
+     * The records are 8 header bytes and a payload of 33 bytes and two names.
+     */
+    private void corruptLastByteOfSecondRecord() throws IOException {
+        int recordSize = 8 + 33 + 2 + FIRST_NAME.length() + 2 + LAST_NAME.length();
+        RandomAccessFile segment = new RandomAccessFile(directory.listFiles()[0], "rw");
+        try {
+            segment.seek(2 * recordSize - 1);
+            segment.write(0xFF);
+        } finally {
+            segment.close();
+        }
+    }
+
+    private List<UserRowDTO> createUsers(Long... ids) {
+        List<UserRowDTO> users = new ArrayList<UserRowDTO>();
+        for (Long id : ids) {
+            users.add(new UserRowDTO(id, FIRST_NAME, LAST_NAME, 0L));
+        }
+        return users;
+    }
+
+    private void assertSequences(UserChangeBatchDTO batch, long... sequences) {
+        assertEquals(sequences.length, batch.getChanges().size());
+        for (int i = 0; i < sequences.length; i++) {
+            assertEquals(sequences[i], batch.getChanges().get(i).getSequence());
+        }
+    }
+
+    private void assertChange(UserChangeDTO change, long sequence, ChangeType type, Long userId, String firstName, String lastName) {
+        assertEquals(sequence, change.getSequence());
+        assertEquals(type, change.getType());
+        assertEquals(userId, change.getUserId());
+        if (firstName == null) {
+            assertNull(change.getFirstName());
+        }
+        else {
+            assertEquals(firstName, change.getFirstName());
+        }
+        assertEquals(lastName, change.getLastName());
+        assertTrue(change.getTime() != null);
+    }
+}
@@ -0,0 +1,95 @@
+package com.daou.book.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.daou.book.dto.UserRowDTO;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class UserChangePublisherTest {
+
+    private static final List<UserRowDTO> USERS = Arrays.asList(new UserRowDTO(1L, "Foo", "Bar"));
+
+    private UserChangePublisher publisher;
+
+    private UserChangeListener firstListenerMock;
+
+    private UserChangeListener secondListenerMock;
+
+    @Before
+    public void setUp() {
+        publisher = new UserChangePublisher();
+
+        firstListenerMock = mock(UserChangeListener.class);
+        secondListenerMock = mock(UserChangeListener.class);
+        publisher.setListeners(Arrays.asList(firstListenerMock, secondListenerMock));
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void publishWithoutTransaction() {
+        publisher.publishCreated(USERS);
+        publisher.publishUpdated(USERS);
+        publisher.publishDeleted(USERS);
+
+        verify(firstListenerMock, times(1)).usersCreated(USERS);
+        verify(firstListenerMock, times(1)).usersUpdated(USERS);
+        verify(firstListenerMock, times(1)).usersDeleted(USERS);
+        verify(secondListenerMock, times(1)).usersCreated(USERS);
+    }
+
+    @Test
+    public void publishAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        publisher.publishCreated(USERS);
+        verifyZeroInteractions(firstListenerMock);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        verify(firstListenerMock, times(1)).usersCreated(USERS);
+    }
+
+    @Test
+    public void rollbackIsNotPublished() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        publisher.publishDeleted(USERS);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        verifyZeroInteractions(firstListenerMock);
+    }
+
+    @Test
+    public void failingListenerDoesNotStopOthers() {
+        doThrow(new IllegalStateException()).when(firstListenerMock).usersUpdated(USERS);
+
+        publisher.publishUpdated(USERS);
+
+        verify(secondListenerMock, times(1)).usersUpdated(USERS);
+    }
+
+    @Test
+    public void hasListeners() {
+        assertTrue(publisher.hasListeners());
+        assertFalse(new UserChangePublisher().hasListeners());
+    }
+}
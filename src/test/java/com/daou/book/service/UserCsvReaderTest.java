@@ -0,0 +1,67 @@
+package com.daou.book.service;
+
+import org.junit.Test;
+
+import com.daou.book.dto.UserDTO;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Locale;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+public class UserCsvReaderTest {
+
+    @Test
+    public void readExportedFile() throws IOException {
+        UserCsvReader reader = createReader("id,first_name,last_name,creation_time,modification_time,version\r\n"
+                + "1,Foo,Bar,2012-01-01T00:00:00.000+0900,2012-01-01T00:00:00.000+0900,0\r\n"
+                + "2,\"Foo, \"\"Jr\"\"\",\"Multi\nLine\",,,0\r\n");
+
+        assertUser(reader.next(), "Foo", "Bar");
+        assertUser(reader.next(), "Foo, \"Jr\"", "Multi\nLine");
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void readColumnsInAnyOrder() throws IOException {
+        UserCsvReader reader = createReader("LAST_NAME,first_name\nBar,Foo\n\nBaz\n");
+
+        assertUser(reader.next(), "Foo", "Bar");
+        assertUser(reader.next(), null, "Baz");
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void readUpperCaseColumnsInTurkishLocale() throws IOException {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            UserCsvReader reader = createReader("FIRST_NAME,LAST_NAME\nFoo,Bar\n");
+
+            assertUser(reader.next(), "Foo", "Bar");
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void readWithoutRequiredColumn() throws IOException {
+        createReader("first_name\nFoo\n").next();
+    }
+
+    @Test(expected = IOException.class)
+    public void readEmptyInput() throws IOException {
+        createReader("").next();
+    }
+
+    private UserCsvReader createReader(String csv) {
+        return new UserCsvReader(new StringReader(csv));
+    }
+
+    private void assertUser(UserDTO actual, String expectedFirstName, String expectedLastName) {
+        assertEquals(expectedFirstName, actual.getFirstName());
+        assertEquals(expectedLastName, actual.getLastName());
+    }
+}
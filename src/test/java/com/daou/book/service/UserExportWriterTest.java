@@ -0,0 +1,59 @@
+package com.daou.book.service;
+
+import org.junit.Test;
+
+import com.daou.book.domain.User;
+import com.daou.book.domain.UserTestUtil;
+import com.daou.book.dto.ExportFormat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class UserExportWriterTest {
+
+    private static final Long USER_ID = Long.valueOf(5);
+    private static final String FIRST_NAME = "Foo";
+    private static final String LAST_NAME = "Bar, \"Baz\"";
+
+    private static final int FLUSH_INTERVAL = 10;
+
+    @Test
+    public void writeCsv() throws IOException {
+        StringWriter output = new StringWriter();
+        UserExportWriter writer = UserExportWriter.create(ExportFormat.CSV, output, FLUSH_INTERVAL);
+
+        writer.start();
+        writer.handle(UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME));
+        writer.finish();
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("id,first_name,last_name,creation_time,modification_time,version", lines[0]);
+        assertEquals("5,Foo,\"Bar, \"\"Baz\"\"\",,,0", lines[1]);
+        assertEquals(1, writer.getWritten());
+    }
+
+    @Test
+    public void writeNdjson() throws IOException {
+        StringWriter output = new StringWriter();
+        UserExportWriter writer = UserExportWriter.create(ExportFormat.NDJSON, output, FLUSH_INTERVAL);
+
+        User user = UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME);
+        user.prePersist();
+
+        writer.start();
+        writer.handle(user);
+        writer.handle(UserTestUtil.createModelObject(USER_ID, "Tab\t", "Back\\slash"));
+        writer.finish();
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":5,\"firstName\":\"Foo\",\"lastName\":\"Bar, \\\"Baz\\\"\",\"creationTime\":\""));
+        assertTrue(lines[0].endsWith("\",\"version\":0}"));
+        assertEquals("{\"id\":5,\"firstName\":\"Tab\\t\",\"lastName\":\"Back\\\\slash\",\"creationTime\":null,\"modificationTime\":null,\"version\":0}", lines[1]);
+        assertEquals(2, writer.getWritten());
+    }
+}
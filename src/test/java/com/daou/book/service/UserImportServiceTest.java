@@ -0,0 +1,185 @@
+package com.daou.book.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import com.daou.book.domain.User;
+import com.daou.book.domain.UserTestUtil;
+import com.daou.book.dto.ImportResultDTO;
+import com.daou.book.dto.UserDTO;
+import com.daou.book.repository.UserRepository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class UserImportServiceTest {
+
+    private static final String FIRST_NAME = "Foo";
+    private static final String LAST_NAME = "Bar";
+    private static final String LAST_NAME_REJECTED_BY_DATABASE = "Rejected";
+
+    private static final int CHUNK_SIZE = 2;
+
+    private UserImportServiceImpl userImportService;
+
+    private UserRepository userRepositoryMock;
+
+    private PlatformTransactionManager transactionManagerMock;
+
+    private UserChangePublisher changePublisherMock;
+
+    @Before
+    public void setUp() {
+        userImportService = new UserImportServiceImpl();
+
+        userRepositoryMock = mock(UserRepository.class);
+        userImportService.setUserRepository(userRepositoryMock);
+
+        transactionManagerMock = mock(PlatformTransactionManager.class);
+        when(transactionManagerMock.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+        userImportService.setTransactionManager(transactionManagerMock);
+
+        changePublisherMock = mock(UserChangePublisher.class);
+        userImportService.setChangePublisher(changePublisherMock);
+
+        LocalValidatorFactoryBean validator = new LocalValidatorFactoryBean();
+        validator.afterPropertiesSet();
+        userImportService.setValidator(validator);
+
+        userImportService.setChunkSize(CHUNK_SIZE);
+        userImportService.setMaxReportedFailures(10);
+    }
+
+    @Test
+    public void importUsersInChunks() {
+        List<UserDTO> users = createUsers(FIRST_NAME, FIRST_NAME, FIRST_NAME);
+
+        ImportResultDTO result = userImportService.importUsers(users);
+
+        ArgumentCaptor<List> chunkArgument = ArgumentCaptor.forClass(List.class);
+        verify(userRepositoryMock, times(2)).insertBatch(chunkArgument.capture());
+        verifyNoMoreInteractions(userRepositoryMock);
+        verify(transactionManagerMock, times(2)).commit(any(SimpleTransactionStatus.class));
+
+        assertEquals(2, chunkArgument.getAllValues().get(0).size());
+        assertEquals(1, chunkArgument.getAllValues().get(1).size());
+        assertEquals(3, result.getTotal());
+        assertEquals(3, result.getImported());
+        assertEquals(0, result.getFailed());
+    }
+
+    @Test
+    public void importUsersPublishesInsertedChunks() {
+        when(changePublisherMock.hasListeners()).thenReturn(true);
+        List<UserDTO> users = createUsers(FIRST_NAME, FIRST_NAME, FIRST_NAME);
+
+        userImportService.importUsers(users);
+
+        ArgumentCaptor<List> rowsArgument = ArgumentCaptor.forClass(List.class);
+        verify(changePublisherMock, times(2)).publishCreated(rowsArgument.capture());
+        assertEquals(2, rowsArgument.getAllValues().get(0).size());
+        assertEquals(1, rowsArgument.getAllValues().get(1).size());
+    }
+
+    @Test
+    public void importUsersWithoutListeners() {
+        List<UserDTO> users = createUsers(FIRST_NAME);
+
+        userImportService.importUsers(users);
+
+        verify(changePublisherMock, never()).publishCreated(anyList());
+    }
+
+    @Test
+    public void importUsersWithInvalidRows() {
+        List<UserDTO> users = createUsers(FIRST_NAME, null, FIRST_NAME);
+
+        ImportResultDTO result = userImportService.importUsers(users);
+
+        verify(userRepositoryMock, times(1)).insertBatch(anyList());
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertEquals(3, result.getTotal());
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(2, result.getFailures().get(0).getRow());
+        assertTrue(result.getFailures().get(0).getMessage().startsWith("firstName"));
+    }
+
+    @Test
+    public void importUsersWhenDatabaseRejectsRow() {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                List<User> chunk = (List<User>) invocation.getArguments()[0];
+                for (User user : chunk) {
+                    if (LAST_NAME_REJECTED_BY_DATABASE.equals(user.getLastName())) {
+                        throw new DataIntegrityViolationException("rejected");
+                    }
+                }
+                return null;
+            }
+        }).when(userRepositoryMock).insertBatch(anyList());
+
+        List<UserDTO> users = createUsers(FIRST_NAME, FIRST_NAME);
+        users.get(1).setLastName(LAST_NAME_REJECTED_BY_DATABASE);
+
+        ImportResultDTO result = userImportService.importUsers(users);
+
+        // The failed chunk and then both of its rows one by one
+        verify(userRepositoryMock, times(3)).insertBatch(anyList());
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertEquals(2, result.getTotal());
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(2, result.getFailures().get(0).getRow());
+        assertEquals("rejected", result.getFailures().get(0).getMessage());
+    }
+
+    @Test
+    public void importUsersReportsLimitedNumberOfFailures() {
+        userImportService.setMaxReportedFailures(1);
+
+        ImportResultDTO result = userImportService.importUsers(createUsers(null, null, null));
+
+        verifyZeroInteractions(userRepositoryMock);
+
+        assertEquals(3, result.getFailed());
+        assertEquals(1, result.getFailures().size());
+    }
+
+    @Test
+    public void importCsv() throws IOException {
+        ImportResultDTO result = userImportService.importCsv(new StringReader("first_name,last_name\nFoo,Bar\n,Bar\n"));
+
+        verify(userRepositoryMock, times(1)).insertBatch(anyList());
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertEquals(2, result.getTotal());
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+    }
+
+    private List<UserDTO> createUsers(String... firstNames) {
+        List<UserDTO> users = new ArrayList<UserDTO>();
+        for (String firstName : firstNames) {
+            users.add(UserTestUtil.createDTO(null, firstName, LAST_NAME));
+        }
+        return users;
+    }
+}
@@ -0,0 +1,157 @@
+package com.daou.book.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.daou.book.dto.SearchType;
+import com.daou.book.dto.UserRowDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+
+public class UserSearchCoalescerTest {
+
+    private static final String LAST_NAME = "Bar";
+
+    private UserSearchCoalescer searchCoalescer;
+
+    @Before
+    public void setUp() {
+        searchCoalescer = new UserSearchCoalescer();
+    }
+
+    @Test
+    public void searchRunsQuery() {
+        List<UserRowDTO> expected = createRows(1L);
+
+        assertSame(expected, searchCoalescer.search(SearchType.QUERY_ANNOTATION, LAST_NAME, returning(expected)));
+        assertEquals(0, searchCoalescer.getSharedCount());
+    }
+
+    @Test
+    public void identicalSearchSharesQueryInFlight() {
+        final List<UserRowDTO> expected = createRows(1L);
+        final List<List<UserRowDTO>> shared = Collections.synchronizedList(new ArrayList<List<UserRowDTO>>());
+
+        List<UserRowDTO> result = searchCoalescer.search(SearchType.NAMED_QUERY, LAST_NAME, new Callable<List<UserRowDTO>>() {
+            @Override
+            public List<UserRowDTO> call() {
+                // Another search of the same key while this query runs
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        shared.add(searchCoalescer.search(SearchType.NAMED_QUERY, " bar", failing()));
+                    }
+                }).start();
+                waitForSharedCount(1);
+                return expected;
+            }
+        });
+
+        assertSame(expected, result);
+        waitForSize(shared, 1);
+        assertEquals(expected, shared.get(0));
+        assertNotSame(expected, shared.get(0));
+    }
+
+    @Test
+    public void searchesOfOtherKeysDoNotShareQuery() {
+        final List<UserRowDTO> nested = new ArrayList<UserRowDTO>();
+
+        searchCoalescer.search(SearchType.METHOD_NAME, LAST_NAME, new Callable<List<UserRowDTO>>() {
+            @Override
+            public List<UserRowDTO> call() {
+                // The method name search is case-sensitive, the type is part of the key
+                nested.addAll(searchCoalescer.search(SearchType.METHOD_NAME, "bar", returning(createRows(2L))));
+                nested.addAll(searchCoalescer.search(SearchType.QUERY_ANNOTATION, LAST_NAME, returning(createRows(3L))));
+                return createRows(1L);
+            }
+        });
+
+        assertEquals(2, nested.size());
+        assertEquals(0, searchCoalescer.getSharedCount());
+    }
+
+    @Test
+    public void changeStopsSharingQueryInFlight() {
+        final List<UserRowDTO> afterChange = createRows(2L);
+        final List<UserRowDTO> nested = new ArrayList<UserRowDTO>();
+
+        searchCoalescer.search(SearchType.QUERY_ANNOTATION, LAST_NAME, new Callable<List<UserRowDTO>>() {
+            @Override
+            public List<UserRowDTO> call() {
+                searchCoalescer.usersCreated(createRows(2L));
+                nested.addAll(searchCoalescer.search(SearchType.QUERY_ANNOTATION, LAST_NAME, returning(afterChange)));
+                return createRows(1L);
+            }
+        });
+
+        assertEquals(afterChange, nested);
+    }
+
+    @Test
+    public void queryFailure() {
+        try {
+            searchCoalescer.search(SearchType.QUERY_ANNOTATION, LAST_NAME, failing());
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        List<UserRowDTO> expected = createRows(1L);
+        assertSame(expected, searchCoalescer.search(SearchType.QUERY_ANNOTATION, LAST_NAME, returning(expected)));
+    }
+
+    private Callable<List<UserRowDTO>> returning(final List<UserRowDTO> users) {
+        return new Callable<List<UserRowDTO>>() {
+            @Override
+            public List<UserRowDTO> call() {
+                return users;
+            }
+        };
+    }
+
+    private Callable<List<UserRowDTO>> failing() {
+        return new Callable<List<UserRowDTO>>() {
+            @Override
+            public List<UserRowDTO> call() {
+                throw new IllegalArgumentException();
+            }
+        };
+    }
+
+    private void waitForSharedCount(long count) {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (searchCoalescer.getSharedCount() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("No search shared the query");
+            }
+            Thread.yield();
+        }
+    }
+
+    private void waitForSize(List<?> list, int size) {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (list.size() < size) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("The shared search did not return");
+            }
+            Thread.yield();
+        }
+    }
+
+    private List<UserRowDTO> createRows(Long... ids) {
+        List<UserRowDTO> rows = new ArrayList<UserRowDTO>();
+        for (Long id : ids) {
+            rows.add(new UserRowDTO(id, "Foo", LAST_NAME));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,202 @@
+package com.daou.book.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.daou.book.domain.UserTestUtil;
+import com.daou.book.dto.UserRowDTO;
+import com.daou.book.repository.UserCallback;
+import com.daou.book.repository.UserRepository;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class UserSearchServiceTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    private UserSearchServiceImpl userSearchService;
+
+    private UserRepository userRepositoryMock;
+
+    private PlatformTransactionManager transactionManagerMock;
+
+    @Before
+    public void setUp() throws IOException {
+        userSearchService = new UserSearchServiceImpl();
+
+        userRepositoryMock = mock(UserRepository.class);
+        userSearchService.setUserRepository(userRepositoryMock);
+        transactionManagerMock = mock(PlatformTransactionManager.class);
+        when(transactionManagerMock.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+        userSearchService.setTransactionManager(transactionManagerMock);
+
+        userSearchService.setPageSize(PAGE_SIZE);
+        userSearchService.setFuzzyMinSimilarity(0.6f);
+        userSearchService.open();
+
+        userSearchService.usersCreated(Arrays.asList(
+                new UserRowDTO(1L, "John", "Smith"),
+                new UserRowDTO(2L, "Jane", "Smithson"),
+                new UserRowDTO(3L, "Smith", "Doe"),
+                new UserRowDTO(4L, "Mary", "Jones")));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        userSearchService.close();
+    }
+
+    @Test
+    public void searchByToken() {
+        List<UserRowDTO> users = userSearchService.search("jones", 0);
+
+        assertIds(users, 4L);
+        assertEquals("Mary", users.get(0).getFirstName());
+        assertEquals("Jones", users.get(0).getLastName());
+    }
+
+    @Test
+    public void searchRanksExactLastNameFirst() {
+        List<UserRowDTO> users = userSearchService.search("Smith", 0);
+
+        // Exact last name, exact first name, then the prefix of Smithson
+        assertIds(users, 1L, 3L);
+        assertIds(userSearchService.search("Smith", 1), 2L);
+    }
+
+    @Test
+    public void searchByPrefix() {
+        List<UserRowDTO> users = userSearchService.search("jone", 0);
+
+        // The prefix of Jones ranks above the misspelled Jane
+        assertIds(users, 4L, 2L);
+    }
+
+    @Test
+    public void searchByMisspelledName() {
+        assertIds(userSearchService.search("Jomes", 0), 4L);
+    }
+
+    @Test
+    public void searchShortTokenIsNotFuzzy() {
+        assertIds(userSearchService.search("Ja", 0), 2L);
+    }
+
+    @Test
+    public void searchNeedsEveryToken() {
+        assertIds(userSearchService.search("john smith", 0), 1L);
+    }
+
+    @Test
+    public void searchBeyondLastPage() {
+        assertTrue(userSearchService.search("Smith", 2).isEmpty());
+    }
+
+    @Test
+    public void searchWithoutTokens() {
+        assertTrue(userSearchService.search(" - ", 0).isEmpty());
+        assertTrue(userSearchService.search(null, 0).isEmpty());
+    }
+
+    @Test
+    public void usersUpdated() {
+        userSearchService.usersUpdated(Arrays.asList(new UserRowDTO(4L, "Mary", "Brown")));
+
+        assertTrue(userSearchService.search("jones", 0).isEmpty());
+        assertIds(userSearchService.search("brown", 0), 4L);
+        assertEquals(4, userSearchService.getIndexedCount());
+    }
+
+    @Test
+    public void usersDeleted() {
+        userSearchService.usersDeleted(Arrays.asList(new UserRowDTO(4L, "Mary", "Jones")));
+
+        assertTrue(userSearchService.search("jones", 0).isEmpty());
+        assertEquals(3, userSearchService.getIndexedCount());
+    }
+
+    @Test
+    public void rebuild() throws IOException {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                UserCallback callback = (UserCallback) invocation.getArguments()[2];
+                callback.handle(UserTestUtil.createModelObject(5L, "Peter", "Parker"));
+                return null;
+            }
+        }).when(userRepositoryMock).scrollAll(anyInt(), anyInt(), any(UserCallback.class));
+
+        int indexed = userSearchService.rebuild();
+
+        verify(userRepositoryMock, times(1)).scrollAll(anyInt(), anyInt(), any(UserCallback.class));
+        verify(transactionManagerMock, times(1)).commit(any(SimpleTransactionStatus.class));
+
+        // Read from the primary database
+        ArgumentCaptor<TransactionDefinition> definitionArgument = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManagerMock, times(1)).getTransaction(definitionArgument.capture());
+        assertFalse(definitionArgument.getValue().isReadOnly());
+
+        assertEquals(1, indexed);
+        assertEquals(1, userSearchService.getIndexedCount());
+        assertTrue(userSearchService.search("jones", 0).isEmpty());
+        assertIds(userSearchService.search("parker", 0), 5L);
+    }
+
+    @Test
+    public void changesDuringRebuildAreReplayed() throws IOException {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                UserCallback callback = (UserCallback) invocation.getArguments()[2];
+                callback.handle(UserTestUtil.createModelObject(5L, "Peter", "Parker"));
+                // Committed while the rebuild is reading the users
+                userSearchService.usersCreated(Arrays.asList(new UserRowDTO(6L, "Bruce", "Wayne")));
+                userSearchService.usersDeleted(Arrays.asList(new UserRowDTO(5L, "Peter", "Parker")));
+                return null;
+            }
+        }).when(userRepositoryMock).scrollAll(anyInt(), anyInt(), any(UserCallback.class));
+
+        userSearchService.rebuild();
+
+        assertEquals(1, userSearchService.getIndexedCount());
+        assertTrue(userSearchService.search("parker", 0).isEmpty());
+        assertIds(userSearchService.search("wayne", 0), 6L);
+    }
+
+    @Test
+    public void failedRebuildKeepsIndex() throws IOException {
+        doThrow(new IOException()).when(userRepositoryMock).scrollAll(anyInt(), anyInt(), any(UserCallback.class));
+
+        try {
+            userSearchService.rebuild();
+            fail();
+        } catch (IOException e) {
+            // Expected
+        }
+
+        assertEquals(4, userSearchService.getIndexedCount());
+        assertIds(userSearchService.search("jones", 0), 4L);
+    }
+
+    private void assertIds(List<UserRowDTO> users, Long... ids) {
+        assertEquals(ids.length, users.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], users.get(i).getId());
+        }
+    }
+}
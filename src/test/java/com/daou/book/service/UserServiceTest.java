@@ -3,20 +3,60 @@ package com.daou.book.service;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
 import com.daou.book.domain.UserTestUtil;
 import com.daou.book.domain.User;
+import com.daou.book.dto.BulkEditDTO;
+import com.daou.book.dto.BulkOutcome;
+import com.daou.book.dto.BulkOutcomeDTO;
+import com.daou.book.dto.BulkResultDTO;
+import com.daou.book.dto.ExportFormat;
+import com.daou.book.dto.PageDTO;
+import com.daou.book.dto.PageDirection;
+import com.daou.book.dto.SortType;
 import com.daou.book.dto.UserDTO;
 import com.daou.book.dto.SearchDTO;
 import com.daou.book.dto.SearchType;
+import com.daou.book.dto.UserDeltaDTO;
+import com.daou.book.dto.UserDeltaPageDTO;
+import com.daou.book.dto.UserPageDTO;
+import com.daou.book.dto.UserRowDTO;
+import com.daou.book.exception.InvalidBulkCriteriaException;
 import com.daou.book.exception.UserNotFoundException;
+import com.daou.book.metrics.MetricsRegistry;
+import com.daou.book.repository.UserCallback;
 import com.daou.book.repository.UserRepository;
 import com.daou.book.service.UserServiceImpl;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 import static org.mockito.Mockito.*;
 
 public class UserServiceTest {
@@ -26,19 +66,206 @@ public class UserServiceTest {
     private static final String FIRST_NAME_UPDATED = "FooUpdated";
     private static final String LAST_NAME = "Bar";
     private static final String LAST_NAME_UPDATED = "BarUpdated";
+    private static final long VERSION = 3;
+
+    private static final int PAGE_SIZE = 2;
+
+    private static final int BULK_CHUNK_SIZE = 2;
+
+    private static final int EXPORT_FETCH_SIZE = 100;
+    private static final int EXPORT_CLEAR_INTERVAL = 50;
     
     private UserServiceImpl userService;
 
     private UserRepository userRepositoryMock;
 
+    private GroupCommitUserWriter userWriterMock;
+
+    private PlatformTransactionManager transactionManagerMock;
+
+    private UserChangePublisher changePublisherMock;
+
+    private UserSearchService userSearchServiceMock;
+
+    private UserCache userCache;
+
+    private UserSearchCoalescer searchCoalescer;
+
     @Before
     public void setUp() {
         userService = new UserServiceImpl();
 
         userRepositoryMock = mock(UserRepository.class);
         userService.setUserRepository(userRepositoryMock);
+        userWriterMock = mock(GroupCommitUserWriter.class);
+        userService.setUserWriter(userWriterMock);
+        transactionManagerMock = mock(PlatformTransactionManager.class);
+        when(transactionManagerMock.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+        userService.setTransactionManager(transactionManagerMock);
+        changePublisherMock = mock(UserChangePublisher.class);
+        userService.setChangePublisher(changePublisherMock);
+        userSearchServiceMock = mock(UserSearchService.class);
+        userService.setUserSearchService(userSearchServiceMock);
+        userCache = new UserCache();
+        userCache.setMetricsRegistry(new MetricsRegistry());
+        userCache.open();
+        userService.setUserCache(userCache);
+        searchCoalescer = new UserSearchCoalescer();
+        userService.setSearchCoalescer(searchCoalescer);
+        userService.setBulkChunkSize(BULK_CHUNK_SIZE);
+        userService.setListPageSize(PAGE_SIZE);
+        userService.setExportFetchSize(EXPORT_FETCH_SIZE);
+        userService.setExportClearInterval(EXPORT_CLEAR_INTERVAL);
     }
     
+    @Test
+    public void bulkDeleteByIds() {
+        BulkEditDTO bulkCriteria = new BulkEditDTO();
+        bulkCriteria.setIds(Arrays.asList(1L, 2L, 2L, 3L));
+        when(userRepositoryMock.findIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(1L));
+        when(userRepositoryMock.findIds(Arrays.asList(3L))).thenReturn(Arrays.asList(3L));
+        List<UserRowDTO> firstDeletedRows = createRows(1L);
+        List<UserRowDTO> secondDeletedRows = createRows(3L);
+        when(userRepositoryMock.lockRowsByIds(Collections.singleton(1L))).thenReturn(firstDeletedRows);
+        when(userRepositoryMock.lockRowsByIds(Collections.singleton(3L))).thenReturn(secondDeletedRows);
+
+        BulkResultDTO result = userService.bulkDelete(bulkCriteria);
+
+        verify(userRepositoryMock, times(1)).findIds(Arrays.asList(1L, 2L));
+        verify(userRepositoryMock, times(1)).findIds(Arrays.asList(3L));
+        verify(userRepositoryMock, times(1)).lockRowsByIds(Collections.singleton(1L));
+        verify(userRepositoryMock, times(1)).lockRowsByIds(Collections.singleton(3L));
+        verify(userRepositoryMock, times(1)).deleteByIds(Collections.singleton(1L));
+        verify(userRepositoryMock, times(1)).deleteByIds(Collections.singleton(3L));
+        verifyNoMoreInteractions(userRepositoryMock);
+        verify(transactionManagerMock, times(2)).commit(any(SimpleTransactionStatus.class));
+        verify(changePublisherMock, times(1)).publishDeleted(firstDeletedRows);
+        verify(changePublisherMock, times(1)).publishDeleted(secondDeletedRows);
+        verifyNoMoreInteractions(changePublisherMock);
+
+        assertEquals(3, result.getTotal());
+        assertEquals(2, result.getChanged());
+        assertEquals(1, result.getNotFound());
+        assertBulkOutcome(result.getOutcomes().get(0), 1L, BulkOutcome.DELETED);
+        assertBulkOutcome(result.getOutcomes().get(1), 2L, BulkOutcome.NOT_FOUND);
+        assertBulkOutcome(result.getOutcomes().get(2), 3L, BulkOutcome.DELETED);
+    }
+
+    @Test
+    public void bulkDeleteBySearchCriteria() {
+        BulkEditDTO bulkCriteria = new BulkEditDTO();
+        bulkCriteria.setSearchCriteria(createSearchDTO(LAST_NAME, SearchType.QUERY_ANNOTATION));
+        when(userRepositoryMock.find(User.toLastNameKey(LAST_NAME))).thenReturn(createRows(USER_ID));
+        when(userRepositoryMock.findIds(Arrays.asList(USER_ID))).thenReturn(Arrays.asList(USER_ID));
+
+        BulkResultDTO result = userService.bulkDelete(bulkCriteria);
+
+        verify(userRepositoryMock, times(1)).find(User.toLastNameKey(LAST_NAME));
+        verify(userRepositoryMock, times(1)).findIds(Arrays.asList(USER_ID));
+        verify(userRepositoryMock, times(1)).lockRowsByIds(Collections.singleton(USER_ID));
+        verify(userRepositoryMock, times(1)).deleteByIds(Collections.singleton(USER_ID));
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertEquals(1, result.getChanged());
+        assertBulkOutcome(result.getOutcomes().get(0), USER_ID, BulkOutcome.DELETED);
+    }
+
+    @Test
+    public void bulkDeleteByFullTextSearch() {
+        BulkEditDTO bulkCriteria = new BulkEditDTO();
+        bulkCriteria.setSearchCriteria(createSearchDTO(LAST_NAME, SearchType.FULL_TEXT));
+
+        try {
+            userService.bulkDelete(bulkCriteria);
+            fail();
+        } catch (InvalidBulkCriteriaException e) {
+            // Expected
+        }
+
+        verifyZeroInteractions(userSearchServiceMock, userRepositoryMock);
+    }
+
+    @Test(expected = InvalidBulkCriteriaException.class)
+    public void bulkDeleteWithoutCriteria() {
+        userService.bulkDelete(new BulkEditDTO());
+    }
+
+    @Test
+    public void bulkUpdate() {
+        BulkEditDTO bulkCriteria = new BulkEditDTO();
+        bulkCriteria.setIds(Arrays.asList(USER_ID));
+        bulkCriteria.setLastName(LAST_NAME_UPDATED);
+        when(userRepositoryMock.findIds(Arrays.asList(USER_ID))).thenReturn(Arrays.asList(USER_ID));
+
+        BulkResultDTO result = userService.bulkUpdate(bulkCriteria);
+
+        verify(userRepositoryMock, times(1)).findIds(Arrays.asList(USER_ID));
+        verify(userRepositoryMock, times(1)).updateNames(eq(Collections.singleton(USER_ID)), (String) isNull(), eq(LAST_NAME_UPDATED), any(Date.class));
+        verifyNoMoreInteractions(userRepositoryMock);
+        verify(changePublisherMock, times(1)).hasListeners();
+        verifyNoMoreInteractions(changePublisherMock);
+
+        assertEquals(1, result.getChanged());
+        assertBulkOutcome(result.getOutcomes().get(0), USER_ID, BulkOutcome.UPDATED);
+    }
+
+    @Test
+    public void bulkUpdateTakesModificationTimePerChunk() {
+        userService.setBulkChunkSize(1);
+        BulkEditDTO bulkCriteria = new BulkEditDTO();
+        bulkCriteria.setIds(Arrays.asList(1L, 2L));
+        bulkCriteria.setLastName(LAST_NAME_UPDATED);
+        when(userRepositoryMock.findIds(Arrays.asList(1L))).thenReturn(Arrays.asList(1L));
+        when(userRepositoryMock.findIds(Arrays.asList(2L))).thenAnswer(new Answer<List<Long>>() {
+            @Override
+            public List<Long> answer(InvocationOnMock invocation) throws InterruptedException {
+                // The second chunk starts later than the first one
+                Thread.sleep(20);
+                return Arrays.asList(2L);
+            }
+        });
+
+        userService.bulkUpdate(bulkCriteria);
+
+        ArgumentCaptor<Date> modificationTimeArgument = ArgumentCaptor.forClass(Date.class);
+        verify(userRepositoryMock, times(2)).updateNames(anyCollection(), (String) isNull(), eq(LAST_NAME_UPDATED), modificationTimeArgument.capture());
+        List<Date> modificationTimes = modificationTimeArgument.getAllValues();
+        assertTrue(modificationTimes.get(1).getTime() - modificationTimes.get(0).getTime() >= 20);
+    }
+
+    @Test
+    public void bulkUpdatePublishesUpdatedRows() {
+        BulkEditDTO bulkCriteria = new BulkEditDTO();
+        bulkCriteria.setIds(Arrays.asList(USER_ID));
+        bulkCriteria.setLastName(LAST_NAME_UPDATED);
+        List<UserRowDTO> updatedRows = createRows(USER_ID);
+        when(userRepositoryMock.findIds(Arrays.asList(USER_ID))).thenReturn(Arrays.asList(USER_ID));
+        when(userRepositoryMock.findRowsByIds(Collections.singleton(USER_ID))).thenReturn(updatedRows);
+        when(changePublisherMock.hasListeners()).thenReturn(true);
+
+        userService.bulkUpdate(bulkCriteria);
+
+        verify(userRepositoryMock, times(1)).findRowsByIds(Collections.singleton(USER_ID));
+        verify(changePublisherMock, times(1)).publishUpdated(updatedRows);
+    }
+
+    @Test(expected = InvalidBulkCriteriaException.class)
+    public void bulkUpdateWithoutNames() {
+        BulkEditDTO bulkCriteria = new BulkEditDTO();
+        bulkCriteria.setIds(Arrays.asList(USER_ID));
+
+        userService.bulkUpdate(bulkCriteria);
+    }
+
+    @Test(expected = InvalidBulkCriteriaException.class)
+    public void bulkUpdateWithEmptyName() {
+        BulkEditDTO bulkCriteria = new BulkEditDTO();
+        bulkCriteria.setIds(Arrays.asList(USER_ID));
+        bulkCriteria.setFirstName(" ");
+
+        userService.bulkUpdate(bulkCriteria);
+    }
+
     @Test
     public void create() {
         UserDTO created = UserTestUtil.createDTO(null, FIRST_NAME, LAST_NAME);
@@ -54,32 +281,113 @@ public class UserServiceTest {
 
         assertUser(created, userArgument.getValue());
         assertEquals(persisted, returned);
+        assertPublishedCreated(persisted);
     }
     
+    @Test
+    public void createWithGroupCommit() throws Exception {
+        UserDTO created = UserTestUtil.createDTO(null, FIRST_NAME, LAST_NAME);
+        User persisted = UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME);
+        Future<User> future = mock(Future.class);
+        when(future.get(anyLong(), any(TimeUnit.class))).thenReturn(persisted);
+
+        when(userWriterMock.isEnabled()).thenReturn(true);
+        when(userWriterMock.submit(created)).thenReturn(future);
+
+        User returned = userService.create(created);
+
+        verify(userWriterMock, times(1)).submit(created);
+        verifyZeroInteractions(userRepositoryMock);
+
+        assertEquals(persisted, returned);
+        assertPublishedCreated(persisted);
+    }
+
+    private void assertPublishedCreated(User persisted) {
+        ArgumentCaptor<List> rowsArgument = ArgumentCaptor.forClass(List.class);
+        verify(changePublisherMock, times(1)).publishCreated(rowsArgument.capture());
+        assertEquals(1, rowsArgument.getValue().size());
+        assertRow((UserRowDTO) rowsArgument.getValue().get(0), persisted.getId(), persisted.getFirstName(), persisted.getLastName());
+        assertEquals(Long.valueOf(persisted.getVersion()), ((UserRowDTO) rowsArgument.getValue().get(0)).getVersion());
+    }
+
+    private void assertRow(UserRowDTO row, Long id, String firstName, String lastName) {
+        assertEquals(id, row.getId());
+        assertEquals(firstName, row.getFirstName());
+        assertEquals(lastName, row.getLastName());
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void createWithGroupCommitWhenInsertFails() throws Exception {
+        UserDTO created = UserTestUtil.createDTO(null, FIRST_NAME, LAST_NAME);
+        Future<User> future = mock(Future.class);
+        when(future.get(anyLong(), any(TimeUnit.class))).thenThrow(new ExecutionException(new DataIntegrityViolationException("")));
+
+        when(userWriterMock.isEnabled()).thenReturn(true);
+        when(userWriterMock.submit(created)).thenReturn(future);
+
+        userService.create(created);
+    }
+
+    @Test
+    public void createWithGroupCommitWhenUserIsNotWrittenInTime() throws Exception {
+        userService.setCreateWaitTimeoutMillis(10);
+        UserDTO created = UserTestUtil.createDTO(null, FIRST_NAME, LAST_NAME);
+        Future<User> future = mock(Future.class);
+        when(future.get(10, TimeUnit.MILLISECONDS)).thenThrow(new TimeoutException());
+
+        when(userWriterMock.isEnabled()).thenReturn(true);
+        when(userWriterMock.submit(created)).thenReturn(future);
+
+        try {
+            userService.create(created);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        verifyZeroInteractions(changePublisherMock);
+    }
+
     @Test
     public void delete() throws UserNotFoundException {
-        User deleted = UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME);
-        when(userRepositoryMock.findOne(USER_ID)).thenReturn(deleted);
+        List<UserRowDTO> deletedRows = createRows(USER_ID);
+        when(userRepositoryMock.lockRowsByIds(Collections.singleton(USER_ID))).thenReturn(deletedRows);
+        when(userRepositoryMock.deleteById(USER_ID)).thenReturn(1);
         
-        User returned = userService.delete(USER_ID);
+        userService.delete(USER_ID);
         
-        verify(userRepositoryMock, times(1)).findOne(USER_ID);
-        verify(userRepositoryMock, times(1)).delete(deleted);
+        verify(userRepositoryMock, times(1)).lockRowsByIds(Collections.singleton(USER_ID));
+        verify(userRepositoryMock, times(1)).deleteById(USER_ID);
         verifyNoMoreInteractions(userRepositoryMock);
-        
-        assertEquals(deleted, returned);
+        verify(changePublisherMock, times(1)).publishDeleted(deletedRows);
     }
     
-    @Test(expected = UserNotFoundException.class)
-    public void deleteWhenUserIsNotFound() throws UserNotFoundException {
-        when(userRepositoryMock.findOne(USER_ID)).thenReturn(null);
-        
-        userService.delete(USER_ID);
+    @Test
+    public void deleteWhenUserIsNotFound() {
+        when(userRepositoryMock.lockRowsByIds(Collections.singleton(USER_ID))).thenReturn(new ArrayList<UserRowDTO>());
         
-        verify(userRepositoryMock, times(1)).findOne(USER_ID);
-        verifyNoMoreInteractions(userRepositoryMock);
+        try {
+            userService.delete(USER_ID);
+            fail();
+        } catch (UserNotFoundException e) {
+            verify(userRepositoryMock, times(1)).lockRowsByIds(Collections.singleton(USER_ID));
+            verifyNoMoreInteractions(userRepositoryMock);
+            verifyZeroInteractions(changePublisherMock);
+        }
     }
     
+    @Test
+    public void export() throws IOException {
+        StringWriter output = new StringWriter();
+
+        userService.export(ExportFormat.CSV, output);
+
+        verify(userRepositoryMock, times(1)).scrollAll(eq(EXPORT_FETCH_SIZE), eq(EXPORT_CLEAR_INTERVAL), any(UserCallback.class));
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertTrue(output.toString().startsWith("id,first_name,last_name"));
+    }
+
     @Test
     public void findAll() {
         List<User> users = new ArrayList<User>();
@@ -105,16 +413,299 @@ public class UserServiceTest {
         
         assertEquals(user, returned);
     }
+
+    @Test
+    public void findByIdFromCache() {
+        User user = UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME);
+        when(userRepositoryMock.findOne(USER_ID)).thenReturn(user);
+
+        userService.findById(USER_ID);
+        User returned = userService.findById(USER_ID);
+
+        verify(userRepositoryMock, times(1)).findOne(USER_ID);
+        verify(transactionManagerMock, times(1)).commit(any(SimpleTransactionStatus.class));
+
+        assertEquals(user, returned);
+        assertEquals(1, userCache.getStatistics().getHitCount());
+    }
+
+    @Test
+    public void findByIdAfterCreate() {
+        User persisted = UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME);
+        when(userRepositoryMock.save(any(User.class))).thenReturn(persisted);
+
+        userService.create(UserTestUtil.createDTO(null, FIRST_NAME, LAST_NAME));
+        User returned = userService.findById(USER_ID);
+
+        verify(userRepositoryMock, never()).findOne(USER_ID);
+        assertEquals(persisted, returned);
+    }
+
+    @Test
+    public void findByIdAfterUpdate() throws UserNotFoundException {
+        User user = UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME);
+        User updatedUser = UserTestUtil.createModelObject(USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
+        when(userRepositoryMock.findOne(USER_ID)).thenReturn(user, updatedUser);
+        when(userRepositoryMock.update(eq(USER_ID), eq(VERSION), anyString(), anyString(), anyString(), any(Date.class))).thenReturn(1);
+
+        userService.findById(USER_ID);
+        userService.update(createUpdatedDTO());
+
+        assertEquals(updatedUser, userService.findById(USER_ID));
+        verify(userRepositoryMock, times(2)).findOne(USER_ID);
+    }
+
+    @Test
+    public void findByIdAfterDelete() throws UserNotFoundException {
+        User user = UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME);
+        when(userRepositoryMock.findOne(USER_ID)).thenReturn(user, (User) null);
+        when(userRepositoryMock.lockRowsByIds(Collections.singleton(USER_ID))).thenReturn(createRows(USER_ID));
+        when(userRepositoryMock.deleteById(USER_ID)).thenReturn(1);
+
+        userService.findById(USER_ID);
+        userService.delete(USER_ID);
+
+        assertNull(userService.findById(USER_ID));
+    }
+
+    @Test
+    public void findByIdAfterBulkUpdate() {
+        User user = UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME);
+        User updatedUser = UserTestUtil.createModelObject(USER_ID, FIRST_NAME_UPDATED, LAST_NAME);
+        when(userRepositoryMock.findOne(USER_ID)).thenReturn(user, updatedUser);
+        when(userRepositoryMock.findIds(Arrays.asList(USER_ID))).thenReturn(Arrays.asList(USER_ID));
+        BulkEditDTO bulkCriteria = new BulkEditDTO();
+        bulkCriteria.setIds(Arrays.asList(USER_ID));
+        bulkCriteria.setFirstName(FIRST_NAME_UPDATED);
+
+        userService.findById(USER_ID);
+        userService.bulkUpdate(bulkCriteria);
+
+        assertEquals(updatedUser, userService.findById(USER_ID));
+    }
     
+    @Test
+    public void findFirstPage() {
+        List<UserRowDTO> users = createRows(1L, 2L, 3L);
+        when(userRepositoryMock.findFirstPageOrderById(any(Pageable.class))).thenReturn(users);
+
+        UserPageDTO page = userService.findPage(new PageDTO());
+
+        ArgumentCaptor<Pageable> limitArgument = ArgumentCaptor.forClass(Pageable.class);
+        verify(userRepositoryMock, times(1)).findFirstPageOrderById(limitArgument.capture());
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertEquals(PAGE_SIZE + 1, limitArgument.getValue().getPageSize());
+        assertEquals(0, limitArgument.getValue().getPageNumber());
+        assertEquals(SortType.ID, page.getSortType());
+        assertPageIds(page, 1L, 2L);
+        assertTrue(page.isFirstPage());
+        assertFalse(page.isLastPage());
+    }
+
+    @Test
+    public void findNextPage() {
+        PageDTO pageCriteria = createPageDTO(SortType.ID, PageDirection.NEXT, 2L, null);
+        List<UserRowDTO> users = createRows(3L);
+        when(userRepositoryMock.findPageAfterId(eq(2L), any(Pageable.class))).thenReturn(users);
+
+        UserPageDTO page = userService.findPage(pageCriteria);
+
+        verify(userRepositoryMock, times(1)).findPageAfterId(eq(2L), any(Pageable.class));
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertPageIds(page, 3L);
+        assertFalse(page.isFirstPage());
+        assertTrue(page.isLastPage());
+    }
+
+    @Test
+    public void findPreviousPage() {
+        PageDTO pageCriteria = createPageDTO(SortType.ID, PageDirection.PREVIOUS, 5L, null);
+        List<UserRowDTO> users = createRows(4L, 3L, 2L);
+        when(userRepositoryMock.findPageBeforeId(eq(5L), any(Pageable.class))).thenReturn(users);
+
+        UserPageDTO page = userService.findPage(pageCriteria);
+
+        verify(userRepositoryMock, times(1)).findPageBeforeId(eq(5L), any(Pageable.class));
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertPageIds(page, 3L, 4L);
+        assertFalse(page.isFirstPage());
+        assertFalse(page.isLastPage());
+    }
+
+    @Test
+    public void findPreviousPageWhenNothingIsFoundBeforeCursor() {
+        PageDTO pageCriteria = createPageDTO(SortType.ID, PageDirection.PREVIOUS, 1L, null);
+        List<UserRowDTO> users = createRows(1L);
+        when(userRepositoryMock.findPageBeforeId(eq(1L), any(Pageable.class))).thenReturn(new ArrayList<UserRowDTO>());
+        when(userRepositoryMock.findFirstPageOrderById(any(Pageable.class))).thenReturn(users);
+
+        UserPageDTO page = userService.findPage(pageCriteria);
+
+        verify(userRepositoryMock, times(1)).findPageBeforeId(eq(1L), any(Pageable.class));
+        verify(userRepositoryMock, times(1)).findFirstPageOrderById(any(Pageable.class));
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertPageIds(page, 1L);
+        assertTrue(page.isFirstPage());
+        assertTrue(page.isLastPage());
+    }
+
+    @Test
+    public void findPreviousPageOrderByLastNameWhenNothingIsFoundBeforeCursor() {
+        PageDTO pageCriteria = createPageDTO(SortType.LAST_NAME, PageDirection.PREVIOUS, 7L, LAST_NAME);
+        List<UserRowDTO> users = createRows(8L);
+        when(userRepositoryMock.findPageBeforeLastName(eq(LAST_NAME), eq(7L), any(Pageable.class))).thenReturn(new ArrayList<UserRowDTO>());
+        when(userRepositoryMock.findFirstPageOrderByLastName(any(Pageable.class))).thenReturn(users);
+
+        UserPageDTO page = userService.findPage(pageCriteria);
+
+        verify(userRepositoryMock, times(1)).findPageBeforeLastName(eq(LAST_NAME), eq(7L), any(Pageable.class));
+        verify(userRepositoryMock, times(1)).findFirstPageOrderByLastName(any(Pageable.class));
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertPageIds(page, 8L);
+        assertEquals(SortType.LAST_NAME, page.getSortType());
+        assertTrue(page.isFirstPage());
+    }
+
+    @Test
+    public void findNextPageOrderByLastName() {
+        PageDTO pageCriteria = createPageDTO(SortType.LAST_NAME, PageDirection.NEXT, 7L, LAST_NAME);
+        List<UserRowDTO> users = createRows(8L, 3L, 9L);
+        when(userRepositoryMock.findPageAfterLastName(eq(LAST_NAME), eq(7L), any(Pageable.class))).thenReturn(users);
+
+        UserPageDTO page = userService.findPage(pageCriteria);
+
+        verify(userRepositoryMock, times(1)).findPageAfterLastName(eq(LAST_NAME), eq(7L), any(Pageable.class));
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertEquals(SortType.LAST_NAME, page.getSortType());
+        assertPageIds(page, 8L, 3L);
+        assertFalse(page.isFirstPage());
+        assertFalse(page.isLastPage());
+    }
+
+    @Test
+    public void findPageOrderByLastNameWithoutCursorLastName() {
+        PageDTO pageCriteria = createPageDTO(SortType.LAST_NAME, PageDirection.NEXT, 7L, null);
+        List<UserRowDTO> users = createRows(8L);
+        when(userRepositoryMock.findFirstPageOrderByLastName(any(Pageable.class))).thenReturn(users);
+
+        UserPageDTO page = userService.findPage(pageCriteria);
+
+        verify(userRepositoryMock, times(1)).findFirstPageOrderByLastName(any(Pageable.class));
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertPageIds(page, 8L);
+        assertTrue(page.isFirstPage());
+        assertTrue(page.isLastPage());
+    }
+
+    @Test
+    public void findModifiedAfter() {
+        Date time = new Date(1000L);
+        List<UserDeltaDTO> users = Arrays.asList(createDelta(3L, 2000L), createDelta(2L, 3000L), createDelta(4L, 3000L));
+        when(userRepositoryMock.findModifiedAfter(eq(time), eq(1L), any(Date.class), any(Pageable.class))).thenReturn(users);
+
+        UserDeltaPageDTO page = userService.findModifiedAfter(time, 1L, 2);
+
+        ArgumentCaptor<Pageable> limitArgument = ArgumentCaptor.forClass(Pageable.class);
+        verify(userRepositoryMock, times(1)).findModifiedAfter(eq(time), eq(1L), any(Date.class), limitArgument.capture());
+        verifyNoMoreInteractions(userRepositoryMock);
+
+        assertEquals(3, limitArgument.getValue().getPageSize());
+        assertEquals(2, page.getUsers().size());
+
+        // Read from the primary database
+        ArgumentCaptor<TransactionDefinition> definitionArgument = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManagerMock, times(1)).getTransaction(definitionArgument.capture());
+        assertFalse(definitionArgument.getValue().isReadOnly());
+        assertEquals(3000L, page.getCursorTime().getTime());
+        assertEquals(Long.valueOf(2L), page.getCursorId());
+        assertTrue(page.isHasMore());
+    }
+
+    @Test
+    public void findModifiedAfterLimitsPageSize() {
+        userService.setDeltaMaxPageSize(PAGE_SIZE);
+        when(userRepositoryMock.findModifiedAfter(any(Date.class), anyLong(), any(Date.class), any(Pageable.class))).thenReturn(new ArrayList<UserDeltaDTO>());
+
+        userService.findModifiedAfter(new Date(0L), 0L, 1000);
+
+        ArgumentCaptor<Pageable> limitArgument = ArgumentCaptor.forClass(Pageable.class);
+        verify(userRepositoryMock, times(1)).findModifiedAfter(any(Date.class), anyLong(), any(Date.class), limitArgument.capture());
+
+        assertEquals(PAGE_SIZE + 1, limitArgument.getValue().getPageSize());
+    }
+
+    @Test
+    public void findModifiedAfterLeavesSettleTime() {
+        userService.setDeltaSettleMillis(60000L);
+        when(userRepositoryMock.findModifiedAfter(any(Date.class), anyLong(), any(Date.class), any(Pageable.class))).thenReturn(new ArrayList<UserDeltaDTO>());
+        long startTime = System.currentTimeMillis();
+
+        userService.findModifiedAfter(new Date(0L), 0L, 10);
+
+        ArgumentCaptor<Date> untilArgument = ArgumentCaptor.forClass(Date.class);
+        verify(userRepositoryMock, times(1)).findModifiedAfter(any(Date.class), anyLong(), untilArgument.capture(), any(Pageable.class));
+
+        assertTrue(untilArgument.getValue().getTime() <= startTime - 60000L + 1000L);
+        assertTrue(untilArgument.getValue().getTime() >= startTime - 60000L);
+    }
+
+    @Test
+    public void findModifiedAfterWhenNothingIsModified() {
+        Date time = new Date(1000L);
+        when(userRepositoryMock.findModifiedAfter(eq(time), eq(5L), any(Date.class), any(Pageable.class))).thenReturn(new ArrayList<UserDeltaDTO>());
+
+        UserDeltaPageDTO page = userService.findModifiedAfter(time, 5L, 10);
+
+        assertTrue(page.getUsers().isEmpty());
+        assertEquals(time, page.getCursorTime());
+        assertEquals(Long.valueOf(5L), page.getCursorId());
+        assertFalse(page.isHasMore());
+    }
+
+    private UserDeltaDTO createDelta(Long id, long modificationTime) {
+        return new UserDeltaDTO(id, FIRST_NAME, LAST_NAME, 1L, new Date(modificationTime));
+    }
+
+    private PageDTO createPageDTO(SortType sortType, PageDirection direction, Long cursorId, String cursorLastName) {
+        PageDTO pageCriteria = new PageDTO();
+        pageCriteria.setSortType(sortType);
+        pageCriteria.setDirection(direction);
+        pageCriteria.setCursorId(cursorId);
+        pageCriteria.setCursorLastName(cursorLastName);
+        return pageCriteria;
+    }
+
+    private List<UserRowDTO> createRows(Long... ids) {
+        List<UserRowDTO> users = new ArrayList<UserRowDTO>();
+        for (Long id : ids) {
+            users.add(new UserRowDTO(id, FIRST_NAME, LAST_NAME));
+        }
+        return users;
+    }
+
+    private void assertPageIds(UserPageDTO page, Long... expectedIds) {
+        assertEquals(expectedIds.length, page.getUsers().size());
+        for (int index = 0; index < expectedIds.length; index++) {
+            assertEquals(expectedIds[index], page.getUsers().get(index).getId());
+        }
+    }
+
     @Test
     public void searchWhenSearchTypeIsMethodName() {
         SearchDTO searchCriteria = createSearchDTO(LAST_NAME, SearchType.METHOD_NAME);
-        List<User> expected = new ArrayList<User>();
-        when(userRepositoryMock.findByLastName(searchCriteria.getSearchTerm())).thenReturn(expected);
+        List<UserRowDTO> expected = new ArrayList<UserRowDTO>();
+        when(userRepositoryMock.findByLastName(User.toLastNameKey(searchCriteria.getSearchTerm()), searchCriteria.getSearchTerm())).thenReturn(expected);
         
-        List<User> actual = userService.search(searchCriteria);
+        List<UserRowDTO> actual = userService.search(searchCriteria);
         
-        verify(userRepositoryMock, times(1)).findByLastName(searchCriteria.getSearchTerm());
+        verify(userRepositoryMock, times(1)).findByLastName(User.toLastNameKey(searchCriteria.getSearchTerm()), searchCriteria.getSearchTerm());
         verifyNoMoreInteractions(userRepositoryMock);
         
         assertEquals(expected, actual);
@@ -123,12 +714,12 @@ public class UserServiceTest {
     @Test
     public void searchWhenSearchTypeIsNamedQuery() {
         SearchDTO searchCriteria = createSearchDTO(LAST_NAME, SearchType.NAMED_QUERY);
-        List<User> expected = new ArrayList<User>();
-        when(userRepositoryMock.findByName(searchCriteria.getSearchTerm())).thenReturn(expected);
+        List<UserRowDTO> expected = new ArrayList<UserRowDTO>();
+        when(userRepositoryMock.findByName(User.toLastNameKey(searchCriteria.getSearchTerm()))).thenReturn(expected);
 
-        List<User> actual = userService.search(searchCriteria);
+        List<UserRowDTO> actual = userService.search(searchCriteria);
 
-        verify(userRepositoryMock, times(1)).findByName(searchCriteria.getSearchTerm());
+        verify(userRepositoryMock, times(1)).findByName(User.toLastNameKey(searchCriteria.getSearchTerm()));
         verifyNoMoreInteractions(userRepositoryMock);
 
         assertEquals(expected, actual);
@@ -137,17 +728,86 @@ public class UserServiceTest {
     @Test
     public void searchWhenSearchTypeIsQueryAnnotation() {
         SearchDTO searchCriteria = createSearchDTO(LAST_NAME, SearchType.QUERY_ANNOTATION);
-        List<User> expected = new ArrayList<User>();
-        when(userRepositoryMock.find(searchCriteria.getSearchTerm())).thenReturn(expected);
+        List<UserRowDTO> expected = new ArrayList<UserRowDTO>();
+        when(userRepositoryMock.find(User.toLastNameKey(searchCriteria.getSearchTerm()))).thenReturn(expected);
 
-        List<User> actual = userService.search(searchCriteria);
+        List<UserRowDTO> actual = userService.search(searchCriteria);
 
-        verify(userRepositoryMock, times(1)).find(searchCriteria.getSearchTerm());
+        verify(userRepositoryMock, times(1)).find(User.toLastNameKey(searchCriteria.getSearchTerm()));
         verifyNoMoreInteractions(userRepositoryMock);
 
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void concurrentIdenticalSearchesShareOneQuery() throws Exception {
+        final int callerCount = 8;
+        final List<UserRowDTO> expected = createRows(USER_ID);
+        // The query ends only after the other callers joined it
+        when(userRepositoryMock.find(User.toLastNameKey(LAST_NAME))).thenAnswer(new Answer<List<UserRowDTO>>() {
+            @Override
+            public List<UserRowDTO> answer(InvocationOnMock invocation) throws Throwable {
+                long deadline = System.currentTimeMillis() + 10000;
+                while (searchCoalescer.getSharedCount() < callerCount - 1 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(1);
+                }
+                return expected;
+            }
+        });
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callerCount);
+        try {
+            List<Future<List<UserRowDTO>>> results = new ArrayList<Future<List<UserRowDTO>>>();
+            for (int i = 0; i < callerCount; i++) {
+                // The same last name typed in different cases
+                final String searchTerm = i % 2 == 0 ? LAST_NAME : " " + LAST_NAME.toUpperCase() + " ";
+                results.add(executor.submit(new Callable<List<UserRowDTO>>() {
+                    @Override
+                    public List<UserRowDTO> call() throws Exception {
+                        start.await();
+                        return userService.search(createSearchDTO(searchTerm, SearchType.QUERY_ANNOTATION));
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (Future<List<UserRowDTO>> result : results) {
+                assertEquals(expected, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(userRepositoryMock, times(1)).find(User.toLastNameKey(LAST_NAME));
+        verify(transactionManagerMock, times(1)).commit(any(SimpleTransactionStatus.class));
+        assertEquals(callerCount - 1, searchCoalescer.getSharedCount());
+    }
+
+    @Test
+    public void searchWhenSearchTypeIsFullText() {
+        SearchDTO searchCriteria = createSearchDTO(LAST_NAME, SearchType.FULL_TEXT);
+        searchCriteria.setPage(1);
+        List<UserRowDTO> expected = createRows(USER_ID);
+        when(userSearchServiceMock.search(LAST_NAME, 1)).thenReturn(expected);
+
+        List<UserRowDTO> actual = userService.search(searchCriteria);
+
+        verify(userSearchServiceMock, times(1)).search(LAST_NAME, 1);
+        verifyZeroInteractions(userRepositoryMock);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void searchWhenSearchTypeIsFullTextWithoutPage() {
+        SearchDTO searchCriteria = createSearchDTO(LAST_NAME, SearchType.FULL_TEXT);
+
+        userService.search(searchCriteria);
+
+        verify(userSearchServiceMock, times(1)).search(LAST_NAME, 0);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void searchWhenSearchTypeIsNull() {
         SearchDTO searchCriteria = createSearchDTO(LAST_NAME, null);
@@ -166,29 +826,60 @@ public class UserServiceTest {
     
     @Test
     public void update() throws UserNotFoundException {
-        UserDTO updated = UserTestUtil.createDTO(USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
-        User user = UserTestUtil.createModelObject(USER_ID, FIRST_NAME, LAST_NAME);
+        UserDTO updated = createUpdatedDTO();
+        when(userRepositoryMock.update(eq(USER_ID), eq(VERSION), eq(FIRST_NAME_UPDATED), eq(LAST_NAME_UPDATED),
+                eq(User.toLastNameKey(LAST_NAME_UPDATED)), any(Date.class))).thenReturn(1);
         
-        when(userRepositoryMock.findOne(updated.getId())).thenReturn(user);
-        
-        User returned = userService.update(updated);
+        Date before = new Date();
+        userService.update(updated);
         
-        verify(userRepositoryMock, times(1)).findOne(updated.getId());
+        ArgumentCaptor<Date> modificationTimeArgument = ArgumentCaptor.forClass(Date.class);
+        verify(userRepositoryMock, times(1)).update(eq(USER_ID), eq(VERSION), eq(FIRST_NAME_UPDATED), eq(LAST_NAME_UPDATED),
+                eq(User.toLastNameKey(LAST_NAME_UPDATED)), modificationTimeArgument.capture());
         verifyNoMoreInteractions(userRepositoryMock);
         
-        assertUser(updated, returned);
+        assertFalse(modificationTimeArgument.getValue().before(before));
+
+        ArgumentCaptor<List> rowsArgument = ArgumentCaptor.forClass(List.class);
+        verify(changePublisherMock, times(1)).publishUpdated(rowsArgument.capture());
+        assertRow((UserRowDTO) rowsArgument.getValue().get(0), USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
+        assertEquals(Long.valueOf(VERSION + 1), ((UserRowDTO) rowsArgument.getValue().get(0)).getVersion());
     }
     
     @Test(expected = UserNotFoundException.class)
     public void updateWhenUserIsNotFound() throws UserNotFoundException {
+        UserDTO updated = createUpdatedDTO();
+        when(userRepositoryMock.update(eq(USER_ID), eq(VERSION), anyString(), anyString(), anyString(), any(Date.class))).thenReturn(0);
+        when(userRepositoryMock.exists(USER_ID)).thenReturn(false);
+
+        userService.update(updated);
+    }
+
+    @Test(expected = OptimisticLockingFailureException.class)
+    public void updateWhenUserIsModified() throws UserNotFoundException {
+        UserDTO updated = createUpdatedDTO();
+        when(userRepositoryMock.update(eq(USER_ID), eq(VERSION), anyString(), anyString(), anyString(), any(Date.class))).thenReturn(0);
+        when(userRepositoryMock.exists(USER_ID)).thenReturn(true);
+
+        userService.update(updated);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void updateWhenVersionIsNull() throws UserNotFoundException {
         UserDTO updated = UserTestUtil.createDTO(USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
-        
-        when(userRepositoryMock.findOne(updated.getId())).thenReturn(null);
 
         userService.update(updated);
+    }
 
-        verify(userRepositoryMock, times(1)).findOne(updated.getId());
-        verifyNoMoreInteractions(userRepositoryMock);
+    private UserDTO createUpdatedDTO() {
+        UserDTO updated = UserTestUtil.createDTO(USER_ID, FIRST_NAME_UPDATED, LAST_NAME_UPDATED);
+        updated.setVersion(VERSION);
+        return updated;
+    }
+
+    private void assertBulkOutcome(BulkOutcomeDTO actual, Long expectedId, BulkOutcome expectedOutcome) {
+        assertEquals(expectedId, actual.getId());
+        assertEquals(expectedOutcome, actual.getOutcome());
     }
 
     private void assertUser(UserDTO expected, User actual) {
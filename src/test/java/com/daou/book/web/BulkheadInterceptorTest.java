@@ -0,0 +1,178 @@
+package com.daou.book.web;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.ui.Model;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import com.daou.book.controller.AdminController;
+import com.daou.book.controller.UserController;
+import com.daou.book.controller.UserExportController;
+import com.daou.book.dto.ExportFormat;
+import com.daou.book.dto.PageDTO;
+import com.daou.book.dto.UserDTO;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class BulkheadInterceptorTest {
+
+    private BulkheadInterceptor interceptor;
+
+    private ConcurrencyLimiter readLimiterMock;
+
+    private ConcurrencyLimiter writeLimiterMock;
+
+    private ConcurrencyLimiter createLimiterMock;
+
+    private ConcurrencyLimiter bulkLimiterMock;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp() {
+        readLimiterMock = mock(ConcurrencyLimiter.class);
+        writeLimiterMock = mock(ConcurrencyLimiter.class);
+        createLimiterMock = mock(ConcurrencyLimiter.class);
+        bulkLimiterMock = mock(ConcurrencyLimiter.class);
+
+        Map<BulkheadType, ConcurrencyLimiter> limiters = new EnumMap<BulkheadType, ConcurrencyLimiter>(BulkheadType.class);
+        limiters.put(BulkheadType.READ, readLimiterMock);
+        limiters.put(BulkheadType.WRITE, writeLimiterMock);
+        limiters.put(BulkheadType.CREATE, createLimiterMock);
+        limiters.put(BulkheadType.BULK, bulkLimiterMock);
+        interceptor = new BulkheadInterceptor(limiters);
+
+        request = new MockHttpServletRequest();
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void readIsAdmittedAndReleased() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new UserController(), "showList", PageDTO.class, Model.class, NativeWebRequest.class);
+        when(readLimiterMock.acquire()).thenReturn(true);
+
+        assertTrue(interceptor.preHandle(request, response, handler));
+        interceptor.afterCompletion(request, response, handler, null);
+
+        verify(readLimiterMock, times(1)).acquire();
+        verify(readLimiterMock, times(1)).release();
+        verifyNoMoreInteractions(readLimiterMock);
+        verifyZeroInteractions(writeLimiterMock);
+    }
+
+    @Test
+    public void writeIsAdmittedAndReleasedWhenHandlerFailed() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new UserController(), "delete", Long.class, RedirectAttributes.class);
+        when(writeLimiterMock.acquire()).thenReturn(true);
+
+        assertTrue(interceptor.preHandle(request, response, handler));
+        interceptor.afterCompletion(request, response, handler, new RuntimeException());
+        // A second completion does not release the permit again
+        interceptor.afterCompletion(request, response, handler, null);
+
+        verify(writeLimiterMock, times(1)).acquire();
+        verify(writeLimiterMock, times(1)).release();
+        verifyNoMoreInteractions(writeLimiterMock);
+        verifyZeroInteractions(readLimiterMock);
+    }
+
+    @Test
+    public void createIsAdmittedByCreateBulkhead() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new UserController(), "submitCreateUserForm", UserDTO.class, BindingResult.class, RedirectAttributes.class);
+        when(createLimiterMock.acquire()).thenReturn(true);
+
+        assertTrue(interceptor.preHandle(request, response, handler));
+        interceptor.afterCompletion(request, response, handler, null);
+
+        verify(createLimiterMock, times(1)).acquire();
+        verify(createLimiterMock, times(1)).release();
+        verifyZeroInteractions(readLimiterMock, writeLimiterMock);
+    }
+
+    @Test
+    public void exportIsAdmittedByBulkBulkhead() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new UserExportController(), "export", ExportFormat.class, HttpServletResponse.class);
+        when(bulkLimiterMock.acquire()).thenReturn(true);
+
+        assertTrue(interceptor.preHandle(request, response, handler));
+        interceptor.afterCompletion(request, response, handler, null);
+
+        verify(bulkLimiterMock, times(1)).acquire();
+        verify(bulkLimiterMock, times(1)).release();
+        verifyZeroInteractions(readLimiterMock, writeLimiterMock, createLimiterMock);
+    }
+
+    @Test
+    public void searchIndexRebuildIsRejectedByBulkBulkhead() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new AdminController(), "rebuildSearchIndex");
+        when(bulkLimiterMock.acquire()).thenReturn(false);
+
+        assertFalse(interceptor.preHandle(request, response, handler));
+
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        verify(bulkLimiterMock, times(1)).acquire();
+        verifyNoMoreInteractions(bulkLimiterMock);
+    }
+
+    @Test
+    public void rejectedRequestGetsServiceUnavailable() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new UserController(), "showList", PageDTO.class, Model.class, NativeWebRequest.class);
+        when(readLimiterMock.acquire()).thenReturn(false);
+
+        assertFalse(interceptor.preHandle(request, response, handler));
+
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        assertEquals(BulkheadInterceptor.RETRY_AFTER_SECONDS, response.getHeader("Retry-After"));
+
+        verify(readLimiterMock, times(1)).acquire();
+        verifyNoMoreInteractions(readLimiterMock);
+    }
+
+    @Test
+    public void handlerWithoutBulkheadIsAdmitted() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new AdminController(), "showCacheStatistics");
+
+        assertTrue(interceptor.preHandle(request, response, handler));
+        interceptor.afterCompletion(request, response, handler, null);
+
+        verifyZeroInteractions(readLimiterMock, writeLimiterMock, createLimiterMock, bulkLimiterMock);
+    }
+
+    @Test
+    public void handlerIsNotHandlerMethod() throws Exception {
+        Object handler = new Object();
+
+        assertTrue(interceptor.preHandle(request, response, handler));
+        interceptor.afterCompletion(request, response, handler, null);
+
+        verifyZeroInteractions(readLimiterMock, writeLimiterMock, createLimiterMock);
+    }
+
+    @Test
+    public void limiterIsMissing() {
+        Map<BulkheadType, ConcurrencyLimiter> limiters = new EnumMap<BulkheadType, ConcurrencyLimiter>(BulkheadType.class);
+        limiters.put(BulkheadType.READ, readLimiterMock);
+        try {
+            new BulkheadInterceptor(limiters);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
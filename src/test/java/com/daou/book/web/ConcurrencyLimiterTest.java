@@ -0,0 +1,190 @@
+package com.daou.book.web;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.daou.book.metrics.MetricsRegistry;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class ConcurrencyLimiterTest {
+
+    private static final String METRIC_NAME_WAIT = "bulkhead.read.wait";
+    private static final String METRIC_NAME_REJECTED = "bulkhead.read.rejected";
+
+    private static final long INTERVAL_MILLIS = 400;
+    private static final long TARGET_MILLIS = 1;
+
+    private MetricsRegistry metricsRegistry;
+
+    @Before
+    public void setUp() {
+        metricsRegistry = new MetricsRegistry();
+    }
+
+    @Test
+    public void acquire() {
+        ConcurrencyLimiter limiter = createLimiter(2, 0);
+
+        assertTrue(limiter.acquire());
+        assertTrue(limiter.acquire());
+        assertFalse(limiter.acquire());
+
+        limiter.release();
+        assertTrue(limiter.acquire());
+
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(3, metricsRegistry.getSnapshots().get(METRIC_NAME_WAIT).getCount());
+        assertEquals(1, metricsRegistry.getSnapshots().get(METRIC_NAME_REJECTED).getCount());
+    }
+
+    @Test
+    public void waitingRequestIsAdmittedWhenPermitIsReleased() throws Exception {
+        final ConcurrencyLimiter limiter = createLimiter(1, 1, 10000, TARGET_MILLIS);
+        assertTrue(limiter.acquire());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> waiting = executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return limiter.acquire();
+                }
+            });
+            awaitWaiting(limiter, 1);
+
+            limiter.release();
+
+            assertTrue(waiting.get(10, TimeUnit.SECONDS));
+            assertEquals(0, limiter.getWaiting());
+            assertEquals(0, limiter.getRejectedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void requestIsRejectedWhenQueueIsFull() throws Exception {
+        final ConcurrencyLimiter limiter = createLimiter(1, 1, 10000, TARGET_MILLIS);
+        assertTrue(limiter.acquire());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> waiting = executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return limiter.acquire();
+                }
+            });
+            awaitWaiting(limiter, 1);
+
+            long startTime = System.nanoTime();
+            assertFalse(limiter.acquire());
+            assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(5));
+
+            limiter.release();
+            assertTrue(waiting.get(10, TimeUnit.SECONDS));
+            assertEquals(1, limiter.getRejectedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void requestWaitsUpToIntervalWhenQueueWasEmpty() {
+        ConcurrencyLimiter limiter = createLimiter(1, 1);
+        assertTrue(limiter.acquire());
+
+        long startTime = System.nanoTime();
+        assertFalse(limiter.acquire());
+
+        assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(INTERVAL_MILLIS));
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(0, limiter.getWaiting());
+    }
+
+    @Test
+    public void requestWaitsUpToTargetWhenQueueWasNotEmptyForInterval() throws Exception {
+        final ConcurrencyLimiter limiter = createLimiter(1, 3);
+        assertTrue(limiter.acquire());
+
+        Callable<Boolean> acquire = new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return limiter.acquire();
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // The second request enters the queue before the first leaves it, so it is not emptied
+            Future<Boolean> first = executor.submit(acquire);
+            awaitWaiting(limiter, 1);
+            Thread.sleep(INTERVAL_MILLIS / 2);
+            Future<Boolean> second = executor.submit(acquire);
+            awaitWaiting(limiter, 2);
+            Thread.sleep(INTERVAL_MILLIS / 2 + INTERVAL_MILLIS / 4);
+
+            long startTime = System.nanoTime();
+            assertFalse(limiter.acquire());
+            assertTrue(System.nanoTime() - startTime < TimeUnit.MILLISECONDS.toNanos(INTERVAL_MILLIS / 4));
+
+            assertFalse(first.get(10, TimeUnit.SECONDS));
+            assertFalse(second.get(10, TimeUnit.SECONDS));
+            assertEquals(3, limiter.getRejectedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void interruptedRequestIsRejected() {
+        ConcurrencyLimiter limiter = createLimiter(1, 1);
+        assertTrue(limiter.acquire());
+
+        Thread.currentThread().interrupt();
+        try {
+            assertFalse(limiter.acquire());
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void noPermits() {
+        try {
+            createLimiter(0, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    private ConcurrencyLimiter createLimiter(int maxConcurrent, int maxWaiting) {
+        return createLimiter(maxConcurrent, maxWaiting, INTERVAL_MILLIS, TARGET_MILLIS);
+    }
+
+    private ConcurrencyLimiter createLimiter(int maxConcurrent, int maxWaiting, long intervalMillis, long targetMillis) {
+        return new ConcurrencyLimiter("read", maxConcurrent, maxWaiting, intervalMillis, targetMillis, metricsRegistry);
+    }
+
+    private static void awaitWaiting(ConcurrencyLimiter limiter, int waiting) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (limiter.getWaiting() < waiting) {
+            if (System.nanoTime() > deadline) {
+                fail("No request started waiting");
+            }
+            Thread.sleep(1);
+        }
+    }
+}
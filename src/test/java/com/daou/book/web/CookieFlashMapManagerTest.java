@@ -0,0 +1,154 @@
+package com.daou.book.web;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.FlashMapManager;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.support.RequestContextUtils;
+
+import javax.servlet.http.Cookie;
+
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class CookieFlashMapManagerTest {
+
+    private static final String FLASH_FEEDBACK_MESSAGE = "feedbackMessage";
+    private static final String FEEDBACK_MESSAGE = "유저가 생성 되었습니다. 이름 : Foo Bar & Co=1";
+
+    private static final String CONTEXT_PATH = "/book";
+
+    private static final String LIST_PATH = "/";
+    private static final String EDIT_PATH = "/user/edit/5";
+
+    private static final String VIEW_REDIRECT_PREFIX = "redirect:";
+    private static final String VIEW_LIST = "user/list";
+
+    private CookieFlashMapManager flashMapManager;
+
+    @Before
+    public void setUp() {
+        flashMapManager = new CookieFlashMapManager(new HmacSigner("signingKey".getBytes()));
+    }
+
+    @Test
+    public void redirectWritesCookie() {
+        Cookie cookie = redirect(LIST_PATH, "");
+
+        assertNotNull(cookie);
+        assertEquals(LIST_PATH, cookie.getPath());
+        assertEquals(-1, cookie.getMaxAge());
+        assertTrue(cookie.isHttpOnly());
+    }
+
+    @Test
+    public void cookieIsConsumedByTargetPath() {
+        Cookie cookie = redirect(LIST_PATH, "");
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", LIST_PATH);
+        request.setCookies(cookie);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        flashMapManager.requestStarted(request);
+        flashMapManager.preHandle(request, response, null);
+
+        Map<String, ?> flashMap = RequestContextUtils.getInputFlashMap(request);
+        assertNotNull(flashMap);
+        assertEquals(FEEDBACK_MESSAGE, flashMap.get(FLASH_FEEDBACK_MESSAGE));
+        assertNotNull(RequestContextUtils.getOutputFlashMap(request));
+
+        Cookie expired = response.getCookie(CookieFlashMapManager.COOKIE_NAME);
+        assertNotNull(expired);
+        assertEquals(0, expired.getMaxAge());
+    }
+
+    @Test
+    public void cookieIsNotConsumedByOtherPath() {
+        Cookie cookie = redirect(EDIT_PATH, "");
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", LIST_PATH);
+        request.setCookies(cookie);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        flashMapManager.requestStarted(request);
+        flashMapManager.preHandle(request, response, null);
+
+        assertNull(RequestContextUtils.getInputFlashMap(request));
+        assertNull(response.getCookie(CookieFlashMapManager.COOKIE_NAME));
+    }
+
+    @Test
+    public void redirectInContext() {
+        Cookie cookie = redirect(LIST_PATH, CONTEXT_PATH);
+        assertEquals(CONTEXT_PATH, cookie.getPath());
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", CONTEXT_PATH + LIST_PATH);
+        request.setContextPath(CONTEXT_PATH);
+        request.setCookies(cookie);
+        flashMapManager.requestStarted(request);
+
+        assertNotNull(RequestContextUtils.getInputFlashMap(request));
+    }
+
+    @Test
+    public void tamperedCookieIsIgnored() {
+        Cookie cookie = redirect(LIST_PATH, "");
+        String value = cookie.getValue();
+        String tampered = (value.charAt(0) == '0' ? '1' : '0') + value.substring(1);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", LIST_PATH);
+        request.setCookies(new Cookie(CookieFlashMapManager.COOKIE_NAME, tampered));
+        flashMapManager.requestStarted(request);
+
+        assertNull(RequestContextUtils.getInputFlashMap(request));
+    }
+
+    @Test
+    public void requestWithoutCookie() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", LIST_PATH);
+        flashMapManager.requestStarted(request);
+
+        assertNull(RequestContextUtils.getInputFlashMap(request));
+        assertNotNull(RequestContextUtils.getOutputFlashMap(request));
+    }
+
+    @Test
+    public void flashAttributesWithoutRedirectAreNotWritten() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", LIST_PATH);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        flashMapManager.requestStarted(request);
+        RequestContextUtils.getOutputFlashMap(request).put(FLASH_FEEDBACK_MESSAGE, FEEDBACK_MESSAGE);
+
+        flashMapManager.postHandle(request, response, null, new ModelAndView(VIEW_LIST));
+
+        assertNull(response.getCookie(CookieFlashMapManager.COOKIE_NAME));
+    }
+
+    @Test
+    public void requestStartedTwice() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", LIST_PATH);
+        flashMapManager.requestStarted(request);
+        Object outputFlashMap = request.getAttribute(FlashMapManager.OUTPUT_FLASH_MAP_ATTRIBUTE);
+
+        flashMapManager.requestStarted(request);
+
+        assertTrue(outputFlashMap == request.getAttribute(FlashMapManager.OUTPUT_FLASH_MAP_ATTRIBUTE));
+    }
+
+    private Cookie redirect(String targetPath, String contextPath) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", contextPath + "/user/create");
+        request.setContextPath(contextPath);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        flashMapManager.requestStarted(request);
+        RequestContextUtils.getOutputFlashMap(request).put(FLASH_FEEDBACK_MESSAGE, FEEDBACK_MESSAGE);
+        flashMapManager.postHandle(request, response, null, new ModelAndView(VIEW_REDIRECT_PREFIX + targetPath));
+        flashMapManager.requestCompleted(request);
+
+        return response.getCookie(CookieFlashMapManager.COOKIE_NAME);
+    }
+}
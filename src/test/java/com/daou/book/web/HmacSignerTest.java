@@ -0,0 +1,76 @@
+package com.daou.book.web;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class HmacSignerTest {
+
+    private static final byte[] KEY = "signingKey".getBytes();
+    private static final byte[] OTHER_KEY = "otherKey".getBytes();
+
+    private static final String DATA = "user-5-0";
+    private static final String OTHER_DATA = "user-5-1";
+
+    private static final int SIGNATURE_LENGTH = 64;
+
+    private HmacSigner signer;
+
+    @Before
+    public void setUp() {
+        signer = new HmacSigner(KEY);
+    }
+
+    @Test
+    public void sign() {
+        String signature = signer.sign(DATA);
+
+        assertEquals(SIGNATURE_LENGTH, signature.length());
+        assertEquals(signature, new HmacSigner(KEY).sign(DATA));
+    }
+
+    @Test
+    public void verify() {
+        assertTrue(signer.verify(DATA, signer.sign(DATA)));
+    }
+
+    @Test
+    public void verifySignatureOfOtherData() {
+        assertFalse(signer.verify(OTHER_DATA, signer.sign(DATA)));
+    }
+
+    @Test
+    public void verifySignatureOfOtherKey() {
+        assertFalse(signer.verify(DATA, new HmacSigner(OTHER_KEY).sign(DATA)));
+    }
+
+    @Test
+    public void verifyMissingSignature() {
+        assertFalse(signer.verify(DATA, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyKey() {
+        new HmacSigner(new byte[0]);
+    }
+
+    @Test
+    public void hex() {
+        byte[] bytes = new byte[] {0, 15, -1, 127};
+
+        String hex = HmacSigner.toHex(bytes);
+
+        assertEquals("000fff7f", hex);
+        assertEquals(HmacSigner.toHex(bytes), HmacSigner.toHex(HmacSigner.fromHex(hex)));
+    }
+
+    @Test
+    public void invalidHex() {
+        assertNull(HmacSigner.fromHex("0"));
+        assertNull(HmacSigner.fromHex("zz"));
+    }
+}